@@ -24,7 +24,7 @@ import com.streamsets.pipeline.api.Target;
 import com.streamsets.pipeline.api.base.configurablestage.DTarget;
 
 @StageDef(
-    version = 1,
+    version = 3,
     label = "Azure Data Lake Storage Gen1",
     description = "Writes data to Azure Data Lake Storage Gen1",
     icon = "data-lake-store-gen1.png",
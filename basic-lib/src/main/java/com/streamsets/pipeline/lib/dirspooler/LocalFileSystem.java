@@ -340,4 +340,9 @@ public class LocalFileSystem implements WrappedFileSystem {
   public AbstractSpoolerFileRef.Builder getFileRefBuilder() {
     return new LocalFileRef.Builder();
   }
+
+  @Override
+  public Path getLocalPath(WrappedFile filePath) {
+    return Paths.get(filePath.getAbsolutePath());
+  }
 }
@@ -106,6 +106,19 @@ public class FileTailConfigBean {
   )
   public boolean allowLateDirectories = false;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      label = "Reader Threads",
+      description = "Number of threads used to read the files. Each file is always read by the same thread.",
+      displayPosition = 80,
+      group = "FILES",
+      defaultValue = "1",
+      min = 1,
+      max = Integer.MAX_VALUE
+  )
+  public int readerThreads = 1;
+
   @ConfigDef(
       required = true,
       type = ConfigDef.Type.MODEL,
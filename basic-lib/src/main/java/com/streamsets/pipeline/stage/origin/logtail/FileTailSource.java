@@ -17,6 +17,8 @@ package com.streamsets.pipeline.stage.origin.logtail;
 
 import com.codahale.metrics.Counter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.BatchMaker;
 import com.streamsets.pipeline.api.EventRecord;
 import com.streamsets.pipeline.api.Field;
@@ -50,12 +52,18 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -81,7 +89,9 @@ public class FileTailSource extends BaseSource {
     this.scanIntervalSecs = scanIntervalSecs;
   }
 
-  private MultiFileReader multiDirReader;
+  // each reader tails its own share of the files, they are read in parallel if there is more than one
+  private List<MultiFileReader> multiDirReaders;
+  private ExecutorService readerExecutor;
 
   private long maxWaitTimeMillis;
 
@@ -92,6 +102,14 @@ public class FileTailSource extends BaseSource {
   private Map<String, Counter> offsetLagMetric;
   private Map<String, Counter> pendingFilesMetric;
 
+  /**
+   * Records and errors read by a reader, they are added to the batch by the pipeline thread.
+   */
+  private static class ReadResult {
+    private final List<Record> records = new ArrayList<>();
+    private final List<StageException> errors = new ArrayList<>();
+  }
+
   private boolean validateFileInfo(FileInfo fileInfo, List<ConfigIssue> issues) {
     boolean ok = true;
     String fileName = Paths.get(fileInfo.fileFullPath).getFileName().toString();
@@ -290,17 +308,39 @@ public class FileTailSource extends BaseSource {
             maxLineLength = conf.dataFormatConfig.logMaxObjectLen;
           }
           int scanIntervalSecs = (getContext().isPreview()) ? 0 : this.scanIntervalSecs;
-          multiDirReader = new MultiFileReader(
-              dirInfos,
-              Charset.forName(conf.dataFormatConfig.charset),
-              maxLineLength,
-              conf.postProcessing,
-              conf.archiveDir,
-              true,
-              scanIntervalSecs,
-              conf.allowLateDirectories,
-              getContext().isPreview()
-          );
+
+          // files are distributed round-robin across the readers, a file is always tailed by the same reader
+          int readerCount = Math.max(1, Math.min(conf.readerThreads, dirInfos.size()));
+          // each reader parses its lines concurrently, so each needs its own string builder
+          conf.dataFormatConfig.stringBuilderPoolSize = readerCount;
+          List<List<MultiFileInfo>> readerInfos = new ArrayList<>(readerCount);
+          for (int i = 0; i < readerCount; i++) {
+            readerInfos.add(new ArrayList<>());
+          }
+          for (int i = 0; i < dirInfos.size(); i++) {
+            readerInfos.get(i % readerCount).add(dirInfos.get(i));
+          }
+
+          multiDirReaders = new ArrayList<>(readerCount);
+          for (List<MultiFileInfo> infos : readerInfos) {
+            multiDirReaders.add(new MultiFileReader(
+                infos,
+                Charset.forName(conf.dataFormatConfig.charset),
+                maxLineLength,
+                conf.postProcessing,
+                conf.archiveDir,
+                true,
+                scanIntervalSecs,
+                conf.allowLateDirectories,
+                getContext().isPreview()
+            ));
+          }
+          if (readerCount > 1) {
+            readerExecutor = Executors.newFixedThreadPool(
+                readerCount,
+                new ThreadFactoryBuilder().setNameFormat("File Tail Reader Thread - %d").setDaemon(true).build()
+            );
+          }
         } catch (IOException ex) {
           issues.add(
               getContext().createConfigIssue(
@@ -336,7 +376,12 @@ public class FileTailSource extends BaseSource {
 
   @Override
   public void destroy() {
-    IOUtils.closeQuietly(multiDirReader);
+    if (readerExecutor != null) {
+      readerExecutor.shutdownNow();
+    }
+    if (multiDirReaders != null) {
+      multiDirReaders.forEach(IOUtils::closeQuietly);
+    }
     super.destroy();
   }
 
@@ -395,7 +440,6 @@ public class FileTailSource extends BaseSource {
   */
   @Override
   public String produce(String lastSourceOffset, int maxBatchSize, BatchMaker batchMaker) throws StageException {
-    int recordCounter = 0;
     long startTime = System.currentTimeMillis();
 
     maxBatchSize = Math.min(conf.batchSize, maxBatchSize);
@@ -407,18 +451,132 @@ public class FileTailSource extends BaseSource {
     // deserializing offsets of all directories
     Map<String, String> offsetMap = deserializeOffsetMap(lastSourceOffset);
 
-    boolean offsetSet = false;
-    while (!offsetSet) {
-      try {
-        multiDirReader.setOffsets(offsetMap);
-        offsetSet = true;
-      } catch (IOException ex) {
-        LOG.warn("Error while creating reading previous offset: {}", ex.toString(), ex);
+    for (MultiFileReader multiDirReader : multiDirReaders) {
+      boolean offsetSet = false;
+      while (!offsetSet) {
+        try {
+          multiDirReader.setOffsets(offsetMap);
+          offsetSet = true;
+        } catch (IOException ex) {
+          LOG.warn("Error while creating reading previous offset: {}", ex.toString(), ex);
+          multiDirReader.purge();
+        }
+      }
+    }
+
+    List<ReadResult> results = read(startTime, maxBatchSize);
+    for (ReadResult result : results) {
+      for (Record record : result.records) {
+        batchMaker.addRecord(record, outputLane);
+      }
+      for (StageException error : result.errors) {
+        errorRecordHandler.onError(error.getErrorCode(), error.getParams());
+      }
+    }
+
+    Date now = new Date(startTime);
+    offsetMap = new HashMap<>();
+    for (MultiFileReader multiDirReader : multiDirReaders) {
+      boolean metadataGenerationFailure = false;
+      for (FileEvent event : multiDirReader.getEvents()) {
+        try {
+          LiveFile file = event.getFile().refresh();
+          Record metadataRecord = getContext().createRecord("");
+          Map<String, Field> map = new HashMap<>();
+          map.put("fileName", Field.create(file.getPath().toString()));
+          map.put("inode", Field.create(file.getINode()));
+          map.put("time", Field.createDate(now));
+          map.put("event", Field.create((event.getAction().name())));
+          metadataRecord.set(Field.create(map));
+          batchMaker.addRecord(metadataRecord, metadataLane);
+
+          // We're also sending the same information on event lane
+          String eventRecordSourceId =
+              Utils.format("event:{}:{}:{}", event.getAction().name(), 1, file.getPath().toString());
+          EventRecord eventRecord = getContext().createEventRecord(event.getAction().name(), 1, eventRecordSourceId);
+          eventRecord.set(Field.create(map));
+          getContext().toEvent(eventRecord);
+        } catch (IOException ex) {
+          LOG.warn("Error while creating metadata records: {}", ex.toString(), ex);
+          metadataGenerationFailure = true;
+        }
+      }
+      if (metadataGenerationFailure) {
         multiDirReader.purge();
       }
+
+      boolean offsetExtracted = false;
+      while (!offsetExtracted) {
+        try {
+          offsetMap.putAll(multiDirReader.getOffsets());
+          offsetExtracted = true;
+        } catch (IOException ex) {
+          LOG.warn("Error while creating creating new offset: {}", ex.toString(), ex);
+          multiDirReader.purge();
+        }
+      }
+    }
+
+    //Calculate Offset lag Metric.
+    calculateOffsetLagMetric(offsetMap);
+
+    //Calculate Pending Files Metric
+    calculatePendingFilesMetric();
+
+    // serializing offsets of all directories
+    return serializeOffsetMap(offsetMap);
+  }
+
+
+  /**
+   * Reads chunks from all the readers until the batch is full or the batch wait time passes. With more than one
+   * reader, each reader runs in its own thread and the first one filling the batch wakes up the others.
+   */
+  private List<ReadResult> read(long startTime, int maxBatchSize) throws StageException {
+    AtomicInteger recordCounter = new AtomicInteger();
+    if (readerExecutor == null) {
+      return Collections.singletonList(read(multiDirReaders.get(0), startTime, maxBatchSize, recordCounter));
+    }
+
+    List<Future<ReadResult>> futures = new ArrayList<>(multiDirReaders.size());
+    for (MultiFileReader multiDirReader : multiDirReaders) {
+      futures.add(readerExecutor.submit(() -> {
+        ReadResult result = read(multiDirReader, startTime, maxBatchSize, recordCounter);
+        if (recordCounter.get() >= maxBatchSize) {
+          multiDirReaders.forEach(MultiFileReader::wakeUp);
+        }
+        return result;
+      }));
+    }
+
+    List<ReadResult> results = new ArrayList<>(futures.size());
+    try {
+      for (Future<ReadResult> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new StageException(Errors.TAIL_21, ex.toString(), ex);
+        } catch (ExecutionException ex) {
+          Throwables.propagateIfPossible(ex.getCause(), StageException.class);
+          throw new StageException(Errors.TAIL_21, ex.getCause().toString(), ex.getCause());
+        }
+      }
+    } finally {
+      // readers that stopped before getting to the wake up would otherwise return early in the next batch
+      multiDirReaders.forEach(MultiFileReader::clearWakeUp);
     }
+    return results;
+  }
 
-    while (recordCounter < maxBatchSize && !isTimeout(startTime)) {
+  private ReadResult read(
+      MultiFileReader multiDirReader,
+      long startTime,
+      int maxBatchSize,
+      AtomicInteger recordCounter
+  ) {
+    ReadResult result = new ReadResult();
+    while (recordCounter.get() < maxBatchSize && !isTimeout(startTime)) {
       LiveFileChunk chunk = multiDirReader.next(getRemainingWaitTime(startTime));
 
       if (chunk != null) {
@@ -449,67 +607,18 @@ public class FileTailSource extends BaseSource {
                 HeaderAttributeConstants.LAST_MODIFIED_TIME,
                 String.valueOf(Files.getLastModifiedTime(chunk.getFile().getPath()).toMillis())
               );
-              batchMaker.addRecord(record, outputLane);
-              recordCounter++;
+              result.records.add(record);
+              recordCounter.incrementAndGet();
             }
           } catch (IOException | DataParserException ex) {
-            errorRecordHandler.onError(Errors.TAIL_12, sourceId, ex.toString(), ex);
+            result.errors.add(new StageException(Errors.TAIL_12, sourceId, ex.toString(), ex));
           }
         }
       }
     }
-
-    boolean metadataGenerationFailure = false;
-    Date now = new Date(startTime);
-    for (FileEvent event : multiDirReader.getEvents()) {
-      try {
-        LiveFile file = event.getFile().refresh();
-        Record metadataRecord = getContext().createRecord("");
-        Map<String, Field> map = new HashMap<>();
-        map.put("fileName", Field.create(file.getPath().toString()));
-        map.put("inode", Field.create(file.getINode()));
-        map.put("time", Field.createDate(now));
-        map.put("event", Field.create((event.getAction().name())));
-        metadataRecord.set(Field.create(map));
-        batchMaker.addRecord(metadataRecord, metadataLane);
-
-        // We're also sending the same information on event lane
-        String eventRecordSourceId =
-            Utils.format("event:{}:{}:{}", event.getAction().name(), 1, file.getPath().toString());
-        EventRecord eventRecord = getContext().createEventRecord(event.getAction().name(), 1, eventRecordSourceId);
-        eventRecord.set(Field.create(map));
-        getContext().toEvent(eventRecord);
-      } catch (IOException ex) {
-        LOG.warn("Error while creating metadata records: {}", ex.toString(), ex);
-        metadataGenerationFailure = true;
-      }
-    }
-    if (metadataGenerationFailure) {
-      multiDirReader.purge();
-    }
-
-    boolean offsetExtracted = false;
-    while (!offsetExtracted) {
-      try {
-        offsetMap = multiDirReader.getOffsets();
-        offsetExtracted = true;
-      } catch (IOException ex) {
-        LOG.warn("Error while creating creating new offset: {}", ex.toString(), ex);
-        multiDirReader.purge();
-      }
-    }
-
-    //Calculate Offset lag Metric.
-    calculateOffsetLagMetric(offsetMap);
-
-    //Calculate Pending Files Metric
-    calculatePendingFilesMetric();
-
-    // serializing offsets of all directories
-    return serializeOffsetMap(offsetMap);
+    return result;
   }
 
-
   private void calibrateMetric(Map<String, Long> resultMap, Map<String, Counter> metricMap, String metricPrefix) {
     for (Map.Entry<String, Long> mapEntry : resultMap.entrySet()) {
       String fileKey = mapEntry.getKey();
@@ -526,7 +635,9 @@ public class FileTailSource extends BaseSource {
 
   private void calculateOffsetLagMetric(Map<String, String> offsetMap) {
     try {
-      calibrateMetric(multiDirReader.getOffsetsLag(offsetMap), offsetLagMetric, OFFSETS_LAG);
+      for (MultiFileReader multiDirReader : multiDirReaders) {
+        calibrateMetric(multiDirReader.getOffsetsLag(offsetMap), offsetLagMetric, OFFSETS_LAG);
+      }
     } catch (IOException ex) {
       LOG.warn("Error while Calculating Offset Lag {}", ex.toString(), ex);
     }
@@ -534,7 +645,9 @@ public class FileTailSource extends BaseSource {
 
   private void calculatePendingFilesMetric() {
     try {
-      calibrateMetric(multiDirReader.getPendingFiles(), pendingFilesMetric, PENDING_FILES);
+      for (MultiFileReader multiDirReader : multiDirReaders) {
+        calibrateMetric(multiDirReader.getPendingFiles(), pendingFilesMetric, PENDING_FILES);
+      }
     } catch (IOException ex) {
       LOG.warn("Error while Calculating Pending Files Metric {}", ex.toString(), ex);
     }
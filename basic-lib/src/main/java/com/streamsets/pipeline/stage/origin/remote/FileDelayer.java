@@ -32,11 +32,18 @@ public class FileDelayer {
   }
 
   public boolean isFileReady(RemoteFile file) {
-    boolean fileReady = file.getLastModified() < clock.getCurrentTime() - this.processingDelay;
+    boolean fileReady = isReady(file);
     if (!fileReady) delayed = true;
     return fileReady;
   }
 
+  /**
+   * Same as {@link #isFileReady(RemoteFile)}, without marking the queue as delayed.
+   */
+  boolean isReady(RemoteFile file) {
+    return file.getLastModified() < clock.getCurrentTime() - this.processingDelay;
+  }
+
   public boolean isDelayed() {
     return delayed;
   }
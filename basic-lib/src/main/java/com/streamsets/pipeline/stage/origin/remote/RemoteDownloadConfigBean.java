@@ -128,6 +128,33 @@ public class RemoteDownloadConfigBean {
   )
   public long processingDelay;
 
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "0",
+      label = "Read-Ahead Files",
+      description = "Number of upcoming files downloaded in parallel while the current file is processed. " +
+          "Use 0 to download files one at a time. Not used with the Whole File data format.",
+      displayPosition = 70,
+      group = "REMOTE",
+      min = 0,
+      max = 64
+  )
+  public int prefetchFiles = 0;
+
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "1024",
+      label = "Read-Ahead Buffer Size (KB)",
+      description = "Maximum amount of each upcoming file that is downloaded into memory. " +
+          "The rest of larger files is downloaded when the file is processed.",
+      displayPosition = 80,
+      group = "REMOTE",
+      min = 1
+  )
+  public int prefetchBufferSizeKB = 1024;
+
   @ConfigDef(
       required = true,
       type = ConfigDef.Type.MODEL,
@@ -65,6 +65,7 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.FileSystemException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -129,6 +130,7 @@ public class RemoteDownloadSource extends BaseSource implements FileQueueChecker
 
   private FileFilter fileFilter;
   private RemoteDownloadSourceDelegate delegate;
+  private RemoteFilePrefetcher prefetcher;
 
   public RemoteDownloadSource(RemoteDownloadConfigBean conf, FileDelayer fileDelayer) {
     this.conf = conf;
@@ -191,6 +193,10 @@ public class RemoteDownloadSource extends BaseSource implements FileQueueChecker
         delegate.initAndConnect(issues, getContext(), remoteURI, archiveDir);
       }
     }
+
+    if (issues.isEmpty() && conf.prefetchFiles > 0 && conf.dataFormat != DataFormat.WHOLE_FILE) {
+      prefetcher = new RemoteFilePrefetcher(conf.prefetchFiles, conf.prefetchBufferSizeKB * 1024);
+    }
     return issues;
   }
 
@@ -290,7 +296,7 @@ public class RemoteDownloadSource extends BaseSource implements FileQueueChecker
                 .build();
             parser = conf.dataFormatConfig.getParserFactory().getParser(currentOffset.offsetStr, metadata, fileRef);
           } else {
-            currentStream = next.createInputStream();
+            currentStream = prefetcher != null ? prefetcher.open(next) : next.createInputStream();
             LOG.info("Started reading file: {}", next.getFilePath());
             parser = conf.dataFormatConfig.getParserFactory().getParser(
                 currentOffset.offsetStr, currentStream, currentOffset.getOffset());
@@ -530,9 +536,28 @@ public class RemoteDownloadSource extends BaseSource implements FileQueueChecker
     if (!fileQueue.isEmpty() && fileDelayer.isFileReady(fileQueue.first())) {
       nextFile = Optional.fromNullable(fileQueue.pollFirst());
     }
+    if (prefetcher != null) {
+      prefetchQueuedFiles(nextFile);
+    }
     return nextFile;
   }
 
+  private void prefetchQueuedFiles(Optional<RemoteFile> nextFile) {
+    // Only files that are ready can be fetched ahead, and they are fetched in the order they will be processed.
+    // The next file is passed too so that what was fetched ahead for it is kept until it is opened.
+    List<RemoteFile> readyFiles = new ArrayList<>(conf.prefetchFiles + 1);
+    if (nextFile.isPresent()) {
+      readyFiles.add(nextFile.get());
+    }
+    for (RemoteFile file : fileQueue) {
+      if (readyFiles.size() == conf.prefetchFiles + 1 || !fileDelayer.isReady(file)) {
+        break;
+      }
+      readyFiles.add(file);
+    }
+    prefetcher.prefetch(readyFiles);
+  }
+
   private void queueFiles() throws IOException, StageException {
     delegate.queueFiles(this, fileQueue, fileFilter);
   }
@@ -590,6 +615,9 @@ public class RemoteDownloadSource extends BaseSource implements FileQueueChecker
     try {
       IOUtils.closeQuietly(currentStream);
       IOUtils.closeQuietly(parser);
+      if (prefetcher != null) {
+        prefetcher.close();
+      }
       if (delegate != null) {
         delegate.close();
       }
@@ -597,6 +625,7 @@ public class RemoteDownloadSource extends BaseSource implements FileQueueChecker
       LOG.warn("Error during destroy", ex);
     } finally {
       delegate = null;
+      prefetcher = null;
       //This forces the use of same RemoteDownloadSource object
       //not to have dangling reference to old stream (which is closed)
       //Also forces to initialize the next in produce call.
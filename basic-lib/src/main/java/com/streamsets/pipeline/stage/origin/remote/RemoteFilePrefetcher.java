@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.origin.remote;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.streamsets.pipeline.lib.remote.RemoteFile;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads the files that are next in the queue on a pool of threads while the current file is being parsed.
+ *
+ * Up to {@code bufferSize} bytes of each file are read into memory, larger files keep their stream open and the
+ * remaining bytes are read when the file is parsed. At most one file per thread is fetched ahead, so memory usage is
+ * bounded by the number of threads times the buffer size. Files are still parsed in queue order on the pipeline
+ * thread, so offsets are committed exactly as without read-ahead.
+ *
+ * A failed download is not an error on its own, the file is simply opened again when it is parsed so that failures
+ * are handled the same way as before.
+ */
+class RemoteFilePrefetcher {
+  private static final Logger LOG = LoggerFactory.getLogger(RemoteFilePrefetcher.class);
+  private static final int CHUNK_SIZE = 8 * 1024;
+
+  private final int threads;
+  private final int bufferSize;
+  private final ExecutorService executor;
+  private final Map<String, Future<Prefetched>> inFlight = new LinkedHashMap<>();
+
+  private static class Prefetched {
+    private final byte[] head;
+    private final InputStream remainder;
+
+    private Prefetched(byte[] head, InputStream remainder) {
+      this.head = head;
+      this.remainder = remainder;
+    }
+
+    private InputStream toInputStream() {
+      InputStream headStream = new ByteArrayInputStream(head);
+      return remainder == null ? headStream : new SequenceInputStream(headStream, remainder);
+    }
+  }
+
+  RemoteFilePrefetcher(int threads, int bufferSize) {
+    this.threads = threads;
+    this.bufferSize = bufferSize;
+    this.executor = Executors.newFixedThreadPool(
+        threads,
+        new ThreadFactoryBuilder().setNameFormat("Remote Download Prefetch Thread - %d").setDaemon(true).build()
+    );
+  }
+
+  /**
+   * Starts downloading the given files, in order, until as many files as there are threads are fetched ahead.
+   * The caller is expected to pass the files in the order they will be parsed, starting with the file that is
+   * opened next. Files fetched ahead that are no longer passed (modified, deleted or skipped) are dropped.
+   */
+  void prefetch(Iterable<RemoteFile> files) {
+    Set<String> keys = new HashSet<>();
+    for (RemoteFile file : files) {
+      keys.add(key(file));
+    }
+    Iterator<Map.Entry<String, Future<Prefetched>>> it = inFlight.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, Future<Prefetched>> entry = it.next();
+      if (!keys.contains(entry.getKey())) {
+        LOG.trace("Dropping prefetched file {}", entry.getKey());
+        discard(entry.getValue());
+        it.remove();
+      }
+    }
+
+    for (RemoteFile file : files) {
+      if (inFlight.size() >= threads) {
+        return;
+      }
+      String key = key(file);
+      if (!inFlight.containsKey(key)) {
+        LOG.trace("Prefetching file {}", file.getFilePath());
+        inFlight.put(key, executor.submit(() -> fetch(file)));
+      }
+    }
+  }
+
+  /**
+   * Returns a stream over the given file, either from what was fetched ahead or opened directly if the file was not
+   * fetched ahead or its download failed.
+   */
+  InputStream open(RemoteFile file) throws IOException {
+    Future<Prefetched> future = inFlight.remove(key(file));
+    if (future != null) {
+      try {
+        return future.get().toInputStream();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.cancel(true);
+      } catch (ExecutionException | CancellationException e) {
+        LOG.debug("Prefetching file {} failed, reading it directly: {}", file.getFilePath(), e.toString(), e);
+      }
+    }
+    return file.createInputStream();
+  }
+
+  /**
+   * Drops everything fetched ahead and stops the download threads.
+   */
+  void close() {
+    for (Future<Prefetched> future : inFlight.values()) {
+      discard(future);
+    }
+    inFlight.clear();
+    executor.shutdownNow();
+  }
+
+  // Cancels the download, or closes the stream it left open if it already finished
+  private static void discard(Future<Prefetched> future) {
+    if (!future.cancel(true) && future.isDone()) {
+      try {
+        IOUtils.closeQuietly(future.get().remainder);
+      } catch (Exception e) {
+        LOG.trace("Ignoring failed prefetch while discarding it", e);
+      }
+    }
+  }
+
+  private static String key(RemoteFile file) {
+    // A file that was modified since it was fetched is queued again with its new modification time
+    return file.getFilePath() + "::" + file.getLastModified();
+  }
+
+  private Prefetched fetch(RemoteFile file) throws IOException {
+    InputStream is = file.createInputStream();
+    try {
+      ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(bufferSize, CHUNK_SIZE));
+      byte[] chunk = new byte[CHUNK_SIZE];
+      while (head.size() < bufferSize) {
+        int read = is.read(chunk, 0, Math.min(chunk.length, bufferSize - head.size()));
+        if (read == -1) {
+          is.close();
+          return new Prefetched(head.toByteArray(), null);
+        }
+        head.write(chunk, 0, read);
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        // Cancelled while reading, nobody is going to close the stream
+        throw new InterruptedIOException("Prefetch of " + file.getFilePath() + " was cancelled");
+      }
+      // Buffer is full, the rest of the file is read when it gets parsed
+      return new Prefetched(head.toByteArray(), is);
+    } catch (IOException | RuntimeException e) {
+      IOUtils.closeQuietly(is);
+      throw e;
+    }
+  }
+}
@@ -27,7 +27,7 @@ import com.streamsets.pipeline.api.base.configurablestage.DProcessor;
 import java.util.List;
 
 @StageDef(
-    version=4,
+    version=5,
     label="Geo IP",
     description = "IP address geolocation using a Maxmind GeoIP2 database file",
     icon="globe.png",
@@ -75,8 +75,39 @@ public class GeolocationDProcessor extends DProcessor {
   @ValueChooserModel(GeolocationMissingAddressEnumChooserValues.class)
   public GeolocationMissingAddressAction missingAddressAction;
 
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Preload Databases",
+      description = "Loads the configured fields of the databases into memory when the pipeline starts. " +
+          "Lookups no longer read the database files. Full JSON fields are still read from the databases.",
+      displayPosition = 40,
+      group = "GEOLOCATION"
+  )
+  public boolean preloadIndex = false;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "1000",
+      label = "Lookup Cache Size",
+      description = "Maximum number of addresses whose database responses are cached. " +
+          "The cache is shared by all pipeline runners.",
+      displayPosition = 50,
+      group = "GEOLOCATION",
+      min = 1
+  )
+  public int cacheSize = 1000;
+
   @Override
   protected Processor createProcessor() {
-    return new GeolocationProcessor(dbConfigs, missingAddressAction, fieldTypeConverterConfigs);
+    return new GeolocationProcessor(
+        dbConfigs,
+        missingAddressAction,
+        fieldTypeConverterConfigs,
+        preloadIndex,
+        cacheSize
+    );
   }
 }
@@ -18,9 +18,8 @@ package com.streamsets.pipeline.stage.processor.geolocation;
 import com.google.api.client.util.Sets;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Maps;
 import com.google.common.net.InetAddresses;
 import com.google.common.util.concurrent.UncheckedExecutionException;
@@ -52,6 +51,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,21 +70,42 @@ public class  GeolocationProcessor extends SingleLaneRecordProcessor {
     }
   }
 
+  @VisibleForTesting
+  static final String CACHE_KEY = "geolocation.response.cache";
+  @VisibleForTesting
+  static final String INDEX_KEY = "geolocation.range.index";
+
   private final List<GeolocationDatabaseConfig> dbConfigs;
   private final List<GeolocationFieldConfig> configs;
   private final GeolocationMissingAddressAction missingAddressAction;
+  private final boolean preloadIndex;
+  private final int cacheSize;
   private Map<GeolocationDBType, DatabaseReader> readers = Maps.newHashMap();
-  private LoadingCache<Field, Map<GeolocationDBType, AbstractResponse>> responseCache;
+  private Map<GeolocationDBType, File> databaseFiles = Maps.newHashMap();
+  private Cache<Field, Map<GeolocationDBType, AbstractResponse>> responseCache;
+  private Map<GeolocationField, GeolocationRangeIndex> indexes = new EnumMap<>(GeolocationField.class);
   private DefaultErrorRecordHandler errorRecordHandler;
 
   public GeolocationProcessor(
       List<GeolocationDatabaseConfig> dbConfigs,
       GeolocationMissingAddressAction missingAddressAction,
       List<GeolocationFieldConfig> configs
+  ) {
+    this(dbConfigs, missingAddressAction, configs, false, 1000);
+  }
+
+  public GeolocationProcessor(
+      List<GeolocationDatabaseConfig> dbConfigs,
+      GeolocationMissingAddressAction missingAddressAction,
+      List<GeolocationFieldConfig> configs,
+      boolean preloadIndex,
+      int cacheSize
   ) {
     this.dbConfigs = dbConfigs;
     this.missingAddressAction = missingAddressAction;
     this.configs = configs;
+    this.preloadIndex = preloadIndex;
+    this.cacheSize = cacheSize;
   }
 
   @Override
@@ -140,6 +162,7 @@ public class  GeolocationProcessor extends SingleLaneRecordProcessor {
             // Store the reader for later -- currently only supports one database per type, but it's unclear if there's
             // any reason to have more than one per type.
             readers.put(dbConfig.geoIP2DBType, reader);
+            databaseFiles.put(dbConfig.geoIP2DBType, database);
           } catch (IOException ex) {
             result.add(getContext().createConfigIssue("GEOLOCATION", "dbConfigs", Errors.GEOIP_01, database.getPath(),
                 ex));
@@ -177,48 +200,129 @@ public class  GeolocationProcessor extends SingleLaneRecordProcessor {
       }
     }
 
-    createResponseCache();
+    if (result.isEmpty()) {
+      createResponseCache();
+      if (preloadIndex) {
+        createIndexes(result);
+      }
+    }
 
     return result;
   }
 
+  @SuppressWarnings("unchecked")
   private void createResponseCache() {
-    responseCache = CacheBuilder.newBuilder().maximumSize(1000).build(
-        new CacheLoader<Field, Map<GeolocationDBType, AbstractResponse>>() {
-          @Override
-          public Map<GeolocationDBType, AbstractResponse> load(Field field) throws Exception {
-            Map<GeolocationDBType, AbstractResponse> responses = Maps.newHashMap();
-            // Each time we load an entry, we'll opportunistically just load that entry for all
-            // available databases.
-            for (Map.Entry<GeolocationDBType, DatabaseReader> entry : readers.entrySet()) {
-              DatabaseReader reader = Utils.checkNotNull(entry.getValue(), "DatabaseReader");
-              AbstractResponse resp = null;
-              switch (entry.getKey()) {
-                case COUNTRY:
-                  resp = reader.country(toAddress(field));
-                  break;
-                case CITY:
-                  resp = reader.city(toAddress(field));
-                  break;
-                case ANONYMOUS_IP:
-                  resp = reader.anonymousIp(toAddress(field));
-                  break;
-                case DOMAIN:
-                  resp = reader.domain(toAddress(field));
-                  break;
-                case ISP:
-                  resp = reader.isp(toAddress(field));
-                  break;
-                case CONNECTION_TYPE:
-                  resp =  reader.connectionType(toAddress(field));
-                  break;
-              }
-              responses.put(entry.getKey(), resp);
-            }
+    // The cache is shared by all the runners of a multithreaded pipeline, each runner loads misses with its own readers
+    Map<String, Object> runnerSharedMap = getContext().getStageRunnerSharedMap();
+    synchronized (runnerSharedMap) {
+      responseCache = (Cache<Field, Map<GeolocationDBType, AbstractResponse>>) runnerSharedMap.computeIfAbsent(
+          CACHE_KEY,
+          key -> CacheBuilder.newBuilder().maximumSize(cacheSize).build()
+      );
+    }
+  }
 
-            return responses;
+  private Map<GeolocationDBType, AbstractResponse> loadResponses(Field field) throws Exception {
+    Map<GeolocationDBType, AbstractResponse> responses = Maps.newHashMap();
+    // Each time we load an entry, we'll opportunistically just load that entry for all
+    // available databases.
+    for (Map.Entry<GeolocationDBType, DatabaseReader> entry : readers.entrySet()) {
+      DatabaseReader reader = Utils.checkNotNull(entry.getValue(), "DatabaseReader");
+      responses.put(entry.getKey(), getResponse(reader, entry.getKey(), toAddress(field)));
+    }
+    return responses;
+  }
+
+  static AbstractResponse getResponse(
+      DatabaseReader reader,
+      GeolocationDBType dbType,
+      InetAddress address
+  ) throws IOException, GeoIp2Exception {
+    switch (dbType) {
+      case COUNTRY:
+        return reader.country(address);
+      case CITY:
+        return reader.city(address);
+      case ANONYMOUS_IP:
+        return reader.anonymousIp(address);
+      case DOMAIN:
+        return reader.domain(address);
+      case ISP:
+        return reader.isp(address);
+      case CONNECTION_TYPE:
+        return reader.connectionType(address);
+      default:
+        return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void createIndexes(List<ConfigIssue> issues) {
+    // Group the configured output fields by the database they are read from, see createField
+    Map<GeolocationDBType, List<GeolocationField>> indexedFields = new EnumMap<>(GeolocationDBType.class);
+    for (GeolocationFieldConfig config : configs) {
+      GeolocationDBType dbType = getSourceDatabase(config.targetType);
+      if (dbType != null && GeolocationRangeIndex.canIndex(config.targetType)) {
+        List<GeolocationField> fields = indexedFields.computeIfAbsent(dbType, key -> new ArrayList<>());
+        if (!fields.contains(config.targetType)) {
+          fields.add(config.targetType);
+        }
+      }
+    }
+
+    // The indexes are built by the first runner and shared with the others
+    Map<String, Object> runnerSharedMap = getContext().getStageRunnerSharedMap();
+    synchronized (runnerSharedMap) {
+      Map<GeolocationDBType, GeolocationRangeIndex> sharedIndexes =
+          (Map<GeolocationDBType, GeolocationRangeIndex>) runnerSharedMap.get(INDEX_KEY);
+      if (sharedIndexes == null) {
+        sharedIndexes = new EnumMap<>(GeolocationDBType.class);
+        for (Map.Entry<GeolocationDBType, List<GeolocationField>> entry : indexedFields.entrySet()) {
+          File database = databaseFiles.get(entry.getKey());
+          try {
+            long start = System.currentTimeMillis();
+            GeolocationRangeIndex index = GeolocationRangeIndex.build(
+                database,
+                readers.get(entry.getKey()),
+                entry.getKey(),
+                entry.getValue()
+            );
+            LOG.info(
+                "Loaded {} ranges of database '{}' in {} ms",
+                index.size(),
+                database.getPath(),
+                System.currentTimeMillis() - start
+            );
+            sharedIndexes.put(entry.getKey(), index);
+          } catch (IOException | GeoIp2Exception ex) {
+            issues.add(getContext().createConfigIssue("GEOLOCATION", "preloadIndex", Errors.GEOIP_14,
+                database.getPath(), ex.toString(), ex));
+            LOG.error(Utils.format(Errors.GEOIP_14.getMessage(), database.getPath(), ex.toString()), ex);
+            return;
           }
-        });
+        }
+        runnerSharedMap.put(INDEX_KEY, sharedIndexes);
+      }
+      for (Map.Entry<GeolocationDBType, List<GeolocationField>> entry : indexedFields.entrySet()) {
+        for (GeolocationField field : entry.getValue()) {
+          indexes.put(field, sharedIndexes.get(entry.getKey()));
+        }
+      }
+    }
+  }
+
+  private GeolocationDBType getSourceDatabase(GeolocationField targetType) {
+    // Country fields are read from the country database when there is one
+    if (readers.containsKey(GeolocationDBType.COUNTRY)
+        && targetType.supportedDbTypes.contains(GeolocationDBType.COUNTRY)) {
+      return GeolocationDBType.COUNTRY;
+    }
+    for (GeolocationDBType dbType : targetType.supportedDbTypes) {
+      if (readers.containsKey(dbType)) {
+        return dbType;
+      }
+    }
+    return null;
   }
 
   @Override
@@ -241,117 +345,16 @@ public class  GeolocationProcessor extends SingleLaneRecordProcessor {
         }
 
         try {
-          Map<GeolocationDBType, AbstractResponse> responses = responseCache.get(field);
-          Location location = null;
-          switch (config.targetType) {
-            // Multiple databases support country name and ISO code, so we need to figure out which ones are available
-            case COUNTRY_NAME:
-              String name;
-              if (responses.containsKey(GeolocationDBType.COUNTRY)) {
-                CountryResponse countryResp = (CountryResponse) responses.get(GeolocationDBType.COUNTRY);
-                name = countryResp.getCountry().getName();
-              } else {
-                CityResponse cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
-                name = cityResp.getCountry().getName();
-              }
-              record.set(config.outputFieldName, Field.create(name));
-              break;
-            case COUNTRY_ISO_CODE:
-              String isoCode;
-              if (responses.containsKey(GeolocationDBType.COUNTRY)) {
-                CountryResponse countryResp = (CountryResponse) responses.get(GeolocationDBType.COUNTRY);
-                isoCode = countryResp.getCountry().getIsoCode();
-              } else {
-                CityResponse cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
-                isoCode = cityResp.getCountry().getIsoCode();
-              }
-              record.set(config.outputFieldName, Field.create(isoCode));
-              break;
-            case CITY_NAME:
-              CityResponse cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
-              record.set(config.outputFieldName, Field.create(cityResp.getCity().getName()));
-              break;
-            case LATITUDE:
-              cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
-              location = cityResp.getLocation();
-              record.set(config.outputFieldName, Field.create(Field.Type.DOUBLE, location == null ? null : location.getLatitude()));
-              break;
-            case LONGITUDE:
-              cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
-              location = cityResp.getLocation();
-              record.set(config.outputFieldName, Field.create(Field.Type.DOUBLE, location == null ? null : location.getLongitude()));
-              break;
-            case IS_ANONYMOUS:
-              AnonymousIpResponse anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
-              record.set(config.outputFieldName, Field.create(anonResp.isAnonymous()));
-              break;
-            case IS_ANONYMOUS_VPN:
-              anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
-              record.set(config.outputFieldName, Field.create(anonResp.isAnonymousVpn()));
-              break;
-            case IS_HOSTING_PROVIDER:
-              anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
-              record.set(config.outputFieldName, Field.create(anonResp.isHostingProvider()));
-              break;
-            case IS_PUBLIC_PROXY:
-              anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
-              record.set(config.outputFieldName, Field.create(anonResp.isPublicProxy()));
-              break;
-            case IS_TOR_EXIT_NODE:
-              anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
-              record.set(config.outputFieldName, Field.create(anonResp.isTorExitNode()));
-              break;
-            case DOMAIN:
-              DomainResponse domainResp = (DomainResponse) responses.get(GeolocationDBType.DOMAIN);
-              record.set(config.outputFieldName, Field.create(domainResp.getDomain()));
-              break;
-            case CONNECTION_TYPE:
-              ConnectionTypeResponse connResp = (ConnectionTypeResponse) responses.get(GeolocationDBType.CONNECTION_TYPE);
-              record.set(config.outputFieldName, Field.create(connResp.getConnectionType().toString()));
-              break;
-            case AUTONOMOUS_SYSTEM_NUMBER:
-              IspResponse ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
-              record.set(config.outputFieldName, Field.create(ispResp.getAutonomousSystemNumber()));
-              break;
-            case AUTONOMOUS_SYSTEM_ORG:
-              ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
-              record.set(config.outputFieldName, Field.create(ispResp.getAutonomousSystemOrganization()));
-              break;
-            case ISP:
-              ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
-              record.set(config.outputFieldName, Field.create(ispResp.getIsp()));
-              break;
-            case ORGANIZATION:
-              ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
-              record.set(config.outputFieldName, Field.create(ispResp.getOrganization()));
-              break;
-
-            case CITY_FULL_JSON:
-              cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
-              record.set(config.outputFieldName, Field.create(cityResp.toJson()));
-              break;
-            case COUNTRY_FULL_JSON:
-              CountryResponse countryResp = (CountryResponse) responses.get(GeolocationDBType.COUNTRY);
-              record.set(config.outputFieldName, Field.create(countryResp.toJson()));
-              break;
-            case ANONYMOUS_IP_FULL_JSON:
-              anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
-              record.set(config.outputFieldName, Field.create(anonResp.toJson()));
-              break;
-            case DOMAIN_FULL_JSON:
-              domainResp = (DomainResponse) responses.get(GeolocationDBType.DOMAIN);
-              record.set(config.outputFieldName, Field.create(domainResp.toJson()));
-              break;
-            case CONNECTION_TYPE_FULL_JSON:
-              connResp = (ConnectionTypeResponse) responses.get(GeolocationDBType.CONNECTION_TYPE);
-              record.set(config.outputFieldName, Field.create(connResp.toJson()));
-              break;
-            case ISP_FULL_JSON:
-              ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
-              record.set(config.outputFieldName, Field.create(ispResp.toJson()));
-              break;
-            default:
-              throw new IllegalStateException(Utils.format("Unknown configuration value: ", config.targetType));
+          GeolocationRangeIndex index = indexes.get(config.targetType);
+          if (index != null) {
+            record.set(config.outputFieldName, index.lookup(toAddress(field), config.targetType));
+          } else {
+            Map<GeolocationDBType, AbstractResponse> responses = responseCache.get(field, () -> loadResponses(field));
+            record.set(config.outputFieldName, createField(config.targetType, responses));
+          }
+        } catch (UnknownHostException | AddressNotFoundException ex) {
+          if (!handleMissingAddress(record, field, config, ex)) {
+            return;
           }
         } catch (ExecutionException|UncheckedExecutionException ex) {
           Throwable cause = ex.getCause();
@@ -359,18 +362,8 @@ public class  GeolocationProcessor extends SingleLaneRecordProcessor {
             cause = ex;
           }
           if (cause instanceof UnknownHostException || cause instanceof AddressNotFoundException) {
-            switch (missingAddressAction) {
-              case TO_ERROR:
-                LOG.debug(Utils.format(Errors.GEOIP_02.getMessage(), field.getValue(), config.inputFieldName, cause.getMessage()), cause);
-                errorRecordHandler.onError(new OnRecordErrorException(record, Errors.GEOIP_02, field.getValue(), config.inputFieldName, cause.getMessage()));
-                return;
-              case REPLACE_WITH_NULLS:
-                record.set(config.outputFieldName, Field.create(config.targetType.fieldType, null));
-                break;
-              case IGNORE:
-                break;
-              default:
-                throw new IllegalStateException(Utils.format("Unknown configuration value: ", missingAddressAction));
+            if (!handleMissingAddress(record, field, config, cause)) {
+              return;
             }
             continue;
           }
@@ -388,6 +381,122 @@ public class  GeolocationProcessor extends SingleLaneRecordProcessor {
     batchMaker.addRecord(record);
   }
 
+  /**
+   * Applies the missing address action, returns false if the record has been sent to error.
+   */
+  private boolean handleMissingAddress(
+      Record record,
+      Field field,
+      GeolocationFieldConfig config,
+      Throwable cause
+  ) throws StageException {
+    switch (missingAddressAction) {
+      case TO_ERROR:
+        LOG.debug(Utils.format(Errors.GEOIP_02.getMessage(), field.getValue(), config.inputFieldName, cause.getMessage()), cause);
+        errorRecordHandler.onError(new OnRecordErrorException(record, Errors.GEOIP_02, field.getValue(), config.inputFieldName, cause.getMessage()));
+        return false;
+      case REPLACE_WITH_NULLS:
+        record.set(config.outputFieldName, Field.create(config.targetType.fieldType, null));
+        return true;
+      case IGNORE:
+        return true;
+      default:
+        throw new IllegalStateException(Utils.format("Unknown configuration value: ", missingAddressAction));
+    }
+  }
+
+  static Field createField(GeolocationField targetType, Map<GeolocationDBType, AbstractResponse> responses) {
+    Location location;
+    switch (targetType) {
+      // Multiple databases support country name and ISO code, so we need to figure out which ones are available
+      case COUNTRY_NAME:
+        String name;
+        if (responses.containsKey(GeolocationDBType.COUNTRY)) {
+          CountryResponse countryResp = (CountryResponse) responses.get(GeolocationDBType.COUNTRY);
+          name = countryResp.getCountry().getName();
+        } else {
+          CityResponse cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
+          name = cityResp.getCountry().getName();
+        }
+        return Field.create(name);
+      case COUNTRY_ISO_CODE:
+        String isoCode;
+        if (responses.containsKey(GeolocationDBType.COUNTRY)) {
+          CountryResponse countryResp = (CountryResponse) responses.get(GeolocationDBType.COUNTRY);
+          isoCode = countryResp.getCountry().getIsoCode();
+        } else {
+          CityResponse cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
+          isoCode = cityResp.getCountry().getIsoCode();
+        }
+        return Field.create(isoCode);
+      case CITY_NAME:
+        CityResponse cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
+        return Field.create(cityResp.getCity().getName());
+      case LATITUDE:
+        cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
+        location = cityResp.getLocation();
+        return Field.create(Field.Type.DOUBLE, location == null ? null : location.getLatitude());
+      case LONGITUDE:
+        cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
+        location = cityResp.getLocation();
+        return Field.create(Field.Type.DOUBLE, location == null ? null : location.getLongitude());
+      case IS_ANONYMOUS:
+        AnonymousIpResponse anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
+        return Field.create(anonResp.isAnonymous());
+      case IS_ANONYMOUS_VPN:
+        anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
+        return Field.create(anonResp.isAnonymousVpn());
+      case IS_HOSTING_PROVIDER:
+        anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
+        return Field.create(anonResp.isHostingProvider());
+      case IS_PUBLIC_PROXY:
+        anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
+        return Field.create(anonResp.isPublicProxy());
+      case IS_TOR_EXIT_NODE:
+        anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
+        return Field.create(anonResp.isTorExitNode());
+      case DOMAIN:
+        DomainResponse domainResp = (DomainResponse) responses.get(GeolocationDBType.DOMAIN);
+        return Field.create(domainResp.getDomain());
+      case CONNECTION_TYPE:
+        ConnectionTypeResponse connResp = (ConnectionTypeResponse) responses.get(GeolocationDBType.CONNECTION_TYPE);
+        return Field.create(connResp.getConnectionType().toString());
+      case AUTONOMOUS_SYSTEM_NUMBER:
+        IspResponse ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
+        return Field.create(ispResp.getAutonomousSystemNumber());
+      case AUTONOMOUS_SYSTEM_ORG:
+        ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
+        return Field.create(ispResp.getAutonomousSystemOrganization());
+      case ISP:
+        ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
+        return Field.create(ispResp.getIsp());
+      case ORGANIZATION:
+        ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
+        return Field.create(ispResp.getOrganization());
+
+      case CITY_FULL_JSON:
+        cityResp = (CityResponse) responses.get(GeolocationDBType.CITY);
+        return Field.create(cityResp.toJson());
+      case COUNTRY_FULL_JSON:
+        CountryResponse countryResp = (CountryResponse) responses.get(GeolocationDBType.COUNTRY);
+        return Field.create(countryResp.toJson());
+      case ANONYMOUS_IP_FULL_JSON:
+        anonResp = (AnonymousIpResponse) responses.get(GeolocationDBType.ANONYMOUS_IP);
+        return Field.create(anonResp.toJson());
+      case DOMAIN_FULL_JSON:
+        domainResp = (DomainResponse) responses.get(GeolocationDBType.DOMAIN);
+        return Field.create(domainResp.toJson());
+      case CONNECTION_TYPE_FULL_JSON:
+        connResp = (ConnectionTypeResponse) responses.get(GeolocationDBType.CONNECTION_TYPE);
+        return Field.create(connResp.toJson());
+      case ISP_FULL_JSON:
+        ispResp = (IspResponse) responses.get(GeolocationDBType.ISP);
+        return Field.create(ispResp.toJson());
+      default:
+        throw new IllegalStateException(Utils.format("Unknown configuration value: ", targetType));
+    }
+  }
+
   @VisibleForTesting
   InetAddress toAddress(Field field) throws UnknownHostException, OnRecordErrorException {
     switch (field.getType()) {
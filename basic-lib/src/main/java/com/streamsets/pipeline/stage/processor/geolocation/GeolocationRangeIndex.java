@@ -0,0 +1,527 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.geolocation;
+
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AbstractResponse;
+import com.streamsets.pipeline.api.Field;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorted range index over a MaxMind database holding only the configured output fields.
+ *
+ * The search tree of the database is walked once, every network is turned into an address range and adjacent
+ * ranges with the same output values are merged. Lookups are a binary search over primitive arrays and don't
+ * touch the database anymore.
+ */
+final class GeolocationRangeIndex {
+  private static final byte[] METADATA_START_MARKER = {
+      (byte) 0xAB, (byte) 0xCD, (byte) 0xEF, 'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'
+  };
+  private static final int METADATA_MAX_SIZE = 128 * 1024;
+  private static final int IPV4_START_DEPTH = 96;
+
+  private final int ipVersion;
+  private final int[] columns;
+  private final Field[][] rows;
+
+  // IPv4 ranges, compared as unsigned integers
+  private final int[] v4Starts;
+  private final int[] v4Ends;
+  private final int[] v4Rows;
+
+  // IPv6 ranges, each address is split in its high and low 64 bits
+  private final long[] v6StartsHi;
+  private final long[] v6StartsLo;
+  private final long[] v6EndsHi;
+  private final long[] v6EndsLo;
+  private final int[] v6Rows;
+
+  // IPv6 networks that point back to the IPv4 part of the tree (IPv4 mapped, Teredo, 6to4)
+  private final int[] aliasDepths;
+  private final long[] aliasHi;
+  private final long[] aliasLo;
+
+  private GeolocationRangeIndex(Builder builder) {
+    this.ipVersion = builder.ipVersion;
+    this.columns = new int[GeolocationField.values().length];
+    Arrays.fill(columns, -1);
+    for (int i = 0; i < builder.fields.size(); i++) {
+      columns[builder.fields.get(i).ordinal()] = i;
+    }
+    this.rows = builder.rows.toArray(new Field[builder.rows.size()][]);
+    this.v4Starts = Arrays.copyOf(builder.v4Starts, builder.v4Count);
+    this.v4Ends = Arrays.copyOf(builder.v4Ends, builder.v4Count);
+    this.v4Rows = Arrays.copyOf(builder.v4Rows, builder.v4Count);
+    this.v6StartsHi = Arrays.copyOf(builder.v6StartsHi, builder.v6Count);
+    this.v6StartsLo = Arrays.copyOf(builder.v6StartsLo, builder.v6Count);
+    this.v6EndsHi = Arrays.copyOf(builder.v6EndsHi, builder.v6Count);
+    this.v6EndsLo = Arrays.copyOf(builder.v6EndsLo, builder.v6Count);
+    this.v6Rows = Arrays.copyOf(builder.v6Rows, builder.v6Count);
+    this.aliasDepths = new int[builder.aliases.size()];
+    this.aliasHi = new long[builder.aliases.size()];
+    this.aliasLo = new long[builder.aliases.size()];
+    for (int i = 0; i < builder.aliases.size(); i++) {
+      long[] alias = builder.aliases.get(i);
+      aliasDepths[i] = (int) alias[0];
+      aliasHi[i] = alias[1];
+      aliasLo[i] = alias[2];
+    }
+  }
+
+  /**
+   * Returns true if the values of the field only depend on the database record, the full JSON responses also
+   * contain the looked up address so they can't be shared by a range.
+   */
+  static boolean canIndex(GeolocationField field) {
+    switch (field) {
+      case COUNTRY_FULL_JSON:
+      case CITY_FULL_JSON:
+      case ANONYMOUS_IP_FULL_JSON:
+      case DOMAIN_FULL_JSON:
+      case CONNECTION_TYPE_FULL_JSON:
+      case ISP_FULL_JSON:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Builds the index of the given fields, the values of each distinct database record are read once using the
+   * reader of the same database.
+   */
+  static GeolocationRangeIndex build(
+      File database,
+      DatabaseReader reader,
+      GeolocationDBType dbType,
+      List<GeolocationField> fields
+  ) throws IOException, GeoIp2Exception {
+    ByteBuffer buffer;
+    try (RandomAccessFile file = new RandomAccessFile(database, "r")) {
+      buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+    }
+    Builder builder = new Builder(buffer, reader, dbType, fields);
+    builder.build();
+    return new GeolocationRangeIndex(builder);
+  }
+
+  /**
+   * Returns the number of ranges in the index.
+   */
+  int size() {
+    return v4Starts.length + v6StartsHi.length;
+  }
+
+  /**
+   * Returns a new field with the value of the given output field for the address.
+   */
+  Field lookup(InetAddress address, GeolocationField field) throws AddressNotFoundException {
+    int column = columns[field.ordinal()];
+    if (column < 0) {
+      throw new IllegalArgumentException("Field " + field + " is not indexed");
+    }
+    byte[] bytes = address.getAddress();
+    int row;
+    if (bytes.length == 4) {
+      row = findV4(toInt(bytes, 0));
+    } else if (ipVersion == 4) {
+      throw new IllegalArgumentException("Error looking up " + address + ". You attempted to look up an IPv6 " +
+          "address in an IPv4-only database.");
+    } else {
+      row = findV6(toLong(bytes, 0), toLong(bytes, 8));
+    }
+    if (row < 0) {
+      throw new AddressNotFoundException("The address " + address.getHostAddress() + " is not in the database.");
+    }
+    Field value = rows[row][column];
+    return Field.create(value.getType(), value.getValue());
+  }
+
+  private int findV4(int address) {
+    int low = 0;
+    int high = v4Starts.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (Integer.compareUnsigned(v4Starts[mid], address) > 0) {
+        high = mid - 1;
+      } else if (Integer.compareUnsigned(v4Ends[mid], address) < 0) {
+        low = mid + 1;
+      } else {
+        return v4Rows[mid];
+      }
+    }
+    return -1;
+  }
+
+  private int findV6(long hi, long lo) {
+    for (int i = 0; i < aliasDepths.length; i++) {
+      if (matches(hi, lo, aliasHi[i], aliasLo[i], aliasDepths[i])) {
+        return findV4(bitsAt(hi, lo, aliasDepths[i]));
+      }
+    }
+    int low = 0;
+    int high = v6StartsHi.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (compare(v6StartsHi[mid], v6StartsLo[mid], hi, lo) > 0) {
+        high = mid - 1;
+      } else if (compare(v6EndsHi[mid], v6EndsLo[mid], hi, lo) < 0) {
+        low = mid + 1;
+      } else {
+        return v6Rows[mid];
+      }
+    }
+    return -1;
+  }
+
+  private static int compare(long hi1, long lo1, long hi2, long lo2) {
+    int result = Long.compareUnsigned(hi1, hi2);
+    return result != 0 ? result : Long.compareUnsigned(lo1, lo2);
+  }
+
+  private static boolean matches(long hi, long lo, long prefixHi, long prefixLo, int depth) {
+    if (depth <= 64) {
+      return (hi & (-1L << (64 - depth))) == prefixHi;
+    }
+    return hi == prefixHi && (lo & (-1L << (128 - depth))) == prefixLo;
+  }
+
+  // Returns the 32 bits of the address starting at the given bit
+  private static int bitsAt(long hi, long lo, int offset) {
+    if (offset <= 32) {
+      return (int) (hi >>> (32 - offset));
+    } else if (offset >= 64) {
+      return (int) (lo >>> (96 - offset));
+    }
+    return (int) ((hi << (offset - 32)) | (lo >>> (96 - offset)));
+  }
+
+  private static int toInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 |
+        (bytes[offset + 3] & 0xFF);
+  }
+
+  private static long toLong(byte[] bytes, int offset) {
+    return ((long) toInt(bytes, offset) << 32) | (toInt(bytes, offset + 4) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Walks the search tree of the database, see https://maxmind.github.io/MaxMind-DB/ for the format.
+   */
+  private static final class Builder {
+    private final ByteBuffer buffer;
+    private final DatabaseReader reader;
+    private final GeolocationDBType dbType;
+    private final List<GeolocationField> fields;
+
+    private int ipVersion;
+    private int nodeCount;
+    private int recordSize;
+    private int nodeByteSize;
+    private int ipv4Start;
+
+    private final Map<Integer, Integer> rowsByRecord = new HashMap<>();
+    private final Map<List<Object>, Integer> rowsByValues = new HashMap<>();
+    private final List<Field[]> rows = new ArrayList<>();
+
+    private int v4Count;
+    private int[] v4Starts = new int[1024];
+    private int[] v4Ends = new int[1024];
+    private int[] v4Rows = new int[1024];
+
+    private int v6Count;
+    private long[] v6StartsHi = new long[1024];
+    private long[] v6StartsLo = new long[1024];
+    private long[] v6EndsHi = new long[1024];
+    private long[] v6EndsLo = new long[1024];
+    private int[] v6Rows = new int[1024];
+
+    private final List<long[]> aliases = new ArrayList<>();
+
+    private Builder(ByteBuffer buffer, DatabaseReader reader, GeolocationDBType dbType, List<GeolocationField> fields) {
+      this.buffer = buffer;
+      this.reader = reader;
+      this.dbType = dbType;
+      this.fields = fields;
+    }
+
+    private void build() throws IOException, GeoIp2Exception {
+      readMetadata();
+      if (ipVersion == 4) {
+        visitV4(0, 0, 0);
+      } else {
+        ipv4Start = 0;
+        for (int depth = 0; depth < IPV4_START_DEPTH && ipv4Start < nodeCount; depth++) {
+          ipv4Start = readRecord(ipv4Start, 0);
+        }
+        visitV4(ipv4Start, 0, 0);
+        visitV6(0, 0, 0, 0);
+      }
+    }
+
+    private void readMetadata() throws IOException {
+      int position = findMetadataStart();
+      if (position < 0) {
+        throw new IOException("Could not find a MaxMind DB metadata marker in the database");
+      }
+      buffer.position(position);
+      Object metadata = decode();
+      if (!(metadata instanceof Map)) {
+        throw new IOException("Invalid MaxMind DB metadata");
+      }
+      Map<?, ?> values = (Map<?, ?>) metadata;
+      ipVersion = toInt(values.get("ip_version"));
+      nodeCount = toInt(values.get("node_count"));
+      recordSize = toInt(values.get("record_size"));
+      if (recordSize != 24 && recordSize != 28 && recordSize != 32) {
+        throw new IOException("Unsupported MaxMind DB record size: " + recordSize);
+      }
+      nodeByteSize = recordSize / 4;
+    }
+
+    private int findMetadataStart() {
+      int limit = Math.max(0, buffer.capacity() - METADATA_MAX_SIZE);
+      for (int start = buffer.capacity() - METADATA_START_MARKER.length; start >= limit; start--) {
+        int i = 0;
+        while (i < METADATA_START_MARKER.length && buffer.get(start + i) == METADATA_START_MARKER[i]) {
+          i++;
+        }
+        if (i == METADATA_START_MARKER.length) {
+          return start + i;
+        }
+      }
+      return -1;
+    }
+
+    private static int toInt(Object value) throws IOException {
+      if (!(value instanceof Number)) {
+        throw new IOException("Invalid MaxMind DB metadata value: " + value);
+      }
+      return ((Number) value).intValue();
+    }
+
+    // Decodes a value of the data section format at the current position of the buffer
+    private Object decode() throws IOException {
+      int control = buffer.get() & 0xFF;
+      int type = control >>> 5;
+      if (type == 0) {
+        type = 7 + (buffer.get() & 0xFF);
+      }
+      int size = control & 0x1F;
+      if (size == 29) {
+        size = 29 + (buffer.get() & 0xFF);
+      } else if (size == 30) {
+        size = 285 + readUnsigned(2).intValue();
+      } else if (size == 31) {
+        size = 65821 + readUnsigned(3).intValue();
+      }
+      switch (type) {
+        case 2:
+          byte[] bytes = new byte[size];
+          buffer.get(bytes);
+          return new String(bytes, StandardCharsets.UTF_8);
+        case 3:
+          return buffer.getDouble();
+        case 4:
+          bytes = new byte[size];
+          buffer.get(bytes);
+          return bytes;
+        case 5:
+        case 6:
+        case 9:
+        case 10:
+          return readUnsigned(size);
+        case 7:
+          Map<Object, Object> map = new LinkedHashMap<>();
+          for (int i = 0; i < size; i++) {
+            Object key = decode();
+            map.put(key, decode());
+          }
+          return map;
+        case 8:
+          return readUnsigned(size).intValue();
+        case 11:
+          List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(decode());
+          }
+          return list;
+        case 14:
+          return size != 0;
+        case 15:
+          return buffer.getFloat();
+        default:
+          throw new IOException("Unsupported MaxMind DB metadata type: " + type);
+      }
+    }
+
+    private BigInteger readUnsigned(int size) {
+      byte[] bytes = new byte[size + 1];
+      buffer.get(bytes, 1, size);
+      return new BigInteger(bytes);
+    }
+
+    private int readRecord(int node, int index) {
+      int base = node * nodeByteSize;
+      switch (recordSize) {
+        case 24:
+          return readUnsigned24(base + index * 3);
+        case 28:
+          if (index == 0) {
+            return ((buffer.get(base + 3) & 0xF0) << 20) | readUnsigned24(base);
+          }
+          return ((buffer.get(base + 3) & 0x0F) << 24) | readUnsigned24(base + 4);
+        default:
+          return buffer.getInt(base + index * 4);
+      }
+    }
+
+    private int readUnsigned24(int offset) {
+      return (buffer.get(offset) & 0xFF) << 16 | (buffer.get(offset + 1) & 0xFF) << 8 | (buffer.get(offset + 2) & 0xFF);
+    }
+
+    private void visitV4(int record, int depth, int prefix) throws IOException, GeoIp2Exception {
+      if (record == nodeCount) {
+        return;
+      } else if (record > nodeCount) {
+        addV4(prefix, prefix | (depth == 32 ? 0 : -1 >>> depth), record);
+        return;
+      } else if (depth == 32) {
+        throw new IOException("Invalid MaxMind DB search tree, node " + record + " is too deep");
+      }
+      visitV4(readRecord(record, 0), depth + 1, prefix);
+      visitV4(readRecord(record, 1), depth + 1, prefix | (1 << (31 - depth)));
+    }
+
+    private void visitV6(int record, int depth, long hi, long lo) throws IOException, GeoIp2Exception {
+      if (record == nodeCount) {
+        return;
+      } else if (record > nodeCount) {
+        long endHi = depth >= 64 ? hi : hi | (-1L >>> depth);
+        long endLo = depth <= 64 ? -1L : lo | (depth == 128 ? 0 : -1L >>> (depth - 64));
+        addV6(hi, lo, endHi, endLo, record);
+        return;
+      } else if (depth > 0 && record == ipv4Start) {
+        // The IPv4 part has been indexed on its own, other networks pointing to it are looked up as IPv4
+        if ((depth != IPV4_START_DEPTH || hi != 0 || lo != 0) && depth <= IPV4_START_DEPTH) {
+          aliases.add(new long[]{depth, hi, lo});
+        }
+        return;
+      } else if (depth == 128) {
+        throw new IOException("Invalid MaxMind DB search tree, node " + record + " is too deep");
+      }
+      visitV6(readRecord(record, 0), depth + 1, hi, lo);
+      if (depth < 64) {
+        visitV6(readRecord(record, 1), depth + 1, hi | (1L << (63 - depth)), lo);
+      } else {
+        visitV6(readRecord(record, 1), depth + 1, hi, lo | (1L << (127 - depth)));
+      }
+    }
+
+    private void addV4(int start, int end, int record) throws IOException, GeoIp2Exception {
+      byte[] address = {(byte) (start >>> 24), (byte) (start >>> 16), (byte) (start >>> 8), (byte) start};
+      int row = getRow(record, InetAddress.getByAddress(address));
+      if (v4Count > 0 && v4Rows[v4Count - 1] == row && v4Ends[v4Count - 1] + 1 == start) {
+        v4Ends[v4Count - 1] = end;
+        return;
+      }
+      if (v4Count == v4Starts.length) {
+        v4Starts = Arrays.copyOf(v4Starts, v4Count * 2);
+        v4Ends = Arrays.copyOf(v4Ends, v4Count * 2);
+        v4Rows = Arrays.copyOf(v4Rows, v4Count * 2);
+      }
+      v4Starts[v4Count] = start;
+      v4Ends[v4Count] = end;
+      v4Rows[v4Count] = row;
+      v4Count++;
+    }
+
+    private void addV6(long startHi, long startLo, long endHi, long endLo, int record)
+        throws IOException, GeoIp2Exception {
+      byte[] address = new byte[16];
+      for (int i = 0; i < 8; i++) {
+        address[i] = (byte) (startHi >>> (56 - i * 8));
+        address[i + 8] = (byte) (startLo >>> (56 - i * 8));
+      }
+      // Inet6Address keeps IPv4 mapped addresses as IPv6, the same way the database stores them
+      int row = getRow(record, Inet6Address.getByAddress(null, address, -1));
+      if (v6Count > 0 && v6Rows[v6Count - 1] == row) {
+        long lastHi = v6EndsHi[v6Count - 1];
+        long lastLo = v6EndsLo[v6Count - 1];
+        if (lastLo + 1 == startLo && (lastLo == -1L ? lastHi + 1 : lastHi) == startHi) {
+          v6EndsHi[v6Count - 1] = endHi;
+          v6EndsLo[v6Count - 1] = endLo;
+          return;
+        }
+      }
+      if (v6Count == v6StartsHi.length) {
+        v6StartsHi = Arrays.copyOf(v6StartsHi, v6Count * 2);
+        v6StartsLo = Arrays.copyOf(v6StartsLo, v6Count * 2);
+        v6EndsHi = Arrays.copyOf(v6EndsHi, v6Count * 2);
+        v6EndsLo = Arrays.copyOf(v6EndsLo, v6Count * 2);
+        v6Rows = Arrays.copyOf(v6Rows, v6Count * 2);
+      }
+      v6StartsHi[v6Count] = startHi;
+      v6StartsLo[v6Count] = startLo;
+      v6EndsHi[v6Count] = endHi;
+      v6EndsLo[v6Count] = endLo;
+      v6Rows[v6Count] = row;
+      v6Count++;
+    }
+
+    // Networks pointing to the same data record share a row, as do records with the same output values
+    private int getRow(int record, InetAddress address) throws IOException, GeoIp2Exception {
+      Integer row = rowsByRecord.get(record);
+      if (row == null) {
+        AbstractResponse response = GeolocationProcessor.getResponse(reader, dbType, address);
+        Map<GeolocationDBType, AbstractResponse> responses = Collections.singletonMap(dbType, response);
+        Field[] values = new Field[fields.size()];
+        List<Object> key = new ArrayList<>(fields.size());
+        for (int i = 0; i < values.length; i++) {
+          values[i] = GeolocationProcessor.createField(fields.get(i), responses);
+          key.add(values[i].getValue());
+        }
+        row = rowsByValues.get(key);
+        if (row == null) {
+          row = rows.size();
+          rows.add(values);
+          rowsByValues.put(key, row);
+        }
+        rowsByRecord.put(record, row);
+      }
+      return row;
+    }
+  }
+}
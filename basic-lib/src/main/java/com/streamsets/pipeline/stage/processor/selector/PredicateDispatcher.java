@@ -0,0 +1,314 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.selector;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the conditions that only compare one record field or attribute with string literals, for instance
+ * {@code ${record:value('/type') == 'X' || record:value('/type') == 'Y'}}, with hash lookups instead of evaluating
+ * them.
+ * <p/>
+ * Conditions testing the same field or attribute share a single table, so the value is read once per record no
+ * matter how many conditions use it. The tables are only used when the value is a string (or null), as the EL
+ * coerces other types before comparing them; for those records the conditions are evaluated as usual.
+ */
+class PredicateDispatcher {
+
+  private static final String VALUE_FUNCTION = "record:value";
+  private static final String ATTRIBUTE_FUNCTION = "record:attribute";
+
+  private final Subject[] subjects;
+  // Index of the subject resolving each condition, -1 if the condition has to be evaluated
+  private final int[] conditionSubjects;
+  private final int compiledConditions;
+  private final boolean[] matches;
+
+  private PredicateDispatcher(Subject[] subjects, int[] conditionSubjects, int compiledConditions) {
+    this.subjects = subjects;
+    this.conditionSubjects = conditionSubjects;
+    this.compiledConditions = compiledConditions;
+    this.matches = new boolean[conditionSubjects.length];
+  }
+
+  /**
+   * Analyzes the given conditions, the default condition excluded.
+   */
+  static PredicateDispatcher compile(List<String> predicates) {
+    List<Subject> subjects = new ArrayList<>();
+    Map<String, Integer> subjectIndexes = new HashMap<>();
+    int[] conditionSubjects = new int[predicates.size()];
+    int compiled = 0;
+    for (int i = 0; i < predicates.size(); i++) {
+      conditionSubjects[i] = -1;
+      Parser parser = new Parser(predicates.get(i));
+      if (parser.parse()) {
+        Integer index = subjectIndexes.computeIfAbsent(parser.function + "('" + parser.argument + "')", key -> {
+          subjects.add(new Subject(VALUE_FUNCTION.equals(parser.function), parser.argument));
+          return subjects.size() - 1;
+        });
+        subjects.get(index).add(i, parser.literals);
+        conditionSubjects[i] = index;
+        compiled++;
+      }
+    }
+    return new PredicateDispatcher(subjects.toArray(new Subject[0]), conditionSubjects, compiled);
+  }
+
+  int getCompiledConditions() {
+    return compiledConditions;
+  }
+
+  int getConditions() {
+    return conditionSubjects.length;
+  }
+
+  boolean isCompiled(int condition) {
+    return conditionSubjects[condition] >= 0;
+  }
+
+  /**
+   * Looks up the record in all the tables, see {@link #isResolved(int)} for the conditions that still have to be
+   * evaluated.
+   */
+  void dispatch(Record record) {
+    Arrays.fill(matches, false);
+    for (Subject subject : subjects) {
+      subject.lookup(record, matches);
+    }
+  }
+
+  /**
+   * Returns true if the table resolved the condition for the last record given to {@link #dispatch(Record)}.
+   */
+  boolean isResolved(int condition) {
+    int subject = conditionSubjects[condition];
+    return subject >= 0 && subjects[subject].resolved;
+  }
+
+  /**
+   * Result of a resolved condition for the last record given to {@link #dispatch(Record)}.
+   */
+  boolean matches(int condition) {
+    return matches[condition];
+  }
+
+  /**
+   * A field or attribute tested by compiled conditions, with the conditions satisfied by each value.
+   */
+  private static class Subject {
+    private static final int[] NO_CONDITIONS = new int[0];
+
+    private final boolean field;
+    private final String name;
+    private final Map<String, int[]> conditionsByValue = new HashMap<>();
+    private boolean resolved;
+
+    Subject(boolean field, String name) {
+      this.field = field;
+      this.name = name;
+    }
+
+    void add(int condition, Set<String> values) {
+      for (String value : values) {
+        int[] conditions = conditionsByValue.getOrDefault(value, NO_CONDITIONS);
+        conditions = Arrays.copyOf(conditions, conditions.length + 1);
+        conditions[conditions.length - 1] = condition;
+        conditionsByValue.put(value, conditions);
+      }
+    }
+
+    void lookup(Record record, boolean[] matches) {
+      Object value;
+      try {
+        value = field ? getFieldValue(record) : record.getHeader().getAttribute(name);
+      } catch (RuntimeException ex) {
+        // Let the evaluation report the error
+        resolved = false;
+        return;
+      }
+      if (value == null) {
+        // null is never equal to a literal
+        resolved = true;
+      } else if (value instanceof String) {
+        resolved = true;
+        for (int condition : conditionsByValue.getOrDefault(value, NO_CONDITIONS)) {
+          matches[condition] = true;
+        }
+      } else {
+        resolved = false;
+      }
+    }
+
+    private Object getFieldValue(Record record) {
+      Field field = record.get(name);
+      return field == null ? null : field.getValue();
+    }
+  }
+
+  /**
+   * Recognizes conditions made of equality tests between a single record:value() or record:attribute() call and
+   * string literals, joined with or.
+   */
+  private static class Parser {
+    private final String expression;
+    private int pos;
+    private String function;
+    private String argument;
+    private final Set<String> literals = new LinkedHashSet<>();
+
+    Parser(String predicate) {
+      String trimmed = predicate.trim();
+      expression = trimmed.startsWith("${") && trimmed.endsWith("}")
+          ? trimmed.substring(2, trimmed.length() - 1)
+          : null;
+    }
+
+    boolean parse() {
+      if (expression == null) {
+        return false;
+      }
+      return disjunction() && skipWhitespace() == expression.length();
+    }
+
+    private boolean disjunction() {
+      if (!term()) {
+        return false;
+      }
+      while (acceptOperator("||", "or")) {
+        if (!term()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean term() {
+      skipWhitespace();
+      if (accept("(")) {
+        return disjunction() && accept(")");
+      }
+      String literal;
+      if (isQuote()) {
+        literal = literal();
+        if (literal == null || !acceptOperator("==", "eq") || !subject()) {
+          return false;
+        }
+      } else {
+        if (!subject() || !acceptOperator("==", "eq")) {
+          return false;
+        }
+        literal = literal();
+        if (literal == null) {
+          return false;
+        }
+      }
+      literals.add(literal);
+      return true;
+    }
+
+    private boolean subject() {
+      skipWhitespace();
+      String name;
+      if (accept(VALUE_FUNCTION)) {
+        name = VALUE_FUNCTION;
+      } else if (accept(ATTRIBUTE_FUNCTION)) {
+        name = ATTRIBUTE_FUNCTION;
+      } else {
+        return false;
+      }
+      if (!accept("(")) {
+        return false;
+      }
+      String arg = literal();
+      if (arg == null || !accept(")")) {
+        return false;
+      }
+      if (function == null) {
+        function = name;
+        argument = arg;
+        return true;
+      }
+      // All the tests must be on the same field or attribute
+      return function.equals(name) && argument.equals(arg);
+    }
+
+    private String literal() {
+      skipWhitespace();
+      if (!isQuote()) {
+        return null;
+      }
+      char quote = expression.charAt(pos);
+      int end = pos + 1;
+      while (end < expression.length() && expression.charAt(end) != quote) {
+        if (expression.charAt(end) == '\\') {
+          // Escapes are left to the EL
+          return null;
+        }
+        end++;
+      }
+      if (end == expression.length()) {
+        return null;
+      }
+      String literal = expression.substring(pos + 1, end);
+      pos = end + 1;
+      return literal;
+    }
+
+    private boolean acceptOperator(String symbol, String keyword) {
+      skipWhitespace();
+      if (accept(symbol)) {
+        return true;
+      }
+      int end = pos + keyword.length();
+      if (expression.startsWith(keyword, pos)
+          && (end == expression.length() || !Character.isJavaIdentifierPart(expression.charAt(end)))) {
+        pos = end;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean accept(String token) {
+      skipWhitespace();
+      if (expression.startsWith(token, pos)) {
+        pos += token.length();
+        return true;
+      }
+      return false;
+    }
+
+    private boolean isQuote() {
+      return pos < expression.length() && (expression.charAt(pos) == '\'' || expression.charAt(pos) == '"');
+    }
+
+    private int skipWhitespace() {
+      while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+        pos++;
+      }
+      return pos;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.streamsets.pipeline.stage.processor.selector;
 
+import com.streamsets.pipeline.api.Batch;
 import com.streamsets.pipeline.api.BatchMaker;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
@@ -28,12 +29,14 @@ import com.streamsets.pipeline.lib.el.ELUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 public class SelectorProcessor extends RecordProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(SelectorProcessor.class);
+  static final String DISPATCH_GAUGE = "Condition Dispatch";
 
   private final List<Map<String, String>> lanePredicates;
 
@@ -45,6 +48,10 @@ public class SelectorProcessor extends RecordProcessor {
   private ELEval predicateLanesEval;
   private ELVars variables;
   private String defaultLane;
+  private PredicateDispatcher dispatcher;
+  private Map<String, Object> dispatchGauge;
+  private long dispatchedRecords;
+  private long evaluatedRecords;
 
   private ELEval createPredicateLanesEval(ELContext elContext) {
     return elContext.createELEval("lanePredicates");
@@ -83,6 +90,20 @@ public class SelectorProcessor extends RecordProcessor {
         defaultLane = predicateLanes[predicateLanes.length - 1][1];
       }
     }
+    if (issues.isEmpty()) {
+      List<String> predicates = new ArrayList<>();
+      for (int i = 0; i < predicateLanes.length - 1; i++) {
+        predicates.add(predicateLanes[i][0]);
+      }
+      dispatcher = PredicateDispatcher.compile(predicates);
+      LOG.debug(
+          "Resolving {} of {} conditions with dispatch tables",
+          dispatcher.getCompiledConditions(),
+          dispatcher.getConditions()
+      );
+      dispatchGauge = getContext().createGauge(DISPATCH_GAUGE).getValue();
+      updateDispatchGauge();
+    }
     return issues;
   }
 
@@ -112,23 +133,47 @@ public class SelectorProcessor extends RecordProcessor {
     return predicateLanes;
   }
 
+  @Override
+  public void process(Batch batch, BatchMaker batchMaker) throws StageException {
+    try {
+      super.process(batch, batchMaker);
+    } finally {
+      updateDispatchGauge();
+    }
+  }
+
   @Override
   protected void process(Record record, BatchMaker batchMaker) throws StageException {
     boolean matchedAtLeastOnePredicate = false;
+    boolean evaluated = false;
+    dispatcher.dispatch(record);
     RecordEL.setRecordInContext(variables, record);
     for (int i = 0; i < predicateLanes.length - 1; i ++) {
       String[] pl = predicateLanes[i];
-      try {
-        if (predicateLanesEval.eval(variables, pl[0], Boolean.class)) {
-          LOG.trace("Record '{}' satisfies condition '{}', going to '{}' output stream",
-                    record.getHeader().getSourceId(), pl[0], pl[1]);
-          batchMaker.addRecord(record, pl[1]);
-          matchedAtLeastOnePredicate = true;
+      boolean matches;
+      if (dispatcher.isResolved(i)) {
+        matches = dispatcher.matches(i);
+      } else {
+        evaluated = true;
+        try {
+          matches = predicateLanesEval.eval(variables, pl[0], Boolean.class);
+        } catch (ELEvalException ex) {
+          evaluatedRecords++;
+          throw new OnRecordErrorException(Errors.SELECTOR_09, record.getHeader().getSourceId(), pl[0], ex.toString(),
+                                           ex);
         }
-      } catch (ELEvalException ex) {
-        throw new OnRecordErrorException(Errors.SELECTOR_09, record.getHeader().getSourceId(), pl[0], ex.toString(),
-                                         ex);
       }
+      if (matches) {
+        LOG.trace("Record '{}' satisfies condition '{}', going to '{}' output stream",
+                  record.getHeader().getSourceId(), pl[0], pl[1]);
+        batchMaker.addRecord(record, pl[1]);
+        matchedAtLeastOnePredicate = true;
+      }
+    }
+    if (evaluated) {
+      evaluatedRecords++;
+    } else {
+      dispatchedRecords++;
     }
     if (!matchedAtLeastOnePredicate) {
       LOG.trace("Record '{}' does not satisfy any condition, going to default output stream",
@@ -137,4 +182,12 @@ public class SelectorProcessor extends RecordProcessor {
     }
   }
 
+  private void updateDispatchGauge() {
+    long total = dispatchedRecords + evaluatedRecords;
+    dispatchGauge.put("Compiled Conditions", dispatcher.getCompiledConditions() + " of " + dispatcher.getConditions());
+    dispatchGauge.put("Dispatched Records", dispatchedRecords);
+    dispatchGauge.put("Evaluated Records", evaluatedRecords);
+    dispatchGauge.put("Dispatched Ratio", total == 0 ? "0%" : (dispatchedRecords * 100 / total) + "%");
+  }
+
 }
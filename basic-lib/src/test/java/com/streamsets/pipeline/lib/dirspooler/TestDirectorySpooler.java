@@ -39,6 +39,7 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledExecutorService;
@@ -822,4 +823,86 @@ public class TestDirectorySpooler {
 
     spooler.destroy();
   }
+
+  @Test
+  public void testChangeWatcherQueuesNewFiles() throws Exception {
+    assertTrue(spoolDir.mkdirs());
+
+    File logFile1 = new File(spoolDir, "x1.log").getAbsoluteFile();
+    new FileWriter(logFile1).close();
+
+    DirectorySpooler.Builder builder = initializeAndGetBuilder()
+        .setMaxSpoolFiles(10)
+        // no periodic scan during the test, only the change watcher can find the new file
+        .setSpoolingPeriodSec(3600);
+    DirectorySpooler spooler = builder.build();
+    spooler.init("");
+    try {
+      Map<String, Object> backlog = context.getGauge(DirectorySpooler.SPOOL_BACKLOG_METRICS).getValue();
+      Assert.assertEquals(true, backlog.get(DirectorySpooler.WATCHING_CHANGES));
+      Assert.assertEquals(1, backlog.get(DirectorySpooler.PENDING_FILES_GAUGE));
+      Assert.assertNotNull(backlog.get(DirectorySpooler.LAST_SCAN_TIME));
+
+      Assert.assertEquals(logFile1.getAbsolutePath(), spooler.poolForFile(intervalMillis, TimeUnit.MILLISECONDS).getAbsolutePath());
+      Assert.assertEquals(1, backlog.get(DirectorySpooler.FILES_BEING_PROCESSED));
+
+      File logFile2 = new File(spoolDir, "x2.log").getAbsoluteFile();
+      new FileWriter(logFile2).close();
+
+      Assert.assertEquals(logFile2.getAbsolutePath(), spooler.poolForFile(intervalMillis, TimeUnit.MILLISECONDS).getAbsolutePath());
+      Assert.assertEquals(0, backlog.get(DirectorySpooler.PENDING_FILES_GAUGE));
+    } finally {
+      spooler.destroy();
+    }
+  }
+
+  @Test
+  public void testFileIsQueuedOnce() throws Exception {
+    assertTrue(spoolDir.mkdirs());
+
+    File logFile1 = new File(spoolDir, "x1.log").getAbsoluteFile();
+    new FileWriter(logFile1).close();
+    File logFile2 = new File(spoolDir, "x2.log").getAbsoluteFile();
+    new FileWriter(logFile2).close();
+
+    DirectorySpooler.Builder builder = initializeAndGetBuilder()
+        .setMaxSpoolFiles(10);
+    DirectorySpooler spooler = builder.build();
+    spooler.init("");
+    try {
+      // scanning again must not queue the files twice
+      spooler.finder.run();
+      spooler.finder.run();
+
+      Assert.assertEquals(logFile1.getAbsolutePath(), spooler.poolForFile(intervalMillis, TimeUnit.MILLISECONDS).getAbsolutePath());
+      Assert.assertEquals(logFile2.getAbsolutePath(), spooler.poolForFile(intervalMillis, TimeUnit.MILLISECONDS).getAbsolutePath());
+      Assert.assertNull(spooler.poolForFile(0, TimeUnit.MILLISECONDS));
+    } finally {
+      spooler.destroy();
+    }
+  }
+
+  @Test
+  public void testCurrentFileOnlyMovesForward() throws Exception {
+    assertTrue(spoolDir.mkdirs());
+
+    File logFile1 = new File(spoolDir, "x1.log").getAbsoluteFile();
+    new FileWriter(logFile1).close();
+    File logFile2 = new File(spoolDir, "x2.log").getAbsoluteFile();
+    new FileWriter(logFile2).close();
+
+    DirectorySpooler.Builder builder = initializeAndGetBuilder()
+        .setMaxSpoolFiles(10);
+    DirectorySpooler spooler = builder.build();
+    spooler.init("");
+    try {
+      // another runner handed out the newer file first
+      spooler.currentFile = fs.getFile(logFile2.getAbsolutePath());
+
+      Assert.assertEquals(logFile1.getAbsolutePath(), spooler.poolForFile(intervalMillis, TimeUnit.MILLISECONDS).getAbsolutePath());
+      Assert.assertEquals(logFile2.getAbsolutePath(), spooler.currentFile.getAbsolutePath());
+    } finally {
+      spooler.destroy();
+    }
+  }
 }
@@ -59,6 +59,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -1431,4 +1432,100 @@ public class TestFileTailSource {
       runner.runDestroy();
     }
   }
+
+  private FileInfo createFileInfo(File dir, String... lines) throws IOException {
+    Assert.assertTrue(dir.mkdirs());
+    File file = new File(dir, "logFile.txt");
+    Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+
+    FileInfo fileInfo = new FileInfo();
+    fileInfo.fileFullPath = file.getAbsolutePath();
+    fileInfo.fileRollMode = FileRollMode.REVERSE_COUNTER;
+    fileInfo.firstFile = "";
+    fileInfo.patternForToken = "";
+    return fileInfo;
+  }
+
+  @Test
+  public void testTailWithReaderThreads() throws Exception {
+    File testDataDir = new File("target", UUID.randomUUID().toString());
+    FileInfo fileInfo1 = createFileInfo(new File(testDataDir, "dir1"), "A1", "A2", "A3");
+    FileInfo fileInfo2 = createFileInfo(new File(testDataDir, "dir2"), "B1", "B2");
+
+    FileTailConfigBean conf = new FileTailConfigBean();
+    conf.dataFormat = DataFormat.TEXT;
+    conf.multiLineMainPattern = "";
+    conf.batchSize = 25;
+    conf.maxWaitTimeSecs = 1;
+    conf.fileInfos = Arrays.asList(fileInfo1, fileInfo2);
+    conf.postProcessing = PostProcessingOptions.NONE;
+    conf.dataFormatConfig.textMaxLineLen = 1024;
+    conf.readerThreads = 2;
+
+    FileTailSource source = new FileTailSource(conf, SCAN_INTERVAL);
+    SourceRunner runner = new SourceRunner.Builder(FileTailDSource.class, source)
+        .addOutputLane("lane").addOutputLane("metadata")
+        .build();
+    runner.runInit();
+    try {
+      StageRunner.Output output = runner.runProduce(null, 1000);
+      List<Record> records = output.getRecords().get("lane");
+      Assert.assertEquals(5, records.size());
+      // the readers parse concurrently, none of them may run out of string builders
+      Assert.assertTrue(runner.getErrorRecords().isEmpty());
+
+      // lines of each file keep their order
+      List<String> file1 = new ArrayList<>();
+      List<String> file2 = new ArrayList<>();
+      for (Record record : records) {
+        String text = record.get("/text").getValueAsString();
+        if (fileInfo1.fileFullPath.equals(record.getHeader().getAttribute(HeaderAttributeConstants.FILE))) {
+          file1.add(text);
+        } else {
+          file2.add(text);
+        }
+      }
+      Assert.assertEquals(ImmutableList.of("A1", "A2", "A3"), file1);
+      Assert.assertEquals(ImmutableList.of("B1", "B2"), file2);
+
+      // the offset carries the position of both files
+      output = runner.runProduce(output.getNewOffset(), 1000);
+      Assert.assertEquals(0, output.getRecords().get("lane").size());
+      Assert.assertTrue(runner.getErrorRecords().isEmpty());
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testReaderThreadsStopWaitingWhenBatchIsFull() throws Exception {
+    File testDataDir = new File("target", UUID.randomUUID().toString());
+    FileInfo fileInfo1 = createFileInfo(new File(testDataDir, "dir1"), "A1", "A2", "A3");
+    FileInfo fileInfo2 = createFileInfo(new File(testDataDir, "dir2"));
+
+    FileTailConfigBean conf = new FileTailConfigBean();
+    conf.dataFormat = DataFormat.TEXT;
+    conf.multiLineMainPattern = "";
+    conf.batchSize = 3;
+    conf.maxWaitTimeSecs = 10;
+    conf.fileInfos = Arrays.asList(fileInfo1, fileInfo2);
+    conf.postProcessing = PostProcessingOptions.NONE;
+    conf.dataFormatConfig.textMaxLineLen = 1024;
+    conf.readerThreads = 2;
+
+    FileTailSource source = new FileTailSource(conf, SCAN_INTERVAL);
+    SourceRunner runner = new SourceRunner.Builder(FileTailDSource.class, source)
+        .addOutputLane("lane").addOutputLane("metadata")
+        .build();
+    runner.runInit();
+    try {
+      long start = System.currentTimeMillis();
+      StageRunner.Output output = runner.runProduce(null, 1000);
+      Assert.assertEquals(3, output.getRecords().get("lane").size());
+      // the reader of the empty file must not hold the batch until the batch wait time passes
+      Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    } finally {
+      runner.runDestroy();
+    }
+  }
 }
@@ -210,6 +210,41 @@ public class TestRemoteDownloadSource extends FTPAndSSHDUnitTest {
     destroyAndValidate(runner);
   }
 
+  @Test
+  public void testNoErrorOrderingWithPrefetch() throws Exception {
+    path = "remote-download-source/parseSameTimestamp";
+    File dir = new File(currentThread().getContextClassLoader().getResource(path).getPath());
+    File[] files = dir.listFiles();
+    Assert.assertEquals(3, files.length);
+    for (File f : files) {
+      if (f.getName().equals("panda.txt")) {
+        Assert.assertTrue(f.setLastModified(18000000000L));
+      } else if (f.getName().equals("polarbear.txt")) {
+        Assert.assertTrue(f.setLastModified(18000000000L));
+      } else if (f.getName().equals("sloth.txt")) {
+        Assert.assertTrue(f.setLastModified(17000000000L));
+      }
+    }
+    setupServer(path, false);
+    RemoteDownloadSource origin = new TestRemoteDownloadSourceBuilder(scheme, port)
+        .withPrefetchFiles(2)
+        .build();
+    SourceRunner runner = new SourceRunner.Builder(RemoteDownloadDSource.class, origin)
+        .addOutputLane("lane")
+        .build();
+    runner.runInit();
+    List<Record> expected = getExpectedRecords(true);
+    String offset = RemoteDownloadSource.NOTHING_READ;
+    for (int i = 0; i < 3; i++) {
+      StageRunner.Output op = runner.runProduce(offset, 1000);
+      offset = op.getNewOffset();
+      List<Record> actual = op.getRecords().get("lane");
+      Assert.assertEquals(1, actual.size());
+      Assert.assertEquals(expected.get(i).get(), actual.get(0).get());
+    }
+    destroyAndValidate(runner);
+  }
+
   @Test
   public void testInitialFile() throws Exception {
     path = "remote-download-source/parseSameTimestamp";
@@ -46,6 +46,8 @@ public class TestRemoteDownloadSourceBuilder {
   private String archiveDir;
   private boolean archiveDirUserDirIsRoot;
   private FileDelayer fileDelayer;
+  private int prefetchFiles;
+  private int prefetchBufferSizeKB;
 
   private Compression dataFormatCompression;
   private String filePatternInArchive;
@@ -73,6 +75,8 @@ public class TestRemoteDownloadSourceBuilder {
     this.dataFormatCompression = Compression.NONE;
     this.filePatternInArchive = "";
     this.fileDelayer = new FileDelayer(new SystemClock(), 0);
+    this.prefetchFiles = 0;
+    this.prefetchBufferSizeKB = 1024;
   }
 
   public TestRemoteDownloadSourceBuilder withRemoteHost(String remoteHost) {
@@ -150,6 +154,16 @@ public class TestRemoteDownloadSourceBuilder {
     return this;
   }
 
+  public TestRemoteDownloadSourceBuilder withPrefetchFiles(int prefetchFiles) {
+    this.prefetchFiles = prefetchFiles;
+    return this;
+  }
+
+  public TestRemoteDownloadSourceBuilder withPrefetchBufferSizeKB(int prefetchBufferSizeKB) {
+    this.prefetchBufferSizeKB = prefetchBufferSizeKB;
+    return this;
+  }
+
   public RemoteDownloadSource build() {
     RemoteDownloadConfigBean configBean = new RemoteDownloadConfigBean();
     configBean.remoteConfig.remoteAddress = remoteHost;
@@ -171,6 +185,8 @@ public class TestRemoteDownloadSourceBuilder {
     configBean.archiveDirUserDirIsRoot = archiveDirUserDirIsRoot;
     configBean.dataFormatConfig.compression = this.dataFormatCompression;
     configBean.dataFormatConfig.filePatternInArchive = this.filePatternInArchive;
+    configBean.prefetchFiles = this.prefetchFiles;
+    configBean.prefetchBufferSizeKB = this.prefetchBufferSizeKB;
 
     return new RemoteDownloadSource(configBean, this.fileDelayer);
   }
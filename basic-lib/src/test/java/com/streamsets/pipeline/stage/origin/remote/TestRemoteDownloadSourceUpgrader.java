@@ -118,4 +118,15 @@ public class TestRemoteDownloadSourceUpgrader {
 
     UpgraderTestUtils.assertExists(configs, dataFormatPrefix + "preserveRootElement", false);
   }
+
+  @Test
+  public void testV5ToV6() {
+    Mockito.doReturn(5).when(context).getFromVersion();
+    Mockito.doReturn(6).when(context).getToVersion();
+
+    configs = upgrader.upgrade(configs, context);
+
+    UpgraderTestUtils.assertExists(configs, "conf.prefetchFiles", 0);
+    UpgraderTestUtils.assertExists(configs, "conf.prefetchBufferSizeKB", 1024);
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.origin.remote;
+
+import com.streamsets.pipeline.lib.remote.RemoteFile;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class TestRemoteFilePrefetcher {
+
+  private static class InMemoryRemoteFile extends RemoteFile {
+    private final byte[] data;
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final boolean failFirstOpen;
+
+    InMemoryRemoteFile(String filePath, String data, boolean failFirstOpen) {
+      super(filePath, 0);
+      this.data = data.getBytes(StandardCharsets.UTF_8);
+      this.failFirstOpen = failFirstOpen;
+    }
+
+    @Override
+    public boolean exists() {
+      return true;
+    }
+
+    @Override
+    public InputStream createInputStream() throws IOException {
+      if (opened.incrementAndGet() == 1 && failFirstOpen) {
+        throw new IOException("Connection reset");
+      }
+      return new ByteArrayInputStream(data) {
+        @Override
+        public void close() throws IOException {
+          closed.incrementAndGet();
+          super.close();
+        }
+      };
+    }
+
+    @Override
+    public OutputStream createOutputStream() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commitOutputStream() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Test
+  public void testSmallAndLargeFiles() throws Exception {
+    InMemoryRemoteFile small = new InMemoryRemoteFile("/small.txt", "tiny", false);
+    InMemoryRemoteFile large = new InMemoryRemoteFile("/large.txt", "larger than the buffer", false);
+
+    RemoteFilePrefetcher prefetcher = new RemoteFilePrefetcher(2, 8);
+    try {
+      prefetcher.prefetch(Arrays.asList(small, large));
+      Assert.assertEquals("tiny", IOUtils.toString(prefetcher.open(small), StandardCharsets.UTF_8));
+      Assert.assertEquals("larger than the buffer", IOUtils.toString(prefetcher.open(large), StandardCharsets.UTF_8));
+      // Both files were only opened once, by the prefetch threads
+      Assert.assertEquals(1, small.opened.get());
+      Assert.assertEquals(1, large.opened.get());
+    } finally {
+      prefetcher.close();
+    }
+  }
+
+  @Test
+  public void testLimitedToNumberOfThreads() throws Exception {
+    InMemoryRemoteFile first = new InMemoryRemoteFile("/first.txt", "first", false);
+    InMemoryRemoteFile second = new InMemoryRemoteFile("/second.txt", "second", false);
+
+    RemoteFilePrefetcher prefetcher = new RemoteFilePrefetcher(1, 1024);
+    try {
+      prefetcher.prefetch(Arrays.asList(first, second));
+      Assert.assertEquals("first", IOUtils.toString(prefetcher.open(first), StandardCharsets.UTF_8));
+      // Second file was not fetched ahead, it's opened directly
+      Assert.assertEquals(0, second.opened.get());
+      Assert.assertEquals("second", IOUtils.toString(prefetcher.open(second), StandardCharsets.UTF_8));
+      Assert.assertEquals(1, second.opened.get());
+    } finally {
+      prefetcher.close();
+    }
+  }
+
+  @Test
+  public void testFailedPrefetchFallsBackToDirectRead() throws Exception {
+    InMemoryRemoteFile file = new InMemoryRemoteFile("/file.txt", "content", true);
+
+    RemoteFilePrefetcher prefetcher = new RemoteFilePrefetcher(1, 1024);
+    try {
+      prefetcher.prefetch(Arrays.asList(file));
+      Assert.assertEquals("content", IOUtils.toString(prefetcher.open(file), StandardCharsets.UTF_8));
+      Assert.assertEquals(2, file.opened.get());
+    } finally {
+      prefetcher.close();
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      Assert.assertTrue("Timed out", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testFilesNoLongerQueuedAreDropped() throws Exception {
+    InMemoryRemoteFile stale = new InMemoryRemoteFile("/stale.txt", "larger than the buffer", false);
+    InMemoryRemoteFile fresh = new InMemoryRemoteFile("/fresh.txt", "fresh", false);
+
+    RemoteFilePrefetcher prefetcher = new RemoteFilePrefetcher(1, 4);
+    try {
+      prefetcher.prefetch(Collections.singletonList(stale));
+      waitFor(() -> stale.opened.get() == 1);
+
+      // The stale file is never opened, e.g. it was modified or deleted
+      prefetcher.prefetch(Collections.singletonList(fresh));
+      // Its slot is reused and the stream it kept open is closed
+      waitFor(() -> fresh.opened.get() == 1);
+      waitFor(() -> stale.closed.get() == 1);
+      Assert.assertEquals("fresh", IOUtils.toString(prefetcher.open(fresh), StandardCharsets.UTF_8));
+      Assert.assertEquals(1, fresh.opened.get());
+    } finally {
+      prefetcher.close();
+    }
+  }
+}
@@ -19,6 +19,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import com.google.common.net.InetAddresses;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
+import com.maxmind.geoip2.model.CountryResponse;
 import com.streamsets.pipeline.api.ExecutionMode;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.OnRecordError;
@@ -619,4 +622,113 @@ public class TestGeolocationProcessor {
     }
   }
 
+  @Test
+  public void testPreloadedLookup() throws Exception {
+    List<GeolocationFieldConfig> configs = new ArrayList<>();
+    GeolocationField[] targetTypes = {
+        GeolocationField.COUNTRY_NAME,
+        GeolocationField.COUNTRY_ISO_CODE,
+        GeolocationField.CITY_NAME,
+        GeolocationField.LATITUDE,
+        GeolocationField.LONGITUDE,
+        GeolocationField.CITY_FULL_JSON
+    };
+    for (GeolocationField targetType : targetTypes) {
+      GeolocationFieldConfig config = new GeolocationFieldConfig();
+      config.inputFieldName = "/ip";
+      config.outputFieldName = "/" + targetType.name();
+      config.targetType = targetType;
+      configs.add(config);
+    }
+
+    List<GeolocationDatabaseConfig> dbConfigs = new ArrayList<>();
+    GeolocationDatabaseConfig dbConfig = new GeolocationDatabaseConfig();
+    dbConfig.geoIP2DBFile = countryDb.getAbsolutePath();
+    dbConfig.geoIP2DBType = GeolocationDBType.COUNTRY;
+    dbConfigs.add(dbConfig);
+    dbConfig = new GeolocationDatabaseConfig();
+    dbConfig.geoIP2DBFile = cityDb.getAbsolutePath();
+    dbConfig.geoIP2DBType = GeolocationDBType.CITY;
+    dbConfigs.add(dbConfig);
+
+    List<Record> records = new ArrayList<>();
+    String[] ips = {ip, "8.8.8.8", "157.5.65.83", "0.0.0.0", "255.255.255.255", "::ffff:128.101.101.101",
+        "2002:8065:6565::", "2001:4860:4860::8888"};
+    for (String ipAsString : ips) {
+      Map<String, Field> map = new LinkedHashMap<>();
+      map.put("ip", Field.create(ipAsString));
+      Record record = RecordCreator.create("s", "s:" + ipAsString);
+      record.set(Field.create(map));
+      records.add(record);
+    }
+
+    List<Record> expected = runLookup(configs, dbConfigs, false, records);
+    List<Record> actual = runLookup(configs, dbConfigs, true, records);
+    Assert.assertEquals(records.size(), actual.size());
+    for (int i = 0; i < records.size(); i++) {
+      Assert.assertEquals(ips[i], expected.get(i).get().getValueAsMap(), actual.get(i).get().getValueAsMap());
+    }
+    Assert.assertEquals("United States", actual.get(0).get("/COUNTRY_NAME").getValue());
+  }
+
+  private List<Record> runLookup(
+      List<GeolocationFieldConfig> configs,
+      List<GeolocationDatabaseConfig> dbConfigs,
+      boolean preloadIndex,
+      List<Record> records
+  ) throws Exception {
+    ProcessorRunner runner = new ProcessorRunner.Builder(GeolocationDProcessor.class)
+        .addConfiguration("fieldTypeConverterConfigs", configs)
+        .addConfiguration("dbConfigs", dbConfigs)
+        .addConfiguration("missingAddressAction", GeolocationMissingAddressAction.REPLACE_WITH_NULLS)
+        .addConfiguration("preloadIndex", preloadIndex)
+        .addConfiguration("cacheSize", 10)
+        .addOutputLane("a").build();
+    runner.runInit();
+    try {
+      List<Record> input = new ArrayList<>();
+      for (Record record : records) {
+        Record copy = RecordCreator.create("s", record.getHeader().getSourceId());
+        copy.set(record.get());
+        input.add(copy);
+      }
+      StageRunner.Output output = runner.runProcess(input);
+      Assert.assertEquals(0, runner.getErrorRecords().size());
+      return output.getRecords().get("a");
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testRangeIndex() throws Exception {
+    List<GeolocationField> fields = ImmutableList.of(GeolocationField.COUNTRY_NAME, GeolocationField.COUNTRY_ISO_CODE);
+    try (DatabaseReader reader = new DatabaseReader.Builder(countryDb).build()) {
+      GeolocationRangeIndex index = GeolocationRangeIndex.build(countryDb, reader, GeolocationDBType.COUNTRY, fields);
+      Assert.assertTrue(index.size() > 0);
+
+      for (String ipAsString : new String[] {ip, "8.8.8.8", "1.0.0.0", "223.255.255.255", "2a02:c7f::1"}) {
+        InetAddress address = InetAddresses.forString(ipAsString);
+        CountryResponse response = reader.country(address);
+        Assert.assertEquals(
+            ipAsString,
+            response.getCountry().getName(),
+            index.lookup(address, GeolocationField.COUNTRY_NAME).getValueAsString()
+        );
+        Assert.assertEquals(
+            ipAsString,
+            response.getCountry().getIsoCode(),
+            index.lookup(address, GeolocationField.COUNTRY_ISO_CODE).getValueAsString()
+        );
+      }
+
+      try {
+        index.lookup(InetAddresses.forString("0.0.0.0"), GeolocationField.COUNTRY_NAME);
+        Assert.fail("Expected AddressNotFoundException");
+      } catch (AddressNotFoundException ex) {
+        // expected
+      }
+    }
+  }
+
 }
@@ -16,6 +16,7 @@
 package com.streamsets.pipeline.stage.processor.selector;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.OnRecordError;
@@ -261,4 +262,112 @@ public class TestSelectorProcessor {
     }
   }
 
+  @Test
+  public void testSelectWithDispatchTable() throws Exception {
+    ProcessorRunner runner = new ProcessorRunner.Builder(SelectorDProcessor.class)
+        .setOnRecordError(OnRecordError.TO_ERROR)
+        .addConfiguration("lanePredicates", createLanePredicates(
+            "a", "${record:value('/type') == 'X'}",
+            "b", "${str:startsWith(record:value('/type'), 'Y')}",
+            "c", "${record:value('/type') == 'Y' || record:value('/type') == 'Z'}",
+            "d", "${record:attribute('source') == 's1'}",
+            "e", "default"))
+        .addOutputLane("a")
+        .addOutputLane("b")
+        .addOutputLane("c")
+        .addOutputLane("d")
+        .addOutputLane("e")
+        .build();
+
+    runner.runInit();
+    try {
+      Record r0 = createRecord("X", null);
+      Record r1 = createRecord("Y", "s1");
+      Record r2 = createRecord("Z", "s2");
+      Record r3 = createRecord("W", null);
+      StageRunner.Output output = runner.runProcess(ImmutableList.of(r0, r1, r2, r3));
+      Assert.assertEquals(ImmutableList.of(r0.getHeader().getSourceId()), getSourceIds(output, "a"));
+      Assert.assertEquals(ImmutableList.of(r1.getHeader().getSourceId()), getSourceIds(output, "b"));
+      Assert.assertEquals(
+          ImmutableList.of(r1.getHeader().getSourceId(), r2.getHeader().getSourceId()),
+          getSourceIds(output, "c")
+      );
+      Assert.assertEquals(ImmutableList.of(r1.getHeader().getSourceId()), getSourceIds(output, "d"));
+      Assert.assertEquals(ImmutableList.of(r3.getHeader().getSourceId()), getSourceIds(output, "e"));
+
+      Map<String, Object> gauge = runner.getContext().createGauge(SelectorProcessor.DISPATCH_GAUGE).getValue();
+      Assert.assertEquals("3 of 4", gauge.get("Compiled Conditions"));
+      Assert.assertEquals(0L, gauge.get("Dispatched Records"));
+      Assert.assertEquals(4L, gauge.get("Evaluated Records"));
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testDispatchTableMatchesEvaluation() throws Exception {
+    ProcessorRunner runner = new ProcessorRunner.Builder(SelectorDProcessor.class)
+        .setOnRecordError(OnRecordError.TO_ERROR)
+        .addConfiguration("lanePredicates", createLanePredicates(
+            "a", "${record:value('/type') == '1'}",
+            "b", "${'1' eq record:value('/type') or record:value('/type') eq '2'}",
+            "c", "default"))
+        .addOutputLane("a")
+        .addOutputLane("b")
+        .addOutputLane("c")
+        .build();
+
+    runner.runInit();
+    try {
+      // String values are resolved by the dispatch table, other types go through the EL coercion rules
+      Record r0 = createRecord("1", null);
+      Record r1 = createRecord("2", null);
+      Record r2 = RecordCreator.create();
+      r2.set(Field.create(ImmutableMap.of("type", Field.create(1))));
+      Record r3 = RecordCreator.create();
+      r3.set(Field.create(ImmutableMap.of("type", Field.create(Field.Type.STRING, null))));
+      Record r4 = RecordCreator.create();
+      r4.set(Field.create(ImmutableMap.of("other", Field.create("1"))));
+      StageRunner.Output output = runner.runProcess(ImmutableList.of(r0, r1, r2, r3, r4));
+      Assert.assertEquals(
+          ImmutableList.of(r0.getHeader().getSourceId(), r2.getHeader().getSourceId()),
+          getSourceIds(output, "a")
+      );
+      Assert.assertEquals(
+          ImmutableList.of(r0.getHeader().getSourceId(), r1.getHeader().getSourceId(), r2.getHeader().getSourceId()),
+          getSourceIds(output, "b")
+      );
+      Assert.assertEquals(
+          ImmutableList.of(r3.getHeader().getSourceId(), r4.getHeader().getSourceId()),
+          getSourceIds(output, "c")
+      );
+      Assert.assertTrue(runner.getErrorRecords().isEmpty());
+
+      Map<String, Object> gauge = runner.getContext().createGauge(SelectorProcessor.DISPATCH_GAUGE).getValue();
+      Assert.assertEquals("2 of 2", gauge.get("Compiled Conditions"));
+      Assert.assertEquals(4L, gauge.get("Dispatched Records"));
+      Assert.assertEquals(1L, gauge.get("Evaluated Records"));
+      Assert.assertEquals("80%", gauge.get("Dispatched Ratio"));
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  private Record createRecord(String type, String source) {
+    Record record = RecordCreator.create();
+    record.set(Field.create(ImmutableMap.of("type", Field.create(type))));
+    if (source != null) {
+      record.getHeader().setAttribute("source", source);
+    }
+    return record;
+  }
+
+  private List<String> getSourceIds(StageRunner.Output output, String lane) {
+    List<String> ids = new ArrayList<>();
+    for (Record record : output.getRecords().get(lane)) {
+      ids.add(record.getHeader().getSourceId());
+    }
+    return ids;
+  }
+
 }
@@ -0,0 +1,486 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.csv;
+
+import com.streamsets.pipeline.api.ext.io.CountingReader;
+import com.streamsets.pipeline.api.ext.io.ObjectLengthException;
+import com.streamsets.pipeline.api.ext.io.OverrunException;
+import com.streamsets.pipeline.api.ext.io.OverrunReader;
+import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.lib.util.ExceptionUtils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Delimited data parser that tokenizes straight from a {@code char[]} buffer.
+ * <p/>
+ * It follows the {@link CSVFormat} semantics of commons-csv (delimiter, quote, escape, comment marker, surrounding
+ * spaces, empty lines, trim, trailing delimiter and null string) and the positioning, header and max object length
+ * behavior of {@link CsvParser}, but it doesn't create a {@code CSVRecord} per line nor does it need to read one
+ * record ahead. Runs of ordinary characters are copied in bulk into a reusable value buffer.
+ * <p/>
+ * If the reader is an {@link OverrunReader}, its count is reset for every record and the parser becomes unusable
+ * after an overrun, same as {@link OverrunCsvParser}.
+ */
+public class FastCsvParser implements DelimitedDataParser {
+  private static final int BUFFER_SIZE = 8 * 1024;
+  private static final int EOF = -1;
+  private static final int UNDEFINED = -2;
+
+  private static final int TOKEN = 0;
+  private static final int END_OF_RECORD = 1;
+  private static final int END_OF_FILE = 2;
+  private static final int COMMENT = 3;
+
+  private final CountingReader reader;
+  private final int maxObjectLen;
+  private final char delimiter;
+  private final int quote;
+  private final int escape;
+  private final int commentMarker;
+  private final boolean ignoreSurroundingSpaces;
+  private final boolean ignoreEmptyLines;
+  private final boolean trim;
+  private final boolean trailingDelimiter;
+  private final String nullString;
+  private final String[] headers;
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int bufferPos;
+  private int bufferLen;
+  private int lastChar = UNDEFINED;
+  // Characters consumed by the tokenizer, plus the offset at which it started
+  private long position;
+
+  private char[] value = new char[256];
+  private int valueLen;
+  private boolean ready;
+  private String[] values = new String[16];
+  private int valueCount;
+
+  private boolean closed;
+  private boolean overrun;
+
+  /**
+   * Returns whether the format can be handled by this parser, formats with explicit header names can't.
+   */
+  public static boolean isSupported(CSVFormat format) {
+    return format != null && format.getHeader() == null;
+  }
+
+  public FastCsvParser(Reader reader, CSVFormat format, int maxObjectLen) throws IOException {
+    this(new CountingReader(reader), format, 0, 0, maxObjectLen);
+  }
+
+  public FastCsvParser(
+      CountingReader reader,
+      CSVFormat format,
+      long initialPosition,
+      int skipStartLines,
+      int maxObjectLen
+  ) throws IOException {
+    Utils.checkNotNull(reader, "reader");
+    Utils.checkNotNull(format, "format");
+    Utils.checkArgument(isSupported(format), "format must not define header names");
+    Utils.checkArgument(initialPosition >= 0, "initialPosition must be greater or equal than zero");
+    Utils.checkArgument(skipStartLines >= 0, "skipStartLines must be greater or equal than zero");
+    this.reader = reader;
+    this.maxObjectLen = maxObjectLen;
+    delimiter = format.getDelimiter();
+    quote = format.getQuoteCharacter() == null ? UNDEFINED : format.getQuoteCharacter();
+    escape = format.getEscapeCharacter() == null ? UNDEFINED : format.getEscapeCharacter();
+    commentMarker = format.getCommentMarker() == null ? UNDEFINED : format.getCommentMarker();
+    ignoreSurroundingSpaces = format.getIgnoreSurroundingSpaces();
+    ignoreEmptyLines = format.getIgnoreEmptyLines();
+    trim = format.getTrim();
+    trailingDelimiter = format.getTrailingDelimiter();
+    nullString = format.getNullString();
+    if (reader instanceof OverrunReader) {
+      ((OverrunReader) reader).setEnabled(true);
+    }
+
+    if (initialPosition == 0) {
+      if (skipStartLines > 0) {
+        position = skipLines(reader, skipStartLines);
+      }
+      headers = format.getSkipHeaderRecord() ? read() : null;
+    } else if (format.getSkipHeaderRecord()) {
+      headers = read();
+      while (getReaderPosition() < initialPosition && read() != null) {
+      }
+      if (getReaderPosition() != initialPosition) {
+        throw new IOException(Utils.format("Could not position reader at position '{}', got '{}' instead",
+            initialPosition, getReaderPosition()));
+      }
+    } else {
+      IOUtils.skipFully(reader, initialPosition);
+      position = initialPosition;
+      headers = null;
+    }
+
+    if (headers != null) {
+      // makes sure any blank column names in the header get replaced with an incremental string value
+      for (int x = 0; x < headers.length; x++) {
+        if (StringUtils.isEmpty(headers[x])) {
+          headers[x] = "empty-" + x;
+        }
+      }
+    }
+  }
+
+  @Override
+  public String[] getHeaders() throws IOException {
+    return headers;
+  }
+
+  @Override
+  public long getReaderPosition() {
+    return position;
+  }
+
+  @Override
+  public String[] read() throws IOException {
+    if (closed) {
+      throw new IOException("Parser has been closed");
+    }
+    if (overrun) {
+      throw new IOException("The parser is unusable, the underlying reader had an overrun");
+    }
+    if (reader instanceof OverrunReader) {
+      ((OverrunReader) reader).resetCount();
+    }
+    long recordStart = position;
+    String[] record;
+    try {
+      record = nextRecord();
+    } catch (OverrunException ex) {
+      overrun = true;
+      throw ex;
+    }
+    if (maxObjectLen > -1 && position - recordStart > maxObjectLen) {
+      ExceptionUtils.throwUndeclared(new ObjectLengthException(Utils.format(
+          "CSV Object at offset '{}' exceeds max length '{}'", recordStart, maxObjectLen), recordStart));
+    }
+    return record;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    IOUtils.closeQuietly(reader);
+  }
+
+  private String[] nextRecord() throws IOException {
+    valueCount = 0;
+    int type;
+    do {
+      valueLen = 0;
+      ready = false;
+      type = nextToken();
+      switch (type) {
+        case TOKEN:
+          addValue(false);
+          break;
+        case END_OF_RECORD:
+          addValue(true);
+          break;
+        case END_OF_FILE:
+          if (ready) {
+            addValue(true);
+          }
+          break;
+        case COMMENT:
+          // Comments are ignored, keep reading the record
+          type = TOKEN;
+          break;
+        default:
+          throw new IllegalStateException("Unexpected token type " + type);
+      }
+    } while (type == TOKEN);
+    return valueCount == 0 ? null : Arrays.copyOf(values, valueCount);
+  }
+
+  private void addValue(boolean lastValue) {
+    String input = new String(value, 0, valueLen);
+    if (trim) {
+      input = input.trim();
+    }
+    if (lastValue && input.isEmpty() && trailingDelimiter) {
+      return;
+    }
+    if (valueCount == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+    }
+    values[valueCount++] = input.equals(nullString) ? null : input;
+  }
+
+  private int nextToken() throws IOException {
+    int previous = lastChar;
+    int c = read1();
+    boolean eol = readEndOfLine(c);
+
+    if (ignoreEmptyLines) {
+      while (eol && isStartOfLine(previous)) {
+        previous = c;
+        c = read1();
+        eol = readEndOfLine(c);
+        if (c == EOF) {
+          return END_OF_FILE;
+        }
+      }
+    }
+
+    if (previous == EOF || (previous != delimiter && c == EOF)) {
+      return END_OF_FILE;
+    }
+
+    if (isStartOfLine(previous) && c == commentMarker) {
+      return skipComment();
+    }
+
+    if (ignoreSurroundingSpaces) {
+      while (isWhitespace(c) && !eol) {
+        c = read1();
+        eol = readEndOfLine(c);
+      }
+    }
+
+    if (c == delimiter) {
+      return TOKEN;
+    } else if (eol) {
+      return END_OF_RECORD;
+    } else if (c == quote) {
+      return parseQuotedToken();
+    } else if (c == EOF) {
+      ready = true;
+      return END_OF_FILE;
+    }
+    return parseSimpleToken(c);
+  }
+
+  private int parseSimpleToken(int c) throws IOException {
+    int type;
+    while (true) {
+      if (readEndOfLine(c)) {
+        type = END_OF_RECORD;
+        break;
+      } else if (c == EOF) {
+        type = END_OF_FILE;
+        ready = true;
+        break;
+      } else if (c == delimiter) {
+        type = TOKEN;
+        break;
+      } else if (c == escape) {
+        appendEscaped(c);
+      } else {
+        append((char) c);
+        // Copy the run of ordinary characters in one go
+        int end = bufferPos;
+        while (end < bufferLen) {
+          char ch = buffer[end];
+          if (ch == delimiter || ch == '\n' || ch == '\r' || ch == escape) {
+            break;
+          }
+          end++;
+        }
+        consumeRun(end);
+      }
+      c = read1();
+    }
+    if (ignoreSurroundingSpaces) {
+      while (valueLen > 0 && Character.isWhitespace(value[valueLen - 1])) {
+        valueLen--;
+      }
+    }
+    return type;
+  }
+
+  private int parseQuotedToken() throws IOException {
+    long tokenStart = position;
+    while (true) {
+      int c = read1();
+      if (c == escape) {
+        appendEscaped(c);
+      } else if (c == quote) {
+        if (peek() == quote) {
+          // Doubled quote is a literal quote
+          append((char) read1());
+        } else {
+          // Only whitespace may follow the closing quote
+          while (true) {
+            c = read1();
+            if (c == delimiter) {
+              return TOKEN;
+            } else if (c == EOF) {
+              ready = true;
+              return END_OF_FILE;
+            } else if (readEndOfLine(c)) {
+              return END_OF_RECORD;
+            } else if (!isWhitespace(c)) {
+              throw new IOException(Utils.format(
+                  "(position {}) invalid char between encapsulated token and delimiter", position));
+            }
+          }
+        }
+      } else if (c == EOF) {
+        throw new IOException(Utils.format(
+            "(position {}) EOF reached before encapsulated token finished", tokenStart));
+      } else {
+        append((char) c);
+        // Line breaks are part of the value, only quote and escape characters need attention
+        int end = bufferPos;
+        while (end < bufferLen) {
+          char ch = buffer[end];
+          if (ch == quote || ch == escape) {
+            break;
+          }
+          end++;
+        }
+        consumeRun(end);
+      }
+    }
+  }
+
+  private int skipComment() throws IOException {
+    int c = read1();
+    if (c == EOF) {
+      return END_OF_FILE;
+    }
+    while (c != EOF && c != '\n' && c != '\r') {
+      c = read1();
+    }
+    if (c == '\r' && peek() == '\n') {
+      read1();
+    }
+    // Same as the line oriented read of commons-csv, the comment always ends a line
+    lastChar = '\n';
+    return COMMENT;
+  }
+
+  // The escape character has just been read
+  private void appendEscaped(int escapeChar) throws IOException {
+    int c = read1();
+    switch (c) {
+      case 'r':
+        append('\r');
+        break;
+      case 'n':
+        append('\n');
+        break;
+      case 't':
+        append('\t');
+        break;
+      case 'b':
+        append('\b');
+        break;
+      case 'f':
+        append('\f');
+        break;
+      case '\r':
+      case '\n':
+      case '\f':
+      case '\t':
+      case '\b':
+        append((char) c);
+        break;
+      case EOF:
+        throw new IOException("EOF whilst processing escape sequence");
+      default:
+        if (c == delimiter || c == escape || c == quote || c == commentMarker) {
+          append((char) c);
+        } else {
+          // Not an escape sequence, keep both characters
+          append((char) escapeChar);
+          append((char) c);
+        }
+        break;
+    }
+  }
+
+  private boolean readEndOfLine(int c) throws IOException {
+    if (c == '\r' && peek() == '\n') {
+      read1();
+      // Same as commons-csv, the caller still sees the carriage return
+      return true;
+    }
+    return c == '\n' || c == '\r';
+  }
+
+  private static boolean isStartOfLine(int c) {
+    return c == '\n' || c == '\r' || c == UNDEFINED;
+  }
+
+  private boolean isWhitespace(int c) {
+    return c != delimiter && c != EOF && Character.isWhitespace((char) c);
+  }
+
+  private int read1() throws IOException {
+    if (bufferPos == bufferLen && !fill()) {
+      lastChar = EOF;
+      return EOF;
+    }
+    position++;
+    lastChar = buffer[bufferPos++];
+    return lastChar;
+  }
+
+  private int peek() throws IOException {
+    if (bufferPos == bufferLen && !fill()) {
+      return EOF;
+    }
+    return buffer[bufferPos];
+  }
+
+  private boolean fill() throws IOException {
+    int read = reader.read(buffer, 0, buffer.length);
+    while (read == 0) {
+      read = reader.read(buffer, 0, buffer.length);
+    }
+    bufferPos = 0;
+    bufferLen = Math.max(read, 0);
+    return read > 0;
+  }
+
+  // Appends buffer[bufferPos, end) to the value and consumes it
+  private void consumeRun(int end) {
+    int length = end - bufferPos;
+    if (length > 0) {
+      ensureValueCapacity(length);
+      System.arraycopy(buffer, bufferPos, value, valueLen, length);
+      valueLen += length;
+      position += length;
+      bufferPos = end;
+      lastChar = buffer[end - 1];
+    }
+  }
+
+  private void append(char c) {
+    ensureValueCapacity(1);
+    value[valueLen++] = c;
+  }
+
+  private void ensureValueCapacity(int extra) {
+    if (valueLen + extra > value.length) {
+      value = Arrays.copyOf(value, Math.max(value.length * 2, valueLen + extra));
+    }
+  }
+}
@@ -45,7 +45,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-public class StreamingXmlParser {
+public class StreamingXmlParser implements XmlFieldReader {
 
   public static final String VALUE_KEY = "value";
   public static final String ATTR_PREFIX_KEY = "attr|";
@@ -114,14 +114,17 @@ public class StreamingXmlParser {
     return reader;
   }
 
+  @Override
   public String getLastParsedFieldXpathPrefix() {
     return lastParsedFieldXpathPrefix;
   }
 
+  @Override
   public Map<String, String> getNamespaceUriToPrefixMappings() {
     return Collections.unmodifiableMap(namespaceUriToPrefix);
   }
 
+  @Override
   public void close() {
     closed = true;
     try {
@@ -155,6 +158,7 @@ public class StreamingXmlParser {
     }
   }
 
+  @Override
   public Field read() throws IOException, XMLStreamException {
     if (closed) {
       throw new IOException("The parser has been closed");
@@ -189,6 +193,7 @@ public class StreamingXmlParser {
   protected void fastForwardLeaseReader() {
   }
 
+  @Override
   public long getReaderPosition() throws XMLStreamException {
     return (hasNext(xmlEventReader)) ? peek(xmlEventReader).getLocation().getCharacterOffset() : -1;
   }
@@ -369,6 +374,7 @@ public class StreamingXmlParser {
     }
   }
 
+  @Override
   public boolean isPreserveRootElement() {
     return preserveRootElement;
   }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.xml;
+
+import com.streamsets.pipeline.api.Field;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads the records of an XML document, one {@link Field} per record element.
+ */
+public interface XmlFieldReader {
+
+  /**
+   * Returns the next record element, or <code>null</code> once the end of the document has been reached.
+   */
+  Field read() throws IOException, XMLStreamException;
+
+  /**
+   * Returns the character offset of the next XML event, or -1 once the end of the document has been reached.
+   */
+  long getReaderPosition() throws XMLStreamException;
+
+  String getLastParsedFieldXpathPrefix();
+
+  Map<String, String> getNamespaceUriToPrefixMappings();
+
+  boolean isPreserveRootElement();
+
+  void close();
+
+}
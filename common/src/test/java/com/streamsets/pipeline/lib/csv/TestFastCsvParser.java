@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.csv;
+
+import com.google.common.base.Strings;
+import com.streamsets.pipeline.api.ext.io.CountingReader;
+import com.streamsets.pipeline.api.ext.io.ObjectLengthException;
+import com.streamsets.pipeline.api.ext.io.OverrunException;
+import com.streamsets.pipeline.api.ext.io.OverrunReader;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestFastCsvParser {
+
+  private OverrunReader getReader(String name) throws Exception {
+    InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(name);
+    return (is != null) ? new OverrunReader(new InputStreamReader(is), 0, false, false) : null;
+  }
+
+  private static List<List<String>> parseAll(FastCsvParser parser) throws IOException {
+    List<List<String>> records = new ArrayList<>();
+    String[] record;
+    while ((record = parser.read()) != null) {
+      List<String> values = new ArrayList<>();
+      for (String value : record) {
+        values.add(value);
+      }
+      records.add(values);
+    }
+    return records;
+  }
+
+  private static List<List<String>> parseWithCommonsCsv(String data, CSVFormat format) throws IOException {
+    List<List<String>> records = new ArrayList<>();
+    try (CSVParser parser = new CSVParser(new StringReader(data), format)) {
+      for (CSVRecord record : parser) {
+        List<String> values = new ArrayList<>();
+        for (String value : record) {
+          values.add(value);
+        }
+        records.add(values);
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void testParserRecords() throws Exception {
+    FastCsvParser parser = new FastCsvParser(getReader("TestCsvParser-default.csv"),
+        CSVFormat.DEFAULT.withHeader((String[])null).withSkipHeaderRecord(true), 0, 0, -1);
+    try {
+      Assert.assertArrayEquals(new String[]{"h1", "h2", "h3", "h4"}, parser.getHeaders());
+      Assert.assertEquals(12, parser.getReaderPosition());
+
+      String[] record = parser.read();
+      Assert.assertEquals(20, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"a", "b", "c", "d"}, record);
+
+      record = parser.read();
+      Assert.assertEquals(33, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"w", "x", "y", "z", "extra"}, record);
+
+      Assert.assertNull(parser.read());
+      Assert.assertEquals(33, parser.getReaderPosition());
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Test
+  public void testParserRecordsFromOffset() throws Exception {
+    FastCsvParser parser = new FastCsvParser(getReader("TestCsvParser-default.csv"),
+        CSVFormat.DEFAULT.withHeader((String[])null).withSkipHeaderRecord(true), 20, 0, -1);
+    try {
+      Assert.assertArrayEquals(new String[]{"h1", "h2", "h3", "h4"}, parser.getHeaders());
+      Assert.assertEquals(20, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"w", "x", "y", "z", "extra"}, parser.read());
+      Assert.assertNull(parser.read());
+    } finally {
+      parser.close();
+    }
+
+    parser = new FastCsvParser(new CountingReader(new StringReader("a,b\nc,d\n")), CSVFormat.DEFAULT, 4, 0, -1);
+    try {
+      Assert.assertNull(parser.getHeaders());
+      Assert.assertArrayEquals(new String[]{"c", "d"}, parser.read());
+      Assert.assertEquals(8, parser.getReaderPosition());
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Test
+  public void testHeadersWithNullColumns() throws Exception {
+    FastCsvParser parser = new FastCsvParser(new StringReader("a,,,d\naa,bb,cc,dd\n"),
+        CSVFormat.DEFAULT.withHeader((String[])null).withSkipHeaderRecord(true), 15);
+    try {
+      Assert.assertArrayEquals(new String[]{"a", "empty-1", "empty-2", "d"}, parser.getHeaders());
+      Assert.assertArrayEquals(new String[]{"aa", "bb", "cc", "dd"}, parser.read());
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Test
+  public void testMaxObjectLen() throws Exception {
+    FastCsvParser parser = new FastCsvParser(new StringReader("a,b,c\naa,bb,cc\ne,f,g\n"), CSVFormat.DEFAULT, 6);
+    try {
+      Assert.assertArrayEquals(new String[]{"a", "b", "c"}, parser.read());
+      Assert.assertEquals(6, parser.getReaderPosition());
+      try {
+        parser.read();
+        Assert.fail();
+      } catch (ObjectLengthException ex) {
+      }
+      Assert.assertEquals(15, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"e", "f", "g"}, parser.read());
+      Assert.assertNull(parser.read());
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Test
+  public void testSkipLines() throws Exception {
+    FastCsvParser parser = new FastCsvParser(
+        new CountingReader(new StringReader("foo\nbar\r\na,b,c\naa,bb,cc\ne,f,g\n")),
+        CSVFormat.DEFAULT,
+        0,
+        2,
+        -1
+    );
+    try {
+      Assert.assertEquals(9, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"a", "b", "c"}, parser.read());
+      Assert.assertEquals(15, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"aa", "bb", "cc"}, parser.read());
+      Assert.assertEquals(24, parser.getReaderPosition());
+      Assert.assertArrayEquals(new String[]{"e", "f", "g"}, parser.read());
+      Assert.assertEquals(30, parser.getReaderPosition());
+      Assert.assertNull(parser.read());
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidCharAfterQuote() throws Exception {
+    FastCsvParser parser = new FastCsvParser(
+        new StringReader("0,\"020\"1,\"BS:5252525  ORDER:99999\"4"),
+        CSVFormat.DEFAULT,
+        -1
+    );
+    parser.read();
+  }
+
+  @Test
+  public void testSameRecordsAsCommonsCsv() throws Exception {
+    String data = "a,\"b,\"\"q\"\"\nx\",c\r\n\r\n\n1,,3,\n  x , \"y\" ,z\n#not a comment,2\n" +
+        Strings.repeat("0123456789", 2000) + ",last";
+    CSVFormat[] formats = {
+        CSVFormat.DEFAULT,
+        CSVFormat.RFC4180,
+        CSVFormat.EXCEL,
+        CSVFormat.DEFAULT.withIgnoreSurroundingSpaces(true),
+        CSVFormat.DEFAULT.withTrim(true).withNullString(""),
+        CSVFormat.DEFAULT.withEscape('\\').withCommentMarker('#'),
+        CSVFormat.MYSQL,
+        CSVFormat.TDF,
+        CSVFormat.DEFAULT.withDelimiter('|').withQuote('\'').withEscape('\\')
+    };
+    for (CSVFormat format : formats) {
+      FastCsvParser parser = new FastCsvParser(new StringReader(data), format, -1);
+      try {
+        Assert.assertEquals(format.toString(), parseWithCommonsCsv(data, format), parseAll(parser));
+      } finally {
+        parser.close();
+      }
+    }
+  }
+
+  @Test
+  public void testEscapes() throws Exception {
+    String data = "a\\,b,\\n,\\N,\\x\n";
+    FastCsvParser parser = new FastCsvParser(new StringReader(data), CSVFormat.MYSQL.withDelimiter(','), -1);
+    try {
+      Assert.assertArrayEquals(new String[]{"a,b", "\n", null, "\\x"}, parser.read());
+      Assert.assertNull(parser.read());
+    } finally {
+      parser.close();
+    }
+  }
+
+  @Test(expected = OverrunException.class)
+  public void testOverLimit() throws Exception {
+    System.setProperty(OverrunReader.READ_LIMIT_SYS_PROP, "10000");
+    OverrunReader.reInitializeDefaultReadLimit();
+    try {
+      String csv = "a," + Strings.repeat("b", 11000) + ",c";
+      OverrunReader reader = new OverrunReader(
+          new StringReader(csv),
+          OverrunReader.getDefaultReadLimit(),
+          false,
+          false
+      );
+      new FastCsvParser(reader, CSVFormat.DEFAULT, 0, 0, -1).read();
+    } finally {
+      System.getProperties().remove(OverrunReader.READ_LIMIT_SYS_PROP);
+      OverrunReader.reInitializeDefaultReadLimit();
+    }
+  }
+
+}
@@ -22,6 +22,7 @@ import com.streamsets.pipeline.api.GenerateResourceBundle;
 public enum Errors implements ErrorCode {
   DATA_GENERATOR_00("Cannot open file '{}'"),
   DATA_GENERATOR_01("Error creating data generator: '{}'"),
+  DATA_GENERATOR_02("Error serializing records: '{}'"),
 
   ;
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Serializes single records with a {@link DataGeneratorFactory} for the destinations that send one message per
+ * record.
+ *
+ * Every thread reuses its own output buffer instead of allocating a new one per record, so the only allocation
+ * left per record is the generator and the message payload handed over to the producer.
+ */
+public class RecordSerializer {
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+  // Buffers that grew bigger than this are not kept around, so that a few huge records don't pin memory
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * Receives the serialized bytes of a record, which are only valid for the duration of the call.
+   */
+  @FunctionalInterface
+  public interface Sink<T> {
+    T accept(byte[] buffer, int offset, int length);
+  }
+
+  /**
+   * Outcome of serializing one record as part of {@link #serialize(List, ExecutorService, int)}.
+   */
+  public static class Result {
+    private final byte[] bytes;
+    private final IOException ioException;
+    private final StageException stageException;
+
+    private Result(byte[] bytes, IOException ioException, StageException stageException) {
+      this.bytes = bytes;
+      this.ioException = ioException;
+      this.stageException = stageException;
+    }
+
+    /**
+     * Returns the serialized record or throws the exception raised while serializing it.
+     */
+    public byte[] getBytes() throws IOException, StageException {
+      if (ioException != null) {
+        throw ioException;
+      }
+      if (stageException != null) {
+        throw stageException;
+      }
+      return bytes;
+    }
+  }
+
+  private static class Buffer extends ByteArrayOutputStream {
+    Buffer() {
+      super(INITIAL_BUFFER_SIZE);
+    }
+
+    byte[] array() {
+      return buf;
+    }
+
+    boolean isOversized() {
+      return buf.length > MAX_RETAINED_BUFFER_SIZE;
+    }
+
+    @Override
+    public void close() {
+      // The buffer is reused by the next record, generators closing their stream must not affect it
+    }
+  }
+
+  private final DataGeneratorFactory generatorFactory;
+  private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+  public RecordSerializer(DataGeneratorFactory generatorFactory) {
+    this.generatorFactory = generatorFactory;
+  }
+
+  /**
+   * Serializes the record and returns a copy of the bytes owned by the caller.
+   */
+  public byte[] serialize(Record record) throws IOException, StageException {
+    return serialize(record, (buffer, offset, length) -> Arrays.copyOfRange(buffer, offset, offset + length));
+  }
+
+  /**
+   * Serializes the record and hands the bytes over to the given sink, which must copy whatever it needs to keep.
+   */
+  public <T> T serialize(Record record, Sink<T> sink) throws IOException, StageException {
+    Buffer buffer = buffers.get();
+    buffer.reset();
+    try {
+      try (DataGenerator generator = generatorFactory.getGenerator(buffer)) {
+        generator.write(record);
+      }
+      return sink.accept(buffer.array(), 0, buffer.size());
+    } finally {
+      if (buffer.isOversized()) {
+        buffers.remove();
+      }
+    }
+  }
+
+  /**
+   * Serializes the records in contiguous chunks, one per executor thread, and returns the results in the order
+   * of the given records.
+   */
+  public List<Result> serialize(List<Record> records, ExecutorService executor, int parallelism)
+      throws StageException {
+    int chunks = Math.max(1, Math.min(parallelism, records.size()));
+    if (chunks == 1) {
+      return serializeChunk(records);
+    }
+    int chunkSize = (records.size() + chunks - 1) / chunks;
+    List<Future<List<Result>>> futures = new ArrayList<>(chunks);
+    for (int from = 0; from < records.size(); from += chunkSize) {
+      List<Record> chunk = records.subList(from, Math.min(from + chunkSize, records.size()));
+      futures.add(executor.submit(() -> serializeChunk(chunk)));
+    }
+    List<Result> results = new ArrayList<>(records.size());
+    for (Future<List<Result>> future : futures) {
+      try {
+        results.addAll(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new StageException(Errors.DATA_GENERATOR_02, e.toString(), e);
+      } catch (ExecutionException e) {
+        throw new StageException(Errors.DATA_GENERATOR_02, e.getCause().toString(), e.getCause());
+      }
+    }
+    return results;
+  }
+
+  private List<Result> serializeChunk(List<Record> records) {
+    List<Result> results = new ArrayList<>(records.size());
+    for (Record record : records) {
+      try {
+        results.add(new Result(serialize(record), null, null));
+      } catch (IOException e) {
+        results.add(new Result(null, e, null));
+      } catch (StageException e) {
+        results.add(new Result(null, null, e));
+      }
+    }
+    return results;
+  }
+}
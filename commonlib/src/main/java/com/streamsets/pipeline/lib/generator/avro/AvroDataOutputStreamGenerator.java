@@ -18,15 +18,13 @@ package com.streamsets.pipeline.lib.generator.avro;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.lib.generator.DataGeneratorException;
+import com.streamsets.pipeline.lib.util.AvroFieldWriter;
 import com.streamsets.pipeline.lib.util.AvroJavaSnappyCodec;
 import com.streamsets.pipeline.lib.util.AvroSchemaHelper;
-import com.streamsets.pipeline.lib.util.AvroTypeUtil;
 import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.DatumWriter;
 
 import java.io.Closeable;
 import java.io.Flushable;
@@ -43,7 +41,9 @@ public class AvroDataOutputStreamGenerator extends BaseAvroDataGenerator {
 
   private OutputStream outputStream;
   private String compressionCodec;
-  private DataFileWriter<GenericRecord> dataFileWriter;
+  private DataFileWriter<Object> dataFileWriter;
+  private AvroFieldWriter fieldWriter;
+  private final AvroFieldWriter.RecordBuffer recordBuffer = new AvroFieldWriter.RecordBuffer();
 
   public AvroDataOutputStreamGenerator(
       boolean schemaInHeader,
@@ -65,8 +65,9 @@ public class AvroDataOutputStreamGenerator extends BaseAvroDataGenerator {
 
   @Override
   protected void initializeWriter() throws IOException {
-    DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(schema);
-    dataFileWriter = new DataFileWriter<>(datumWriter);
+    fieldWriter = AvroFieldWriter.forSchema(schema);
+    // Records are appended already encoded, the datum writer only takes the schema
+    dataFileWriter = new DataFileWriter<>(new GenericDatumWriter<>());
     dataFileWriter.setCodec(CodecFactory.fromString(compressionCodec));
     dataFileWriter.create(schema, outputStream);
   }
@@ -74,7 +75,7 @@ public class AvroDataOutputStreamGenerator extends BaseAvroDataGenerator {
   @Override
   protected void writeRecord(Record record) throws IOException, DataGeneratorException {
     try {
-      dataFileWriter.append((GenericRecord)AvroTypeUtil.sdcRecordToAvro(record, schema, defaultValueMap));
+      dataFileWriter.appendEncoded(recordBuffer.encode(fieldWriter, record, defaultValueMap));
     } catch (StageException e) {
       throw new DataGeneratorException(e.getErrorCode(), e.getParams()); // params includes cause
     }
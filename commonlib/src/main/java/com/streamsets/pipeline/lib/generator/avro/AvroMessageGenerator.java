@@ -18,23 +18,23 @@ package com.streamsets.pipeline.lib.generator.avro;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.lib.generator.DataGeneratorException;
+import com.streamsets.pipeline.lib.util.AvroFieldWriter;
 import com.streamsets.pipeline.lib.util.AvroSchemaHelper;
-import com.streamsets.pipeline.lib.util.AvroTypeUtil;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
 
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 public class AvroMessageGenerator extends BaseAvroDataGenerator {
 
-  private DatumWriter<Object> datumWriter;
+  private AvroFieldWriter fieldWriter;
+  private final AvroFieldWriter.RecordBuffer recordBuffer = new AvroFieldWriter.RecordBuffer();
   private BinaryEncoder binaryEncoder;
   private final OutputStream outputStream;
 
@@ -57,8 +57,8 @@ public class AvroMessageGenerator extends BaseAvroDataGenerator {
   }
 
   @Override
-  protected void initializeWriter() {
-    datumWriter = new GenericDatumWriter<>(schema);
+  protected void initializeWriter() throws IOException {
+    fieldWriter = AvroFieldWriter.forSchema(schema);
   }
 
   @Override
@@ -72,10 +72,8 @@ public class AvroMessageGenerator extends BaseAvroDataGenerator {
   @Override
   public void writeRecord(Record record) throws IOException, DataGeneratorException {
     try {
-      datumWriter.write(
-          AvroTypeUtil.sdcRecordToAvro(record, schema, defaultValueMap),
-          binaryEncoder
-      );
+      ByteBuffer encoded = recordBuffer.encode(fieldWriter, record, defaultValueMap);
+      binaryEncoder.writeFixed(encoded.array(), encoded.position(), encoded.remaining());
     } catch (StageException e) {
       throw new DataGeneratorException(e.getErrorCode(), e.getParams()); // params includes cause
     }
@@ -21,6 +21,7 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
 import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
 import com.streamsets.pipeline.lib.util.ProtobufConstants;
+import com.streamsets.pipeline.lib.util.ProtobufFieldWriter;
 import com.streamsets.pipeline.lib.util.ProtobufTypeUtil;
 
 import java.io.IOException;
@@ -53,6 +54,7 @@ public class ProtobufDataGeneratorFactory extends DataGeneratorFactory {
   // that is accessible via the configured Protobuf descriptor file
   private final Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap;
   private final Map<String, Object> defaultValueMap;
+  private final ProtobufFieldWriter fieldWriter;
 
   public ProtobufDataGeneratorFactory(Settings settings) throws StageException {
     super(settings);
@@ -69,17 +71,14 @@ public class ProtobufDataGeneratorFactory extends DataGeneratorFactory {
         messageTypeToExtensionMap,
         defaultValueMap
     );
+
+    // Compile the writer for the message type, its extensions and default values once, it is shared by all generators
+    fieldWriter = new ProtobufFieldWriter(descriptor, messageTypeToExtensionMap, defaultValueMap);
   }
 
   @Override
   public DataGenerator getGenerator(OutputStream os) throws IOException {
-    return new ProtobufDataGenerator(
-        os,
-        descriptor,
-        messageTypeToExtensionMap,
-        defaultValueMap,
-        isDelimited
-    );
+    return new ProtobufDataGenerator(os, fieldWriter, isDelimited);
   }
 
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.io;
+
+import com.streamsets.pipeline.lib.util.ThreadUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a reader that found no data wait until a file changes in one of the directories it reads from, instead of
+ * sleeping for a fixed time.
+ * <p/>
+ * It uses the file system {@link WatchService} (inotify on Linux). If the file system does not support watching,
+ * or a directory cannot be registered, waiting falls back to sleeping for the full time.
+ */
+class FileChangeWatcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(FileChangeWatcher.class);
+  // how often a waiting thread checks if it has been woken up
+  private static final long WAKE_UP_CHECK_MILLIS = 50;
+
+  private final WatchService watchService;
+  private final Set<Path> watchedDirs;
+  private final Set<Path> failedDirs;
+  private volatile boolean wokenUp;
+
+  FileChangeWatcher() {
+    WatchService service;
+    try {
+      service = FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException ex) {
+      LOG.warn("Could not create file watch service, falling back to polling: {}", ex.toString(), ex);
+      service = null;
+    }
+    watchService = service;
+    watchedDirs = new HashSet<>();
+    failedDirs = new HashSet<>();
+  }
+
+  /**
+   * Watches the directory for created and modified files, it is a NOP if the directory is already watched or could
+   * not be watched before.
+   */
+  void watch(Path dir) {
+    if (watchService != null && dir != null && !watchedDirs.contains(dir) && !failedDirs.contains(dir)) {
+      try {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirs.add(dir);
+        LOG.debug("Watching directory '{}'", dir);
+      } catch (IOException | ClosedWatchServiceException ex) {
+        // changes in the directory are noticed when waiting times out
+        failedDirs.add(dir);
+        LOG.debug("Could not watch directory '{}': {}", dir, ex.toString());
+      }
+    }
+  }
+
+  /**
+   * Makes a current or the next {@link #await(long)} call return right away. Can be called from any thread.
+   */
+  void wakeUp() {
+    wokenUp = true;
+  }
+
+  /**
+   * Returns if {@link #wakeUp()} was called since the last call of this method.
+   */
+  boolean consumeWakeUp() {
+    boolean woken = wokenUp;
+    wokenUp = false;
+    return woken;
+  }
+
+  /**
+   * Waits until a file changes in a watched directory, {@link #wakeUp()} is called or the given time passes.
+   *
+   * @return <code>false</code> if the thread was interrupted while waiting.
+   */
+  boolean await(long waitMillis) {
+    long deadline = System.currentTimeMillis() + waitMillis;
+    long remaining = waitMillis;
+    try {
+      while (remaining > 0 && !wokenUp) {
+        long slice = Math.min(remaining, WAKE_UP_CHECK_MILLIS);
+        if (watchService == null || watchedDirs.isEmpty()) {
+          if (!ThreadUtil.sleep(slice)) {
+            return false;
+          }
+        } else if (drain(watchService.poll(slice, TimeUnit.MILLISECONDS))) {
+          return true;
+        }
+        remaining = deadline - System.currentTimeMillis();
+      }
+      return true;
+    } catch (InterruptedException ex) {
+      return false;
+    } catch (ClosedWatchServiceException ex) {
+      return ThreadUtil.sleep(remaining);
+    }
+  }
+
+  // drains all pending keys as a single read loop picks up all the changes, returns if there was any
+  private boolean drain(WatchKey key) {
+    boolean changed = key != null;
+    while (key != null) {
+      key.pollEvents();
+      if (!key.reset()) {
+        // the directory is gone, the file contexts created if it comes back register it again
+        watchedDirs.remove((Path) key.watchable());
+      }
+      key = watchService.poll();
+    }
+    return changed;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+}
@@ -46,6 +46,7 @@ public class FileContext {
   private long startingOffset;
   private RollMode rollMode;
   private final Path dir;
+  private Path watchedDir;
   private boolean open;
   private boolean inPreviewMode;
 
@@ -130,6 +131,18 @@ public class FileContext {
     return reader;
   }
 
+  // returns the directory of the file being read the first time it is read from that directory, null otherwise, so
+  // that the directory is registered for change notifications once. It is the directory the file was found in, the
+  // path of a glob file may have wildcards.
+  Path getDirToWatch() {
+    Path fileDir = reader == null ? null : reader.getLiveFile().getPath().getParent();
+    if (fileDir == null || fileDir.equals(watchedDir)) {
+      return null;
+    }
+    watchedDir = fileDir;
+    return fileDir;
+  }
+
   // updates reader and offsets after a read.
   public void releaseReader(boolean inErrorDiscardReader) throws IOException {
     Utils.checkState(open, "FileContext is closed");
@@ -17,7 +17,6 @@ package com.streamsets.pipeline.lib.io;
 
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.config.PostProcessingOptions;
-import com.streamsets.pipeline.lib.util.ThreadUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +36,9 @@ import java.util.Map;
  * <p/>
  * Directories are read in round-robin fashion to avoid starvation.
  * <p/>
+ * When there is no data in any directory the reader waits for files in those directories to change, falling back
+ * to waiting up to <code>MultiFileReader.yield.ms</code> between scans.
+ * <p/>
  * The usage pattern is:
  * <p/>
  * <pre>
@@ -58,6 +60,7 @@ public class MultiFileReader implements Closeable {
 
   private final FileContextProvider fileContextProvider;
   private final List<FileEvent> events;
+  private final FileChangeWatcher changeWatcher;
   private boolean open;
   private boolean inPreviewMode;
 
@@ -93,6 +96,7 @@ public class MultiFileReader implements Closeable {
     this.inPreviewMode = inPreviewMode;
 
     events = new ArrayList<>(fileInfos.size() * 2);
+    changeWatcher = new FileChangeWatcher();
     FileEventPublisher eventPublisher = new FileEventPublisher() {
       @Override
       public void publish(FileEvent event) {
@@ -199,6 +203,7 @@ public class MultiFileReader implements Closeable {
         try {
           LiveFileReader reader = fileContext.getReader();
           if (reader != null) {
+            changeWatcher.watch(fileContext.getDirToWatch());
             if (reader.hasNext()) {
               chunk = reader.next(0);
               if (LOG.isTraceEnabled()) {
@@ -239,7 +244,8 @@ public class MultiFileReader implements Closeable {
           if (!exit && LOG.isTraceEnabled()) {
             LOG.trace("next(): looped through all directories, yielding CPU");
           }
-          exit = exit || !ThreadUtil.sleep(Math.min(getRemainingWaitTime(startTime, waitMillis), MAX_YIELD_TIME));
+          exit = exit || !changeWatcher.await(Math.min(getRemainingWaitTime(startTime, waitMillis), MAX_YIELD_TIME));
+          exit = exit || changeWatcher.consumeWakeUp();
           fileContextProvider.startNewLoop();
         }
       }
@@ -247,6 +253,21 @@ public class MultiFileReader implements Closeable {
     return chunk;
   }
 
+  /**
+   * Makes a thread waiting in {@link #next(long)} for data return without a chunk. Can be called from any thread.
+   */
+  public void wakeUp() {
+    changeWatcher.wakeUp();
+  }
+
+  /**
+   * Drops a {@link #wakeUp()} that was not consumed by {@link #next(long)}, so that it doesn't cut short the
+   * next wait. Call it once no thread is waiting in {@link #next(long)}.
+   */
+  public void clearWakeUp() {
+    changeWatcher.consumeWakeUp();
+  }
+
   /**
    * Determines the offset lag for each active file being read.
    *
@@ -273,7 +294,11 @@ public class MultiFileReader implements Closeable {
   public void close() throws IOException {
     if (open) {
       open = false;
-      fileContextProvider.close();
+      try {
+        fileContextProvider.close();
+      } finally {
+        changeWatcher.close();
+      }
     }
   }
 }
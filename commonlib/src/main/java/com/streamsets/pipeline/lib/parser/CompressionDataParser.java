@@ -25,8 +25,6 @@ import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
-import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.input.ProxyInputStream;
 
 import java.io.BufferedInputStream;
@@ -44,13 +42,13 @@ public class CompressionDataParser extends AbstractDataParser {
   public static final String MINUS_ONE = "-1";
   public static final String PATH_SEPARATOR = "/";
 
-  private static final boolean DECOMPRESS_UNTIL_EOF = true;
-
   private final InputStream is;
   private final String id;
   private final Compression compression;
   private final String compressionFilePattern;
   private final DataParserFactory dataParserFactory;
+  private final int decompressionThreads;
+  private final int decompressionReadAhead;
 
   private String offset;
   private DataParser parser;
@@ -64,6 +62,19 @@ public class CompressionDataParser extends AbstractDataParser {
       Compression compression,
       String compressionFilePattern,
       DataParserFactory dataParserFactory
+  ) {
+    this(id, is, offset, compression, compressionFilePattern, dataParserFactory, 0, 0);
+  }
+
+  public CompressionDataParser(
+      String id,
+      InputStream is,
+      String offset,
+      Compression compression,
+      String compressionFilePattern,
+      DataParserFactory dataParserFactory,
+      int decompressionThreads,
+      int decompressionReadAhead
   ) {
     this.id = id;
     this.is = is;
@@ -71,6 +82,8 @@ public class CompressionDataParser extends AbstractDataParser {
     this.compression = compression;
     this.compressionFilePattern = compressionFilePattern;
     this.dataParserFactory = dataParserFactory;
+    this.decompressionThreads = decompressionThreads;
+    this.decompressionReadAhead = decompressionReadAhead;
   }
 
   @Override
@@ -80,7 +93,14 @@ public class CompressionDataParser extends AbstractDataParser {
         offset = ZERO;
       }
       // first invocation of this method on the parser. Initialize
-      compressionInput = new CompressionInputBuilder(compression, compressionFilePattern, is, offset).build();
+      compressionInput = new CompressionInputBuilder(
+          compression,
+          compressionFilePattern,
+          is,
+          offset,
+          decompressionThreads,
+          decompressionReadAhead
+      ).build();
       offset = compressionInput.getStreamPosition(offset);
     }
     Record record = null;
@@ -171,17 +191,32 @@ public class CompressionDataParser extends AbstractDataParser {
     private final String compressedFilePattern;
     private final InputStream inputStream;
     private final String offset;
+    private final int decompressionThreads;
+    private final int decompressionReadAhead;
 
     public CompressionInputBuilder(
         Compression compressionInputFormat,
         String compressedFilePattern,
         InputStream inputStream,
         String offset
+    ) {
+      this(compressionInputFormat, compressedFilePattern, inputStream, offset, 0, 0);
+    }
+
+    public CompressionInputBuilder(
+        Compression compressionInputFormat,
+        String compressedFilePattern,
+        InputStream inputStream,
+        String offset,
+        int decompressionThreads,
+        int decompressionReadAhead
     ) {
       this.compressionInputFormat = compressionInputFormat;
       this.compressedFilePattern = compressedFilePattern;
       this.inputStream = inputStream;
       this.offset = offset;
+      this.decompressionThreads = decompressionThreads;
+      this.decompressionReadAhead = decompressionReadAhead;
     }
 
     public CompressionDataParser.CompressionInput build() throws IOException {
@@ -190,11 +225,15 @@ public class CompressionDataParser extends AbstractDataParser {
           case NONE:
             return new None(inputStream);
           case COMPRESSED_FILE:
-            return new CompressorInput(inputStream);
+            return new CompressorInput(inputStream, decompressionThreads, decompressionReadAhead);
           case ARCHIVE:
             return new ArchiveInput(compressedFilePattern, new None(inputStream), offset);
           case COMPRESSED_ARCHIVE:
-            return new ArchiveInput(compressedFilePattern, new CompressorInput(inputStream), offset);
+            return new ArchiveInput(
+                compressedFilePattern,
+                new CompressorInput(inputStream, decompressionThreads, decompressionReadAhead),
+                offset
+            );
           default:
             throw new IllegalArgumentException();
         }
@@ -250,12 +289,11 @@ public class CompressionDataParser extends AbstractDataParser {
       private InputStream inputStream;
 
       public CompressorInput(InputStream inputStream) throws IOException {
-        try {
-          this.inputStream = new CompressorStreamFactory(DECOMPRESS_UNTIL_EOF).createCompressorInputStream(
-              new BufferedInputStream(inputStream));
-        } catch (CompressorException e) {
-          throw new IOException(e);
-        }
+        this(inputStream, 0, 0);
+      }
+
+      public CompressorInput(InputStream inputStream, int threads, int readAhead) throws IOException {
+        this.inputStream = ParallelDecompressorInputStream.createCompressorInputStream(inputStream, threads, readAhead);
       }
 
       @Override
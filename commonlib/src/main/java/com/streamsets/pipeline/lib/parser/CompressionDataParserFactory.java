@@ -15,24 +15,52 @@
  */
 package com.streamsets.pipeline.lib.parser;
 
+import com.streamsets.pipeline.api.Configuration;
+
 import java.io.InputStream;
 import java.io.Reader;
 
 public class CompressionDataParserFactory extends DataParserFactory {
 
+  private static final String DECOMPRESSION_PREFIX = "com.streamsets.pipeline.lib.parser.decompression.";
+  // Threads decompressing splittable compressed files, 0 decompresses them on the reading thread
+  public static final String DECOMPRESSION_THREADS_KEY = DECOMPRESSION_PREFIX + "threads";
+  public static final int DECOMPRESSION_THREADS_DEFAULT = 0;
+  // Chunks decompressed ahead of the parser for a single file, 0 means twice the number of threads
+  public static final String DECOMPRESSION_READ_AHEAD_KEY = DECOMPRESSION_PREFIX + "readAhead";
+  public static final int DECOMPRESSION_READ_AHEAD_DEFAULT = 0;
+
   private final DataParserFactory dataParserFactory;
   private final Settings settings;
+  private final int decompressionThreads;
+  private final int decompressionReadAhead;
 
   public CompressionDataParserFactory(Settings settings, DataParserFactory dataParserFactory) {
     super(settings);
     this.settings = settings;
     this.dataParserFactory = dataParserFactory;
+    Configuration configuration = settings.getContext().getConfiguration();
+    if (configuration != null) {
+      decompressionThreads = configuration.get(DECOMPRESSION_THREADS_KEY, DECOMPRESSION_THREADS_DEFAULT);
+      decompressionReadAhead = configuration.get(DECOMPRESSION_READ_AHEAD_KEY, DECOMPRESSION_READ_AHEAD_DEFAULT);
+    } else {
+      decompressionThreads = DECOMPRESSION_THREADS_DEFAULT;
+      decompressionReadAhead = DECOMPRESSION_READ_AHEAD_DEFAULT;
+    }
   }
 
   @Override
   public DataParser getParser(String id, InputStream is, String offset) throws DataParserException {
-    return new CompressionDataParser(id, is, offset, settings.getCompression(), settings.getFilePatternInArchive(),
-        dataParserFactory);
+    return new CompressionDataParser(
+        id,
+        is,
+        offset,
+        settings.getCompression(),
+        settings.getFilePatternInArchive(),
+        dataParserFactory,
+        decompressionThreads,
+        decompressionReadAhead
+    );
   }
 
   @Override
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser;
+
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+/**
+ * Finds the boundaries of independently decodable frames in a compressed stream without decompressing it.
+ * <p/>
+ * Only streams made of several frames can be split: BGZF gzip (bgzip), concatenated bzip2 streams (pbzip2) and
+ * multi frame zstd (pzstd) or LZ4 streams. Anything else is reported as not splittable and decoded sequentially.
+ */
+enum FrameScanner {
+
+  /**
+   * Gzip members carrying the BGZF block size in the extra field. Plain gzip members don't record their length so
+   * their end can only be found by inflating them.
+   */
+  GZIP {
+    @Override
+    int frameLength(byte[] buf, int from, int to, boolean eof) {
+      if (to - from < 12) {
+        return NEED_MORE;
+      }
+      if (u8(buf, from) != 0x1f || u8(buf, from + 1) != 0x8b || buf[from + 2] != 8 || (buf[from + 3] & 0x04) == 0) {
+        return NOT_SPLITTABLE;
+      }
+      int extraLength = u16(buf, from + 10);
+      if (to - from < 12 + extraLength) {
+        return NEED_MORE;
+      }
+      int pos = from + 12;
+      int extraEnd = pos + extraLength;
+      while (pos + 4 <= extraEnd) {
+        int fieldLength = u16(buf, pos + 2);
+        if (buf[pos] == 'B' && buf[pos + 1] == 'C' && fieldLength == 2 && pos + 6 <= extraEnd) {
+          int length = u16(buf, pos + 4) + 1;
+          return from + length <= to ? length : NEED_MORE;
+        }
+        pos += 4 + fieldLength;
+      }
+      return NOT_SPLITTABLE;
+    }
+  },
+
+  /**
+   * Concatenated bzip2 streams. Streams are byte aligned and start with the stream header followed by either the
+   * block or the end of stream magic, which is what the next boundary is searched for.
+   */
+  BZIP2 {
+    @Override
+    int frameLength(byte[] buf, int from, int to, boolean eof) {
+      if (to - from < BZIP2_SIGNATURE_LENGTH) {
+        return NEED_MORE;
+      }
+      if (!isBzip2Stream(buf, from)) {
+        return NOT_SPLITTABLE;
+      }
+      for (int pos = from + BZIP2_SIGNATURE_LENGTH; pos <= to - BZIP2_SIGNATURE_LENGTH; pos++) {
+        if (buf[pos] == 'B' && isBzip2Stream(buf, pos)) {
+          return pos - from;
+        }
+      }
+      return eof ? to - from : NEED_MORE;
+    }
+  },
+
+  ZSTANDARD {
+    @Override
+    int frameLength(byte[] buf, int from, int to, boolean eof) {
+      if (to - from < 8) {
+        return NEED_MORE;
+      }
+      long magic = u32(buf, from);
+      if (isSkippableFrame(magic)) {
+        return skippableFrameLength(buf, from, to);
+      }
+      int descriptor = u8(buf, from + 4);
+      if (magic != ZSTD_MAGIC || (descriptor & 0x08) != 0) {
+        return NOT_SPLITTABLE;
+      }
+      int contentSizeFlag = descriptor >>> 6;
+      boolean singleSegment = (descriptor & 0x20) != 0;
+      int pos = from + 5
+          + (singleSegment ? 0 : 1)
+          + ZSTD_DICTIONARY_ID_SIZES[descriptor & 0x03]
+          + (contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag);
+      boolean lastBlock = false;
+      while (!lastBlock) {
+        if (pos + 3 > to) {
+          return NEED_MORE;
+        }
+        int header = u8(buf, pos) | u8(buf, pos + 1) << 8 | u8(buf, pos + 2) << 16;
+        int type = (header >>> 1) & 0x03;
+        if (type == 3) {
+          return NOT_SPLITTABLE;
+        }
+        lastBlock = (header & 0x01) != 0;
+        // RLE blocks store a single byte whatever their size is
+        pos += 3 + (type == 1 ? 1 : header >>> 3);
+      }
+      if ((descriptor & 0x04) != 0) {
+        pos += 4;
+      }
+      return pos <= to ? pos - from : NEED_MORE;
+    }
+  },
+
+  LZ4_FRAMED {
+    @Override
+    int frameLength(byte[] buf, int from, int to, boolean eof) {
+      if (to - from < 8) {
+        return NEED_MORE;
+      }
+      long magic = u32(buf, from);
+      if (isSkippableFrame(magic)) {
+        return skippableFrameLength(buf, from, to);
+      }
+      int flags = u8(buf, from + 4);
+      if (magic != LZ4_MAGIC || (flags >>> 6) != 1) {
+        return NOT_SPLITTABLE;
+      }
+      boolean blockChecksum = (flags & 0x10) != 0;
+      // magic, flags, block descriptor, optional content size and dictionary id, header checksum
+      int pos = from + 6 + ((flags & 0x08) != 0 ? 8 : 0) + ((flags & 0x01) != 0 ? 4 : 0) + 1;
+      while (true) {
+        if (pos + 4 > to) {
+          return NEED_MORE;
+        }
+        long blockSize = u32(buf, pos) & 0x7FFFFFFFL;
+        pos += 4;
+        if (blockSize == 0) {
+          break;
+        }
+        if (blockSize > ParallelDecompressorInputStream.MAX_FRAME_SIZE) {
+          return NOT_SPLITTABLE;
+        }
+        pos += (int) blockSize + (blockChecksum ? 4 : 0);
+      }
+      if ((flags & 0x04) != 0) {
+        pos += 4;
+      }
+      return pos <= to ? pos - from : NEED_MORE;
+    }
+  },
+  ;
+
+  /** More bytes are needed to find the end of the frame. */
+  static final int NEED_MORE = 0;
+  /** The stream can't be split from this position on. */
+  static final int NOT_SPLITTABLE = -1;
+
+  private static final int BZIP2_SIGNATURE_LENGTH = 10;
+  private static final byte[] BZIP2_BLOCK_MAGIC = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+  private static final byte[] BZIP2_EOS_MAGIC = {0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90};
+  private static final long ZSTD_MAGIC = 0xFD2FB528L;
+  private static final int[] ZSTD_DICTIONARY_ID_SIZES = {0, 1, 2, 4};
+  private static final long LZ4_MAGIC = 0x184D2204L;
+
+  /**
+   * Returns the length of the frame starting at {@code from}, {@link #NEED_MORE} if the frame doesn't end before
+   * {@code to} or {@link #NOT_SPLITTABLE} if the data at {@code from} isn't a frame that can be decoded on its own.
+   *
+   * @param eof true if there is no data in the stream after {@code to}
+   */
+  abstract int frameLength(byte[] buf, int from, int to, boolean eof);
+
+  /**
+   * Returns the scanner for the given commons-compress compressor name, null if the format can't be split.
+   */
+  static FrameScanner forFormat(String format) {
+    switch (format) {
+      case CompressorStreamFactory.GZIP:
+        return GZIP;
+      case CompressorStreamFactory.BZIP2:
+        return BZIP2;
+      case CompressorStreamFactory.ZSTANDARD:
+        return ZSTANDARD;
+      case CompressorStreamFactory.LZ4_FRAMED:
+        return LZ4_FRAMED;
+      default:
+        return null;
+    }
+  }
+
+  private static boolean isBzip2Stream(byte[] buf, int pos) {
+    if (buf[pos] != 'B' || buf[pos + 1] != 'Z' || buf[pos + 2] != 'h' || buf[pos + 3] < '1' || buf[pos + 3] > '9') {
+      return false;
+    }
+    return matches(buf, pos + 4, BZIP2_BLOCK_MAGIC) || matches(buf, pos + 4, BZIP2_EOS_MAGIC);
+  }
+
+  private static boolean matches(byte[] buf, int pos, byte[] magic) {
+    for (int i = 0; i < magic.length; i++) {
+      if (buf[pos + i] != magic[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSkippableFrame(long magic) {
+    return (magic & 0xFFFFFFF0L) == 0x184D2A50L;
+  }
+
+  private static int skippableFrameLength(byte[] buf, int from, int to) {
+    long length = 8 + u32(buf, from + 4);
+    if (length > ParallelDecompressorInputStream.MAX_FRAME_SIZE) {
+      return NOT_SPLITTABLE;
+    }
+    return from + length <= to ? (int) length : NEED_MORE;
+  }
+
+  private static int u8(byte[] buf, int pos) {
+    return buf[pos] & 0xFF;
+  }
+
+  private static int u16(byte[] buf, int pos) {
+    return u8(buf, pos) | u8(buf, pos + 1) << 8;
+  }
+
+  private static long u32(byte[] buf, int pos) {
+    return (u16(buf, pos) | (long) u16(buf, pos + 2) << 16);
+  }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decompresses a stream made of independently decodable frames on several threads.
+ * <p/>
+ * The compressed stream is cut at frame boundaries (see {@link FrameScanner}) into chunks of about
+ * {@link #TARGET_CHUNK_SIZE} bytes that are decompressed on a shared pool while the reader consumes earlier chunks.
+ * At most {@code readAhead} chunks are in flight, and together they hold at most {@link #MAX_BUFFERED_BYTES}
+ * compressed and decompressed bytes, give or take the compressed bytes of one chunk. A chunk whose decompressed data
+ * doesn't fit in what is left of that budget is decompressed again on the reading thread when its turn comes. The
+ * decompressed bytes are exactly the ones the sequential decoder produces, so stream positions and therefore parser
+ * offsets don't change.
+ * <p/>
+ * As soon as the stream can't be split any further, for instance a single frame zstd file or a plain gzip file, the
+ * rest of the stream is decompressed sequentially on the reading thread.
+ */
+public class ParallelDecompressorInputStream extends InputStream {
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelDecompressorInputStream.class);
+
+  static final int TARGET_CHUNK_SIZE = 1024 * 1024;
+  static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+  static final long MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
+  private static final int READ_SIZE = 64 * 1024;
+  private static final boolean DECOMPRESS_UNTIL_EOF = true;
+
+  private static ThreadPoolExecutor pool;
+
+  private final InputStream in;
+  private final String format;
+  private final FrameScanner scanner;
+  private final ExecutorService executor;
+  private final int readAhead;
+  private final long maxBufferedBytes;
+  private final Deque<Chunk> pending = new ArrayDeque<>();
+  // Compressed and decompressed bytes held by the chunks that haven't been read entirely yet
+  private final AtomicLong buffered = new AtomicLong();
+  private long currentBuffered;
+
+  // Compressed bytes read from the input that haven't been handed to a chunk yet
+  private byte[] buffer = new byte[READ_SIZE];
+  private int start;
+  private int end;
+  private boolean inputEof;
+  private boolean splitting = true;
+  private InputStream tail;
+  private InputStream current;
+  private final byte[] single = new byte[1];
+
+  /**
+   * Creates the decompressing stream for the given compressed input. The input is decompressed in parallel if its
+   * format can be split and {@code threads} is positive, otherwise the regular commons-compress stream is returned.
+   */
+  public static InputStream createCompressorInputStream(
+      InputStream inputStream,
+      int threads,
+      int readAhead
+  ) throws IOException {
+    InputStream in = new BufferedInputStream(inputStream);
+    try {
+      if (threads > 0) {
+        String format = CompressorStreamFactory.detect(in);
+        FrameScanner scanner = FrameScanner.forFormat(format);
+        if (scanner != null && (scanner != FrameScanner.ZSTANDARD || ZstdUtils.isZstdCompressionAvailable())) {
+          return new ParallelDecompressorInputStream(
+              in,
+              format,
+              scanner,
+              getPool(threads),
+              readAhead > 0 ? readAhead : 2 * threads,
+              MAX_BUFFERED_BYTES
+          );
+        }
+      }
+      return new CompressorStreamFactory(DECOMPRESS_UNTIL_EOF).createCompressorInputStream(in);
+    } catch (CompressorException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @VisibleForTesting
+  ParallelDecompressorInputStream(
+      InputStream in,
+      String format,
+      FrameScanner scanner,
+      ExecutorService executor,
+      int readAhead,
+      long maxBufferedBytes
+  ) {
+    this.in = in;
+    this.format = format;
+    this.scanner = scanner;
+    this.executor = executor;
+    this.readAhead = Math.max(1, readAhead);
+    this.maxBufferedBytes = maxBufferedBytes;
+  }
+
+  @VisibleForTesting
+  long getBufferedBytes() {
+    return buffered.get();
+  }
+
+  private static synchronized ExecutorService getPool(int threads) {
+    if (pool == null) {
+      pool = new ThreadPoolExecutor(
+          threads,
+          threads,
+          60,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat("Parallel Decompression-%d").setDaemon(true).build()
+      );
+      pool.allowCoreThreadTimeOut(true);
+    } else if (pool.getMaximumPoolSize() < threads) {
+      pool.setMaximumPoolSize(threads);
+      pool.setCorePoolSize(threads);
+    }
+    return pool;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (true) {
+      if (current != null) {
+        int read = current.read(b, off, len);
+        if (read != -1) {
+          return read;
+        }
+        current.close();
+        current = null;
+        buffered.addAndGet(-currentBuffered);
+        currentBuffered = 0;
+      }
+      current = nextStream();
+      if (current == null) {
+        return -1;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Chunk chunk : pending) {
+      chunk.result.cancel(true);
+    }
+    pending.clear();
+    buffer = null;
+    splitting = false;
+    try {
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+      if (tail != null) {
+        tail.close();
+        tail = null;
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Returns the decompressed data that follows the data already read, null at the end of the stream.
+   */
+  private InputStream nextStream() throws IOException {
+    submitChunks();
+    Chunk chunk = pending.poll();
+    if (chunk != null) {
+      InputStream stream = chunk.getDecompressed();
+      currentBuffered = chunk.bufferedBytes;
+      // Keep the pool busy while this chunk is read
+      submitChunks();
+      return stream;
+    }
+    if (tail != null) {
+      InputStream stream = decoder(format, tail);
+      tail = null;
+      return stream;
+    }
+    return null;
+  }
+
+  private void submitChunks() throws IOException {
+    // A chunk is always submitted when none is pending so that the stream moves forward, it is then read sequentially
+    // if the budget is exhausted.
+    while (splitting && pending.size() < readAhead && (pending.isEmpty() || buffered.get() < maxBufferedBytes)) {
+      int length = nextChunkLength();
+      if (length > 0) {
+        byte[] compressed = Arrays.copyOfRange(buffer, start, start + length);
+        start += length;
+        buffered.addAndGet(length);
+        pending.add(new Chunk(compressed, executor.submit(() -> decompress(compressed))));
+      } else {
+        splitting = false;
+        if (length == FrameScanner.NOT_SPLITTABLE) {
+          LOG.debug("Rest of the {} stream can't be split, decompressing it sequentially", format);
+          tail = new SequenceInputStream(new ByteArrayInputStream(buffer, start, end - start), in);
+        }
+        buffer = null;
+      }
+    }
+  }
+
+  /**
+   * Returns the length of the next chunk, 0 at the end of the input or {@link FrameScanner#NOT_SPLITTABLE} if the
+   * rest of the input can't be split.
+   */
+  private int nextChunkLength() throws IOException {
+    int length = 0;
+    while (length < TARGET_CHUNK_SIZE) {
+      int frame = scanner.frameLength(buffer, start + length, end, inputEof);
+      if (frame > 0) {
+        length += frame;
+      } else if (frame == FrameScanner.NOT_SPLITTABLE) {
+        return length > 0 ? length : FrameScanner.NOT_SPLITTABLE;
+      } else if (inputEof || end - start - length >= MAX_FRAME_SIZE) {
+        if (start + length == end) {
+          return length;
+        }
+        // Truncated or too big frame, the sequential decoder takes over from here
+        return length > 0 ? length : FrameScanner.NOT_SPLITTABLE;
+      } else {
+        readInput(end - start - length);
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Appends at least as many bytes as the incomplete frame already has, so that scanning the frame again stays
+   * linear overall.
+   */
+  private void readInput(int frameBytes) throws IOException {
+    int wanted = Math.max(READ_SIZE, frameBytes);
+    if (start > 0) {
+      System.arraycopy(buffer, start, buffer, 0, end - start);
+      end -= start;
+      start = 0;
+    }
+    if (buffer.length < end + wanted) {
+      buffer = Arrays.copyOf(buffer, end + wanted);
+    }
+    int target = end + wanted;
+    while (end < target) {
+      int read = in.read(buffer, end, target - end);
+      if (read == -1) {
+        inputEof = true;
+        break;
+      }
+      end += read;
+    }
+  }
+
+  private static InputStream decoder(String format, InputStream compressed) throws IOException {
+    try {
+      return new CompressorStreamFactory(DECOMPRESS_UNTIL_EOF).createCompressorInputStream(format, compressed);
+    } catch (CompressorException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Decompresses a chunk, returns null if the decompressed data doesn't fit in what is left of the stream's budget.
+   */
+  private byte[] decompress(byte[] compressed) throws IOException {
+    try (InputStream is = decoder(format, new ByteArrayInputStream(compressed))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+      byte[] buf = new byte[READ_SIZE];
+      int read;
+      while ((read = is.read(buf)) != -1) {
+        if (!reserve(read)) {
+          buffered.addAndGet(-out.size());
+          return null;
+        }
+        out.write(buf, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private boolean reserve(int bytes) {
+    long held;
+    do {
+      held = buffered.get();
+      if (held + bytes > maxBufferedBytes) {
+        return false;
+      }
+    } while (!buffered.compareAndSet(held, held + bytes));
+    return true;
+  }
+
+  private class Chunk {
+    private final byte[] compressed;
+    private final Future<byte[]> result;
+    // Bytes released from the stream's budget once the chunk has been read
+    private long bufferedBytes;
+
+    Chunk(byte[] compressed, Future<byte[]> result) {
+      this.compressed = compressed;
+      this.result = result;
+    }
+
+    InputStream getDecompressed() throws IOException {
+      byte[] decompressed;
+      try {
+        decompressed = result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while decompressing");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      }
+      if (decompressed == null) {
+        // Over the budget, stream the chunk instead of buffering it
+        bufferedBytes = compressed.length;
+        return decoder(format, new ByteArrayInputStream(compressed));
+      }
+      bufferedBytes = compressed.length + (long) decompressed.length;
+      return new ByteArrayInputStream(decompressed);
+    }
+  }
+}
@@ -15,20 +15,17 @@
  */
 package com.streamsets.pipeline.lib.parser.avro;
 
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.ProtoConfigurableEntity;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.lib.parser.AbstractDataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
+import com.streamsets.pipeline.lib.util.AvroFieldDatumReader;
 import com.streamsets.pipeline.lib.util.AvroJavaSnappyCodec;
-import com.streamsets.pipeline.lib.util.AvroTypeUtil;
 import com.streamsets.pipeline.stage.common.HeaderAttributeConstants;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileReader;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.DatumReader;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -47,18 +44,17 @@ public class AvroDataFileParser extends AbstractDataParser {
   private final SeekableOverrunFileInputStream sin;
   private long previousSync;
   private long recordCount;
-  private final DataFileReader<GenericRecord> dataFileReader;
+  private final AvroFieldDatumReader datumReader;
+  private final DataFileReader<Field> dataFileReader;
   private boolean eof;
   private ProtoConfigurableEntity.Context context;
   private String avroSchemaString;
-  private final boolean skipUnionIndexes;
 
   public AvroDataFileParser(ProtoConfigurableEntity.Context context, Schema schema, File file, String readerOffset, int maxObjectLength, boolean skipUnionIndexes)
     throws IOException {
     this.context = context;
     this.file = file;
-    this.skipUnionIndexes = skipUnionIndexes;
-    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(schema, schema, GenericData.get());
+    datumReader = new AvroFieldDatumReader(schema, skipUnionIndexes);
     sin = new SeekableOverrunFileInputStream(
       new FileInputStream(file), maxObjectLength, true);
     dataFileReader = new DataFileReader<>(sin, datumReader);
@@ -91,12 +87,12 @@ public class AvroDataFileParser extends AbstractDataParser {
         previousSync = dataFileReader.previousSync();
         recordCount = 0;
       }
-      GenericRecord avroRecord = dataFileReader.next();
+      Record record = context.createRecord(file.getName() + OFFSET_SEPARATOR + previousSync + OFFSET_SEPARATOR + (recordCount + 1));
+      datumReader.setRecord(record);
+      record.set(dataFileReader.next());
       recordCount++;
-      Record record = context.createRecord(file.getName() + OFFSET_SEPARATOR + previousSync + OFFSET_SEPARATOR + recordCount);
-      record.set(AvroTypeUtil.avroToSdcField(record, avroRecord.getSchema(), avroRecord, skipUnionIndexes));
       if(avroSchemaString == null) {
-        this.avroSchemaString = avroRecord.getSchema().toString();
+        this.avroSchemaString = datumReader.getSchema().toString();
       }
       record.getHeader().setAttribute(HeaderAttributeConstants.AVRO_SCHEMA, avroSchemaString);
       return record;
@@ -106,6 +102,7 @@ public class AvroDataFileParser extends AbstractDataParser {
   }
 
   private void seekToOffset() throws IOException {
+    datumReader.setRecord(null);
     dataFileReader.seek(previousSync);
     int count = 0;
     while(count < recordCount) {
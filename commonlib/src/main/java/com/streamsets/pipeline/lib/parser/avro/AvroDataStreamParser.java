@@ -15,19 +15,16 @@
  */
 package com.streamsets.pipeline.lib.parser.avro;
 
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.ProtoConfigurableEntity;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.lib.io.OverrunInputStream;
 import com.streamsets.pipeline.lib.parser.AbstractDataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
-import com.streamsets.pipeline.lib.util.AvroTypeUtil;
+import com.streamsets.pipeline.lib.util.AvroFieldDatumReader;
 import com.streamsets.pipeline.stage.common.HeaderAttributeConstants;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.DatumReader;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -36,16 +33,14 @@ public class AvroDataStreamParser extends AbstractDataParser {
 
   private static final String OFFSET_SEPARATOR = "::";
 
-  private final Schema avroSchema;
   private String avroSchemaString;
   private final String streamName;
   private long recordCount;
-  private final DatumReader<GenericRecord> datumReader;
-  private final DataFileStream<GenericRecord> dataFileStream;
+  private final AvroFieldDatumReader datumReader;
+  private final DataFileStream<Field> dataFileStream;
   private final OverrunInputStream overrunInputStream;
   private boolean eof;
   private ProtoConfigurableEntity.Context context;
-  private final boolean skipAvroUnionIndexes;
 
   public AvroDataStreamParser(
       ProtoConfigurableEntity.Context context,
@@ -57,14 +52,12 @@ public class AvroDataStreamParser extends AbstractDataParser {
       boolean skipAvroUnionIndexes
   ) throws IOException {
     this.context = context;
-    avroSchema = schema;
     this.streamName = streamName;
     this.recordCount = recordCount;
-    datumReader = new GenericDatumReader<>(avroSchema, avroSchema, GenericData.get()); //Reader schema argument is optional
+    datumReader = new AvroFieldDatumReader(schema, skipAvroUnionIndexes); //Reader schema argument is optional
     overrunInputStream = new OverrunInputStream(inputStream, maxObjectLength, true);
     dataFileStream = new DataFileStream<>(overrunInputStream, datumReader);
     seekToOffset();
-    this.skipAvroUnionIndexes = skipAvroUnionIndexes;
   }
 
   @Override
@@ -76,12 +69,12 @@ public class AvroDataStreamParser extends AbstractDataParser {
       //The file itself may contain multiple large records and the total file size may be over maxObjectLength
       overrunInputStream.resetCount();
 
-      GenericRecord avroRecord = dataFileStream.next();
+      Record record = context.createRecord(streamName + OFFSET_SEPARATOR + (recordCount + 1));
+      datumReader.setRecord(record);
+      record.set(dataFileStream.next());
       recordCount++;
-      Record record = context.createRecord(streamName + OFFSET_SEPARATOR + recordCount);
-      record.set(AvroTypeUtil.avroToSdcField(record, avroRecord.getSchema(), avroRecord, skipAvroUnionIndexes));
       if(avroSchemaString == null) {
-        avroSchemaString = avroRecord.getSchema().toString();
+        avroSchemaString = datumReader.getSchema().toString();
       }
       record.getHeader().setAttribute(HeaderAttributeConstants.AVRO_SCHEMA, avroSchemaString);
       return record;
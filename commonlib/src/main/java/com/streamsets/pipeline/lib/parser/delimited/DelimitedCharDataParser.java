@@ -27,7 +27,7 @@ import com.streamsets.pipeline.config.CsvHeader;
 import com.streamsets.pipeline.config.CsvRecordType;
 import com.streamsets.pipeline.lib.csv.CsvMultiCharDelimitedParser;
 import com.streamsets.pipeline.lib.csv.DelimitedDataParser;
-import com.streamsets.pipeline.lib.csv.OverrunCsvParser;
+import com.streamsets.pipeline.lib.csv.FastCsvParser;
 import com.streamsets.pipeline.lib.parser.AbstractDataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
 import com.streamsets.pipeline.lib.parser.ParserRuntimeException;
@@ -52,6 +52,8 @@ public class DelimitedCharDataParser extends AbstractDataParser {
   private int extraColumnCounter = 1;
 
   private List<Field> headers;
+  // List-map keys per column, computed once instead of for every record
+  private final List<String> columnKeys = new ArrayList<>();
   private boolean eof;
 
   public DelimitedCharDataParser(
@@ -94,7 +96,7 @@ public class DelimitedCharDataParser extends AbstractDataParser {
         default:
           throw new ParserRuntimeException(Utils.format("Unknown header error: {}", header));
       }
-      parser = new OverrunCsvParser(
+      parser = new FastCsvParser(
           reader,
           settings.getFormat(),
           readerOffset,
@@ -164,14 +166,7 @@ public class DelimitedCharDataParser extends AbstractDataParser {
     } else {
       LinkedHashMap<String, Field> listMap = new LinkedHashMap<>();
       for (int i = 0; i < columns.length; i++) {
-        String key;
-        Field header = (headers != null) ? headers.get(i) : null;
-        if(header != null) {
-          key = header.getValueAsString();
-        } else {
-          key = Integer.toString(i);
-        }
-        listMap.put(key, getField(columns[i]));
+        listMap.put(getColumnKey(i), getField(columns[i]));
       }
       record.set(Field.createListMap(listMap));
     }
@@ -179,6 +174,16 @@ public class DelimitedCharDataParser extends AbstractDataParser {
     return record;
   }
 
+  private String getColumnKey(int column) {
+    // Headers only grow (extra columns), so keys computed earlier remain valid
+    while (columnKeys.size() <= column) {
+      int i = columnKeys.size();
+      Field header = (headers != null) ? headers.get(i) : null;
+      columnKeys.add(header != null ? header.getValueAsString() : Integer.toString(i));
+    }
+    return columnKeys.get(column);
+  }
+
   private Field getListField(String... values) {
     ImmutableList.Builder<Field> listBuilder = ImmutableList.builder();
     for(String value : values) {
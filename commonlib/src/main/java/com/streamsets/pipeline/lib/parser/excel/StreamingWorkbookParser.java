@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser.excel;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.ProtoConfigurableEntity.Context;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.config.ExcelHeader;
+import com.streamsets.pipeline.lib.parser.AbstractDataParser;
+import com.streamsets.pipeline.lib.parser.DataParserException;
+import com.streamsets.pipeline.lib.parser.RecoverableDataParserException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Parser for XLSX workbooks that reads one row at a time with a {@link XlsxRowReader}, so memory usage does not
+ * depend on the size of the workbook. It produces the same records and offsets as {@link WorkbookParser}.
+ */
+class StreamingWorkbookParser extends AbstractDataParser {
+  private final WorkbookParserSettings settings;
+  private final Context context;
+  private final XlsxRowReader reader;
+  private final Map<String, List<Field>> headers;
+  // row read ahead that has to be returned by the next call of nextRow()
+  private XlsxRow pendingRow;
+  private String offset;
+  private boolean eof;
+  private String currentSheet;
+
+  StreamingWorkbookParser(
+      WorkbookParserSettings settings,
+      Context context,
+      XlsxRowReader reader,
+      String offsetId
+  ) throws DataParserException {
+    this.settings = requireNonNull(settings);
+    this.context = requireNonNull(context);
+    this.reader = requireNonNull(reader);
+    this.offset = requireNonNull(offsetId);
+    this.headers = new HashMap<>();
+    this.currentSheet = null;
+
+    pendingRow = nextRow();
+    if (pendingRow == null) {
+      throw new DataParserException(Errors.EXCEL_PARSER_04);
+    }
+
+    Optional<Offsets.Offset> startOffset = Offsets.parse(offsetId);
+    if (startOffset.isPresent()) {
+      String startSheetName = startOffset.get().getSheetName();
+      int startRowNum = startOffset.get().getRowNum();
+
+      XlsxRow row = nextRow();
+      // if a sheet has blank rows at the top then the starting row number may be higher than a default offset of zero or one, thus the >= compare
+      while (row != null && !(startSheetName.equals(row.getSheetName()) && row.getRowNum() >= startRowNum)) {
+        row = nextRow();
+      }
+      if (row != null) {
+        pendingRow = row;
+        this.currentSheet = row.isFirstInSheet() ? null : row.getSheetName();
+      }
+    }
+  }
+
+  // returns the next row, reading the headers of each sheet as its first row goes by
+  private XlsxRow nextRow() throws DataParserException {
+    if (pendingRow != null) {
+      XlsxRow row = pendingRow;
+      pendingRow = null;
+      return row;
+    }
+    XlsxRow row = reader.nextRow();
+    if (row != null && row.isFirstInSheet() && settings.getHeader() == ExcelHeader.WITH_HEADER) {
+      headers.put(row.getSheetName(), parseHeaders(row));
+    }
+    return row;
+  }
+
+  private List<Field> parseHeaders(XlsxRow hdrRow) throws DataParserException {
+    List<Field> sheetHeaders = new ArrayList<>();
+    // if the table happens to have blank columns in front of it, loop through and artificially add those as headers
+    // This helps in the matching of headers to data later as the indexes will line up properly.
+    for (int columnNum = 0; columnNum < hdrRow.getFirstCellNum(); columnNum++) {
+      sheetHeaders.add(null);
+    }
+    for (int columnNum = hdrRow.getFirstCellNum(); columnNum < hdrRow.getLastCellNum(); columnNum++) {
+      XlsxRow.Cell cell = hdrRow.getCell(columnNum);
+      if (cell == null || cell.getType() == CellType.BLANK) {
+        sheetHeaders.add(null);
+      } else if (!cell.isSupported()) {
+        throw new DataParserException(Errors.EXCEL_PARSER_05, cell.getType());
+      } else {
+        sheetHeaders.add(cell.getValue());
+      }
+    }
+    return sheetHeaders;
+  }
+
+  @Override
+  public Record parse() throws DataParserException {
+    XlsxRow currentRow = nextRow();
+
+    // skip over rows that have cells but all cells are of BLANK celltype.
+    while (currentRow != null && isBlank(currentRow)) {
+      currentRow = nextRow();
+    }
+
+    // see if a new worksheet has been entered.
+    if (currentRow != null && (this.currentSheet == null || !this.currentSheet.equals(currentRow.getSheetName()))) {
+      this.currentSheet = currentRow.getSheetName();
+      // if header is expected, then jump over this row
+      if (settings.getHeader() == ExcelHeader.WITH_HEADER || settings.getHeader() == ExcelHeader.IGNORE_HEADER) {
+        currentRow = nextRow();  // move to the next row to parse as data
+      }
+    }
+
+    if (currentRow == null) {
+      eof = true;
+      return null;
+    }
+
+    offset = Offsets.offsetOf(currentRow.getSheetName(), currentRow.getRowNum());
+    Record record = context.createRecord(offset);
+    updateRecordWithCellValues(currentRow, record);
+    return record;
+  }
+
+  @Override
+  public String getOffset() {
+    return eof ? "-1" : offset;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private static boolean isBlank(XlsxRow row) {
+    for (int columnNum = row.getFirstCellNum(); columnNum < row.getLastCellNum(); columnNum++) {
+      XlsxRow.Cell cell = row.getCell(columnNum);
+      if (cell != null && cell.getType() != CellType.BLANK) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void updateRecordWithCellValues(XlsxRow row, Record record) throws DataParserException {
+    LinkedHashMap<String, Field> output = new LinkedHashMap<>();
+    List<Field> sheetHeaders = headers.get(row.getSheetName());
+    String columnHeader;
+    Set<String> unsupportedCellTypes = new HashSet<>();
+    for (int columnNum = row.getFirstCellNum(); columnNum < row.getLastCellNum(); columnNum++) {
+      if (sheetHeaders == null) {
+        columnHeader = String.valueOf(columnNum);
+      } else if (columnNum >= sheetHeaders.size() || sheetHeaders.get(columnNum) == null) {
+        // The current cell doesn't have any associated header, which we conditionally skip
+        if (settings.shouldSkipCellsWithNoHeader()) {
+          continue;
+        }
+        columnHeader = String.valueOf(columnNum);
+      } else {
+        columnHeader = sheetHeaders.get(columnNum).getValueAsString();
+      }
+
+      XlsxRow.Cell cell = row.getCell(columnNum);
+      if (cell == null) {
+        output.put(columnHeader, Field.create(""));
+      } else if (cell.isSupported()) {
+        output.put(columnHeader, cell.getValue());
+      } else {
+        output.put(columnHeader, Field.create(cell.getText()));
+        unsupportedCellTypes.add(cell.getType().name());
+      }
+    }
+
+    // Set interesting metadata about the row
+    Record.Header hdr = record.getHeader();
+    hdr.setAttribute("worksheet", row.getSheetName());
+    hdr.setAttribute("row", Integer.toString(row.getRowNum()));
+    hdr.setAttribute("firstCol", Integer.toString(row.getFirstCellNum()));
+    hdr.setAttribute("lastCol", Integer.toString(row.getLastCellNum()));
+    record.set(Field.createListMap(output));
+    if (unsupportedCellTypes.size() > 0) {
+      throw new RecoverableDataParserException(record, Errors.EXCEL_PARSER_05, StringUtils.join(unsupportedCellTypes, ", "));
+    }
+  }
+}
@@ -19,8 +19,10 @@ import com.streamsets.pipeline.config.ExcelHeader;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
 import com.streamsets.pipeline.lib.parser.DataParserFactory;
+import org.apache.commons.io.IOUtils;
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.jetbrains.annotations.NotNull;
@@ -30,6 +32,7 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -55,16 +58,40 @@ public class WorkbookParserFactory extends DataParserFactory {
 
   @NotNull
   private DataParser createParser(InputStream is, String offset) throws DataParserException {
-    Workbook workbook = open(is);
-
     WorkbookParserSettings workbookSettings = WorkbookParserSettings.builder()
         .withSheets(getSettings().getConfig(WorkbookParserConstants.SHEETS))
         .withHeader(getSettings().getMode(ExcelHeader.class))
         .withSkipCellsWithNoHeader(getSettings().getConfig(WorkbookParserConstants.SKIP_CELLS_WITH_NO_HEADER))
         .build();
+
+    InputStream workbookStream = FileMagic.prepareToCheckMagic(is);
+    if (isXlsx(workbookStream)) {
+      // XLSX workbooks are streamed, the user model would need several times the size of the file in memory
+      List<String> sheets = workbookSettings.getSheets();
+      XlsxRowReader reader = XlsxRowReader.open(
+          workbookStream,
+          sheetName -> sheets.isEmpty() || sheets.contains(sheetName)
+      );
+      try {
+        return new StreamingWorkbookParser(workbookSettings, getSettings().getContext(), reader, offset);
+      } catch (DataParserException | RuntimeException e) {
+        IOUtils.closeQuietly(reader);
+        throw e;
+      }
+    }
+
+    Workbook workbook = open(workbookStream);
     return new WorkbookParser(workbookSettings, getSettings().getContext(), workbook, offset);
   }
 
+  private boolean isXlsx(InputStream is) throws DataParserException {
+    try {
+      return FileMagic.valueOf(is) == FileMagic.OOXML;
+    } catch (IOException e) {
+      throw new DataParserException(Errors.EXCEL_PARSER_01, e);
+    }
+  }
+
   private Workbook open(InputStream is) throws DataParserException {
     try {
       return WorkbookFactory.create(is);
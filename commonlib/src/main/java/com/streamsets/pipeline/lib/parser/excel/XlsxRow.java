@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser.excel;
+
+import com.streamsets.pipeline.api.Field;
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.util.List;
+
+/**
+ * Row read by the {@link XlsxRowReader}, holding the values of its cells instead of the POI user model objects.
+ */
+class XlsxRow {
+  private final String sheetName;
+  private final int rowNum;
+  private final boolean firstInSheet;
+  private final Cell[] cells;
+  private final int firstCellNum;
+
+  XlsxRow(String sheetName, int rowNum, boolean firstInSheet, List<Cell> cellList) {
+    this.sheetName = sheetName;
+    this.rowNum = rowNum;
+    this.firstInSheet = firstInSheet;
+    if (cellList.isEmpty()) {
+      cells = new Cell[0];
+      firstCellNum = -1;
+    } else {
+      int first = Integer.MAX_VALUE;
+      int last = -1;
+      for (Cell cell : cellList) {
+        first = Math.min(first, cell.getColumn());
+        last = Math.max(last, cell.getColumn());
+      }
+      cells = new Cell[last + 1];
+      for (Cell cell : cellList) {
+        cells[cell.getColumn()] = cell;
+      }
+      firstCellNum = first;
+    }
+  }
+
+  String getSheetName() {
+    return sheetName;
+  }
+
+  /**
+   * Zero based row number, the same as POI's <code>Row.getRowNum()</code>.
+   */
+  int getRowNum() {
+    return rowNum;
+  }
+
+  /**
+   * Returns if this is the first row present in its sheet.
+   */
+  boolean isFirstInSheet() {
+    return firstInSheet;
+  }
+
+  /**
+   * Index of the first cell present in the row, -1 if the row has no cells.
+   */
+  int getFirstCellNum() {
+    return firstCellNum;
+  }
+
+  /**
+   * Index of the last cell present in the row plus one, -1 if the row has no cells.
+   */
+  int getLastCellNum() {
+    return firstCellNum == -1 ? -1 : cells.length;
+  }
+
+  /**
+   * Returns the cell at the given column, <code>null</code> if the row has no cell there.
+   */
+  Cell getCell(int column) {
+    return column < cells.length ? cells[column] : null;
+  }
+
+  static class Cell {
+    private final int column;
+    private final CellType type;
+    private final Field value;
+    private final String text;
+
+    /**
+     * @param value parsed value, <code>null</code> if the cell type is not supported
+     * @param text the value of the cell as written in the sheet
+     */
+    Cell(int column, CellType type, Field value, String text) {
+      this.column = column;
+      this.type = type;
+      this.value = value;
+      this.text = text;
+    }
+
+    int getColumn() {
+      return column;
+    }
+
+    CellType getType() {
+      return type;
+    }
+
+    boolean isSupported() {
+      return value != null;
+    }
+
+    Field getValue() {
+      return value;
+    }
+
+    String getText() {
+      return text;
+    }
+  }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser.excel;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.lib.parser.DataParserException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Reads the rows of an XLSX workbook one at a time, streaming the XML of the sheets instead of loading the whole
+ * workbook with the POI user model.
+ * <p/>
+ * The workbook is copied to a temporary file first, as a zip file has to be read with random access to avoid
+ * inflating all of its entries in memory. Only the shared strings and the cell styles are kept in memory.
+ */
+class XlsxRowReader implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(XlsxRowReader.class);
+  private static final XMLInputFactory XML_INPUT_FACTORY;
+
+  static {
+    XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+    XML_INPUT_FACTORY.setProperty("javax.xml.stream.isCoalescing", true);
+    XML_INPUT_FACTORY.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
+    XML_INPUT_FACTORY.setProperty("javax.xml.stream.supportDTD", false);
+  }
+
+  private final File file;
+  private final OPCPackage pkg;
+  private final ReadOnlySharedStringsTable sharedStrings;
+  private final StylesTable styles;
+  private final boolean date1904;
+  private final XSSFReader.SheetIterator sheets;
+  private final Predicate<String> sheetFilter;
+  private final DataFormatter dataFormatter;
+
+  private InputStream sheetStream;
+  private XMLStreamReader sheetReader;
+  private String sheetName;
+  private boolean firstRowOfSheet;
+  private int nextRowNum;
+
+  private XlsxRowReader(File file, Predicate<String> sheetFilter)
+      throws IOException, OpenXML4JException, SAXException, XMLStreamException {
+    this.file = file;
+    this.sheetFilter = sheetFilter;
+    this.dataFormatter = new DataFormatter();
+    this.pkg = OPCPackage.open(file, PackageAccess.READ);
+    try {
+      XSSFReader reader = new XSSFReader(pkg);
+      this.sharedStrings = new ReadOnlySharedStringsTable(pkg);
+      this.styles = reader.getStylesTable();
+      try (InputStream workbookData = reader.getWorkbookData()) {
+        this.date1904 = isDate1904(workbookData);
+      }
+      this.sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+    } catch (IOException | OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+      pkg.revert();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the XLSX workbook in the stream, the stream is fully consumed but not closed.
+   *
+   * @param sheetFilter tells the sheets to read, the rows of other sheets are not parsed at all.
+   */
+  static XlsxRowReader open(InputStream is, Predicate<String> sheetFilter) throws DataParserException {
+    File file = null;
+    try {
+      file = File.createTempFile("sdc-excel-", ".xlsx");
+      Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return new XlsxRowReader(file, sheetFilter);
+    } catch (IOException e) {
+      deleteQuietly(file);
+      throw new DataParserException(Errors.EXCEL_PARSER_01, e);
+    } catch (OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+      deleteQuietly(file);
+      throw new DataParserException(Errors.EXCEL_PARSER_02, e);
+    }
+  }
+
+  private static boolean isDate1904(InputStream workbookData) throws XMLStreamException {
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(workbookData);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          if ("workbookPr".equals(reader.getLocalName())) {
+            String value = reader.getAttributeValue(null, "date1904");
+            return "1".equals(value) || "true".equalsIgnoreCase(value);
+          } else if ("sheets".equals(reader.getLocalName())) {
+            // workbookPr comes before the sheets if present at all
+            return false;
+          }
+        }
+      }
+      return false;
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Returns the next row of the selected sheets, in sheet order, or <code>null</code> if there are no more rows.
+   */
+  XlsxRow nextRow() throws DataParserException {
+    try {
+      while (true) {
+        if (sheetReader == null && !openNextSheet()) {
+          return null;
+        }
+        XlsxRow row = readRow();
+        if (row != null) {
+          return row;
+        }
+        closeSheet();
+      }
+    } catch (IOException e) {
+      throw new DataParserException(Errors.EXCEL_PARSER_01, e);
+    } catch (XMLStreamException | RuntimeException e) {
+      throw new DataParserException(Errors.EXCEL_PARSER_02, e);
+    }
+  }
+
+  private boolean openNextSheet() throws IOException, XMLStreamException {
+    while (sheets.hasNext()) {
+      InputStream stream = sheets.next();
+      String name = sheets.getSheetName();
+      if (!sheetFilter.test(name)) {
+        LOG.debug("Skipping sheet '{}'", name);
+        stream.close();
+        continue;
+      }
+      sheetStream = stream;
+      sheetReader = XML_INPUT_FACTORY.createXMLStreamReader(stream);
+      sheetName = name;
+      firstRowOfSheet = true;
+      nextRowNum = 0;
+      return true;
+    }
+    return false;
+  }
+
+  private void closeSheet() throws IOException, XMLStreamException {
+    try {
+      if (sheetReader != null) {
+        sheetReader.close();
+      }
+    } finally {
+      sheetReader = null;
+      if (sheetStream != null) {
+        sheetStream.close();
+        sheetStream = null;
+      }
+    }
+  }
+
+  // moves to the next row element of the current sheet and reads it, returns null at the end of the sheet
+  private XlsxRow readRow() throws XMLStreamException {
+    while (sheetReader.hasNext()) {
+      if (sheetReader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheetReader.getLocalName())) {
+        String ref = sheetReader.getAttributeValue(null, "r");
+        int rowNum = ref == null ? nextRowNum : Integer.parseInt(ref) - 1;
+        nextRowNum = rowNum + 1;
+
+        List<XlsxRow.Cell> cells = new ArrayList<>();
+        int nextColumn = 0;
+        while (sheetReader.hasNext()) {
+          int event = sheetReader.next();
+          if (event == XMLStreamConstants.START_ELEMENT && "c".equals(sheetReader.getLocalName())) {
+            XlsxRow.Cell cell = readCell(nextColumn);
+            cells.add(cell);
+            nextColumn = cell.getColumn() + 1;
+          } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheetReader.getLocalName())) {
+            break;
+          }
+        }
+        XlsxRow row = new XlsxRow(sheetName, rowNum, firstRowOfSheet, cells);
+        firstRowOfSheet = false;
+        return row;
+      }
+    }
+    return null;
+  }
+
+  // reads a c element, the reader must be at its start
+  private XlsxRow.Cell readCell(int defaultColumn) throws XMLStreamException {
+    String ref = sheetReader.getAttributeValue(null, "r");
+    String type = sheetReader.getAttributeValue(null, "t");
+    String style = sheetReader.getAttributeValue(null, "s");
+    int column = ref == null ? defaultColumn : columnOf(ref);
+    boolean formula = false;
+    String value = null;
+    StringBuilder inlineString = null;
+
+    while (sheetReader.hasNext()) {
+      int event = sheetReader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        switch (sheetReader.getLocalName()) {
+          case "v":
+            value = sheetReader.getElementText();
+            break;
+          case "f":
+            formula = true;
+            sheetReader.getElementText();
+            break;
+          case "is":
+            inlineString = readInlineString();
+            break;
+          default:
+            break;
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheetReader.getLocalName())) {
+        break;
+      }
+    }
+    return toCell(column, type, style, formula, value, inlineString);
+  }
+
+  // concatenates the text runs of an is element, skipping the phonetic runs like POI does
+  private StringBuilder readInlineString() throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    int depth = 0;
+    while (sheetReader.hasNext()) {
+      int event = sheetReader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if ("rPh".equals(sheetReader.getLocalName())) {
+          depth++;
+        } else if ("t".equals(sheetReader.getLocalName()) && depth == 0) {
+          text.append(sheetReader.getElementText());
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if ("rPh".equals(sheetReader.getLocalName())) {
+          depth--;
+        } else if ("is".equals(sheetReader.getLocalName())) {
+          break;
+        }
+      }
+    }
+    return text;
+  }
+
+  private XlsxRow.Cell toCell(
+      int column,
+      String type,
+      String style,
+      boolean formula,
+      String value,
+      StringBuilder inlineString
+  ) {
+    if ("inlineStr".equals(type)) {
+      String text = inlineString == null ? "" : inlineString.toString();
+      return new XlsxRow.Cell(column, CellType.STRING, Field.create(text), text);
+    }
+    if (value == null || value.isEmpty()) {
+      return new XlsxRow.Cell(column, CellType.BLANK, Field.create(""), "");
+    }
+    if (type == null || "n".equals(type)) {
+      return new XlsxRow.Cell(column, CellType.NUMERIC, parseNumeric(style, formula, value), value);
+    }
+    switch (type) {
+      case "s":
+        String text = sharedStrings.getEntryAt(Integer.parseInt(value));
+        return new XlsxRow.Cell(column, CellType.STRING, Field.create(text), text);
+      case "str":
+        return new XlsxRow.Cell(column, CellType.STRING, Field.create(value), value);
+      case "b":
+        return new XlsxRow.Cell(column, CellType.BOOLEAN, Field.create("1".equals(value) || "true".equals(value)), value);
+      case "e":
+        return new XlsxRow.Cell(column, CellType.ERROR, null, value);
+      default:
+        return new XlsxRow.Cell(column, CellType._NONE, null, value);
+    }
+  }
+
+  // same conversion as Cells.parseCell does for numeric cells of the user model
+  private Field parseNumeric(String style, boolean formula, String value) {
+    double rawValue = Double.parseDouble(value);
+    int formatIndex = 0;
+    String formatString = null;
+    if (styles != null) {
+      XSSFCellStyle cellStyle = styles.getStyleAt(style == null ? 0 : Integer.parseInt(style));
+      if (cellStyle != null) {
+        formatIndex = cellStyle.getDataFormat();
+        formatString = cellStyle.getDataFormatString();
+      }
+    }
+    if (formatString == null) {
+      formatString = BuiltinFormats.getBuiltinFormat(0);
+    }
+
+    if (DateUtil.isValidExcelDate(rawValue) && DateUtil.isADateFormat(formatIndex, formatString)) {
+      Date date = DateUtil.getJavaDate(rawValue, date1904);
+      // if raw number is < 1 then it's a time component only, otherwise date.
+      return rawValue < 1 ? Field.createTime(date) : Field.createDate(date);
+    }
+
+    // the user model evaluates formulas, which formats the value as a plain double
+    String displayValue = formula
+        ? String.valueOf(rawValue)
+        : dataFormatter.formatRawCellContents(rawValue, formatIndex, formatString);
+    boolean numericallyEquivalent = false;
+    try {
+      numericallyEquivalent = Double.parseDouble(displayValue) == rawValue;
+    } catch (NumberFormatException e) { }
+    return Field.create(numericallyEquivalent ? new BigDecimal(displayValue) : BigDecimal.valueOf(rawValue));
+  }
+
+  // zero based column index of a cell reference like "AB12"
+  static int columnOf(String ref) {
+    int column = 0;
+    for (int i = 0; i < ref.length(); i++) {
+      char c = ref.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        break;
+      }
+      column = column * 26 + (c - 'A' + 1);
+    }
+    return column - 1;
+  }
+
+  private static void deleteQuietly(File file) {
+    if (file != null && !file.delete()) {
+      LOG.warn("Could not delete temporary workbook file '{}'", file);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      closeSheet();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      pkg.revert();
+      deleteQuietly(file);
+    }
+  }
+}
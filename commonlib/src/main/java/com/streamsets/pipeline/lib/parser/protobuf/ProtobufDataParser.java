@@ -15,55 +15,47 @@
  */
 package com.streamsets.pipeline.lib.parser.protobuf;
 
-import com.google.protobuf.Descriptors;
-import com.google.protobuf.DynamicMessage;
-import com.google.protobuf.ExtensionRegistry;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.ProtoConfigurableEntity;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.lib.io.OverrunInputStream;
 import com.streamsets.pipeline.lib.parser.AbstractDataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
-import com.streamsets.pipeline.lib.util.ProtobufTypeUtil;
+import com.streamsets.pipeline.lib.util.ProtobufFieldReader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
-import java.util.Set;
 
 public class ProtobufDataParser extends AbstractDataParser {
 
   private static final String OFFSET_SEPARATOR = "::";
+  // delimited messages up to this size are read into a reused buffer and decoded from there
+  private static final int MAX_BUFFERED_MESSAGE_SIZE = 64 * 1024;
 
   private boolean eof;
   private final ProtoConfigurableEntity.Context context;
-  private final DynamicMessage.Builder builder;
+  private final ProtobufFieldReader fieldReader;
   private final OverrunInputStream inputStream;
   private final String messageId;
-  private final Descriptors.Descriptor descriptor;
-  // this map holds extensions that are defined for each of the message types present in the all the file descriptors
-  // that is accessible via the configured Protobuf descriptor file
-  private final Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap;
-  private final ExtensionRegistry extensionRegistry;
   private final boolean isDelimited;
+  private byte[] messageBuffer = new byte[0];
 
   public ProtobufDataParser(
       ProtoConfigurableEntity.Context context,
       String messageId,
-      Descriptors.Descriptor descriptor,
-      Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap,
-      ExtensionRegistry extensionRegistry,
+      ProtobufFieldReader fieldReader,
       InputStream inputStream,
       String readerOffset,
       int maxObjectLength,
       boolean isDelimited
-  ) throws IOException, Descriptors.DescriptorValidationException, DataParserException {
+  ) throws IOException, DataParserException {
     this.context = context;
     this.inputStream = new OverrunInputStream(inputStream, maxObjectLength, true);
     this.messageId = messageId;
-    this.messageTypeToExtensionMap = messageTypeToExtensionMap;
-    this.extensionRegistry = extensionRegistry;
-    this.descriptor = descriptor;
-    this.builder = DynamicMessage.newBuilder(descriptor);
+    this.fieldReader = fieldReader;
     this.isDelimited = isDelimited;
 
     // skip to the required location
@@ -75,34 +67,55 @@ public class ProtobufDataParser extends AbstractDataParser {
 
   @Override
   public Record parse() throws IOException, DataParserException {
-    DynamicMessage message;
     long pos = inputStream.getPos();
     inputStream.resetCount();
+    CodedInputStream message;
     if (!isDelimited) {
       if (!eof) {
-        builder.mergeFrom(inputStream, extensionRegistry);
+        message = CodedInputStream.newInstance(inputStream);
         // Set EOF since non-delimited can only contain a single message.
         eof = true;
       } else {
         return null;
       }
     } else {
-      if (!builder.mergeDelimitedFrom(inputStream, extensionRegistry)) {
+      message = nextDelimitedMessage();
+      if (message == null) {
         // No more messages to process in this stream.
         eof = true;
         return null;
       }
     }
-    message = builder.build();
-    // If the message does not contain required fields then the above call throws UninitializedMessageException
+    Record record = context.createRecord(messageId + OFFSET_SEPARATOR + pos);
+    // If the message does not contain required fields then the reader throws UninitializedMessageException
     // with a message similar to the following:
     // com.google.protobuf.UninitializedMessageException: Message missing required fields: phone[0].type
-    builder.clear();
-    Record record = context.createRecord(messageId + OFFSET_SEPARATOR + pos);
-    record.set(ProtobufTypeUtil.protobufToSdcField(record, "", descriptor, messageTypeToExtensionMap, message));
+    Field field = fieldReader.read(record, message);
+    record.set(field);
     return record;
   }
 
+  private CodedInputStream nextDelimitedMessage() throws IOException {
+    int firstByte = inputStream.read();
+    if (firstByte == -1) {
+      return null;
+    }
+    int size = CodedInputStream.readRawVarint32(firstByte, inputStream);
+    if (size < 0) {
+      throw new InvalidProtocolBufferException("CodedInputStream encountered an embedded string or message " +
+          "which claimed to have negative size.");
+    }
+    if (size > MAX_BUFFERED_MESSAGE_SIZE) {
+      return CodedInputStream.newInstance(ByteStreams.limit(inputStream, size));
+    }
+    if (messageBuffer.length < size) {
+      messageBuffer = new byte[Math.max(size, messageBuffer.length * 2)];
+    }
+    // a truncated message is decoded as far as it goes, like when reading from the stream
+    int length = ByteStreams.read(inputStream, messageBuffer, 0, size);
+    return CodedInputStream.newInstance(messageBuffer, 0, length);
+  }
+
   @Override
   public String getOffset() throws DataParserException {
     return eof ? String.valueOf(-1) : String.valueOf(inputStream.getPos());
@@ -17,13 +17,13 @@ package com.streamsets.pipeline.lib.parser.protobuf;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.protobuf.Descriptors;
-import com.google.protobuf.ExtensionRegistry;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
 import com.streamsets.pipeline.lib.parser.DataParserFactory;
 import com.streamsets.pipeline.lib.parser.Errors;
 import com.streamsets.pipeline.lib.util.ProtobufConstants;
+import com.streamsets.pipeline.lib.util.ProtobufFieldReader;
 import com.streamsets.pipeline.lib.util.ProtobufTypeUtil;
 
 import java.io.IOException;
@@ -55,8 +55,8 @@ public class ProtobufDataParserFactory extends DataParserFactory {
   // this map holds extensions that are defined for each of the message types present in the all the file descriptors
   // that is accessible via the configured Protobuf descriptor file
   private final Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap;
-  private final ExtensionRegistry extensionRegistry;
   private final Map<String, Object> defaultValueMap;
+  private final ProtobufFieldReader fieldReader;
   private final boolean isDelimited;
 
   public ProtobufDataParserFactory(Settings settings) throws StageException {
@@ -75,14 +75,8 @@ public class ProtobufDataParserFactory extends DataParserFactory {
       defaultValueMap
     );
 
-    // Build the extension registry based on the cached extension map
-    extensionRegistry = ExtensionRegistry.newInstance();
-    for(Map.Entry<String, Set<Descriptors.FieldDescriptor>> e : messageTypeToExtensionMap.entrySet()) {
-      Set<Descriptors.FieldDescriptor> value = e.getValue();
-      for (Descriptors.FieldDescriptor f : value) {
-        extensionRegistry.add(f);
-      }
-    }
+    // Compile the reader for the message type and its extensions once, it is shared by all parsers
+    fieldReader = new ProtobufFieldReader(descriptor, messageTypeToExtensionMap);
   }
 
   @Override
@@ -91,15 +85,13 @@ public class ProtobufDataParserFactory extends DataParserFactory {
       return new ProtobufDataParser(
           getSettings().getContext(),
           id,
-          descriptor,
-          messageTypeToExtensionMap,
-          extensionRegistry,
+          fieldReader,
           is,
           offset,
           getSettings().getOverRunLimit(),
           isDelimited
       );
-    } catch (IOException | Descriptors.DescriptorValidationException e) {
+    } catch (IOException e) {
       throw new DataParserException(Errors.DATA_PARSER_01, e.toString(), e);
     }
   }
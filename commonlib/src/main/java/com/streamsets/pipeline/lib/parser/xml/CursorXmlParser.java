@@ -0,0 +1,783 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser.xml;
+
+import com.google.common.base.Strings;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.ext.io.ObjectLengthException;
+import com.streamsets.pipeline.api.ext.io.OverrunException;
+import com.streamsets.pipeline.api.ext.io.OverrunReader;
+import com.streamsets.pipeline.api.impl.Utils;
+import com.streamsets.pipeline.api.impl.XMLChar;
+import com.streamsets.pipeline.lib.xml.Constants;
+import com.streamsets.pipeline.lib.xml.StreamingXmlParser;
+import com.streamsets.pipeline.lib.xml.XmlFieldReader;
+import com.streamsets.pipeline.lib.xml.xpath.MatchStatus;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming XML parser built on the StAX cursor API.
+ * <p/>
+ * It produces the same fields, offsets and namespace prefixes as
+ * {@link com.streamsets.pipeline.lib.xml.OverrunStreamingXmlParser}, without allocating an event object for every
+ * element and text node. The record element XPath is compiled to a state machine evaluated against the cursor,
+ * elements that can not contain a record are skipped without reading their content, and the per depth element
+ * builders and the text buffer borrowed from the string builder pool are reused for every record.
+ * <p/>
+ * The cursor stands on the event the event based parser would have peeked, so reader positions, and with them the
+ * offsets of the records, are the same for both parsers.
+ */
+public class CursorXmlParser implements XmlFieldReader {
+  private static final Logger LOG = LoggerFactory.getLogger(CursorXmlParser.class);
+
+  private static final String NS_PREFIX_KEY = "ns|";
+
+  private final OverrunReader reader;
+  private final XMLStreamReader xmlReader;
+  private final XMLEventFactory eventFactory;
+  private final RecordElementMatcher matcher;
+  private final boolean useFieldAttributesInsteadOfFields;
+  private final boolean preserveRootElement;
+  private final int maxObjectLen;
+  private final GenericObjectPool<StringBuilder> stringBuilderPool;
+  private final StringBuilder text;
+
+  // true once the event under the cursor has been handed out, the next peek advances the cursor
+  private boolean consumed;
+  private MatchStatus lastEventMatch = MatchStatus.UNDETERMINED;
+  private boolean closed;
+  private boolean overrun;
+  private long limit;
+  private long initialPosition;
+
+  private final List<String> elementNameStack = new ArrayList<>();
+  private final List<ElementBuilder> elementBuilders = new ArrayList<>();
+  private String xpathPrefix;
+  private String lastParsedFieldXpathPrefix;
+
+  private int generatedNsPrefixCount = 1;
+  private final Map<String, String> namespaceUriToPrefix = new HashMap<>();
+  private final Map<String, Map<String, String>> qualifiedNames = new HashMap<>();
+  private final Map<String, QName> namespaceDeclarationNames = new HashMap<>();
+  private final Map<String, String> attributeKeys = new HashMap<>();
+  private final Map<String, String> namespaceKeys = new HashMap<>();
+  private final Map<String, String> fieldAttributeNames = new HashMap<>();
+
+  public CursorXmlParser(
+      OverrunReader reader,
+      String recordElement,
+      Map<String, String> namespaces,
+      long initialPosition,
+      int maxObjectLen,
+      boolean useFieldAttributesInsteadOfFields,
+      boolean preserveRootElement,
+      GenericObjectPool<StringBuilder> stringBuilderPool
+  ) throws IOException, XMLStreamException {
+    this.reader = reader;
+    this.maxObjectLen = maxObjectLen;
+    this.initialPosition = initialPosition;
+    this.useFieldAttributesInsteadOfFields = useFieldAttributesInsteadOfFields;
+    this.preserveRootElement = preserveRootElement;
+    this.stringBuilderPool = stringBuilderPool;
+    try {
+      text = stringBuilderPool.borrowObject();
+      text.setLength(0);
+      LOG.debug(
+          "Borrowed string builder from pool. Num Active {}, Num Idle {}",
+          stringBuilderPool.getNumActive(),
+          stringBuilderPool.getNumIdle()
+      );
+    } catch (Exception e) {
+      throw new IOException(Utils.format("Error borrowing string builder object from pool : {}", e.toString()), e);
+    }
+
+    try {
+      boolean emptyRecordElement = Strings.isNullOrEmpty(recordElement);
+      matcher = new RecordElementMatcher(emptyRecordElement ? Constants.ROOT_ELEMENT_PATH : recordElement, namespaces);
+      XMLInputFactory factory = XMLInputFactory.newFactory();
+      factory.setProperty("javax.xml.stream.isCoalescing", true);
+      factory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
+      factory.setProperty("javax.xml.stream.supportDTD", false);
+      xmlReader = factory.createXMLStreamReader(reader);
+      eventFactory = XMLEventFactory.newFactory();
+
+      while (hasNext() && peek() != XMLStreamConstants.END_DOCUMENT && peek() != XMLStreamConstants.START_ELEMENT) {
+        next();
+      }
+      if (!emptyRecordElement) {
+        //consuming root
+        next();
+        pushElementName();
+      }
+      if (initialPosition > 0) {
+        //fastforward to initial position, one event at a time so the reader count is reset for every event
+        while (hasNext() && peekPosition() < initialPosition) {
+          processNextEvent(false);
+          reader.resetCount();
+        }
+        matcher.clearLastMatch();
+      }
+      reader.setEnabled(true);
+    } catch (XMLStreamException | RuntimeException e) {
+      // the caller never gets a parser to close, the builder must go back to the pool here
+      stringBuilderPool.returnObject(text);
+      throw e;
+    }
+  }
+
+  @Override
+  public Field read() throws IOException, XMLStreamException {
+    if (closed) {
+      throw new IOException("The parser has been closed");
+    }
+    Utils.checkState(!overrun, "The underlying input stream had an overrun, the parser is not usable anymore");
+    reader.resetCount();
+    limit = getReaderPosition() + maxObjectLen;
+    Field field;
+    try {
+      field = readRecord();
+      throwIfOverMaxObjectLength();
+      initialPosition = getReaderPosition();
+    } catch (XMLStreamException ex) {
+      if (ex.getNestedException() != null && ex.getNestedException() instanceof OverrunException) {
+        overrun = true;
+        throw (OverrunException) ex.getNestedException();
+      }
+      throw ex;
+    }
+    return field;
+  }
+
+  @Override
+  public long getReaderPosition() throws XMLStreamException {
+    return hasNext() ? peekPosition() : -1;
+  }
+
+  @Override
+  public String getLastParsedFieldXpathPrefix() {
+    return lastParsedFieldXpathPrefix;
+  }
+
+  @Override
+  public Map<String, String> getNamespaceUriToPrefixMappings() {
+    return Collections.unmodifiableMap(namespaceUriToPrefix);
+  }
+
+  @Override
+  public boolean isPreserveRootElement() {
+    return preserveRootElement;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      xmlReader.close();
+    } catch (Exception ex) {
+      // NOP
+    }
+    stringBuilderPool.returnObject(text);
+    LOG.debug(
+        "Returned string builder to pool. Num Active {}, Num Idle {}",
+        stringBuilderPool.getNumActive(),
+        stringBuilderPool.getNumIdle()
+    );
+    elementNameStack.clear();
+    elementBuilders.clear();
+    generatedNsPrefixCount = 1;
+    namespaceUriToPrefix.clear();
+    qualifiedNames.clear();
+  }
+
+  private Field readRecord() throws XMLStreamException, ObjectLengthException {
+    Field field = null;
+    if (hasNext()) {
+      // first level elements that are not the record delimiter are skipped, record delimiter elements deeper than
+      // the first level are ignored
+      while (hasNext() && matcher.getLastElementMatchResult() != MatchStatus.ELEMENT_MATCH) {
+        processNextEvent(true);
+      }
+      if (hasNext()) {
+        ElementBuilder element = getElementBuilder(0);
+        field = parse(0);
+        if (preserveRootElement) {
+          field = Field.create(Collections.singletonMap(element.getPrefixedName(), field));
+        }
+        lastParsedFieldXpathPrefix = getXpathPrefix();
+        // the loop above consumed the start element of the record and parse() its end element
+        popElementName();
+      }
+      // if advancing, don't evaluate XPath matches
+      matcher.clearLastMatch();
+    }
+    return field;
+  }
+
+  private void processNextEvent(boolean skipNonMatching) throws XMLStreamException {
+    int event = next();
+    if (event == XMLStreamConstants.START_ELEMENT) {
+      if (skipNonMatching && lastEventMatch == MatchStatus.ELEMENT_NOT_MATCH) {
+        // no element under a non matching element can match either
+        trackNamespace(xmlReader.getNamespaceURI(), xmlReader.getPrefix());
+        skipElement();
+      } else {
+        pushElementName();
+      }
+    } else if (event == XMLStreamConstants.END_ELEMENT) {
+      popElementName();
+    }
+  }
+
+  /**
+   * Moves the cursor to the end of the element under the cursor without reading its content. Only the namespaces
+   * of the elements inside are tracked, so they are given the same prefixes as when the elements are read.
+   */
+  private void skipElement() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = xmlReader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        trackNamespace(xmlReader.getNamespaceURI(), xmlReader.getPrefix());
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+    consumed = true;
+    matcher.endElement();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Field parse(int depth) throws XMLStreamException, ObjectLengthException {
+    ElementBuilder element = getElementBuilder(depth);
+    Map<String, Field> map = new LinkedHashMap<>();
+    if (!useFieldAttributesInsteadOfFields) {
+      element.addAttributeFields(map);
+    }
+    Map<String, Object> contents = element.contents;
+    boolean maybeText = true;
+    while (hasNext() && peek() != XMLStreamConstants.END_ELEMENT) {
+      int event = next();
+      if (isCharacters(event)) {
+        // If this set of characters is all whitespace, ignore.
+        if (isWhiteSpace()) {
+          continue;
+        }
+        text.setLength(0);
+        text.append(xmlReader.getTextCharacters(), xmlReader.getTextStart(), xmlReader.getTextLength());
+        int nextEvent = peek();
+        if (nextEvent == XMLStreamConstants.END_ELEMENT && maybeText) {
+          contents.put(StreamingXmlParser.VALUE_KEY, Field.create(text.toString()));
+        } else if (nextEvent == XMLStreamConstants.START_ELEMENT) {
+          next();
+          getElementBuilder(depth + 1).capture();
+          Field subField = parse(depth + 1);
+          addContent(contents, getElementBuilder(depth + 1).getName(), subField);
+          if (hasNext() && isCharacters(peek())) {
+            next();
+          }
+        } else if (maybeText) {
+          throw new XMLStreamException(Utils.format(
+              "Unexpected XMLEvent '{}', it should be START_ELEMENT or END_ELEMENT", text), xmlReader.getLocation());
+        }
+      } else if (event == XMLStreamConstants.START_ELEMENT) {
+        ElementBuilder subElement = getElementBuilder(depth + 1);
+        subElement.capture();
+        String name = subElement.getName();
+        Field subField = parse(depth + 1);
+        addContent(contents, name, subField);
+      } else {
+        throw new XMLStreamException(Utils.format("Unexpected XMLEvent '{}', it should be START_ELEMENT or CHARACTERS",
+            getEventTypeName(event)), xmlReader.getLocation());
+      }
+      maybeText = false;
+    }
+    if (hasNext()) {
+      next();
+      if (!element.isEndOf(xmlReader)) {
+        throw new XMLStreamException(Utils.format("Unexpected EndElement '{}', it should be '{}'",
+            xmlReader.getLocalName(), element.localName), xmlReader.getLocation());
+      }
+      for (Map.Entry<String, Object> entry : contents.entrySet()) {
+        if (entry.getValue() instanceof Field) {
+          map.put(entry.getKey(), (Field) entry.getValue());
+        } else {
+          map.put(entry.getKey(), Field.create((List<Field>) entry.getValue()));
+        }
+      }
+    }
+    contents.clear();
+    Field field = Field.create(map);
+    if (useFieldAttributesInsteadOfFields) {
+      element.setFieldAttributes(field);
+    }
+    return field;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addContent(Map<String, Object> contents, String name, Field field) throws
+      XMLStreamException,
+      ObjectLengthException {
+    throwIfOverMaxObjectLength();
+    List<Field> list = (List<Field>) contents.get(name);
+    if (list == null) {
+      list = new ArrayList<>();
+      contents.put(name, list);
+    }
+    list.add(field);
+  }
+
+  private void throwIfOverMaxObjectLength() throws XMLStreamException, ObjectLengthException {
+    if (maxObjectLen > -1 && getReaderPosition() > limit) {
+      throw new ObjectLengthException(
+          Utils.format("XML Object at offset '{}' exceeds max length '{}'; current position '{}'",
+              initialPosition,
+              maxObjectLen,
+              getReaderPosition()
+          ),
+          getReaderPosition()
+      );
+    }
+  }
+
+  // Cursor navigation, mirroring XMLEventReader: the event under the cursor is the peeked event until next() hands
+  // it out. Comments and processing instructions are skipped.
+
+  private void skipIgnorable() throws XMLStreamException {
+    while (true) {
+      if (consumed) {
+        if (!xmlReader.hasNext()) {
+          return;
+        }
+        xmlReader.next();
+        consumed = false;
+      }
+      int event = xmlReader.getEventType();
+      if (event != XMLStreamConstants.COMMENT && event != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+        return;
+      }
+      consumed = true;
+    }
+  }
+
+  private boolean hasNext() throws XMLStreamException {
+    skipIgnorable();
+    return !consumed;
+  }
+
+  private int peek() throws XMLStreamException {
+    skipIgnorable();
+    return xmlReader.getEventType();
+  }
+
+  private long peekPosition() throws XMLStreamException {
+    skipIgnorable();
+    return xmlReader.getLocation().getCharacterOffset();
+  }
+
+  private int next() throws XMLStreamException {
+    int event = peek();
+    consumed = true;
+    if (event == XMLStreamConstants.START_ELEMENT) {
+      lastEventMatch = matcher.startElement(xmlReader);
+    } else {
+      lastEventMatch = MatchStatus.UNDETERMINED;
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        matcher.endElement();
+      }
+    }
+    if (lastEventMatch == MatchStatus.ELEMENT_MATCH) {
+      getElementBuilder(0).capture();
+    }
+    return event;
+  }
+
+  private static boolean isCharacters(int event) {
+    return event == XMLStreamConstants.CHARACTERS
+        || event == XMLStreamConstants.CDATA
+        || event == XMLStreamConstants.SPACE;
+  }
+
+  private boolean isWhiteSpace() {
+    char[] chars = xmlReader.getTextCharacters();
+    int end = xmlReader.getTextStart() + xmlReader.getTextLength();
+    for (int i = xmlReader.getTextStart(); i < end; i++) {
+      if (!XMLChar.isSpace(chars[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String getEventTypeName(int event) {
+    switch (event) {
+      case XMLStreamConstants.END_ELEMENT:
+        return "END_ELEMENT";
+      case XMLStreamConstants.END_DOCUMENT:
+        return "END_DOCUMENT";
+      case XMLStreamConstants.ENTITY_REFERENCE:
+        return "ENTITY_REFERENCE";
+      case XMLStreamConstants.DTD:
+        return "DTD";
+      default:
+        return String.valueOf(event);
+    }
+  }
+
+  // Element names
+
+  private ElementBuilder getElementBuilder(int depth) {
+    while (elementBuilders.size() <= depth) {
+      elementBuilders.add(new ElementBuilder());
+    }
+    return elementBuilders.get(depth);
+  }
+
+  private void pushElementName() {
+    elementNameStack.add(getNameAndTrackNs(xmlReader.getNamespaceURI(), xmlReader.getLocalName(),
+        xmlReader.getPrefix()));
+    xpathPrefix = null;
+  }
+
+  private void popElementName() {
+    elementNameStack.remove(elementNameStack.size() - 1);
+    xpathPrefix = null;
+  }
+
+  private String getXpathPrefix() {
+    if (xpathPrefix == null) {
+      text.setLength(0);
+      text.append(Constants.PATH_SEPARATOR_CHAR);
+      for (int i = 0; i < elementNameStack.size(); i++) {
+        if (i > 0) {
+          text.append(Constants.PATH_SEPARATOR_CHAR);
+        }
+        text.append(elementNameStack.get(i));
+      }
+      xpathPrefix = text.toString();
+    }
+    return xpathPrefix;
+  }
+
+  private String trackNamespace(String uri, String prefix) {
+    String mappedPrefix = namespaceUriToPrefix.get(uri);
+    if (mappedPrefix == null && !Strings.isNullOrEmpty(uri)) {
+      if (Strings.isNullOrEmpty(prefix)) {
+        //generate a new namespace prefix for it
+        mappedPrefix = StreamingXmlParser.GENERATED_NAMESPACE_PREFIX + generatedNsPrefixCount++;
+      } else {
+        //the element already came with a prefix, so just use that
+        mappedPrefix = prefix;
+      }
+      namespaceUriToPrefix.put(uri, mappedPrefix);
+    }
+    return mappedPrefix;
+  }
+
+  private String getNameAndTrackNs(String uri, String localName, String prefix) {
+    if (Strings.isNullOrEmpty(uri)) {
+      // element is in no namespace
+      return localName;
+    }
+    String mappedPrefix = trackNamespace(uri, prefix);
+    Map<String, String> names = qualifiedNames.computeIfAbsent(uri, key -> new HashMap<>());
+    String name = names.get(localName);
+    if (name == null) {
+      name = mappedPrefix + Constants.NAMESPACE_PREFIX_SEPARATOR + localName;
+      names.put(localName, name);
+    }
+    return name;
+  }
+
+  private String getNameAndTrackNs(QName name) {
+    return getNameAndTrackNs(name.getNamespaceURI(), name.getLocalPart(), name.getPrefix());
+  }
+
+  /**
+   * Namespace declarations are named like the namespace events of the StAX implementation in use name them.
+   */
+  private QName getNamespaceDeclarationName(String prefix) {
+    QName name = namespaceDeclarationNames.get(prefix);
+    if (name == null) {
+      if (prefix.isEmpty()) {
+        name = eventFactory.createNamespace("").getName();
+      } else {
+        name = eventFactory.createNamespace(prefix, "").getName();
+      }
+      namespaceDeclarationNames.put(prefix, name);
+    }
+    return name;
+  }
+
+  private static String prefixed(Map<String, String> cache, String prefix, String name) {
+    String prefixedName = cache.get(name);
+    if (prefixedName == null) {
+      prefixedName = prefix + name;
+      cache.put(name, prefixedName);
+    }
+    return prefixedName;
+  }
+
+  /**
+   * Start element of the record, or of one of its descendants, at a given depth. Builders are reused for every
+   * element found at their depth, the name, attributes and namespaces are copied from the cursor when the start
+   * element is read, before the cursor moves on.
+   */
+  private class ElementBuilder {
+    private String namespaceUri;
+    private String localName;
+    private String prefix;
+    private int attributeCount;
+    private String[] attributeUris = new String[4];
+    private String[] attributeLocalNames = new String[4];
+    private String[] attributePrefixes = new String[4];
+    private String[] attributeValues = new String[4];
+    private int namespaceCount;
+    private String[] namespacePrefixes = new String[4];
+    private String[] namespaceUris = new String[4];
+    private final Map<String, Object> contents = new LinkedHashMap<>();
+
+    void capture() {
+      namespaceUri = Strings.nullToEmpty(xmlReader.getNamespaceURI());
+      localName = xmlReader.getLocalName();
+      prefix = Strings.nullToEmpty(xmlReader.getPrefix());
+      attributeCount = xmlReader.getAttributeCount();
+      if (attributeCount > attributeValues.length) {
+        int size = Math.max(attributeCount, attributeValues.length * 2);
+        attributeUris = Arrays.copyOf(attributeUris, size);
+        attributeLocalNames = Arrays.copyOf(attributeLocalNames, size);
+        attributePrefixes = Arrays.copyOf(attributePrefixes, size);
+        attributeValues = Arrays.copyOf(attributeValues, size);
+      }
+      for (int i = 0; i < attributeCount; i++) {
+        attributeUris[i] = xmlReader.getAttributeNamespace(i);
+        attributeLocalNames[i] = xmlReader.getAttributeLocalName(i);
+        attributePrefixes[i] = xmlReader.getAttributePrefix(i);
+        attributeValues[i] = xmlReader.getAttributeValue(i);
+      }
+      namespaceCount = xmlReader.getNamespaceCount();
+      if (namespaceCount > namespaceUris.length) {
+        int size = Math.max(namespaceCount, namespaceUris.length * 2);
+        namespacePrefixes = Arrays.copyOf(namespacePrefixes, size);
+        namespaceUris = Arrays.copyOf(namespaceUris, size);
+      }
+      for (int i = 0; i < namespaceCount; i++) {
+        namespacePrefixes[i] = Strings.nullToEmpty(xmlReader.getNamespacePrefix(i));
+        namespaceUris[i] = xmlReader.getNamespaceURI(i);
+      }
+    }
+
+    String getName() {
+      return getNameAndTrackNs(namespaceUri, localName, prefix);
+    }
+
+    String getPrefixedName() {
+      return prefix.isEmpty() ? localName : prefix + Constants.NAMESPACE_PREFIX_SEPARATOR + localName;
+    }
+
+    boolean isEndOf(XMLStreamReader endElement) {
+      return localName.equals(endElement.getLocalName())
+          && namespaceUri.equals(Strings.nullToEmpty(endElement.getNamespaceURI()));
+    }
+
+    private String getAttributeName(int i) {
+      return getNameAndTrackNs(attributeUris[i], attributeLocalNames[i], attributePrefixes[i]);
+    }
+
+    void addAttributeFields(Map<String, Field> map) {
+      for (int i = 0; i < attributeCount; i++) {
+        String name = prefixed(attributeKeys, StreamingXmlParser.ATTR_PREFIX_KEY, getAttributeName(i));
+        map.put(name, Field.create(attributeValues[i]));
+      }
+      for (int i = 0; i < namespaceCount; i++) {
+        String name = prefixed(namespaceKeys, NS_PREFIX_KEY,
+            getNameAndTrackNs(getNamespaceDeclarationName(namespacePrefixes[i])));
+        map.put(name, Field.create(namespaceUris[i]));
+      }
+    }
+
+    void setFieldAttributes(Field field) {
+      for (int i = 0; i < attributeCount; i++) {
+        String name = prefixed(fieldAttributeNames, StreamingXmlParser.XMLATTR_ATTRIBUTE_PREFIX, getAttributeName(i));
+        field.setAttribute(name, attributeValues[i]);
+      }
+      for (int i = 0; i < namespaceCount; i++) {
+        field.setAttribute(getNameAndTrackNs(getNamespaceDeclarationName(namespacePrefixes[i])), namespaceUris[i]);
+      }
+    }
+  }
+
+  /**
+   * Record element XPath compiled to one step per depth, evaluated on start and end elements as the cursor moves.
+   * It matches the same elements as {@link com.streamsets.pipeline.lib.xml.xpath.XPathMatchingEventReader}.
+   */
+  static class RecordElementMatcher {
+    private final Step[] steps;
+    private int depth = 0;
+    private int matchesThroughDepth = 0;
+    private MatchStatus lastElementMatchResult = MatchStatus.UNDETERMINED;
+
+    RecordElementMatcher(String xPath, Map<String, String> namespaces) {
+      boolean ignoreNamespaces = false;
+      if (XMLChar.isValidName(xPath)) {
+        //this is simply a field name with no "/" separator; adjust it to support previous syntax
+        xPath = Constants.ROOT_ELEMENT_PATH + Constants.PATH_SEPARATOR + xPath;
+        ignoreNamespaces = true;
+      }
+      List<Step> parts = new ArrayList<>();
+      for (String xPathPart : xPath.split(Constants.PATH_SEPARATOR)) {
+        if (!Strings.isNullOrEmpty(xPathPart)) {
+          parts.add(new Step(xPathPart, namespaces, ignoreNamespaces));
+        }
+      }
+      steps = parts.toArray(new Step[0]);
+    }
+
+    MatchStatus startElement(XMLStreamReader element) {
+      depth++;
+      MatchStatus result;
+      if (depth > steps.length || depth - 1 > matchesThroughDepth) {
+        result = MatchStatus.ELEMENT_NOT_MATCH;
+      } else if (steps[depth - 1].matches(element)) {
+        matchesThroughDepth = depth;
+        // at least one more level needs to match, unless all levels matched through the current one
+        result = (depth == steps.length) ? MatchStatus.ELEMENT_MATCH : MatchStatus.UNDETERMINED;
+      } else {
+        result = MatchStatus.ELEMENT_NOT_MATCH;
+      }
+      if (result != MatchStatus.UNDETERMINED) {
+        lastElementMatchResult = result;
+      }
+      return result;
+    }
+
+    void endElement() {
+      depth--;
+      if (matchesThroughDepth > depth) {
+        matchesThroughDepth = depth;
+      }
+    }
+
+    MatchStatus getLastElementMatchResult() {
+      return lastElementMatchResult;
+    }
+
+    void clearLastMatch() {
+      lastElementMatchResult = MatchStatus.UNDETERMINED;
+    }
+  }
+
+  private static class Step {
+    private final String elementName;
+    private final boolean wildcardElement;
+    private final String namespacePrefix;
+    private final String namespaceUri;
+    private final boolean ignoreNamespaces;
+    private final int index;
+    private final String attributeName;
+    private final String attributeValue;
+    private int numElementsSeen = 0;
+
+    Step(String xPathPart, Map<String, String> namespaces, boolean ignoreNamespaces) {
+      this.ignoreNamespaces = ignoreNamespaces;
+      final int nsSeparatorIndex = xPathPart.indexOf(Constants.NAMESPACE_PREFIX_SEPARATOR);
+      String xPathLocalPart = xPathPart;
+      if (nsSeparatorIndex > 0) {
+        namespacePrefix = xPathPart.substring(0, nsSeparatorIndex);
+        namespaceUri = (namespaces == null) ? null : namespaces.get(namespacePrefix);
+        xPathLocalPart = xPathPart.substring(nsSeparatorIndex + 1);
+      } else {
+        namespacePrefix = null;
+        namespaceUri = null;
+      }
+
+      final int qualifierStart = xPathLocalPart.lastIndexOf('[');
+      if (qualifierStart > 0) {
+        final int qualifierEnd = xPathLocalPart.lastIndexOf(']');
+        if (xPathLocalPart.charAt(qualifierStart + 1) == '@') {
+          final int equalsIndex = xPathLocalPart.lastIndexOf('=');
+          attributeName = xPathLocalPart.substring(qualifierStart + 2, equalsIndex);
+          // knock off one character on each end for quotes
+          attributeValue = xPathLocalPart.substring(equalsIndex + 2, qualifierEnd - 1);
+          index = 0;
+        } else {
+          attributeName = null;
+          attributeValue = null;
+          index = Integer.parseInt(xPathLocalPart.substring(qualifierStart + 1, qualifierEnd));
+        }
+        elementName = xPathLocalPart.substring(0, qualifierStart);
+      } else {
+        attributeName = null;
+        attributeValue = null;
+        index = 0;
+        elementName = xPathLocalPart;
+      }
+      wildcardElement = Constants.WILDCARD.equals(elementName);
+    }
+
+    boolean matches(XMLStreamReader element) {
+      if (!wildcardElement && !isQualifiedMatch(element)) {
+        return false;
+      }
+      numElementsSeen++;
+      if (index > 0) {
+        return numElementsSeen == index;
+      } else if (attributeName != null) {
+        // evaluated exactly as ElementMatcherImpl does
+        for (int i = 0; i < element.getAttributeCount(); i++) {
+          if ((element.getAttributeLocalName(i).equals(attributeName) && Constants.WILDCARD.equals(attributeValue))
+              || element.getAttributeValue(i).equals(attributeValue)) {
+            return true;
+          }
+        }
+        return false;
+      } else {
+        return true;
+      }
+    }
+
+    private boolean isQualifiedMatch(XMLStreamReader element) {
+      boolean namespaceMatches;
+      if (namespacePrefix == null) {
+        // xpath has no prefix; the element should therefore also have no namespace if namespaces are not ignored
+        namespaceMatches = ignoreNamespaces || Strings.isNullOrEmpty(element.getNamespaceURI());
+      } else {
+        namespaceMatches = namespaceUri != null && namespaceUri.equals(Strings.nullToEmpty(element.getNamespaceURI()));
+      }
+      return namespaceMatches && element.getLocalName().equals(elementName);
+    }
+  }
+}
@@ -25,6 +25,8 @@ import com.streamsets.pipeline.lib.parser.AbstractDataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
 import com.streamsets.pipeline.lib.xml.OverrunStreamingXmlParser;
 import com.streamsets.pipeline.lib.xml.StreamingXmlParser;
+import com.streamsets.pipeline.lib.xml.XmlFieldReader;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
@@ -47,7 +49,7 @@ public class XmlCharDataParser extends AbstractDataParser {
   private final ProtoConfigurableEntity.Context context;
   private final String readerId;
   private final int maxObjectLen;
-  private final OverrunStreamingXmlParser parser;
+  private final XmlFieldReader parser;
   private final boolean includeXpath;
   private long readerOffset;
 
@@ -62,6 +64,38 @@ public class XmlCharDataParser extends AbstractDataParser {
       int maxObjectLen,
       boolean useFieldAttributesInsteadOfFields,
       boolean preserveRootElement
+  ) throws IOException {
+    this(
+        context,
+        readerId,
+        reader,
+        readerOffset,
+        recordElement,
+        includeXpath,
+        namespaces,
+        maxObjectLen,
+        useFieldAttributesInsteadOfFields,
+        preserveRootElement,
+        null
+    );
+  }
+
+  /**
+   * Parses with the cursor based {@link CursorXmlParser} when a string builder pool is given, with
+   * {@link OverrunStreamingXmlParser} otherwise.
+   */
+  public XmlCharDataParser(
+      ProtoConfigurableEntity.Context context,
+      String readerId,
+      OverrunReader reader,
+      long readerOffset,
+      String recordElement,
+      boolean includeXpath,
+      Map<String, String> namespaces,
+      int maxObjectLen,
+      boolean useFieldAttributesInsteadOfFields,
+      boolean preserveRootElement,
+      GenericObjectPool<StringBuilder> stringBuilderPool
   ) throws IOException {
     this.context = context;
     this.readerId = readerId;
@@ -69,15 +103,28 @@ public class XmlCharDataParser extends AbstractDataParser {
     this.maxObjectLen = maxObjectLen;
     this.includeXpath = includeXpath;
     try {
-      parser = new OverrunStreamingXmlParser(
-          reader,
-          recordElement,
-          namespaces,
-          readerOffset,
-          maxObjectLen,
-          useFieldAttributesInsteadOfFields,
-          preserveRootElement
-      );
+      if (stringBuilderPool != null) {
+        parser = new CursorXmlParser(
+            reader,
+            recordElement,
+            namespaces,
+            readerOffset,
+            maxObjectLen,
+            useFieldAttributesInsteadOfFields,
+            preserveRootElement,
+            stringBuilderPool
+        );
+      } else {
+        parser = new OverrunStreamingXmlParser(
+            reader,
+            recordElement,
+            namespaces,
+            readerOffset,
+            maxObjectLen,
+            useFieldAttributesInsteadOfFields,
+            preserveRootElement
+        );
+      }
     } catch (XMLStreamException ex) {
       throw new IOException(ex);
     }
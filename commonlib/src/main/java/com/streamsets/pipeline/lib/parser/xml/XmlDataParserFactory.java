@@ -16,11 +16,13 @@
 package com.streamsets.pipeline.lib.parser.xml;
 
 import com.google.common.collect.ImmutableMap;
+import com.streamsets.pipeline.api.Configuration;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.api.ext.io.OverrunReader;
 import com.streamsets.pipeline.lib.parser.DataParserFactory;
 import com.streamsets.pipeline.lib.parser.DataParser;
 import com.streamsets.pipeline.lib.parser.DataParserException;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -59,8 +61,20 @@ public class XmlDataParserFactory extends DataParserFactory {
   );
   public static final Set<Class<? extends Enum>> MODES = Collections.emptySet();
 
+  // Parse with the StAX cursor based parser instead of the event based one
+  public static final String CURSOR_PARSER_KEY = "com.streamsets.pipeline.lib.parser.xml.cursorParser";
+  public static final boolean CURSOR_PARSER_DEFAULT = false;
+
+  private final GenericObjectPool<StringBuilder> stringBuilderPool;
+
   public XmlDataParserFactory(Settings settings) {
     super(settings);
+    Configuration configuration = settings.getContext().getConfiguration();
+    if (configuration != null && configuration.get(CURSOR_PARSER_KEY, CURSOR_PARSER_DEFAULT)) {
+      stringBuilderPool = getStringBuilderPool(settings);
+    } else {
+      stringBuilderPool = null;
+    }
   }
 
   @Override
@@ -91,11 +105,22 @@ public class XmlDataParserFactory extends DataParserFactory {
           getSettings().<Map<String,String>>getConfig(RECORD_ELEMENT_XPATH_NAMESPACES_KEY),
           getSettings().getMaxRecordLen(),
           getSettings().getConfig(USE_FIELD_ATTRIBUTES),
-          getSettings().getConfig(PRESERVE_ROOT_ELEMENT_KEY)
+          getSettings().getConfig(PRESERVE_ROOT_ELEMENT_KEY),
+          stringBuilderPool
       );
     } catch (IOException ex) {
       throw new DataParserException(Errors.XML_PARSER_00, id, offset, ex.toString(), ex);
     }
   }
 
+  @Override
+  public void destroy() {
+    if (stringBuilderPool != null) {
+      stringBuilderPool.clear();
+      stringBuilderPool.close();
+    }
+
+    super.destroy();
+  }
+
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+import java.io.IOException;
+
+/**
+ * {@link DatumReader} producing SDC fields, for use with {@link org.apache.avro.file.DataFileReader} and
+ * {@link org.apache.avro.file.DataFileStream}.
+ *
+ * When the data was written with the expected schema, datums are decoded by the compiled
+ * {@link AvroFieldReader}. Otherwise they have to be resolved against the expected schema, which is done by
+ * {@link GenericDatumReader} before converting them with {@link AvroTypeUtil}.
+ */
+public class AvroFieldDatumReader implements DatumReader<Field> {
+
+  private final Schema expected;
+  private final boolean skipAvroUnionIndexes;
+  private Schema schema;
+  private AvroFieldReader fieldReader;
+  private GenericDatumReader<Object> resolvingReader;
+  private Record record;
+
+  /**
+   * @param expected schema to read the data as, if null the data is read with the schema it was written with
+   * @param skipAvroUnionIndexes true if the union index headers should not be set
+   */
+  public AvroFieldDatumReader(Schema expected, boolean skipAvroUnionIndexes) {
+    this.expected = expected;
+    this.skipAvroUnionIndexes = skipAvroUnionIndexes;
+  }
+
+  @Override
+  public void setSchema(Schema writer) {
+    if (expected == null || expected.equals(writer)) {
+      try {
+        fieldReader = AvroFieldReader.forSchema(writer);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+      resolvingReader = null;
+      schema = writer;
+    } else {
+      fieldReader = null;
+      resolvingReader = new GenericDatumReader<>(writer, expected, GenericData.get());
+      schema = expected;
+    }
+  }
+
+  /**
+   * Schema of the fields that are read, available once the data file header was read.
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Sets the record whose header receives the union indexes of the next datums, null to not set them.
+   */
+  public void setRecord(Record record) {
+    this.record = record;
+  }
+
+  @Override
+  public Field read(Field reuse, Decoder in) throws IOException {
+    boolean skip = skipAvroUnionIndexes || record == null;
+    if (fieldReader != null) {
+      return fieldReader.read(record, in, skip);
+    }
+    return AvroTypeUtil.avroToSdcField(record, schema, resolvingReader.read(null, in), skip);
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.stage.common.HeaderAttributeConstants;
+import org.apache.avro.Schema;
+import org.apache.avro.io.Decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads Avro binary data directly into SDC fields.
+ *
+ * The schema is compiled once into a tree of readers, one per schema node, so decoding a datum neither
+ * materializes a {@link org.apache.avro.generic.GenericRecord} nor walks the schema again. The result is
+ * the same as reading the datum with {@link org.apache.avro.generic.GenericDatumReader} and converting it
+ * with {@link AvroTypeUtil#avroToSdcField(Record, Schema, Object, boolean)}, including the union index
+ * headers. Instances are immutable and shared by all readers of the same schema.
+ */
+public final class AvroFieldReader {
+
+  private static final CompiledAvroSchemaCache<AvroFieldReader> CACHE =
+      new CompiledAvroSchemaCache<>(AvroFieldReader::new);
+
+  private final Node root;
+
+  /**
+   * Returns the compiled reader of the given schema.
+   */
+  public static AvroFieldReader forSchema(Schema schema) throws IOException {
+    return CACHE.get(schema);
+  }
+
+  private AvroFieldReader(Schema schema) {
+    this.root = new Compiler().compile(schema);
+  }
+
+  /**
+   * Reads one datum from the decoder.
+   *
+   * @param record record whose header receives the union indexes, can be null when they are not needed
+   * @param in decoder positioned at the start of the datum
+   * @param skipAvroUnionIndexes true if the union index headers should not be set
+   */
+  public Field read(Record record, Decoder in, boolean skipAvroUnionIndexes) throws IOException {
+    String path = record == null || skipAvroUnionIndexes || !root.hasUnion ? null : "";
+    return root.read(in, record, path);
+  }
+
+  private abstract static class Node {
+    /** True if a union can be reached from this node, only then the field path has to be tracked. */
+    boolean hasUnion;
+
+    /**
+     * Reads the value of this node. The path is null when union indexes are not tracked.
+     */
+    abstract Field read(Decoder in, Record record, String path) throws IOException;
+
+    String childPath(String path, Node child, String suffix) {
+      return path == null || !child.hasUnion ? null : path + suffix;
+    }
+  }
+
+  /**
+   * Builds the reader tree. Records are memoized by instance so that recursive schemas compile into a cycle.
+   */
+  private static class Compiler {
+    private final Map<Schema, RecordNode> records = new IdentityHashMap<>();
+
+    Node compile(Schema schema) {
+      if (schema.getType() == Schema.Type.UNION) {
+        return new UnionNode(schema, this);
+      }
+      String logicalType = schema.getProp(AvroTypeUtil.LOGICAL_TYPE);
+      if (logicalType != null && !logicalType.isEmpty()) {
+        Node node;
+        try {
+          node = compileLogicalType(schema, logicalType);
+        } catch (IllegalStateException e) {
+          // Invalid logical types only fail once a value is read, same as the generic conversion
+          node = new FailingNode(e.getMessage());
+        }
+        if (node != null) {
+          return node;
+        }
+      }
+      switch (schema.getType()) {
+        case ARRAY:
+          return new ArrayNode(schema, this);
+        case BOOLEAN:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readBoolean());
+            }
+          };
+        case BYTES:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readBytes(null).array());
+            }
+          };
+        case DOUBLE:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readDouble());
+            }
+          };
+        case ENUM:
+          List<String> symbols = schema.getEnumSymbols();
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(symbols.get(in.readEnum()));
+            }
+          };
+        case FIXED:
+          int size = schema.getFixedSize();
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              byte[] bytes = new byte[size];
+              in.readFixed(bytes);
+              return Field.create(bytes);
+            }
+          };
+        case FLOAT:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readFloat());
+            }
+          };
+        case INT:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readInt());
+            }
+          };
+        case LONG:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readLong());
+            }
+          };
+        case MAP:
+          return new MapNode(schema, this);
+        case NULL:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              in.readNull();
+              return Field.create(Field.Type.MAP, null);
+            }
+          };
+        case RECORD:
+          RecordNode node = records.get(schema);
+          if (node == null) {
+            node = new RecordNode(schema);
+            records.put(schema, node);
+            node.compileFields(schema, this);
+          }
+          return node;
+        case STRING:
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              return Field.create(in.readString());
+            }
+          };
+        default:
+          return new FailingNode("Unexpected schema type " + schema.getType());
+      }
+    }
+
+    private Node compileLogicalType(Schema schema, String logicalType) {
+      switch (logicalType) {
+        case AvroTypeUtil.LOGICAL_TYPE_DECIMAL:
+          checkPhysicalType(schema, Schema.Type.BYTES, "decimal");
+          int scale = AvroTypeUtil.getJsonPropSafely(schema, AvroTypeUtil.LOGICAL_TYPE_ATTR_SCALE).getIntValue();
+          int precision =
+              AvroTypeUtil.getJsonPropSafely(schema, AvroTypeUtil.LOGICAL_TYPE_ATTR_PRECISION).getIntValue();
+          String scaleAttribute = String.valueOf(scale);
+          String precisionAttribute = String.valueOf(precision);
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              Field field = Field.create(AvroTypeUtil.bigDecimalFromBytes(in.readBytes(null).array(), scale));
+              field.setAttribute(HeaderAttributeConstants.ATTR_SCALE, scaleAttribute);
+              field.setAttribute(HeaderAttributeConstants.ATTR_PRECISION, precisionAttribute);
+              field.setAttribute(AvroTypeUtil.FIELD_ATTRIBUTE_TYPE, logicalType);
+              return field;
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_DATE:
+          checkPhysicalType(schema, Schema.Type.INT, "date");
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              Field field = Field.createDate(new Date(AvroTypeUtil.daysToMillis(in.readInt())));
+              field.setAttribute(AvroTypeUtil.FIELD_ATTRIBUTE_TYPE, logicalType);
+              return field;
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_TIME_MILLIS:
+          checkPhysicalType(schema, Schema.Type.INT, "time millis");
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              Field field = Field.createTime(new Date(in.readInt()));
+              field.setAttribute(AvroTypeUtil.FIELD_ATTRIBUTE_TYPE, logicalType);
+              return field;
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_TIMESTAMP_MILLIS:
+          checkPhysicalType(schema, Schema.Type.LONG, "timestamp millis");
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              Field field = Field.createDatetime(new Date(in.readLong()));
+              field.setAttribute(AvroTypeUtil.FIELD_ATTRIBUTE_TYPE, logicalType);
+              return field;
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_TIME_MICROS:
+        case AvroTypeUtil.LOGICAL_TYPE_TIMESTAMP_MICROS:
+          checkPhysicalType(schema, Schema.Type.LONG, logicalType.replace('-', ' '));
+          // We don't have a better type to represent microseconds
+          return new Node() {
+            @Override
+            Field read(Decoder in, Record record, String path) throws IOException {
+              Field field = Field.create(in.readLong());
+              field.setAttribute(AvroTypeUtil.FIELD_ATTRIBUTE_TYPE, logicalType);
+              return field;
+            }
+          };
+        default:
+          return null;
+      }
+    }
+
+    private static void checkPhysicalType(Schema schema, Schema.Type expected, String logicalType) {
+      if (schema.getType() != expected) {
+        throw new IllegalStateException(
+            "Unexpected physical type for logical " + logicalType + " type: " + schema.getType()
+        );
+      }
+    }
+  }
+
+  private static class FailingNode extends Node {
+    private final String message;
+
+    FailingNode(String message) {
+      this.message = message;
+    }
+
+    @Override
+    Field read(Decoder in, Record record, String path) {
+      throw new IllegalStateException(message);
+    }
+  }
+
+  private static class UnionNode extends Node {
+    private final Node[] branches;
+    /** True for the common [null, type] union, which is read as a typed null field. */
+    private final boolean optional;
+    private final Schema optionalSchema;
+
+    UnionNode(Schema schema, Compiler compiler) {
+      List<Schema> types = schema.getTypes();
+      this.hasUnion = true;
+      this.branches = new Node[types.size()];
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = compiler.compile(types.get(i));
+      }
+      this.optional = types.size() == 2 && types.get(0).getType() == Schema.Type.NULL;
+      this.optionalSchema = optional ? types.get(1) : null;
+    }
+
+    @Override
+    Field read(Decoder in, Record record, String path) throws IOException {
+      int index = in.readIndex();
+      if (optional && index == 0) {
+        in.readNull();
+        return AvroTypeUtil.createTypedNullField(optionalSchema);
+      }
+      if (path != null) {
+        record.getHeader().setAttribute(AvroTypeUtil.AVRO_UNION_TYPE_INDEX_PREFIX + path, String.valueOf(index));
+      }
+      return branches[index].read(in, record, path);
+    }
+  }
+
+  private static class ArrayNode extends Node {
+    private final Node element;
+
+    ArrayNode(Schema schema, Compiler compiler) {
+      this.element = compiler.compile(schema.getElementType());
+      this.hasUnion = containsUnion(schema);
+    }
+
+    @Override
+    Field read(Decoder in, Record record, String path) throws IOException {
+      List<Field> list = new ArrayList<>();
+      for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+        for (long i = 0; i < n; i++) {
+          list.add(element.read(in, record, childPath(path, element, "[" + list.size() + "]")));
+        }
+      }
+      return Field.create(list);
+    }
+  }
+
+  private static class MapNode extends Node {
+    private final Node value;
+
+    MapNode(Schema schema, Compiler compiler) {
+      this.value = compiler.compile(schema.getValueType());
+      this.hasUnion = containsUnion(schema);
+    }
+
+    @Override
+    Field read(Decoder in, Record record, String path) throws IOException {
+      Map<String, Field> map = new LinkedHashMap<>();
+      for (long n = in.readMapStart(); n != 0; n = in.mapNext()) {
+        for (long i = 0; i < n; i++) {
+          String key = in.readString();
+          map.put(key, value.read(in, record, childPath(path, value, "/" + key)));
+        }
+      }
+      return Field.create(map);
+    }
+  }
+
+  private static class RecordNode extends Node {
+    private String[] names;
+    private String[] pathSuffixes;
+    private Node[] fields;
+
+    RecordNode(Schema schema) {
+      this.hasUnion = containsUnion(schema);
+    }
+
+    void compileFields(Schema schema, Compiler compiler) {
+      List<Schema.Field> schemaFields = schema.getFields();
+      names = new String[schemaFields.size()];
+      pathSuffixes = new String[schemaFields.size()];
+      fields = new Node[schemaFields.size()];
+      for (int i = 0; i < fields.length; i++) {
+        names[i] = schemaFields.get(i).name();
+        pathSuffixes[i] = "/" + names[i];
+        fields[i] = compiler.compile(schemaFields.get(i).schema());
+      }
+    }
+
+    @Override
+    Field read(Decoder in, Record record, String path) throws IOException {
+      LinkedHashMap<String, Field> map = new LinkedHashMap<>();
+      for (int i = 0; i < fields.length; i++) {
+        map.put(names[i], fields[i].read(in, record, childPath(path, fields[i], pathSuffixes[i])));
+      }
+      return Field.createListMap(map);
+    }
+  }
+
+  private static boolean containsUnion(Schema schema) {
+    return containsUnion(schema, Collections.newSetFromMap(new IdentityHashMap<>()));
+  }
+
+  private static boolean containsUnion(Schema schema, Set<Schema> visited) {
+    if (!visited.add(schema)) {
+      return false;
+    }
+    switch (schema.getType()) {
+      case UNION:
+        return true;
+      case ARRAY:
+        return containsUnion(schema.getElementType(), visited);
+      case MAP:
+        return containsUnion(schema.getValueType(), visited);
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          if (containsUnion(field.schema(), visited)) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.lib.generator.DataGeneratorException;
+import com.streamsets.pipeline.lib.generator.avro.Errors;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.codehaus.jackson.JsonNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes SDC records directly as Avro binary data.
+ *
+ * The schema is compiled once into a tree of writers, one per schema node, so encoding a record neither
+ * builds a {@link org.apache.avro.generic.GenericRecord} nor walks the schema again. The output and the errors
+ * are the same as converting the record with
+ * {@link AvroTypeUtil#sdcRecordToAvro(Record, Schema, Map)} and writing it with {@link GenericDatumWriter}.
+ * Union branches of fields that were not read from Avro are resolved once per field type and then reused.
+ * Instances are thread safe and shared by all writers of the same schema.
+ */
+public final class AvroFieldWriter {
+
+  private static final CompiledAvroSchemaCache<AvroFieldWriter> CACHE =
+      new CompiledAvroSchemaCache<>(AvroFieldWriter::new);
+
+  private final Node root;
+
+  /**
+   * Returns the compiled writer of the given schema.
+   */
+  public static AvroFieldWriter forSchema(Schema schema) throws IOException {
+    return CACHE.get(schema);
+  }
+
+  private AvroFieldWriter(Schema schema) {
+    this.root = new Compiler().compile(schema, null);
+  }
+
+  /**
+   * Writes the root field of the record.
+   *
+   * @param defaultValueMap default values of the schema, see {@link AvroTypeUtil#getDefaultValuesFromSchema}
+   */
+  public void write(Record record, Map<String, Object> defaultValueMap, Encoder out) throws IOException, StageException {
+    Field field = record.get();
+    if (field == null || field.getValue() == null) {
+      root.writeNull(out);
+    } else {
+      root.write(record, field, defaultValueMap, out);
+    }
+  }
+
+  /**
+   * Reusable buffer that records are fully encoded into before they are written out, so that a record that
+   * fails to encode leaves no partial data behind. Not thread safe.
+   */
+  public static class RecordBuffer extends ByteArrayOutputStream {
+    private BinaryEncoder encoder;
+
+    /**
+     * Encodes the record and returns the encoded bytes, valid until the next call.
+     */
+    public ByteBuffer encode(
+        AvroFieldWriter writer,
+        Record record,
+        Map<String, Object> defaultValueMap
+    ) throws IOException, StageException {
+      reset();
+      encoder = EncoderFactory.get().binaryEncoder(this, encoder);
+      writer.write(record, defaultValueMap, encoder);
+      encoder.flush();
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
+
+  private abstract static class Node {
+    final Schema schema;
+
+    Node(Schema schema) {
+      this.schema = schema;
+    }
+
+    /**
+     * Writes a field with a non-null value.
+     */
+    abstract void write(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException;
+
+    /**
+     * Writes a null value, which only null and union types accept.
+     */
+    void writeNull(Encoder out) throws IOException {
+      throw new NullPointerException("null of " + schema.getFullName());
+    }
+  }
+
+  /**
+   * Node of a schema that is not a union, the value is encoded as is.
+   */
+  private abstract static class ValueNode extends Node {
+
+    ValueNode(Schema schema) {
+      super(schema);
+    }
+
+    @Override
+    void write(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException {
+      try {
+        encode(record, field, defaults, out);
+      } catch (IllegalArgumentException ex) {
+        throw new DataGeneratorException(Errors.AVRO_GENERATOR_05, schema.getType(), field.getType());
+      }
+    }
+
+    abstract void encode(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException;
+  }
+
+  /**
+   * Builds the writer tree. Records are memoized by instance so that recursive schemas compile into a cycle.
+   */
+  private static class Compiler {
+    private final Map<Schema, RecordNode> records = new IdentityHashMap<>();
+
+    /**
+     * @param fieldProps properties of the record field the schema belongs to, which Avro does not always
+     *                   copy to the field schema
+     */
+    Node compile(Schema schema, Map<String, JsonNode> fieldProps) {
+      if (schema.getType() == Schema.Type.UNION) {
+        return new UnionNode(schema, this);
+      }
+      JsonNode logicalType = getProp(schema, fieldProps, AvroTypeUtil.LOGICAL_TYPE);
+      if (logicalType != null && logicalType.isTextual() && !logicalType.getTextValue().isEmpty()) {
+        Node node;
+        try {
+          node = compileLogicalType(schema, fieldProps, logicalType.getTextValue());
+        } catch (IllegalStateException e) {
+          // Invalid logical types only fail once a value is written, same as the generic conversion
+          node = new FailingNode(schema, e.getMessage());
+        }
+        if (node != null) {
+          return node;
+        }
+      }
+      switch (schema.getType()) {
+        case ARRAY:
+          return new ArrayNode(schema, this);
+        case BOOLEAN:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeBoolean(field.getValueAsBoolean());
+            }
+          };
+        case BYTES:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeBytes(field.getValueAsByteArray());
+            }
+          };
+        case DOUBLE:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeDouble(field.getValueAsDouble());
+            }
+          };
+        case ENUM:
+          Map<String, Integer> ordinals = new HashMap<>();
+          for (String symbol : schema.getEnumSymbols()) {
+            ordinals.put(symbol, schema.getEnumOrdinal(symbol));
+          }
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              String symbol = field.getValueAsString();
+              Integer ordinal = ordinals.get(symbol);
+              if (ordinal == null) {
+                throw new AvroTypeException("Not an enum symbol of " + schema.getFullName() + ": " + symbol);
+              }
+              out.writeEnum(ordinal);
+            }
+          };
+        case FIXED:
+          int size = schema.getFixedSize();
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeFixed(field.getValueAsByteArray(), 0, size);
+            }
+          };
+        case FLOAT:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeFloat(field.getValueAsFloat());
+            }
+          };
+        case INT:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeInt(field.getValueAsInteger());
+            }
+          };
+        case LONG:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeLong(field.getValueAsLong());
+            }
+          };
+        case MAP:
+          return new MapNode(schema, this);
+        case NULL:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) {
+            }
+
+            @Override
+            void writeNull(Encoder out) {
+            }
+          };
+        case RECORD:
+          RecordNode node = records.get(schema);
+          if (node == null) {
+            node = new RecordNode(schema);
+            records.put(schema, node);
+            node.compileFields(this);
+          }
+          return node;
+        case STRING:
+          return new ValueNode(schema) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeString(field.getValueAsString());
+            }
+          };
+        default:
+          return new FailingNode(schema, "Unexpected schema type " + schema.getType());
+      }
+    }
+
+    private Node compileLogicalType(Schema schema, Map<String, JsonNode> fieldProps, String logicalType) {
+      switch (logicalType) {
+        case AvroTypeUtil.LOGICAL_TYPE_DECIMAL:
+          checkPhysicalType(schema, Schema.Type.BYTES, "decimal");
+          JsonNode scaleProp = getProp(schema, fieldProps, AvroTypeUtil.LOGICAL_TYPE_ATTR_SCALE);
+          if (scaleProp == null) {
+            throw new IllegalStateException("Missing required property '" + AvroTypeUtil.LOGICAL_TYPE_ATTR_SCALE + "'");
+          }
+          int scale = scaleProp.getIntValue();
+          return new LogicalTypeNode(schema, logicalType) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeBytes(field.getValueAsDecimal().setScale(scale).unscaledValue().toByteArray());
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_DATE:
+          checkPhysicalType(schema, Schema.Type.INT, "date");
+          return new LogicalTypeNode(schema, logicalType) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeInt(AvroTypeUtil.millisToDays(field.getValueAsDate().getTime()));
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_TIME_MILLIS:
+          checkPhysicalType(schema, Schema.Type.INT, "time millis");
+          return new LogicalTypeNode(schema, logicalType) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeInt((int) field.getValueAsTime().getTime());
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_TIMESTAMP_MILLIS:
+          checkPhysicalType(schema, Schema.Type.LONG, "timestamp millis");
+          return new LogicalTypeNode(schema, logicalType) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeLong(field.getValueAsDatetime().getTime());
+            }
+          };
+        case AvroTypeUtil.LOGICAL_TYPE_TIME_MICROS:
+        case AvroTypeUtil.LOGICAL_TYPE_TIMESTAMP_MICROS:
+          checkPhysicalType(schema, Schema.Type.LONG, logicalType.replace('-', ' '));
+          return new LogicalTypeNode(schema, logicalType) {
+            @Override
+            void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) throws IOException {
+              out.writeLong(field.getValueAsLong());
+            }
+          };
+        default:
+          return null;
+      }
+    }
+
+    private static JsonNode getProp(Schema schema, Map<String, JsonNode> fieldProps, String name) {
+      JsonNode prop = schema.getJsonProp(name);
+      if (prop == null && fieldProps != null) {
+        prop = fieldProps.get(name);
+      }
+      return prop;
+    }
+
+    private static void checkPhysicalType(Schema schema, Schema.Type expected, String logicalType) {
+      if (schema.getType() != expected) {
+        throw new IllegalStateException(
+            "Unexpected physical type for logical " + logicalType + " type: " + schema.getType()
+        );
+      }
+    }
+  }
+
+  private abstract static class LogicalTypeNode extends ValueNode {
+    private final String logicalType;
+
+    LogicalTypeNode(Schema schema, String logicalType) {
+      super(schema);
+      this.logicalType = logicalType;
+    }
+
+    @Override
+    void write(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException {
+      try {
+        encode(record, field, defaults, out);
+      } catch (IllegalArgumentException ex) {
+        throw new DataGeneratorException(Errors.AVRO_GENERATOR_05, "logical type: " + logicalType, field.getType());
+      } catch (ArithmeticException ex) {
+        // Thrown when BigDecimal.setScale() requires rounding
+        throw new DataGeneratorException(
+            Errors.AVRO_GENERATOR_06,
+            field.getValue().toString(),
+            field.getType(),
+            schema.toString(),
+            ex.toString(),
+            ex
+        );
+      }
+    }
+  }
+
+  private static class FailingNode extends ValueNode {
+    private final String message;
+
+    FailingNode(Schema schema, String message) {
+      super(schema);
+      this.message = message;
+    }
+
+    @Override
+    void encode(Record record, Field field, Map<String, Object> defaults, Encoder out) {
+      throw new IllegalStateException(message);
+    }
+  }
+
+  private static class UnionNode extends Node {
+    private final Node[] branches;
+    private final int nullIndex;
+    /** True for the common [null, type] union, where every non-null value is written as the second type. */
+    private final boolean optional;
+    private final ConcurrentMap<Field.Type, Integer> resolvedBranches = new ConcurrentHashMap<>();
+
+    UnionNode(Schema schema, Compiler compiler) {
+      super(schema);
+      List<Schema> types = schema.getTypes();
+      this.branches = new Node[types.size()];
+      int nullIndex = -1;
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = compiler.compile(types.get(i), null);
+        if (nullIndex < 0 && types.get(i).getType() == Schema.Type.NULL) {
+          nullIndex = i;
+        }
+      }
+      this.nullIndex = nullIndex;
+      this.optional = types.size() == 2 && nullIndex == 0;
+    }
+
+    @Override
+    void write(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException {
+      int index;
+      if (optional) {
+        index = 1;
+      } else {
+        Integer resolved = resolvedBranches.get(field.getType());
+        if (resolved == null) {
+          // The resolution only depends on the field type
+          resolved = AvroTypeUtil.resolveUnionIndex(record, field, schema);
+          resolvedBranches.put(field.getType(), resolved);
+        }
+        index = resolved;
+      }
+      out.writeIndex(index);
+      branches[index].write(record, field, defaults, out);
+    }
+
+    @Override
+    void writeNull(Encoder out) throws IOException {
+      if (nullIndex < 0) {
+        throw new UnresolvedUnionException(schema, null);
+      }
+      out.writeIndex(nullIndex);
+    }
+  }
+
+  private static class ArrayNode extends ValueNode {
+    private final Node element;
+
+    ArrayNode(Schema schema, Compiler compiler) {
+      super(schema);
+      this.element = compiler.compile(schema.getElementType(), null);
+    }
+
+    @Override
+    void encode(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException {
+      List<Field> list = field.getValueAsList();
+      out.writeArrayStart();
+      out.setItemCount(list.size());
+      for (Field value : list) {
+        out.startItem();
+        if (value == null || value.getValue() == null) {
+          element.writeNull(out);
+        } else {
+          element.write(record, value, defaults, out);
+        }
+      }
+      out.writeArrayEnd();
+    }
+  }
+
+  private static class MapNode extends ValueNode {
+    private final Node value;
+
+    MapNode(Schema schema, Compiler compiler) {
+      super(schema);
+      this.value = compiler.compile(schema.getValueType(), null);
+    }
+
+    @Override
+    void encode(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException {
+      Map<String, Field> map = field.getValueAsMap();
+      out.writeMapStart();
+      out.setItemCount(map.size());
+      for (Map.Entry<String, Field> entry : map.entrySet()) {
+        out.startItem();
+        out.writeString(entry.getKey());
+        if (entry.getValue() == null || entry.getValue().getValue() == null) {
+          value.writeNull(out);
+        } else {
+          value.write(record, entry.getValue(), defaults, out);
+        }
+      }
+      out.writeMapEnd();
+    }
+  }
+
+  private static class RecordNode extends ValueNode {
+    private String[] names;
+    /** Keys of the fields in the default value map. */
+    private String[] keys;
+    private Node[] fields;
+    private GenericDatumWriter<Object>[] defaultWriters;
+    /** True for fields of null or union type, which can be written as null when they have no default. */
+    private boolean[] nullable;
+
+    RecordNode(Schema schema) {
+      super(schema);
+    }
+
+    @SuppressWarnings("unchecked")
+    void compileFields(Compiler compiler) {
+      List<Schema.Field> schemaFields = schema.getFields();
+      int count = schemaFields.size();
+      names = new String[count];
+      keys = new String[count];
+      fields = new Node[count];
+      defaultWriters = new GenericDatumWriter[count];
+      nullable = new boolean[count];
+      for (int i = 0; i < count; i++) {
+        Schema.Field schemaField = schemaFields.get(i);
+        Schema fieldSchema = schemaField.schema();
+        names[i] = schemaField.name();
+        keys[i] = schema.getFullName() + AvroTypeUtil.SCHEMA_PATH_SEPARATOR + schemaField.name();
+        fields[i] = compiler.compile(fieldSchema, schemaField.getJsonProps());
+        defaultWriters[i] = new GenericDatumWriter<>(fieldSchema);
+        nullable[i] = fieldSchema.getType() == Schema.Type.UNION || fieldSchema.getType() == Schema.Type.NULL;
+      }
+    }
+
+    @Override
+    void encode(Record record, Field field, Map<String, Object> defaults, Encoder out)
+        throws IOException, StageException {
+      Map<String, Field> valueAsMap = field.getValueAsMap();
+      for (int i = 0; i < fields.length; i++) {
+        // If the record does not contain the field, or it is null, write the default value from the schema.
+        if (!valueAsMap.containsKey(names[i])) {
+          if (!defaults.containsKey(keys[i])) {
+            throw new DataGeneratorException(Errors.AVRO_GENERATOR_00, record.getHeader().getSourceId(), keys[i]);
+          }
+          defaultWriters[i].write(defaults.get(keys[i]), out);
+        } else {
+          Field value = valueAsMap.get(names[i]);
+          if (value != null && value.getValue() != null) {
+            fields[i].write(record, value, defaults, out);
+          } else if (defaults.containsKey(keys[i])) {
+            defaultWriters[i].write(defaults.get(keys[i]), out);
+          } else if (nullable[i]) {
+            fields[i].writeNull(out);
+          } else {
+            throw new DataGeneratorException(Errors.AVRO_GENERATOR_01, record.getHeader().getSourceId(), keys[i]);
+          }
+        }
+      }
+    }
+  }
+}
@@ -125,7 +125,7 @@ public class AvroTypeUtil {
    *
    * This function has been copied from Apache Hive project.
    */
-  private static int millisToDays(long millisLocal) {
+  static int millisToDays(long millisLocal) {
     // We assume millisLocal is midnight of some date. What we are basically trying to do
     // here is go from local-midnight to UTC-midnight (or whatever time that happens to be).
     long millisUtc = millisLocal + localTimeZone.getOffset(millisLocal);
@@ -161,21 +161,7 @@ public class AvroTypeUtil {
       // Special case for unions of [null, actual type]
       if(unionTypes.size() == 2 && unionTypes.get(0).getType() == Schema.Type.NULL) {
         if(value == null) {
-          Field returnField = Field.create(getFieldType(unionTypes.get(1)), null);
-
-          // We need to set field attributes propagating some schema information
-          String logicalType = unionTypes.get(1).getProp(LOGICAL_TYPE);
-          if (logicalType != null && !logicalType.isEmpty()) {
-            switch (logicalType) {
-              case LOGICAL_TYPE_DECIMAL:
-                int scale = getJsonPropSafely(unionTypes.get(1), LOGICAL_TYPE_ATTR_SCALE).getIntValue();
-                int precision = getJsonPropSafely(unionTypes.get(1), LOGICAL_TYPE_ATTR_PRECISION).getIntValue();
-                returnField.setAttribute(HeaderAttributeConstants.ATTR_SCALE, String.valueOf(scale));
-                returnField.setAttribute(HeaderAttributeConstants.ATTR_PRECISION, String.valueOf(precision));
-            }
-          }
-
-          return returnField;
+          return createTypedNullField(unionTypes.get(1));
         } else {
           typeIndex = 1;
           schema = unionTypes.get(1);
@@ -336,6 +322,27 @@ public class AvroTypeUtil {
     return f;
   }
 
+  /**
+   * Creates the null field for the type of a [null, type] union, carrying the decimal scale and precision.
+   */
+  static Field createTypedNullField(Schema schema) {
+    Field returnField = Field.create(getFieldType(schema), null);
+
+    // We need to set field attributes propagating some schema information
+    String logicalType = schema.getProp(LOGICAL_TYPE);
+    if (logicalType != null && !logicalType.isEmpty()) {
+      switch (logicalType) {
+        case LOGICAL_TYPE_DECIMAL:
+          int scale = getJsonPropSafely(schema, LOGICAL_TYPE_ATTR_SCALE).getIntValue();
+          int precision = getJsonPropSafely(schema, LOGICAL_TYPE_ATTR_PRECISION).getIntValue();
+          returnField.setAttribute(HeaderAttributeConstants.ATTR_SCALE, String.valueOf(scale));
+          returnField.setAttribute(HeaderAttributeConstants.ATTR_PRECISION, String.valueOf(precision));
+      }
+    }
+
+    return returnField;
+  }
+
   public static Object sdcRecordToAvro(
       Record record,
       Schema schema,
@@ -369,31 +376,7 @@ public class AvroTypeUtil {
         // column is not null, expect the union's second type.
         schema = unionTypes.get(1);
       } else {
-        //Record does not have the avro union type index which means this record was not created from avro data.
-        //try our best to resolve the union type.
-        Object object = JsonUtil.fieldToJsonObject(record, field);
-
-        // Avro GenericData expects certain encoding for some types
-        if(field.getType() == Field.Type.DECIMAL || field.getType() ==  Field.Type.BYTE_ARRAY) {
-          object = ByteBuffer.wrap(new byte[]{});
-        }
-        if(field.getType() == Field.Type.DATE) {
-          object = 0;
-        }
-
-        try {
-          int typeIndex = GenericData.get().resolveUnion(schema, object);
-          schema = schema.getTypes().get(typeIndex);
-        } catch (AvroRuntimeException e) {
-          //Avro could not resolve schema. Make a best effort resolve
-          Schema match = bestEffortResolve(schema, field, object);
-          if(match == null) {
-            String objectType = object == null ? "null" : object.getClass().getName();
-            throw new StageException(CommonError.CMN_0106, field.getType().name(), objectType, schema.toString(), e.toString(), e);
-          } else {
-            schema = match;
-          }
-        }
+        schema = unionTypes.get(resolveUnionIndex(record, field, schema));
       }
     }
 
@@ -589,8 +572,37 @@ public class AvroTypeUtil {
     return obj;
   }
 
+  /**
+   * Resolves the branch of a union schema for a non-null field.
+   */
+  static int resolveUnionIndex(Record record, Field field, Schema schema) throws StageException {
+    //Record does not have the avro union type index which means this record was not created from avro data.
+    //try our best to resolve the union type.
+    Object object = JsonUtil.fieldToJsonObject(record, field);
+
+    // Avro GenericData expects certain encoding for some types
+    if(field.getType() == Field.Type.DECIMAL || field.getType() ==  Field.Type.BYTE_ARRAY) {
+      object = ByteBuffer.wrap(new byte[]{});
+    }
+    if(field.getType() == Field.Type.DATE) {
+      object = 0;
+    }
+
+    try {
+      return GenericData.get().resolveUnion(schema, object);
+    } catch (AvroRuntimeException e) {
+      //Avro could not resolve schema. Make a best effort resolve
+      Schema match = bestEffortResolve(schema, field, object);
+      if(match == null) {
+        String objectType = object == null ? "null" : object.getClass().getName();
+        throw new StageException(CommonError.CMN_0106, field.getType().name(), objectType, schema.toString(), e.toString(), e);
+      }
+      return schema.getTypes().indexOf(match);
+    }
+  }
+
   @NotNull
-  private static JsonNode getJsonPropSafely(Schema schema, String property) {
+  static JsonNode getJsonPropSafely(Schema schema, String property) {
     JsonNode node = schema.getJsonProp(property);
     if (node == null) {
       throw new IllegalStateException("Missing required property '" + property + "'");
@@ -598,7 +610,7 @@ public class AvroTypeUtil {
     return node;
   }
 
-  private static Field.Type getFieldType(Schema schema) {
+  static Field.Type getFieldType(Schema schema) {
     String logicalType = schema.getProp(LOGICAL_TYPE);
     if(logicalType != null && !logicalType.isEmpty()) {
       switch (logicalType) {
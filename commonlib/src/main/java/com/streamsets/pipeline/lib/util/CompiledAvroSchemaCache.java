@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache of objects compiled from an Avro schema.
+ *
+ * Lookups first go by schema instance, which is what parsers and generators created for the same
+ * schema share. A schema instance seen for the first time is fingerprinted so that equal schemas
+ * parsed separately (for example once per record header) reuse the same compiled object.
+ */
+final class CompiledAvroSchemaCache<T> {
+
+  private static final int MAX_SCHEMAS = 1000;
+
+  interface Compiler<T> {
+    T compile(Schema schema) throws IOException;
+  }
+
+  private final Cache<Schema, T> bySchema = CacheBuilder.newBuilder().weakKeys().build();
+  private final Cache<Long, T> byFingerprint = CacheBuilder.newBuilder().maximumSize(MAX_SCHEMAS).build();
+  private final Compiler<T> compiler;
+
+  CompiledAvroSchemaCache(Compiler<T> compiler) {
+    this.compiler = compiler;
+  }
+
+  T get(Schema schema) throws IOException {
+    T compiled = bySchema.getIfPresent(schema);
+    if (compiled == null) {
+      // The full schema text is fingerprinted rather than the parsing canonical form, since the canonical form
+      // drops logical types and default values which change how data is converted.
+      long fingerprint = SchemaNormalization.fingerprint64(schema.toString().getBytes(StandardCharsets.UTF_8));
+      try {
+        compiled = byFingerprint.get(fingerprint, () -> compiler.compile(schema));
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), IOException.class);
+        throw new IOException(e.getCause());
+      }
+      bySchema.put(schema, compiled);
+    }
+    return compiled;
+  }
+}
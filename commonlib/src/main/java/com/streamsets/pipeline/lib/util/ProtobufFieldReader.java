@@ -0,0 +1,602 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UninitializedMessageException;
+import com.google.protobuf.UnknownFieldSet;
+import com.google.protobuf.WireFormat;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.lib.parser.DataParserException;
+import com.streamsets.pipeline.lib.parser.protobuf.Errors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads protobuf messages straight into SDC fields.
+ *
+ * The message descriptor and the extensions of every message type are compiled once into a tree of readers
+ * that decode the wire format from a {@link CodedInputStream}, skipping the intermediate
+ * {@link com.google.protobuf.DynamicMessage} and its reflective field walk. The resulting fields and unknown
+ * field headers are the same as the ones produced by {@link ProtobufTypeUtil#protobufToSdcField}.
+ *
+ * Instances are immutable and can be shared by all the parsers created by a factory.
+ */
+public final class ProtobufFieldReader {
+
+  private static final String FORWARD_SLASH = "/";
+  private static final String KEY = "key";
+  private static final String VALUE = "value";
+  // same limits as CodedInputStream
+  private static final int RECURSION_LIMIT = 100;
+  private static final int MAX_INDEXED_FIELD_NUMBER = 256;
+
+  private final MessageReader root;
+
+  public ProtobufFieldReader(
+      Descriptors.Descriptor descriptor,
+      Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap
+  ) throws DataParserException {
+    Map<Descriptors.Descriptor, MessageReader> readers = new HashMap<>();
+    root = compile(descriptor, messageTypeToExtensionMap, readers);
+
+    // a message has to be checked for missing required fields if it or any message nested in it has required fields
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (MessageReader reader : readers.values()) {
+        if (!reader.checkRequired && reader.hasNestedRequired()) {
+          reader.checkRequired = true;
+          changed = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a message until the end of the input (or the current limit of the input) and converts it to a field.
+   *
+   * @param record record the field is created for, unknown fields are stored in its header
+   * @param in     protobuf input
+   * @return list-map field with the message fields
+   * @throws com.google.protobuf.UninitializedMessageException if the message is missing required fields
+   */
+  public Field read(Record record, CodedInputStream in) throws IOException, DataParserException {
+    Message message = new Message(root);
+    merge(message, in, 0);
+    in.checkLastTagWas(0);
+    if (root.checkRequired) {
+      List<String> missingFields = new ArrayList<>();
+      findMissingFields(message, "", missingFields);
+      if (!missingFields.isEmpty()) {
+        throw new UninitializedMessageException(missingFields);
+      }
+    }
+    // field paths are only needed to name the headers holding unknown fields
+    return toField(record, message.hasUnknownFields ? "" : null, message);
+  }
+
+  private static MessageReader compile(
+      Descriptors.Descriptor descriptor,
+      Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap,
+      Map<Descriptors.Descriptor, MessageReader> readers
+  ) throws DataParserException {
+    MessageReader reader = readers.get(descriptor);
+    if (reader != null) {
+      return reader;
+    }
+    reader = new MessageReader(descriptor);
+    // registered before the fields are compiled so that recursive message types resolve to this reader
+    readers.put(descriptor, reader);
+
+    List<Descriptors.FieldDescriptor> fieldDescriptors = new ArrayList<>(descriptor.getFields());
+    int declaredCount = fieldDescriptors.size();
+    Set<Descriptors.FieldDescriptor> extensions = messageTypeToExtensionMap.get(descriptor.getFullName());
+    if (extensions != null) {
+      fieldDescriptors.addAll(extensions);
+    }
+
+    FieldReader[] fields = new FieldReader[fieldDescriptors.size()];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = new FieldReader(fieldDescriptors.get(i), i);
+    }
+    for (FieldReader field : fields) {
+      field.linkOneof(fields);
+      if (field.javaType == Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+        field.message = compile(field.descriptor.getMessageType(), messageTypeToExtensionMap, readers);
+        if (field.map) {
+          field.mapKey = field.message.findByName(KEY);
+          field.mapValue = field.message.findByName(VALUE);
+          if (field.mapKey == null || field.mapValue == null) {
+            throw new DataParserException(Errors.PROTOBUF_09, field.descriptor.getMessageType().getFullName());
+          }
+        }
+      }
+    }
+    reader.init(fields, declaredCount);
+    return reader;
+  }
+
+  private static void merge(Message message, CodedInputStream in, int depth) throws IOException {
+    MessageReader reader = message.reader;
+    while (true) {
+      int tag = in.readTag();
+      int wireType = WireFormat.getTagWireType(tag);
+      if (tag == 0 || wireType == WireFormat.WIRETYPE_END_GROUP) {
+        return;
+      }
+      FieldReader field = reader.find(WireFormat.getTagFieldNumber(tag));
+      if (field != null && wireType == field.wireType) {
+        readField(message, field, in, depth);
+      } else if (field != null && field.packable && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+        readPacked(message, field, in);
+      } else if (reader.proto3) {
+        // proto3 messages discard unknown fields
+        in.skipField(tag);
+      } else {
+        message.unknownFields().mergeFieldFrom(tag, in);
+      }
+    }
+  }
+
+  private static void readField(Message message, FieldReader field, CodedInputStream in, int depth) throws IOException {
+    switch (field.type) {
+      case MESSAGE:
+      case GROUP:
+        Message nested = nestedMessage(message, field);
+        if (field.type == Descriptors.FieldDescriptor.Type.MESSAGE) {
+          int length = in.readRawVarint32();
+          checkDepth(depth);
+          int oldLimit = in.pushLimit(length);
+          merge(nested, in, depth + 1);
+          in.checkLastTagWas(0);
+          in.popLimit(oldLimit);
+        } else {
+          checkDepth(depth);
+          merge(nested, in, depth + 1);
+          in.checkLastTagWas(field.endGroupTag);
+        }
+        if (nested.hasUnknownFields) {
+          message.hasUnknownFields = true;
+        }
+        break;
+      case ENUM:
+        int number = in.readEnum();
+        Descriptors.EnumValueDescriptor value = field.enumType.findValueByNumber(number);
+        if (value != null) {
+          message.set(field, value);
+        } else if (!message.reader.proto3) {
+          message.unknownFields().mergeVarintField(field.number, number);
+        }
+        break;
+      default:
+        message.set(field, readScalar(field, in));
+    }
+  }
+
+  private static void readPacked(Message message, FieldReader field, CodedInputStream in) throws IOException {
+    int length = in.readRawVarint32();
+    int oldLimit = in.pushLimit(length);
+    while (in.getBytesUntilLimit() > 0) {
+      if (field.type == Descriptors.FieldDescriptor.Type.ENUM) {
+        Descriptors.EnumValueDescriptor value = field.enumType.findValueByNumber(in.readEnum());
+        // unrecognized values in packed enums are dropped
+        if (value != null) {
+          message.set(field, value);
+        }
+      } else {
+        message.set(field, readScalar(field, in));
+      }
+    }
+    in.popLimit(oldLimit);
+  }
+
+  private static Message nestedMessage(Message message, FieldReader field) {
+    Message nested;
+    if (field.repeated) {
+      nested = new Message(field.message);
+      message.set(field, nested);
+    } else {
+      Object current = message.values[field.slot];
+      // a singular message that is repeated in the input is merged into the previous one
+      nested = current != null ? (Message) current : new Message(field.message);
+      message.set(field, nested);
+    }
+    return nested;
+  }
+
+  private static void checkDepth(int depth) throws InvalidProtocolBufferException {
+    if (depth >= RECURSION_LIMIT) {
+      throw new InvalidProtocolBufferException(
+          "Protocol message had too many levels of nesting.  May be malicious.  " +
+          "Use CodedInputStream.setRecursionLimit() to increase the depth limit."
+      );
+    }
+  }
+
+  private static Object readScalar(FieldReader field, CodedInputStream in) throws IOException {
+    switch (field.type) {
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case INT64:
+        return in.readInt64();
+      case UINT64:
+        return in.readUInt64();
+      case INT32:
+        return in.readInt32();
+      case FIXED64:
+        return in.readFixed64();
+      case FIXED32:
+        return in.readFixed32();
+      case BOOL:
+        return in.readBool();
+      case STRING:
+        return field.checkUtf8 ? in.readStringRequireUtf8() : in.readString();
+      case BYTES:
+        return in.readByteArray();
+      case UINT32:
+        return in.readUInt32();
+      case SFIXED32:
+        return in.readSFixed32();
+      case SFIXED64:
+        return in.readSFixed64();
+      case SINT32:
+        return in.readSInt32();
+      case SINT64:
+        return in.readSInt64();
+      default:
+        throw new IllegalStateException("Unexpected protobuf type " + field.type);
+    }
+  }
+
+  private static void findMissingFields(Message message, String prefix, List<String> missingFields) {
+    MessageReader reader = message.reader;
+    for (FieldReader field : reader.required) {
+      if (message.values[field.slot] == null) {
+        missingFields.add(prefix + field.name);
+      }
+    }
+    for (FieldReader field : reader.numberOrder) {
+      Object value = message.values[field.slot];
+      if (value == null || field.message == null || !field.message.checkRequired) {
+        continue;
+      }
+      if (field.repeated) {
+        List<?> list = (List<?>) value;
+        for (int i = 0; i < list.size(); i++) {
+          findMissingFields((Message) list.get(i), field.nestedPrefix(prefix, i), missingFields);
+        }
+      } else {
+        findMissingFields((Message) value, field.nestedPrefix(prefix, -1), missingFields);
+      }
+    }
+  }
+
+  private static Field toField(Record record, String fieldPath, Message message) throws DataParserException {
+    MessageReader reader = message.reader;
+    LinkedHashMap<String, Field> fields = new LinkedHashMap<>(reader.mapCapacity);
+    for (int i = 0; i < reader.fields.length; i++) {
+      FieldReader field = reader.fields[i];
+      Object value = message.values[i];
+      if (value != null) {
+        fields.put(field.name, createField(record, fieldPath, field, value));
+      } else if (i < reader.declaredCount) {
+        // extensions are only added when present
+        fields.put(field.name, field.createAbsentField());
+      }
+    }
+
+    // unknown fields go into the record header
+    if (message.unknownFields != null) {
+      UnknownFieldSet unknownFields = message.unknownFields.build();
+      if (!unknownFields.asMap().isEmpty()) {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        try {
+          unknownFields.writeDelimitedTo(bOut);
+        } catch (IOException e) {
+          throw new DataParserException(Errors.PROTOBUF_10, e.toString(), e);
+        }
+        String path = fieldPath.isEmpty() ? FORWARD_SLASH : fieldPath;
+        byte[] bytes = org.apache.commons.codec.binary.Base64.encodeBase64(bOut.toByteArray());
+        record.getHeader().setAttribute(
+            ProtobufTypeUtil.PROTOBUF_UNKNOWN_FIELDS_PREFIX + path,
+            new String(bytes, StandardCharsets.UTF_8)
+        );
+      }
+    }
+    return Field.createListMap(fields);
+  }
+
+  private static Field createField(
+      Record record,
+      String fieldPath,
+      FieldReader field,
+      Object value
+  ) throws DataParserException {
+    if (field.map) {
+      Map<String, Field> entries = new HashMap<>();
+      for (Object o : (List<?>) value) {
+        Message entry = (Message) o;
+        Object entryKey = entry.values[field.mapKey.slot];
+        Object entryValue = entry.values[field.mapValue.slot];
+        if (entryKey != null && entryValue != null) {
+          entries.put(entryKey.toString(), createSdcField(record, fieldPath, field.mapValue, entryValue));
+        }
+      }
+      return Field.create(entries);
+    } else if (field.repeated) {
+      List<?> list = (List<?>) value;
+      List<Field> listField = new ArrayList<>(list.size());
+      for (int i = 0; i < list.size(); i++) {
+        if (field.message != null) {
+          String path = fieldPath == null ? null : fieldPath + "[" + i + "]";
+          listField.add(toField(record, path, (Message) list.get(i)));
+        } else {
+          listField.add(createSdcField(record, null, field, list.get(i)));
+        }
+      }
+      return Field.create(listField);
+    }
+    return createSdcField(record, fieldPath, field, value);
+  }
+
+  private static Field createSdcField(
+      Record record,
+      String fieldPath,
+      FieldReader field,
+      Object value
+  ) throws DataParserException {
+    switch (field.javaType) {
+      case ENUM:
+        return Field.create(Field.Type.STRING, ((Descriptors.EnumValueDescriptor) value).getName());
+      case MESSAGE:
+        String path = fieldPath == null ? null : fieldPath + FORWARD_SLASH + field.name;
+        return toField(record, path, (Message) value);
+      default:
+        return Field.create(field.fieldType, value);
+    }
+  }
+
+  /**
+   * Parsed values of a message, indexed by field slot.
+   */
+  private static final class Message {
+    private final MessageReader reader;
+    private final Object[] values;
+    private UnknownFieldSet.Builder unknownFields;
+    // whether this message or any message nested in it has unknown fields
+    private boolean hasUnknownFields;
+
+    private Message(MessageReader reader) {
+      this.reader = reader;
+      this.values = new Object[reader.fields.length];
+    }
+
+    private UnknownFieldSet.Builder unknownFields() {
+      if (unknownFields == null) {
+        unknownFields = UnknownFieldSet.newBuilder();
+      }
+      hasUnknownFields = true;
+      return unknownFields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(FieldReader field, Object value) {
+      if (field.repeated) {
+        List<Object> list = (List<Object>) values[field.slot];
+        if (list == null) {
+          list = new ArrayList<>();
+          values[field.slot] = list;
+        }
+        list.add(value);
+        return;
+      }
+      for (int sibling : field.oneofSiblings) {
+        values[sibling] = null;
+      }
+      // in proto3 a singular field set to its default value is the same as a field that is not set
+      values[field.slot] = field.clearOnDefault && field.isDefault(value) ? null : value;
+    }
+  }
+
+  private static final class MessageReader {
+    private final boolean proto3;
+    private FieldReader[] fields;
+    private int declaredCount;
+    private int mapCapacity;
+    private FieldReader[] fieldsByNumber;
+    private Map<Integer, FieldReader> fieldsByNumberMap;
+    private FieldReader[] numberOrder;
+    private FieldReader[] required;
+    private boolean checkRequired;
+
+    private MessageReader(Descriptors.Descriptor descriptor) {
+      this.proto3 = descriptor.getFile().getSyntax() == Descriptors.FileDescriptor.Syntax.PROTO3;
+    }
+
+    private void init(FieldReader[] fields, int declaredCount) {
+      this.fields = fields;
+      this.declaredCount = declaredCount;
+      this.mapCapacity = fields.length * 4 / 3 + 1;
+
+      int maxNumber = 0;
+      List<FieldReader> requiredFields = new ArrayList<>();
+      for (FieldReader field : fields) {
+        maxNumber = Math.max(maxNumber, field.number);
+        if (field.required) {
+          requiredFields.add(field);
+        }
+      }
+      if (maxNumber <= MAX_INDEXED_FIELD_NUMBER) {
+        fieldsByNumber = new FieldReader[maxNumber + 1];
+        for (FieldReader field : fields) {
+          fieldsByNumber[field.number] = field;
+        }
+      } else {
+        fieldsByNumberMap = new HashMap<>();
+        for (FieldReader field : fields) {
+          fieldsByNumberMap.put(field.number, field);
+        }
+      }
+      numberOrder = Arrays.copyOf(fields, fields.length);
+      Arrays.sort(numberOrder, Comparator.comparingInt(field -> field.number));
+      required = requiredFields.toArray(new FieldReader[0]);
+      checkRequired = required.length > 0;
+    }
+
+    private FieldReader find(int number) {
+      if (fieldsByNumber != null) {
+        return number < fieldsByNumber.length ? fieldsByNumber[number] : null;
+      }
+      return fieldsByNumberMap.get(number);
+    }
+
+    private FieldReader findByName(String name) {
+      for (FieldReader field : fields) {
+        if (field.name.equals(name)) {
+          return field;
+        }
+      }
+      return null;
+    }
+
+    private boolean hasNestedRequired() {
+      for (FieldReader field : fields) {
+        if (field.message != null && field.message.checkRequired) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class FieldReader {
+    private final Descriptors.FieldDescriptor descriptor;
+    private final String name;
+    private final int slot;
+    private final int number;
+    private final Descriptors.FieldDescriptor.Type type;
+    private final Descriptors.FieldDescriptor.JavaType javaType;
+    private final Field.Type fieldType;
+    private final int wireType;
+    private final int endGroupTag;
+    private final boolean packable;
+    private final boolean repeated;
+    private final boolean map;
+    private final boolean required;
+    private final boolean checkUtf8;
+    private final boolean clearOnDefault;
+    private final Object defaultValue;
+    private final Object absentValue;
+    private final Descriptors.EnumDescriptor enumType;
+    private int[] oneofSiblings = new int[0];
+    private MessageReader message;
+    private FieldReader mapKey;
+    private FieldReader mapValue;
+
+    private FieldReader(Descriptors.FieldDescriptor descriptor, int slot) throws DataParserException {
+      this.descriptor = descriptor;
+      this.name = descriptor.getName();
+      this.slot = slot;
+      this.number = descriptor.getNumber();
+      this.type = descriptor.getType();
+      this.javaType = descriptor.getJavaType();
+      this.fieldType = ProtobufTypeUtil.getFieldType(javaType);
+      this.wireType = descriptor.getLiteType().getWireType();
+      this.endGroupTag = (number << 3) | WireFormat.WIRETYPE_END_GROUP;
+      this.packable = descriptor.isPackable();
+      this.repeated = descriptor.isRepeated();
+      this.map = descriptor.isMapField();
+      this.required = descriptor.isRequired();
+      this.enumType = javaType == Descriptors.FieldDescriptor.JavaType.ENUM ? descriptor.getEnumType() : null;
+
+      boolean proto3 = descriptor.getFile().getSyntax() == Descriptors.FileDescriptor.Syntax.PROTO3;
+      this.checkUtf8 = type == Descriptors.FieldDescriptor.Type.STRING
+          && (proto3
+              || descriptor.getContainingType().getOptions().getMapEntry()
+              || descriptor.getFile().getOptions().getJavaStringCheckUtf8());
+      this.clearOnDefault = proto3
+          && !repeated
+          && javaType != Descriptors.FieldDescriptor.JavaType.MESSAGE
+          && descriptor.getContainingOneof() == null;
+      // proto3 byte fields always default to empty, see isDefault
+      this.defaultValue = clearOnDefault && javaType != Descriptors.FieldDescriptor.JavaType.BYTE_STRING
+          ? descriptor.getDefaultValue()
+          : null;
+
+      // default values are only used for optional fields that are not messages
+      Object absent = null;
+      if (descriptor.isOptional() && javaType != Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+        absent = descriptor.getDefaultValue();
+        if (absent instanceof ByteString) {
+          absent = ((ByteString) absent).toByteArray();
+        }
+      }
+      this.absentValue = absent;
+    }
+
+    private void linkOneof(FieldReader[] fields) {
+      Descriptors.OneofDescriptor oneof = descriptor.getContainingOneof();
+      if (oneof != null) {
+        oneofSiblings = Arrays.stream(fields)
+            .filter(field -> field != this && field.descriptor.getContainingOneof() == oneof)
+            .mapToInt(field -> field.slot)
+            .toArray();
+      }
+    }
+
+    private boolean isDefault(Object value) {
+      if (value instanceof byte[]) {
+        return ((byte[]) value).length == 0;
+      }
+      return value.equals(defaultValue);
+    }
+
+    private Field createAbsentField() {
+      Object value = absentValue instanceof byte[] ? ((byte[]) absentValue).clone() : absentValue;
+      return Field.create(fieldType, value);
+    }
+
+    private String nestedPrefix(String prefix, int index) {
+      StringBuilder result = new StringBuilder(prefix);
+      if (descriptor.isExtension()) {
+        result.append('(').append(descriptor.getFullName()).append(')');
+      } else {
+        result.append(name);
+      }
+      if (index != -1) {
+        result.append('[').append(index).append(']');
+      }
+      return result.append('.').toString();
+    }
+  }
+}
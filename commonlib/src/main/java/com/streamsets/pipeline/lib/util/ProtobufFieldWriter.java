@@ -0,0 +1,697 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.UninitializedMessageException;
+import com.google.protobuf.UnknownFieldSet;
+import com.google.protobuf.WireFormat;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.lib.generator.DataGeneratorException;
+import com.streamsets.pipeline.lib.parser.protobuf.Errors;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes SDC records as protobuf messages.
+ *
+ * The counterpart of {@link ProtobufFieldReader}: the message descriptor, its extensions and the default values
+ * are compiled once into a tree of writers that encode the record fields into a {@link Buffer} without building a
+ * {@link com.google.protobuf.DynamicMessage} first. The encoded bytes and the errors raised for invalid records are
+ * the same as with {@link ProtobufTypeUtil#sdcFieldToProtobufMsg}.
+ *
+ * Instances are immutable and can be shared by all the generators created by a factory.
+ */
+public final class ProtobufFieldWriter {
+
+  private static final String FORWARD_SLASH = "/";
+  private static final String KEY = "key";
+  private static final String VALUE = "value";
+
+  private final MessageWriter root;
+
+  public ProtobufFieldWriter(
+      Descriptors.Descriptor descriptor,
+      Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap,
+      Map<String, Object> defaultValueMap
+  ) {
+    root = compile(descriptor, messageTypeToExtensionMap, defaultValueMap, new HashMap<>());
+  }
+
+  /**
+   * Encodes a record into the buffer, replacing its previous contents.
+   *
+   * @param record    record to encode
+   * @param buffer    buffer to encode the message into
+   * @param delimited whether to prefix the message with its size
+   * @throws DataGeneratorException if the record can not be converted to the message type
+   */
+  public void write(Record record, Buffer buffer, boolean delimited) throws DataGeneratorException {
+    // field paths are only needed to look up the headers holding unknown fields
+    String fieldPath = hasUnknownFields(record) ? "" : null;
+    Message message = prepare(record, record.get(), fieldPath, root);
+    if (message == null) {
+      throw new NullPointerException("Record " + record.getHeader().getSourceId() + " has no root field");
+    }
+    buffer.reset();
+    if (delimited) {
+      int mark = buffer.beginLength();
+      writeMessage(buffer, message);
+      buffer.endLength(mark);
+    } else {
+      writeMessage(buffer, message);
+    }
+  }
+
+  private static boolean hasUnknownFields(Record record) {
+    for (String name : record.getHeader().getAttributeNames()) {
+      if (name.startsWith(ProtobufTypeUtil.PROTOBUF_UNKNOWN_FIELDS_PREFIX)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static MessageWriter compile(
+      Descriptors.Descriptor descriptor,
+      Map<String, Set<Descriptors.FieldDescriptor>> messageTypeToExtensionMap,
+      Map<String, Object> defaultValueMap,
+      Map<Descriptors.Descriptor, MessageWriter> writers
+  ) {
+    MessageWriter writer = writers.get(descriptor);
+    if (writer != null) {
+      return writer;
+    }
+    writer = new MessageWriter(descriptor);
+    // registered before the fields are compiled so that recursive message types resolve to this writer
+    writers.put(descriptor, writer);
+
+    List<Descriptors.FieldDescriptor> fieldDescriptors = new ArrayList<>(descriptor.getFields());
+    Set<Descriptors.FieldDescriptor> extensions = messageTypeToExtensionMap.get(descriptor.getFullName());
+    if (extensions != null) {
+      fieldDescriptors.addAll(extensions);
+    }
+
+    FieldWriter[] fields = new FieldWriter[fieldDescriptors.size()];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = new FieldWriter(descriptor, fieldDescriptors.get(i), i, defaultValueMap);
+    }
+    for (FieldWriter field : fields) {
+      field.linkOneof(fields);
+      if (field.javaType == Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+        field.message = compile(
+            field.descriptor.getMessageType(),
+            messageTypeToExtensionMap,
+            defaultValueMap,
+            writers
+        );
+        if (field.map) {
+          field.mapKey = field.message.findByName(KEY);
+          field.mapValue = field.message.findByName(VALUE);
+        }
+      }
+    }
+    writer.init(fields);
+    return writer;
+  }
+
+  private static Message prepare(
+      Record record,
+      Field field,
+      String fieldPath,
+      MessageWriter writer
+  ) throws DataGeneratorException {
+    if (field == null) {
+      return null;
+    }
+    Message message = new Message(writer);
+
+    // root field is always a Map in a record representing protobuf data
+    Map<String, Field> valueAsMap = field.getValueAsMap();
+
+    for (FieldWriter f : writer.fields) {
+      if (f.map) {
+        prepareMapField(record, valueAsMap.get(f.name), fieldPath, f, message);
+      } else if (f.repeated) {
+        Field listField = valueAsMap.get(f.name);
+        if (listField != null) {
+          prepareRepeatedField(record, listField, fieldPath, f, message);
+        }
+      } else {
+        prepareNonRepeatedField(record, valueAsMap, fieldPath, f, message);
+      }
+    }
+
+    // if record has unknown fields for this field path, handle it
+    if (fieldPath != null) {
+      try {
+        message.unknownFields = getUnknownFields(record, fieldPath);
+      } catch (IOException e) {
+        throw new DataGeneratorException(Errors.PROTOBUF_05, e.toString(), e);
+      }
+      if (writer.proto3) {
+        // proto3 messages discard unknown fields
+        message.unknownFields = null;
+      }
+    }
+
+    List<String> missingFields = null;
+    for (FieldWriter f : writer.required) {
+      if (message.values[f.slot] == null) {
+        if (missingFields == null) {
+          missingFields = new ArrayList<>();
+        }
+        missingFields.add(f.name);
+      }
+    }
+    if (missingFields != null) {
+      throw new UninitializedMessageException(missingFields);
+    }
+    return message;
+  }
+
+  private static byte[] getUnknownFields(Record record, String fieldPath) throws IOException {
+    String path = fieldPath.isEmpty() ? FORWARD_SLASH : fieldPath;
+    String attribute = record.getHeader().getAttribute(ProtobufTypeUtil.PROTOBUF_UNKNOWN_FIELDS_PREFIX + path);
+    if (attribute == null) {
+      return null;
+    }
+    UnknownFieldSet.Builder unknownFieldBuilder = UnknownFieldSet.newBuilder();
+    unknownFieldBuilder.mergeDelimitedFrom(
+        new ByteArrayInputStream(
+            org.apache.commons.codec.binary.Base64.decodeBase64(attribute.getBytes(StandardCharsets.UTF_8))
+        )
+    );
+    return unknownFieldBuilder.build().toByteArray();
+  }
+
+  private static void prepareNonRepeatedField(
+      Record record,
+      Map<String, Field> valueAsMap,
+      String fieldPath,
+      FieldWriter f,
+      Message message
+  ) throws DataGeneratorException {
+    Object val;
+    if (valueAsMap.containsKey(f.name)) {
+      val = getValue(
+          f,
+          valueAsMap.get(f.name),
+          record,
+          fieldPath == null ? null : fieldPath + FORWARD_SLASH + f.name
+      );
+    } else {
+      // record does not contain field, use the default value
+      if (!f.hasDefaultValue && !f.optional) {
+        throw new DataGeneratorException(Errors.PROTOBUF_04, record.getHeader().getSourceId(), f.defaultValueKey);
+      }
+      val = f.defaultValue;
+    }
+    if (val != null) {
+      message.set(f, val);
+    }
+  }
+
+  private static void prepareMapField(
+      Record record,
+      Field field,
+      String fieldPath,
+      FieldWriter f,
+      Message message
+  ) throws DataGeneratorException {
+    Map<String, Field> sdcMapField = field.getValueAsMap();
+    List<Object> entries = new ArrayList<>(sdcMapField.size());
+    for (Map.Entry<String, Field> entry : sdcMapField.entrySet()) {
+      // MapEntry contains key and value fields
+      Message mapEntry = new Message(f.message);
+      if (f.mapKey.javaType != Descriptors.FieldDescriptor.JavaType.STRING) {
+        throw new IllegalArgumentException("Wrong object type used with protocol message reflection.");
+      }
+      mapEntry.set(f.mapKey, entry.getKey());
+      Object value = getValue(
+          f.mapValue,
+          entry.getValue(),
+          record,
+          fieldPath == null ? null : fieldPath + FORWARD_SLASH + entry.getKey()
+      );
+      mapEntry.set(f.mapValue, checkNotNull(f.mapValue, value));
+      entries.add(mapEntry);
+    }
+    if (!entries.isEmpty()) {
+      message.values[f.slot] = entries;
+    }
+  }
+
+  private static void prepareRepeatedField(
+      Record record,
+      Field field,
+      String fieldPath,
+      FieldWriter f,
+      Message message
+  ) throws DataGeneratorException {
+    List<Object> values = new ArrayList<>();
+    List<Field> valueAsList = field.getValueAsList();
+    if (valueAsList != null) {
+      // According to proto 2 and 3 language guide repeated fields can have 0 elements.
+      // Also null is treated as empty in case of json mappings so it is ignored.
+      for (int i = 0; i < valueAsList.size(); i++) {
+        if (f.message != null) {
+          String path = fieldPath == null ? null : fieldPath + FORWARD_SLASH + f.name + "[" + i + "]";
+          values.add(prepare(record, valueAsList.get(i), path, f.message));
+        } else {
+          values.add(getValue(f, valueAsList.get(i), record, null));
+        }
+      }
+    }
+    for (Object value : values) {
+      checkNotNull(f, value);
+    }
+    message.values[f.slot] = values;
+  }
+
+  private static Object checkNotNull(FieldWriter f, Object value) {
+    if (value == null) {
+      if (f.javaType == Descriptors.FieldDescriptor.JavaType.ENUM) {
+        throw new IllegalArgumentException("DynamicMessage should use EnumValueDescriptor to set Enum Value.");
+      }
+      throw new NullPointerException("Null value for protobuf field " + f.descriptor.getFullName());
+    }
+    return value;
+  }
+
+  private static Object getValue(
+      FieldWriter f,
+      Field field,
+      Record record,
+      String protoFieldPath
+  ) throws DataGeneratorException {
+    Object value = null;
+    try {
+      if (field.getValue() != null) {
+        switch (f.javaType) {
+          case BOOLEAN:
+            value = field.getValueAsBoolean();
+            break;
+          case BYTE_STRING:
+            value = field.getValueAsByteArray();
+            break;
+          case DOUBLE:
+            value = field.getValueAsDouble();
+            break;
+          case ENUM:
+            value = f.enumType.findValueByName(field.getValueAsString());
+            break;
+          case FLOAT:
+            value = field.getValueAsFloat();
+            break;
+          case INT:
+            value = field.getValueAsInteger();
+            break;
+          case LONG:
+            value = field.getValueAsLong();
+            break;
+          case STRING:
+            value = field.getValueAsString();
+            break;
+          case MESSAGE:
+            value = prepare(record, field, protoFieldPath, f.message);
+            break;
+          default:
+            throw new DataGeneratorException(Errors.PROTOBUF_03, f.javaType.name());
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      throw new DataGeneratorException(Errors.PROTOBUF_11, field.getValue(), f.javaType.name(), e);
+    }
+    return value;
+  }
+
+  private static void writeMessage(Buffer out, Message message) {
+    for (FieldWriter f : message.writer.numberOrder) {
+      Object value = message.values[f.slot];
+      if (value == null) {
+        continue;
+      }
+      if (!f.repeated) {
+        writeField(out, f, value);
+      } else if (f.packed) {
+        // packed fields are written even if empty, as protobuf does for fields set to an empty list
+        out.writeVarint32(f.packedTag);
+        int mark = out.beginLength();
+        for (Object element : (List<?>) value) {
+          writeScalar(out, f.type, element);
+        }
+        out.endLength(mark);
+      } else {
+        for (Object element : (List<?>) value) {
+          writeField(out, f, element);
+        }
+      }
+    }
+    if (message.unknownFields != null) {
+      out.write(message.unknownFields, 0, message.unknownFields.length);
+    }
+  }
+
+  private static void writeField(Buffer out, FieldWriter f, Object value) {
+    out.writeVarint32(f.tag);
+    switch (f.type) {
+      case MESSAGE:
+        int mark = out.beginLength();
+        writeMessage(out, (Message) value);
+        out.endLength(mark);
+        break;
+      case GROUP:
+        writeMessage(out, (Message) value);
+        out.writeVarint32(f.endGroupTag);
+        break;
+      default:
+        writeScalar(out, f.type, value);
+    }
+  }
+
+  private static void writeScalar(Buffer out, Descriptors.FieldDescriptor.Type type, Object value) {
+    switch (type) {
+      case DOUBLE:
+        out.writeFixed64(Double.doubleToRawLongBits((Double) value));
+        break;
+      case FLOAT:
+        out.writeFixed32(Float.floatToRawIntBits((Float) value));
+        break;
+      case INT64:
+      case UINT64:
+        out.writeVarint64((Long) value);
+        break;
+      case INT32:
+        writeInt32(out, (Integer) value);
+        break;
+      case FIXED64:
+      case SFIXED64:
+        out.writeFixed64((Long) value);
+        break;
+      case FIXED32:
+      case SFIXED32:
+        out.writeFixed32((Integer) value);
+        break;
+      case BOOL:
+        out.writeVarint32((Boolean) value ? 1 : 0);
+        break;
+      case STRING:
+        byte[] string = ((String) value).getBytes(StandardCharsets.UTF_8);
+        out.writeVarint32(string.length);
+        out.write(string, 0, string.length);
+        break;
+      case BYTES:
+        byte[] bytes = (byte[]) value;
+        out.writeVarint32(bytes.length);
+        out.write(bytes, 0, bytes.length);
+        break;
+      case UINT32:
+        out.writeVarint32((Integer) value);
+        break;
+      case ENUM:
+        writeInt32(out, ((Descriptors.EnumValueDescriptor) value).getNumber());
+        break;
+      case SINT32:
+        int sint32 = (Integer) value;
+        out.writeVarint32((sint32 << 1) ^ (sint32 >> 31));
+        break;
+      case SINT64:
+        long sint64 = (Long) value;
+        out.writeVarint64((sint64 << 1) ^ (sint64 >> 63));
+        break;
+      default:
+        throw new IllegalStateException("Unexpected protobuf type " + type);
+    }
+  }
+
+  private static void writeInt32(Buffer out, int value) {
+    if (value >= 0) {
+      out.writeVarint32(value);
+    } else {
+      // negative values are sign extended to 10 bytes
+      out.writeVarint64(value);
+    }
+  }
+
+  /**
+   * Growable byte buffer the messages are encoded into.
+   *
+   * Not thread safe, each generator owns one.
+   */
+  public static final class Buffer {
+    private static final int INITIAL_SIZE = 512;
+
+    private byte[] bytes = new byte[INITIAL_SIZE];
+    private int position;
+
+    public int size() {
+      return position;
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+      outputStream.write(bytes, 0, position);
+    }
+
+    private void reset() {
+      position = 0;
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + length));
+      }
+    }
+
+    private void write(byte[] b, int offset, int length) {
+      ensureCapacity(length);
+      System.arraycopy(b, offset, bytes, position, length);
+      position += length;
+    }
+
+    private void writeVarint32(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[position++] = (byte) value;
+    }
+
+    private void writeVarint64(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[position++] = (byte) value;
+    }
+
+    private void writeFixed32(int value) {
+      ensureCapacity(4);
+      bytes[position++] = (byte) value;
+      bytes[position++] = (byte) (value >> 8);
+      bytes[position++] = (byte) (value >> 16);
+      bytes[position++] = (byte) (value >> 24);
+    }
+
+    private void writeFixed64(long value) {
+      writeFixed32((int) value);
+      writeFixed32((int) (value >> 32));
+    }
+
+    /**
+     * Reserves a single byte for the length of the data that follows, see {@link #endLength(int)}.
+     */
+    private int beginLength() {
+      ensureCapacity(1);
+      return position++;
+    }
+
+    /**
+     * Writes the length of the data written since {@link #beginLength()}, moving the data if the length
+     * does not fit in the reserved byte.
+     */
+    private void endLength(int mark) {
+      int length = position - mark - 1;
+      int size = varint32Size(length);
+      if (size > 1) {
+        ensureCapacity(size - 1);
+        System.arraycopy(bytes, mark + 1, bytes, mark + size, length);
+        position += size - 1;
+      }
+      int value = length;
+      int index = mark;
+      while ((value & ~0x7F) != 0) {
+        bytes[index++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[index] = (byte) value;
+    }
+
+    private static int varint32Size(int value) {
+      int size = 1;
+      while ((value & ~0x7F) != 0) {
+        value >>>= 7;
+        size++;
+      }
+      return size;
+    }
+  }
+
+  /**
+   * Values of a message to write, indexed by field slot.
+   */
+  private static final class Message {
+    private final MessageWriter writer;
+    private final Object[] values;
+    private byte[] unknownFields;
+
+    private Message(MessageWriter writer) {
+      this.writer = writer;
+      this.values = new Object[writer.fields.length];
+    }
+
+    private void set(FieldWriter field, Object value) {
+      for (int sibling : field.oneofSiblings) {
+        values[sibling] = null;
+      }
+      // in proto3 a singular field set to its default value is the same as a field that is not set
+      values[field.slot] = field.clearOnDefault && field.isDefault(value) ? null : value;
+    }
+  }
+
+  private static final class MessageWriter {
+    private final boolean proto3;
+    private FieldWriter[] fields;
+    private FieldWriter[] numberOrder;
+    private FieldWriter[] required;
+
+    private MessageWriter(Descriptors.Descriptor descriptor) {
+      this.proto3 = descriptor.getFile().getSyntax() == Descriptors.FileDescriptor.Syntax.PROTO3;
+    }
+
+    private void init(FieldWriter[] fields) {
+      this.fields = fields;
+      numberOrder = Arrays.copyOf(fields, fields.length);
+      Arrays.sort(numberOrder, Comparator.comparingInt(field -> field.number));
+      required = Arrays.stream(fields).filter(field -> field.required).toArray(FieldWriter[]::new);
+    }
+
+    private FieldWriter findByName(String name) {
+      for (FieldWriter field : fields) {
+        if (field.name.equals(name)) {
+          return field;
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final class FieldWriter {
+    private final Descriptors.FieldDescriptor descriptor;
+    private final String name;
+    private final int slot;
+    private final int number;
+    private final Descriptors.FieldDescriptor.Type type;
+    private final Descriptors.FieldDescriptor.JavaType javaType;
+    private final int tag;
+    private final int packedTag;
+    private final int endGroupTag;
+    private final boolean packed;
+    private final boolean repeated;
+    private final boolean map;
+    private final boolean required;
+    private final boolean optional;
+    private final boolean clearOnDefault;
+    private final Object protoDefaultValue;
+    private final String defaultValueKey;
+    private final boolean hasDefaultValue;
+    private final Object defaultValue;
+    private final Descriptors.EnumDescriptor enumType;
+    private int[] oneofSiblings = new int[0];
+    private MessageWriter message;
+    private FieldWriter mapKey;
+    private FieldWriter mapValue;
+
+    private FieldWriter(
+        Descriptors.Descriptor messageDescriptor,
+        Descriptors.FieldDescriptor descriptor,
+        int slot,
+        Map<String, Object> defaultValueMap
+    ) {
+      this.descriptor = descriptor;
+      this.name = descriptor.getName();
+      this.slot = slot;
+      this.number = descriptor.getNumber();
+      this.type = descriptor.getType();
+      this.javaType = descriptor.getJavaType();
+      this.tag = (number << 3) | descriptor.getLiteType().getWireType();
+      this.packedTag = (number << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+      this.endGroupTag = (number << 3) | WireFormat.WIRETYPE_END_GROUP;
+      this.packed = descriptor.isPacked();
+      this.repeated = descriptor.isRepeated();
+      this.map = descriptor.isMapField();
+      this.required = descriptor.isRequired();
+      this.optional = descriptor.isOptional();
+      this.enumType = javaType == Descriptors.FieldDescriptor.JavaType.ENUM ? descriptor.getEnumType() : null;
+
+      boolean proto3 = descriptor.getFile().getSyntax() == Descriptors.FileDescriptor.Syntax.PROTO3;
+      this.clearOnDefault = proto3
+          && !repeated
+          && javaType != Descriptors.FieldDescriptor.JavaType.MESSAGE
+          && descriptor.getContainingOneof() == null;
+      // proto3 byte fields always default to empty, see isDefault
+      this.protoDefaultValue = clearOnDefault && javaType != Descriptors.FieldDescriptor.JavaType.BYTE_STRING
+          ? descriptor.getDefaultValue()
+          : null;
+
+      this.defaultValueKey = messageDescriptor.getFullName() + "." + name;
+      this.hasDefaultValue = defaultValueMap.containsKey(defaultValueKey);
+      Object value = defaultValueMap.get(defaultValueKey);
+      this.defaultValue = value instanceof ByteString ? ((ByteString) value).toByteArray() : value;
+    }
+
+    private void linkOneof(FieldWriter[] fields) {
+      Descriptors.OneofDescriptor oneof = descriptor.getContainingOneof();
+      if (oneof != null) {
+        oneofSiblings = Arrays.stream(fields)
+            .filter(field -> field != this && field.descriptor.getContainingOneof() == oneof)
+            .mapToInt(field -> field.slot)
+            .toArray();
+      }
+    }
+
+    private boolean isDefault(Object value) {
+      if (value instanceof byte[]) {
+        return ((byte[]) value).length == 0;
+      }
+      return value.equals(protoDefaultValue);
+    }
+  }
+}
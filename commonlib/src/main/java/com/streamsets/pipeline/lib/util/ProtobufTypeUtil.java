@@ -494,7 +494,7 @@ public class ProtobufTypeUtil {
     return f;
   }
 
-  private static Field.Type getFieldType(Descriptors.FieldDescriptor.JavaType javaType) throws DataParserException {
+  static Field.Type getFieldType(Descriptors.FieldDescriptor.JavaType javaType) throws DataParserException {
     Field.Type type;
     switch (javaType) {
       case BOOLEAN:
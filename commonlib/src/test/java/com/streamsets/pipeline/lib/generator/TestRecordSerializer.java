@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.generator;
+
+import com.google.common.base.Strings;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.ext.json.Mode;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestRecordSerializer {
+
+  private static DataGeneratorFactory createFactory() {
+    return new DataGeneratorFactoryBuilder(
+        ContextInfoCreator.createTargetContext("i", false, OnRecordError.TO_ERROR),
+        DataGeneratorFormat.JSON
+    ).setMode(Mode.MULTIPLE_OBJECTS).setCharset(StandardCharsets.UTF_8).build();
+  }
+
+  private static Record createRecord(String value) {
+    Record record = RecordCreator.create();
+    record.set(Field.create(value));
+    return record;
+  }
+
+  private static byte[] generate(DataGeneratorFactory factory, Record record) throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (DataGenerator generator = factory.getGenerator(os)) {
+      generator.write(record);
+    }
+    return os.toByteArray();
+  }
+
+  @Test
+  public void testSerializeReusesBuffer() throws Exception {
+    DataGeneratorFactory factory = createFactory();
+    RecordSerializer serializer = new RecordSerializer(factory);
+
+    // A long record followed by a short one must not leave stale bytes behind
+    Record longRecord = createRecord(Strings.repeat("a", 5000));
+    Record shortRecord = createRecord("b");
+    Assert.assertArrayEquals(generate(factory, longRecord), serializer.serialize(longRecord));
+    Assert.assertArrayEquals(generate(factory, shortRecord), serializer.serialize(shortRecord));
+
+    int length = serializer.serialize(shortRecord, (buffer, offset, size) -> size);
+    Assert.assertEquals(generate(factory, shortRecord).length, length);
+  }
+
+  @Test
+  public void testParallelSerializeKeepsOrder() throws Exception {
+    DataGeneratorFactory factory = createFactory();
+    RecordSerializer serializer = new RecordSerializer(factory);
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      records.add(createRecord("record-" + i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<RecordSerializer.Result> results = serializer.serialize(records, executor, 4);
+      Assert.assertEquals(records.size(), results.size());
+      for (int i = 0; i < records.size(); i++) {
+        Assert.assertArrayEquals(generate(factory, records.get(i)), results.get(i).getBytes());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
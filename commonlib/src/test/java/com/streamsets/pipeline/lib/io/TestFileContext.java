@@ -68,4 +68,33 @@ public class TestFileContext {
     }
   }
 
+  @Test
+  public void testDirToWatch() throws Exception {
+    File testDir1 = new File("target", UUID.randomUUID().toString()).getAbsoluteFile();
+    Assert.assertTrue(testDir1.mkdirs());
+    File file1 = new File(testDir1, "f1.txt");
+    Files.write(file1.toPath(), Arrays.asList("a", "b", "c"), StandardCharsets.UTF_8);
+    MultiFileInfo di1 = new MultiFileInfo("tag1", file1.getPath(), FileRollMode.REVERSE_COUNTER, "", "", "");
+
+    FileEventPublisher publisher = new FileEventPublisher() {
+      @Override
+      public void publish(FileEvent event) {
+      }
+    };
+
+    FileContext context =
+        new FileContext(di1, StandardCharsets.UTF_8, 100, PostProcessingOptions.NONE, null, publisher, false);
+    try {
+      // nothing to watch until the file is found
+      Assert.assertNull(context.getDirToWatch());
+
+      context.getReader();
+      Assert.assertEquals(testDir1.toPath(), context.getDirToWatch());
+      // registered once per directory, not on every read
+      Assert.assertNull(context.getDirToWatch());
+    } finally {
+      context.close();
+    }
+  }
+
 }
@@ -85,6 +85,32 @@ public class TestMultiFileReader {
     mdr.close();
   }
 
+  @Test
+  public void testClearWakeUp() throws IOException {
+    File file = new File(testDir1, "file.txt");
+    MultiFileInfo di =
+        new MultiFileInfo(null, file.getPath(), FileRollMode.REVERSE_COUNTER, "", "", "");
+    MultiFileReader mdr = new MultiFileReader(Arrays.asList(di),
+        UTF8,
+        1024,
+        PostProcessingOptions.NONE,
+        null,
+        false,
+        0,
+        false,
+        false
+    );
+    mdr.setOffsets(new HashMap<String, String>());
+
+    // a wake up nobody waited for must not cut short a later wait once cleared
+    mdr.wakeUp();
+    mdr.clearWakeUp();
+    long start = System.currentTimeMillis();
+    Assert.assertNull(mdr.next(200));
+    Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+    mdr.close();
+  }
+
   @Test
   public void testWithOneDirectory() throws IOException {
     File file = new File(testDir1, "file.txt");
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser;
+
+import org.apache.commons.compress.compressors.CompressorOutputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class TestParallelDecompressorInputStream {
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcatenatedBzip2() throws Exception {
+    testConcatenated(CompressorStreamFactory.BZIP2, FrameScanner.BZIP2, 4 * 1024 * 1024);
+  }
+
+  @Test
+  public void testLz4Frames() throws Exception {
+    testConcatenated(CompressorStreamFactory.LZ4_FRAMED, FrameScanner.LZ4_FRAMED, 2 * 1024 * 1024);
+  }
+
+  @Test
+  public void testZstdFrameBoundaries() throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    // Single segment frame with a one byte content size, a raw block and a last RLE block of 100 bytes
+    stream.write(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0x20, 103});
+    writeLittleEndian(stream, 3 << 3, 3);
+    stream.write(new byte[] {1, 2, 3});
+    writeLittleEndian(stream, 1 | 1 << 1 | 100 << 3, 3);
+    stream.write(7);
+    int firstFrame = stream.size();
+    // Skippable frame
+    stream.write(new byte[] {0x50, 0x2a, 0x4d, 0x18, 2, 0, 0, 0, 9, 9});
+    int secondFrame = stream.size() - firstFrame;
+    // Frame with a window descriptor and a content checksum
+    stream.write(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0x04, 0x00});
+    writeLittleEndian(stream, 1 | 2 << 3, 3);
+    stream.write(new byte[] {1, 2, 1, 2, 3, 4});
+    byte[] buf = stream.toByteArray();
+
+    Assert.assertEquals(16, firstFrame);
+    Assert.assertEquals(firstFrame, FrameScanner.ZSTANDARD.frameLength(buf, 0, buf.length, true));
+    Assert.assertEquals(secondFrame, FrameScanner.ZSTANDARD.frameLength(buf, firstFrame, buf.length, true));
+    int third = firstFrame + secondFrame;
+    Assert.assertEquals(buf.length - third, FrameScanner.ZSTANDARD.frameLength(buf, third, buf.length, true));
+    Assert.assertEquals(FrameScanner.NEED_MORE, FrameScanner.ZSTANDARD.frameLength(buf, third, buf.length - 1, false));
+    Assert.assertEquals(FrameScanner.NOT_SPLITTABLE, FrameScanner.ZSTANDARD.frameLength(buf, 1, buf.length, false));
+  }
+
+  @Test
+  public void testBgzf() throws Exception {
+    byte[] data = createData(3 * 1024 * 1024);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for (int i = 0; i < data.length; i += 60000) {
+      compressed.write(bgzfBlock(data, i, Math.min(60000, data.length - i)));
+    }
+    compressed.write(bgzfBlock(data, 0, 0));
+
+    byte[] decompressed = decompress(compressed.toByteArray(), CompressorStreamFactory.GZIP, FrameScanner.GZIP);
+    Assert.assertArrayEquals(data, decompressed);
+  }
+
+  @Test
+  public void testPlainGzipIsDecompressedSequentially() throws Exception {
+    byte[] data = createData(512 * 1024);
+    byte[] compressed = compress(CompressorStreamFactory.GZIP, data, 0, data.length);
+
+    Assert.assertArrayEquals(data, decompress(compressed, CompressorStreamFactory.GZIP, FrameScanner.GZIP));
+  }
+
+  @Test
+  public void testFallbackAfterSplittableFrames() throws Exception {
+    byte[] data = createData(2 * 1024 * 1024);
+    int half = data.length / 2;
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for (int i = 0; i < half; i += 60000) {
+      compressed.write(bgzfBlock(data, i, Math.min(60000, half - i)));
+    }
+    // A regular gzip member can't be split, the rest of the stream is read sequentially
+    compressed.write(compress(CompressorStreamFactory.GZIP, data, half, data.length - half));
+
+    byte[] decompressed = decompress(compressed.toByteArray(), CompressorStreamFactory.GZIP, FrameScanner.GZIP);
+    Assert.assertArrayEquals(data, decompressed);
+  }
+
+  @Test
+  public void testBufferedBytesAreBounded() throws Exception {
+    byte[] data = createData(8 * 1024 * 1024);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for (int i = 0; i < data.length; i += 100000) {
+      compressed.write(compress(CompressorStreamFactory.BZIP2, data, i, Math.min(100000, data.length - i)));
+    }
+    long maxBufferedBytes = 3 * ParallelDecompressorInputStream.TARGET_CHUNK_SIZE;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long maxBuffered = 0;
+    try (ParallelDecompressorInputStream is = new ParallelDecompressorInputStream(
+        new ByteArrayInputStream(compressed.toByteArray()),
+        CompressorStreamFactory.BZIP2,
+        FrameScanner.BZIP2,
+        executor,
+        8,
+        maxBufferedBytes
+    )) {
+      byte[] buf = new byte[4096];
+      int read;
+      while ((read = is.read(buf)) != -1) {
+        out.write(buf, 0, read);
+        maxBuffered = Math.max(maxBuffered, is.getBufferedBytes());
+      }
+      Assert.assertEquals(0, is.getBufferedBytes());
+    }
+    Assert.assertArrayEquals(data, out.toByteArray());
+    // The budget can only be exceeded by the compressed bytes of the chunk submitted to keep the stream moving
+    Assert.assertTrue(maxBuffered <= maxBufferedBytes + 2 * ParallelDecompressorInputStream.TARGET_CHUNK_SIZE);
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptFrame() throws Exception {
+    byte[] data = createData(1024 * 1024);
+    byte[] compressed = compress(CompressorStreamFactory.BZIP2, data, 0, data.length);
+    compressed[compressed.length / 2] ^= 0x55;
+    decompress(compressed, CompressorStreamFactory.BZIP2, FrameScanner.BZIP2);
+  }
+
+  @Test
+  public void testCreateCompressorInputStream() throws Exception {
+    byte[] data = createData(64 * 1024);
+    byte[] compressed = compress(CompressorStreamFactory.BZIP2, data, 0, data.length);
+
+    InputStream sequential = ParallelDecompressorInputStream.createCompressorInputStream(
+        new ByteArrayInputStream(compressed),
+        0,
+        0
+    );
+    Assert.assertFalse(sequential instanceof ParallelDecompressorInputStream);
+    Assert.assertArrayEquals(data, IOUtils.toByteArray(sequential));
+
+    InputStream parallel = ParallelDecompressorInputStream.createCompressorInputStream(
+        new ByteArrayInputStream(compressed),
+        2,
+        0
+    );
+    Assert.assertTrue(parallel instanceof ParallelDecompressorInputStream);
+    Assert.assertArrayEquals(data, IOUtils.toByteArray(parallel));
+
+    // Formats that can't be split use the regular stream
+    byte[] xz = compress(CompressorStreamFactory.XZ, data, 0, data.length);
+    InputStream other = ParallelDecompressorInputStream.createCompressorInputStream(new ByteArrayInputStream(xz), 2, 0);
+    Assert.assertFalse(other instanceof ParallelDecompressorInputStream);
+    Assert.assertArrayEquals(data, IOUtils.toByteArray(other));
+  }
+
+  private void testConcatenated(String format, FrameScanner scanner, int length) throws Exception {
+    byte[] data = createData(length);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for (int i = 0; i < data.length; i += 100000) {
+      compressed.write(compress(format, data, i, Math.min(100000, data.length - i)));
+    }
+
+    Assert.assertArrayEquals(data, decompress(compressed.toByteArray(), format, scanner));
+  }
+
+  private static byte[] decompress(byte[] compressed, String format, FrameScanner scanner) throws IOException {
+    return decompress(compressed, format, scanner, ParallelDecompressorInputStream.MAX_BUFFERED_BYTES);
+  }
+
+  private static byte[] decompress(
+      byte[] compressed,
+      String format,
+      FrameScanner scanner,
+      long maxBufferedBytes
+  ) throws IOException {
+    try (ParallelDecompressorInputStream is = new ParallelDecompressorInputStream(
+        new ByteArrayInputStream(compressed),
+        format,
+        scanner,
+        executor,
+        3,
+        maxBufferedBytes
+    )) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      // Mix single byte and bulk reads
+      out.write(is.read());
+      IOUtils.copy(is, out);
+      Assert.assertEquals(0, is.getBufferedBytes());
+      return out.toByteArray();
+    }
+  }
+
+  private static byte[] createData(int length) {
+    // Half random, half repeated text so that the compressed size stays in the order of the data size
+    Random random = new Random(length);
+    byte[] line = "StreamSets Data Collector parallel decompression\n".getBytes(StandardCharsets.UTF_8);
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (i / 64) % 2 == 0 ? (byte) ('a' + random.nextInt(26)) : line[i % line.length];
+    }
+    return data;
+  }
+
+  private static byte[] compress(String format, byte[] data, int offset, int length) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (CompressorOutputStream os = new CompressorStreamFactory().createCompressorOutputStream(format, out)) {
+      os.write(data, offset, length);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] bgzfBlock(byte[] data, int offset, int length) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data, offset, length);
+    deflater.finish();
+    byte[] deflated = new byte[length + 1024];
+    int deflatedLength = deflater.deflate(deflated);
+    deflater.end();
+    CRC32 crc = new CRC32();
+    crc.update(data, offset, length);
+
+    int blockSize = 18 + deflatedLength + 8;
+    ByteArrayOutputStream out = new ByteArrayOutputStream(blockSize);
+    out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0}, 0, 16);
+    writeLittleEndian(out, blockSize - 1, 2);
+    out.write(deflated, 0, deflatedLength);
+    writeLittleEndian(out, crc.getValue(), 4);
+    writeLittleEndian(out, length, 4);
+    return out.toByteArray();
+  }
+
+  private static void writeLittleEndian(ByteArrayOutputStream out, long value, int bytes) {
+    for (int i = 0; i < bytes; i++) {
+      out.write((int) (value >>> (8 * i)) & 0xFF);
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser.excel;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.OnRecordError;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.config.ExcelHeader;
+import com.streamsets.pipeline.lib.parser.DataParser;
+import com.streamsets.pipeline.lib.parser.DataParserException;
+import com.streamsets.pipeline.lib.parser.RecoverableDataParserException;
+import com.streamsets.pipeline.sdk.ContextInfoCreator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestStreamingWorkbookParser {
+  private static final List<String> WORKBOOKS = ImmutableList.of(
+      "/excel/FormatTest.xlsx",
+      "/excel/TestBlankCells.xlsx",
+      "/excel/TestErrorCells.xlsx",
+      "/excel/TestExcel.xlsx",
+      "/excel/TestExcelEmptyRowsCols.xlsx",
+      "/excel/TestFormulas.xlsx",
+      "/excel/TestLessTabular.xlsx",
+      "/excel/TestMultipleSheets.xlsx",
+      "/excel/TestOffset.xlsx",
+      "/excel/TestRealSheet.xlsx"
+  );
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Stage.Context getContext() {
+    return ContextInfoCreator.createSourceContext("i", false, OnRecordError.TO_ERROR, Collections.EMPTY_LIST);
+  }
+
+  private static WorkbookParserSettings settings(ExcelHeader header) {
+    return WorkbookParserSettings.builder().withHeader(header).build();
+  }
+
+  private DataParser createUserModelParser(String path, WorkbookParserSettings settings, String offset) throws Exception {
+    try (InputStream is = getClass().getResourceAsStream(path)) {
+      return new WorkbookParser(settings, getContext(), WorkbookFactory.create(is), offset);
+    }
+  }
+
+  private DataParser createStreamingParser(InputStream is, WorkbookParserSettings settings, String offset)
+      throws DataParserException {
+    List<String> sheets = settings.getSheets();
+    XlsxRowReader reader = XlsxRowReader.open(is, name -> sheets.isEmpty() || sheets.contains(name));
+    return new StreamingWorkbookParser(settings, getContext(), reader, offset);
+  }
+
+  private DataParser createStreamingParser(String path, WorkbookParserSettings settings, String offset) throws Exception {
+    try (InputStream is = getClass().getResourceAsStream(path)) {
+      return createStreamingParser(is, settings, offset);
+    }
+  }
+
+  // records as comparable values, recoverable errors are compared by error code only
+  private static List<Object> parseAll(DataParser parser) throws Exception {
+    List<Object> parsed = new ArrayList<>();
+    try {
+      while (true) {
+        try {
+          Record record = parser.parse();
+          if (record == null) {
+            break;
+          }
+          parsed.add(Arrays.asList(
+              record.getHeader().getSourceId(),
+              record.getHeader().getAttribute("worksheet"),
+              record.getHeader().getAttribute("row"),
+              record.getHeader().getAttribute("firstCol"),
+              record.getHeader().getAttribute("lastCol"),
+              record.get()
+          ));
+        } catch (RecoverableDataParserException e) {
+          parsed.add(e.getErrorCode().getCode());
+        }
+      }
+      parsed.add(parser.getOffset());
+    } finally {
+      parser.close();
+    }
+    return parsed;
+  }
+
+  @Test
+  public void testSameRecordsAsUserModel() throws Exception {
+    for (String workbook : WORKBOOKS) {
+      for (ExcelHeader header : ExcelHeader.values()) {
+        WorkbookParserSettings settings = settings(header);
+        Assert.assertEquals(
+            workbook + " " + header,
+            parseAll(createUserModelParser(workbook, settings, "0")),
+            parseAll(createStreamingParser(workbook, settings, "0"))
+        );
+      }
+    }
+  }
+
+  @Test
+  public void testSameRecordsAsUserModelFromOffset() throws Exception {
+    WorkbookParserSettings settings = settings(ExcelHeader.IGNORE_HEADER);
+    Assert.assertEquals(
+        parseAll(createUserModelParser("/excel/TestOffset.xlsx", settings, "Sheet2::2")),
+        parseAll(createStreamingParser("/excel/TestOffset.xlsx", settings, "Sheet2::2"))
+    );
+
+    settings = settings(ExcelHeader.WITH_HEADER);
+    Assert.assertEquals(
+        parseAll(createUserModelParser("/excel/TestRealSheet.xlsx", settings, "Returns::0")),
+        parseAll(createStreamingParser("/excel/TestRealSheet.xlsx", settings, "Returns::0"))
+    );
+  }
+
+  @Test
+  public void testSelectedSheets() throws Exception {
+    WorkbookParserSettings settings = WorkbookParserSettings.builder()
+        .withHeader(ExcelHeader.WITH_HEADER)
+        .withSheets(ImmutableList.of("Sheet2"))
+        .build();
+    Assert.assertEquals(
+        parseAll(createUserModelParser("/excel/TestMultipleSheets.xlsx", settings, "0")),
+        parseAll(createStreamingParser("/excel/TestMultipleSheets.xlsx", settings, "0"))
+    );
+  }
+
+  @Test
+  public void testLargeWorkbook() throws Exception {
+    final int rows = 50000;
+    File file = tempFolder.newFile("large.xlsx");
+    SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+    try (OutputStream os = new FileOutputStream(file)) {
+      Sheet sheet = workbook.createSheet("Data");
+      Row headerRow = sheet.createRow(0);
+      headerRow.createCell(0).setCellValue("id");
+      headerRow.createCell(1).setCellValue("name");
+      for (int i = 1; i <= rows; i++) {
+        Row row = sheet.createRow(i);
+        row.createCell(0).setCellValue(i);
+        row.createCell(1).setCellValue("name" + i);
+      }
+      workbook.write(os);
+    } finally {
+      workbook.dispose();
+    }
+
+    WorkbookParserSettings settings = settings(ExcelHeader.WITH_HEADER);
+    int count = 0;
+    String resumeOffset = null;
+    try (InputStream is = new FileInputStream(file); DataParser parser = createStreamingParser(is, settings, "0")) {
+      Record record = parser.parse();
+      while (record != null) {
+        count++;
+        Assert.assertEquals(new BigDecimal(count), record.get("/id").getValueAsDecimal());
+        Assert.assertEquals("name" + count, record.get("/name").getValueAsString());
+        Assert.assertEquals("Data::" + count, parser.getOffset());
+        if (count == rows / 2) {
+          resumeOffset = parser.getOffset();
+        }
+        record = parser.parse();
+      }
+      Assert.assertEquals("-1", parser.getOffset());
+    }
+    Assert.assertEquals(rows, count);
+
+    // resuming returns the row of the offset again, like the user model parser does
+    try (InputStream is = new FileInputStream(file); DataParser parser = createStreamingParser(is, settings, resumeOffset)) {
+      Record record = parser.parse();
+      Assert.assertEquals(Field.create(new BigDecimal(rows / 2)), record.get("/id"));
+    }
+  }
+
+  @Test
+  public void testColumnOf() {
+    Assert.assertEquals(0, XlsxRowReader.columnOf("A1"));
+    Assert.assertEquals(25, XlsxRowReader.columnOf("Z10"));
+    Assert.assertEquals(26, XlsxRowReader.columnOf("AA3"));
+    Assert.assertEquals(16383, XlsxRowReader.columnOf("XFD1048576"));
+  }
+}
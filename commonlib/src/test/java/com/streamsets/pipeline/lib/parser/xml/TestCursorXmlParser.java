@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.parser.xml;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.ext.io.ObjectLengthException;
+import com.streamsets.pipeline.api.ext.io.OverrunException;
+import com.streamsets.pipeline.api.ext.io.OverrunReader;
+import com.streamsets.pipeline.lib.parser.StringBuilderPoolFactory;
+import com.streamsets.pipeline.lib.xml.OverrunStreamingXmlParser;
+import com.streamsets.pipeline.lib.xml.XmlFieldReader;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestCursorXmlParser {
+
+  private static final String[] DOCUMENTS = {
+      "<?xml version=\"1.0\"?><!-- c --><root><a x=\"1\">t1</a><b><a>nested</a></b>" +
+          "<a><c>1</c><c>2</c><d/></a>  <?pi x?><a>tail<!-- c --></a></root>",
+      "<root xmlns=\"urn:d\" xmlns:p=\"urn:p\"><p:a p:x=\"1\" y=\"2\"><b>v</b></p:a>" +
+          "<a xmlns:q=\"urn:q\"><q:z>1</q:z></a><skip><p:a>no</p:a><x xmlns=\"urn:other\"><y/></x></skip>" +
+          "<a>last</a></root>",
+      "<root><x><y><a>deep</a></y></x><a><![CDATA[cd<>]]>more</a><a>mixed<b>1</b>after</a><a> <b>1</b> </a></root>",
+      "<r><rec id='1'><f>1</f></rec><other><rec id='2'>n</rec></other><rec id='3'/>" +
+          "<rec id='4'><f>a</f><f>b</f><g><h>x</h></g></rec></r>",
+      "<s:r xmlns:s=\"urn:s\"><s:i k=\"a\">1</s:i><s:i k=\"b\">2</s:i><t:j xmlns:t=\"urn:t\">3</t:j>" +
+          "<s:i k=\"a\">4</s:i></s:r>",
+      "<root><a>1</a><a>2</a><a>3</a><b><a>4</a></b><a>5</a></root>",
+  };
+
+  private static final String[] RECORD_ELEMENTS = {
+      "", "a", "rec", "i", "/root/a", "/root/*", "/root/a[2]", "/root/b/a", "/root/x/y/a", "/root/p:a", "/r/*/rec",
+      "/r/rec[@id='3']", "/s:r/s:i[@k='a']", "/*/s:i"
+  };
+
+  private static final Map<String, String> NAMESPACES = ImmutableMap.of("s", "urn:s", "p", "urn:p");
+
+  private GenericObjectPool<StringBuilder> stringBuilderPool;
+
+  @Before
+  public void setUp() {
+    stringBuilderPool = new GenericObjectPool<>(new StringBuilderPoolFactory(1024));
+  }
+
+  @After
+  public void cleanUp() {
+    System.getProperties().remove(OverrunReader.READ_LIMIT_SYS_PROP);
+    OverrunReader.reInitializeDefaultReadLimit();
+    stringBuilderPool.close();
+  }
+
+  private XmlFieldReader createParser(
+      boolean cursor,
+      String xml,
+      String recordElement,
+      long initialPosition,
+      int maxObjectLen,
+      boolean useFieldAttributes,
+      boolean preserveRootElement
+  ) throws Exception {
+    OverrunReader reader = new OverrunReader(new StringReader(xml), OverrunReader.getDefaultReadLimit(), false, false);
+    if (cursor) {
+      return new CursorXmlParser(reader, recordElement, NAMESPACES, initialPosition, maxObjectLen,
+          useFieldAttributes, preserveRootElement, stringBuilderPool);
+    }
+    return new OverrunStreamingXmlParser(reader, recordElement, NAMESPACES, initialPosition, maxObjectLen,
+        useFieldAttributes, preserveRootElement);
+  }
+
+  private static void assertSameField(Field expected, Field actual) {
+    if (expected == null || actual == null) {
+      Assert.assertEquals(expected, actual);
+      return;
+    }
+    Assert.assertEquals(expected.getType(), actual.getType());
+    Assert.assertEquals(expected.getAttributes(), actual.getAttributes());
+    if (expected.getType() == Field.Type.MAP) {
+      Map<String, Field> expectedMap = expected.getValueAsMap();
+      Map<String, Field> actualMap = actual.getValueAsMap();
+      Assert.assertEquals(new ArrayList<>(expectedMap.keySet()), new ArrayList<>(actualMap.keySet()));
+      for (Map.Entry<String, Field> entry : expectedMap.entrySet()) {
+        assertSameField(entry.getValue(), actualMap.get(entry.getKey()));
+      }
+    } else if (expected.getType() == Field.Type.LIST) {
+      List<Field> expectedList = expected.getValueAsList();
+      List<Field> actualList = actual.getValueAsList();
+      Assert.assertEquals(expectedList.size(), actualList.size());
+      for (int i = 0; i < expectedList.size(); i++) {
+        assertSameField(expectedList.get(i), actualList.get(i));
+      }
+    } else {
+      Assert.assertEquals(expected.getValue(), actual.getValue());
+    }
+  }
+
+  /**
+   * Reads the document with both parsers from the given position and returns the positions after each record.
+   */
+  private List<Long> assertSameRecords(
+      String xml,
+      String recordElement,
+      long initialPosition,
+      boolean useFieldAttributes,
+      boolean preserveRootElement
+  ) throws Exception {
+    List<Long> positions = new ArrayList<>();
+    XmlFieldReader expected = createParser(false, xml, recordElement, initialPosition, -1, useFieldAttributes,
+        preserveRootElement);
+    XmlFieldReader actual = createParser(true, xml, recordElement, initialPosition, -1, useFieldAttributes,
+        preserveRootElement);
+    Assert.assertEquals(expected.getReaderPosition(), actual.getReaderPosition());
+    Field field;
+    do {
+      field = expected.read();
+      assertSameField(field, actual.read());
+      Assert.assertEquals(expected.getLastParsedFieldXpathPrefix(), actual.getLastParsedFieldXpathPrefix());
+      Assert.assertEquals(expected.getReaderPosition(), actual.getReaderPosition());
+      Assert.assertEquals(expected.getNamespaceUriToPrefixMappings(), actual.getNamespaceUriToPrefixMappings());
+      positions.add(expected.getReaderPosition());
+    } while (field != null);
+    expected.close();
+    actual.close();
+    return positions;
+  }
+
+  @Test
+  public void testSameRecordsAsEventParser() throws Exception {
+    for (String xml : DOCUMENTS) {
+      for (String recordElement : RECORD_ELEMENTS) {
+        for (boolean useFieldAttributes : new boolean[]{false, true}) {
+          for (boolean preserveRootElement : new boolean[]{false, true}) {
+            List<Long> positions = assertSameRecords(xml, recordElement, 0, useFieldAttributes, preserveRootElement);
+            // resuming from the offset of any record gives the same records as well
+            for (long position : positions) {
+              if (position > 0) {
+                assertSameRecords(xml, recordElement, position, useFieldAttributes, preserveRootElement);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSkippedElementsNamespaces() throws Exception {
+    String xml = "<root><skip xmlns=\"urn:a\"><x xmlns=\"urn:b\"/></skip><a xmlns=\"urn:c\">1</a></root>";
+    XmlFieldReader parser = createParser(true, xml, "/root/c:a", 0, -1, false, false);
+    Assert.assertNull(parser.read());
+    Assert.assertEquals(
+        ImmutableMap.of("urn:a", "ns1", "urn:b", "ns2", "urn:c", "ns3"),
+        parser.getNamespaceUriToPrefixMappings()
+    );
+    parser.close();
+
+    parser = createParser(true, xml, "a", 0, -1, false, false);
+    Field field = parser.read();
+    Assert.assertEquals("1", field.getValueAsMap().get("value").getValueAsString());
+    Assert.assertEquals("/root/ns3:a", parser.getLastParsedFieldXpathPrefix());
+    Map<String, String> mappings = parser.getNamespaceUriToPrefixMappings();
+    Assert.assertEquals("ns1", mappings.get("urn:a"));
+    Assert.assertEquals("ns2", mappings.get("urn:b"));
+    Assert.assertEquals("ns3", mappings.get("urn:c"));
+    parser.close();
+  }
+
+  @Test(expected = ObjectLengthException.class)
+  public void testMaxObjectLength() throws Exception {
+    String xml = "<root><a>1</a><a><b>" + Strings.repeat("x", 200) + "</b><b>2</b></a></root>";
+    XmlFieldReader parser = createParser(true, xml, "a", 0, 100, false, false);
+    Assert.assertNotNull(parser.read());
+    parser.read();
+  }
+
+  @Test
+  public void testStreamLevelOverrun() throws Exception {
+    System.setProperty(OverrunReader.READ_LIMIT_SYS_PROP, "10000");
+    OverrunReader.reInitializeDefaultReadLimit();
+    String xml = "<root><record/><record>" + Strings.repeat("a", 20000) + "</record></root>";
+    XmlFieldReader parser = createParser(true, xml, "record", 0, 100, false, false);
+    Assert.assertNotNull(parser.read());
+    try {
+      parser.read();
+      Assert.fail();
+    } catch (OverrunException ex) {
+      //NOP
+    }
+    try {
+      parser.read();
+      Assert.fail();
+    } catch (IllegalStateException ex) {
+      //NOP
+    }
+  }
+
+  @Test
+  public void testStringBuilderReturnedToPool() throws Exception {
+    XmlFieldReader parser = createParser(true, DOCUMENTS[0], "a", 0, -1, false, false);
+    Assert.assertEquals(1, stringBuilderPool.getNumActive());
+    parser.close();
+    parser.close();
+    Assert.assertEquals(0, stringBuilderPool.getNumActive());
+    Assert.assertEquals(1, stringBuilderPool.getNumIdle());
+  }
+
+  @Test
+  public void testStringBuilderReturnedToPoolOnMalformedInput() throws Exception {
+    // Same settings as the data format pool, a single builder that is not waited for
+    stringBuilderPool.setMaxTotal(1);
+    stringBuilderPool.setBlockWhenExhausted(false);
+    try {
+      createParser(true, "not xml", "a", 0, -1, false, false);
+      Assert.fail();
+    } catch (XMLStreamException ex) {
+      //NOP
+    }
+    Assert.assertEquals(0, stringBuilderPool.getNumActive());
+
+    XmlFieldReader parser = createParser(true, DOCUMENTS[0], "a", 0, -1, false, false);
+    Assert.assertNotNull(parser.read());
+    parser.close();
+    Assert.assertEquals(0, stringBuilderPool.getNumActive());
+  }
+
+}
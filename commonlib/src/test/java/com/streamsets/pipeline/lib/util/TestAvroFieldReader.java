@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestAvroFieldReader {
+
+  static final String SCHEMA = "{\"type\": \"record\", \"name\": \"Rec\", \"namespace\": \"test\", \"fields\": [" +
+      "{\"name\": \"id\", \"type\": \"long\"}," +
+      "{\"name\": \"name\", \"type\": [\"null\", \"string\"], \"default\": null}," +
+      "{\"name\": \"price\", \"type\": [\"null\", " +
+      "{\"type\": \"bytes\", \"logicalType\": \"decimal\", \"precision\": 5, \"scale\": 2}], \"default\": null}," +
+      "{\"name\": \"day\", \"type\": {\"type\": \"int\", \"logicalType\": \"date\"}}," +
+      "{\"name\": \"ts\", \"type\": {\"type\": \"long\", \"logicalType\": \"timestamp-millis\"}}," +
+      "{\"name\": \"suit\", \"type\": {\"type\": \"enum\", \"name\": \"Suit\", \"symbols\": [\"SPADES\", \"HEARTS\"]}}," +
+      "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}}," +
+      "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": [\"string\", \"int\"]}}," +
+      "{\"name\": \"attrs\", \"type\": {\"type\": \"map\", \"values\": \"double\"}}," +
+      "{\"name\": \"child\", \"type\": {\"type\": \"record\", \"name\": \"Child\", \"fields\": [" +
+      "{\"name\": \"flag\", \"type\": \"boolean\"}," +
+      "{\"name\": \"value\", \"type\": [\"int\", \"string\", \"null\"]}]}}," +
+      "{\"name\": \"rating\", \"type\": \"double\", \"default\": 1.5}" +
+      "]}";
+
+  static GenericRecord createAvroRecord(Schema schema, String name, BigDecimal price, Object childValue) {
+    GenericRecord child = new GenericData.Record(schema.getField("child").schema());
+    child.put("flag", true);
+    child.put("value", childValue);
+
+    Map<String, Double> attrs = new HashMap<>();
+    attrs.put("a", 1.0);
+
+    GenericRecord avroRecord = new GenericData.Record(schema);
+    avroRecord.put("id", 7L);
+    avroRecord.put("name", name);
+    avroRecord.put("price", price == null ? null : ByteBuffer.wrap(price.unscaledValue().toByteArray()));
+    avroRecord.put("day", 17000);
+    avroRecord.put("ts", 1500000000000L);
+    avroRecord.put("suit", new GenericData.EnumSymbol(schema.getField("suit").schema(), "HEARTS"));
+    avroRecord.put("hash", new GenericData.Fixed(schema.getField("hash").schema(), new byte[]{1, 2, 3, 4}));
+    avroRecord.put("tags", Arrays.asList("x", 3, "y"));
+    avroRecord.put("attrs", attrs);
+    avroRecord.put("child", child);
+    avroRecord.put("rating", 2.5);
+    return avroRecord;
+  }
+
+  private static void assertSameAsGenericConversion(Schema schema, GenericRecord avroRecord, boolean skipUnionIndexes)
+      throws Exception {
+    Record expected = RecordCreator.create();
+    expected.set(AvroTypeUtil.avroToSdcField(expected, schema, avroRecord, skipUnionIndexes));
+
+    byte[] data = AvroTypeUtil.getBinaryEncodedAvroRecord(avroRecord);
+    Record actual = RecordCreator.create();
+    actual.set(AvroFieldReader.forSchema(schema).read(actual, DecoderFactory.get().binaryDecoder(data, null), skipUnionIndexes));
+
+    Assert.assertEquals(expected.get(), actual.get());
+    Assert.assertEquals(expected.getHeader().getAttributeNames(), actual.getHeader().getAttributeNames());
+    for (String name : expected.getHeader().getAttributeNames()) {
+      Assert.assertEquals(expected.getHeader().getAttribute(name), actual.getHeader().getAttribute(name));
+    }
+  }
+
+  @Test
+  public void testReadSameAsGenericConversion() throws Exception {
+    Schema schema = new Schema.Parser().parse(SCHEMA);
+    assertSameAsGenericConversion(schema, createAvroRecord(schema, "widget", new BigDecimal("12.34"), "text"), false);
+    assertSameAsGenericConversion(schema, createAvroRecord(schema, null, null, null), false);
+    assertSameAsGenericConversion(schema, createAvroRecord(schema, "widget", new BigDecimal("12.34"), 5), true);
+  }
+
+  @Test
+  public void testReadFields() throws Exception {
+    Schema schema = new Schema.Parser().parse(SCHEMA);
+    byte[] data = AvroTypeUtil.getBinaryEncodedAvroRecord(createAvroRecord(schema, null, null, "text"));
+
+    Record record = RecordCreator.create();
+    Field field = AvroFieldReader.forSchema(schema).read(record, DecoderFactory.get().binaryDecoder(data, null), false);
+
+    Map<String, Field> fields = field.getValueAsListMap();
+    Assert.assertEquals(Field.Type.STRING, fields.get("name").getType());
+    Assert.assertNull(fields.get("name").getValue());
+    Assert.assertEquals(Field.Type.DECIMAL, fields.get("price").getType());
+    Assert.assertEquals("2", fields.get("price").getAttribute("scale"));
+    Assert.assertEquals(Field.Type.DATE, fields.get("day").getType());
+    Assert.assertEquals("date", fields.get("day").getAttribute("avro.type"));
+    Assert.assertEquals("HEARTS", fields.get("suit").getValueAsString());
+    Assert.assertEquals(Field.Type.STRING, fields.get("tags").getValueAsList().get(0).getType());
+    Assert.assertEquals(Field.Type.INTEGER, fields.get("tags").getValueAsList().get(1).getType());
+
+    // A null [null, type] union does not record its index, all other unions do
+    Assert.assertNull(record.getHeader().getAttribute("avro.union.typeIndex./price"));
+    Assert.assertEquals("1", record.getHeader().getAttribute("avro.union.typeIndex./tags[1]"));
+    Assert.assertEquals("1", record.getHeader().getAttribute("avro.union.typeIndex./child/value"));
+  }
+
+  @Test
+  public void testCompiledOncePerSchema() throws Exception {
+    Assert.assertSame(
+        AvroFieldReader.forSchema(new Schema.Parser().parse(SCHEMA)),
+        AvroFieldReader.forSchema(new Schema.Parser().parse(SCHEMA))
+    );
+  }
+
+  @Test
+  public void testDatumReader() throws Exception {
+    Schema schema = new Schema.Parser().parse(SCHEMA);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema));
+    writer.create(schema, out);
+    writer.append(createAvroRecord(schema, "widget", new BigDecimal("12.34"), 5));
+    writer.close();
+
+    // Same schema as the writer, read with the compiled reader
+    AvroFieldDatumReader datumReader = new AvroFieldDatumReader(schema, false);
+    try (DataFileStream<Field> stream = new DataFileStream<>(new ByteArrayInputStream(out.toByteArray()), datumReader)) {
+      Record record = RecordCreator.create();
+      datumReader.setRecord(record);
+      Field field = stream.next();
+      Assert.assertEquals(7L, field.getValueAsListMap().get("id").getValueAsLong());
+      Assert.assertEquals(schema, datumReader.getSchema());
+      Assert.assertEquals("0", record.getHeader().getAttribute("avro.union.typeIndex./child/value"));
+    }
+
+    // Different schema, resolved against the expected schema
+    Schema expected = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Rec\", \"namespace\": \"test\", " +
+        "\"fields\": [{\"name\": \"id\", \"type\": \"long\"}, " +
+        "{\"name\": \"extra\", \"type\": \"string\", \"default\": \"default\"}]}");
+    datumReader = new AvroFieldDatumReader(expected, false);
+    try (DataFileStream<Field> stream = new DataFileStream<>(new ByteArrayInputStream(out.toByteArray()), datumReader)) {
+      datumReader.setRecord(RecordCreator.create());
+      Map<String, Field> fields = stream.next().getValueAsListMap();
+      Assert.assertEquals(2, fields.size());
+      Assert.assertEquals(7L, fields.get("id").getValueAsLong());
+      Assert.assertEquals("default", fields.get("extra").getValueAsString());
+      Assert.assertEquals(expected, datumReader.getSchema());
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.lib.generator.DataGeneratorException;
+import com.streamsets.pipeline.lib.generator.avro.Errors;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TestAvroFieldWriter {
+
+  private static byte[] writeGeneric(Record record, Schema schema, Map<String, Object> defaults) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema).write(AvroTypeUtil.sdcRecordToAvro(record, schema, defaults), encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static byte[] writeCompiled(Record record, Schema schema, Map<String, Object> defaults) throws Exception {
+    ByteBuffer encoded = new AvroFieldWriter.RecordBuffer().encode(AvroFieldWriter.forSchema(schema), record, defaults);
+    return Arrays.copyOfRange(encoded.array(), encoded.position(), encoded.limit());
+  }
+
+  private static Record createRecord() {
+    LinkedHashMap<String, Field> child = new LinkedHashMap<>();
+    child.put("flag", Field.create(false));
+    child.put("value", Field.create("text"));
+
+    LinkedHashMap<String, Field> attrs = new LinkedHashMap<>();
+    attrs.put("a", Field.create(1.0));
+
+    LinkedHashMap<String, Field> fields = new LinkedHashMap<>();
+    fields.put("id", Field.create(7L));
+    fields.put("name", Field.create(Field.Type.STRING, null));
+    fields.put("price", Field.create(new BigDecimal("1.5")));
+    fields.put("day", Field.createDate(new Date(AvroTypeUtil.daysToMillis(17000))));
+    fields.put("ts", Field.createDatetime(new Date(1500000000000L)));
+    fields.put("suit", Field.create("SPADES"));
+    fields.put("hash", Field.create(new byte[]{1, 2, 3, 4}));
+    fields.put("tags", Field.create(Arrays.asList(Field.create(3), Field.create("x"), Field.create(4))));
+    fields.put("attrs", Field.create(attrs));
+    fields.put("child", Field.createListMap(child));
+
+    Record record = RecordCreator.create();
+    record.set(Field.createListMap(fields));
+    return record;
+  }
+
+  @Test
+  public void testWriteSameAsGenericConversion() throws Exception {
+    Schema schema = new Schema.Parser().parse(TestAvroFieldReader.SCHEMA);
+    Map<String, Object> defaults = AvroTypeUtil.getDefaultValuesFromSchema(schema, new HashSet<String>());
+
+    // Record that was not read from Avro: the unions are resolved from the field types and rating is defaulted
+    Record record = createRecord();
+    Assert.assertArrayEquals(writeGeneric(record, schema, defaults), writeCompiled(record, schema, defaults));
+    // Again, with the union branches already resolved
+    Assert.assertArrayEquals(writeGeneric(record, schema, defaults), writeCompiled(record, schema, defaults));
+
+    // Record read from Avro
+    byte[] data = AvroTypeUtil.getBinaryEncodedAvroRecord(
+        TestAvroFieldReader.createAvroRecord(schema, "widget", new BigDecimal("12.34"), 5)
+    );
+    record = RecordCreator.create();
+    record.set(AvroTypeUtil.avroToSdcField(record, schema, AvroTypeUtil.getAvroRecordFromBinaryEncoding(schema, data), false));
+    Assert.assertArrayEquals(data, writeCompiled(record, schema, defaults));
+  }
+
+  @Test
+  public void testMissingFieldWithoutDefault() throws Exception {
+    Schema schema = new Schema.Parser().parse(TestAvroFieldReader.SCHEMA);
+    Map<String, Object> defaults = AvroTypeUtil.getDefaultValuesFromSchema(schema, new HashSet<String>());
+    AvroFieldWriter.RecordBuffer buffer = new AvroFieldWriter.RecordBuffer();
+
+    Record record = createRecord();
+    record.delete("/suit");
+    try {
+      buffer.encode(AvroFieldWriter.forSchema(schema), record, defaults);
+      Assert.fail();
+    } catch (DataGeneratorException e) {
+      Assert.assertEquals(Errors.AVRO_GENERATOR_00, e.getErrorCode());
+    }
+
+    record = createRecord();
+    record.set("/suit", Field.create(Field.Type.STRING, null));
+    try {
+      buffer.encode(AvroFieldWriter.forSchema(schema), record, defaults);
+      Assert.fail();
+    } catch (DataGeneratorException e) {
+      Assert.assertEquals(Errors.AVRO_GENERATOR_01, e.getErrorCode());
+    }
+
+    record = createRecord();
+    record.set("/id", Field.create("not a number"));
+    try {
+      buffer.encode(AvroFieldWriter.forSchema(schema), record, defaults);
+      Assert.fail();
+    } catch (DataGeneratorException e) {
+      Assert.assertEquals(Errors.AVRO_GENERATOR_05, e.getErrorCode());
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.google.common.io.Resources;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.ExtensionRegistry;
+import com.google.protobuf.UninitializedMessageException;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TestProtobufFieldReader {
+
+  private final Map<String, Descriptors.FileDescriptor> fileDescriptorMap = new HashMap<>();
+  private final Map<String, Object> defaultValueMap = new HashMap<>();
+  private final Map<String, Set<Descriptors.FieldDescriptor>> typeToExtensionMap = new HashMap<>();
+  private Descriptors.Descriptor md;
+  private ExtensionRegistry extensionRegistry;
+
+  @Before
+  public void setUp() throws Exception {
+    FileInputStream fin = new FileInputStream(Resources.getResource("Employee.desc").getPath());
+    DescriptorProtos.FileDescriptorSet set = DescriptorProtos.FileDescriptorSet.parseFrom(fin);
+    ProtobufTypeUtil.getAllFileDescriptors(set, new HashMap<>(), fileDescriptorMap);
+    ProtobufTypeUtil.populateDefaultsAndExtensions(fileDescriptorMap, typeToExtensionMap, defaultValueMap);
+    md = ProtobufTypeUtil.getDescriptor(set, fileDescriptorMap, "Employee.desc", "util.Employee");
+    extensionRegistry = ProtobufTestUtil.createExtensionRegistry(typeToExtensionMap);
+  }
+
+  @Test
+  public void testReadDelimitedMessages() throws Exception {
+    ProtobufFieldReader reader = new ProtobufFieldReader(md, typeToExtensionMap);
+    byte[] data = ProtobufTestUtil.getProtoBufData();
+    List<DynamicMessage> messages = ProtobufTestUtil.getMessages(md, extensionRegistry, data);
+
+    ByteArrayInputStream in = new ByteArrayInputStream(data);
+    for (int i = 0; i < messages.size(); i++) {
+      int size = CodedInputStream.readRawVarint32(in.read(), in);
+      byte[] message = new byte[size];
+      Assert.assertEquals(size, in.read(message));
+
+      Record record = RecordCreator.create();
+      Field field = reader.read(record, CodedInputStream.newInstance(message));
+      ProtobufTestUtil.checkProtobufRecords(field, i);
+      ProtobufTestUtil.checkProtobufRecordsForExtensions(field, i);
+      ProtobufTestUtil.checkRecordForUnknownFields(record, i);
+
+      // same fields and unknown field headers as the reflective conversion
+      Record expectedRecord = RecordCreator.create();
+      Field expected = ProtobufTypeUtil.protobufToSdcField(expectedRecord, "", md, typeToExtensionMap, messages.get(i));
+      Assert.assertEquals(expected, field);
+      Assert.assertEquals(expectedRecord.getHeader().getAttributeNames(), record.getHeader().getAttributeNames());
+      for (String name : expectedRecord.getHeader().getAttributeNames()) {
+        Assert.assertEquals(expectedRecord.getHeader().getAttribute(name), record.getHeader().getAttribute(name));
+      }
+    }
+    Assert.assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testReadProtobuf3() throws Exception {
+    Map<String, Descriptors.FileDescriptor> fileDescriptors = new HashMap<>();
+    FileInputStream fin = new FileInputStream(Resources.getResource("TestRecordProtobuf3.desc").getPath());
+    DescriptorProtos.FileDescriptorSet set = DescriptorProtos.FileDescriptorSet.parseFrom(fin);
+    ProtobufTypeUtil.getAllFileDescriptors(set, new HashMap<>(), fileDescriptors);
+    Descriptors.Descriptor descriptor =
+        ProtobufTypeUtil.getDescriptor(set, fileDescriptors, "TestRecordProtobuf3.desc", "TestRecord");
+    Map<String, Set<Descriptors.FieldDescriptor>> extensions = new HashMap<>();
+
+    byte[] data = FileUtils.readFileToByteArray(
+        new File(Resources.getResource("TestProtobuf3NoDelimiter.ser").getPath())
+    );
+    Record record = RecordCreator.create();
+    Field field = new ProtobufFieldReader(descriptor, extensions).read(record, CodedInputStream.newInstance(data));
+
+    DynamicMessage message = DynamicMessage.parseFrom(descriptor, data);
+    Field expected = ProtobufTypeUtil.protobufToSdcField(RecordCreator.create(), "", descriptor, extensions, message);
+    Assert.assertEquals(expected, field);
+    Assert.assertEquals("", field.getValueAsListMap().get("full_name").getValue());
+    Assert.assertEquals(2, field.getValueAsListMap().get("test_map").getValueAsMap().size());
+  }
+
+  @Test
+  public void testOneof() throws Exception {
+    Descriptors.Descriptor descriptor = OneofProto.getDescriptor().findMessageTypeByName("Oneof");
+    ProtobufFieldReader reader = new ProtobufFieldReader(descriptor, typeToExtensionMap);
+
+    // the last member of a oneof in the input wins
+    ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+    OneofProto.Oneof.newBuilder().setOneofString("Hello").build().writeTo(bOut);
+    OneofProto.Oneof.newBuilder().setOneofInt(5).build().writeTo(bOut);
+
+    Field field = reader.read(RecordCreator.create(), CodedInputStream.newInstance(bOut.toByteArray()));
+    Assert.assertEquals(5, field.getValueAsListMap().get("oneofInt").getValueAsInteger());
+    Assert.assertEquals("", field.getValueAsListMap().get("oneofString").getValue());
+
+    DynamicMessage message = DynamicMessage.parseFrom(descriptor, bOut.toByteArray());
+    Assert.assertEquals(
+        ProtobufTypeUtil.protobufToSdcField(RecordCreator.create(), "", descriptor, typeToExtensionMap, message),
+        field
+    );
+  }
+
+  @Test
+  public void testMissingRequiredField() throws Exception {
+    FileInputStream fin = new FileInputStream(Resources.getResource("test1.desc").getPath());
+    DescriptorProtos.FileDescriptorSet set = DescriptorProtos.FileDescriptorSet.parseFrom(fin);
+    Map<String, Descriptors.FileDescriptor> fileDescriptors = new HashMap<>();
+    ProtobufTypeUtil.getAllFileDescriptors(set, new HashMap<>(), fileDescriptors);
+    Descriptors.Descriptor descriptor =
+        ProtobufTypeUtil.getDescriptor(set, fileDescriptors, "test1.desc", "util.Person");
+
+    byte[] data = PersonProto.Person.newBuilder()
+        .setId(1)
+        .setName("John Doe")
+        .addPhone(PersonProto.Person.PhoneNumber.newBuilder().setNumber("7568345"))
+        .buildPartial()
+        .toByteArray();
+    try {
+      ProtobufFieldReader reader = new ProtobufFieldReader(descriptor, new HashMap<>());
+      reader.read(RecordCreator.create(), CodedInputStream.newInstance(data));
+      Assert.fail("UninitializedMessageException expected as a required field is missing");
+    } catch (UninitializedMessageException e) {
+      Assert.assertEquals("phone[0].type", e.getMissingFields().get(0));
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.util;
+
+import com.google.common.io.Resources;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.lib.generator.DataGeneratorException;
+import com.streamsets.pipeline.lib.parser.protobuf.Errors;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TestProtobufFieldWriter {
+
+  private final Map<String, Descriptors.FileDescriptor> fileDescriptorMap = new HashMap<>();
+  private final Map<String, Object> defaultValueMap = new HashMap<>();
+  private final Map<String, Set<Descriptors.FieldDescriptor>> typeToExtensionMap = new HashMap<>();
+  private DescriptorProtos.FileDescriptorSet set;
+  private Descriptors.Descriptor md;
+
+  @Before
+  public void setUp() throws Exception {
+    FileInputStream fin = new FileInputStream(Resources.getResource("Employee.desc").getPath());
+    set = DescriptorProtos.FileDescriptorSet.parseFrom(fin);
+    ProtobufTypeUtil.getAllFileDescriptors(set, new HashMap<>(), fileDescriptorMap);
+    ProtobufTypeUtil.populateDefaultsAndExtensions(fileDescriptorMap, typeToExtensionMap, defaultValueMap);
+    md = ProtobufTypeUtil.getDescriptor(set, fileDescriptorMap, "Employee.desc", "util.Employee");
+  }
+
+  @Test
+  public void testWriteDelimitedRecords() throws Exception {
+    ProtobufFieldWriter writer = new ProtobufFieldWriter(md, typeToExtensionMap, defaultValueMap);
+    ProtobufFieldWriter.Buffer buffer = new ProtobufFieldWriter.Buffer();
+
+    ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+    for (Record record : ProtobufTestUtil.getProtobufRecords()) {
+      writer.write(record, buffer, true);
+      buffer.writeTo(bOut);
+
+      // same bytes as the reflective conversion
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      ProtobufTypeUtil.sdcFieldToProtobufMsg(record, md, typeToExtensionMap, defaultValueMap)
+          .writeDelimitedTo(expected);
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      buffer.writeTo(actual);
+      Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+    ProtobufTestUtil.checkProtobufDataFields(bOut.toByteArray());
+    ProtobufTestUtil.checkProtobufDataExtensions(bOut.toByteArray());
+    ProtobufTestUtil.checkProtobufDataUnknownFields(bOut.toByteArray());
+  }
+
+  @Test
+  public void testRepeated() throws Exception {
+    Descriptors.Descriptor descriptor = RepeatedProto.getDescriptor().findMessageTypeByName("Repeated");
+    ProtobufFieldWriter writer = new ProtobufFieldWriter(descriptor, typeToExtensionMap, defaultValueMap);
+
+    List<Field> samples = new ArrayList<>();
+    for (int i = -2; i < 200; i += 7) {
+      samples.add(Field.create(i));
+    }
+    // null, empty and packed values longer than a single length byte
+    for (Field field : Arrays.asList(
+        Field.create(Field.Type.LIST, null),
+        Field.create(Field.Type.LIST, new ArrayList<>()),
+        Field.create(samples)
+    )) {
+      Map<String, Field> repeated = new HashMap<>();
+      repeated.put("samples", field);
+      Record record = RecordCreator.create();
+      record.set(Field.create(repeated));
+      assertSameBytes(writer, record, descriptor);
+    }
+  }
+
+  @Test
+  public void testOneofAndMapProtobuf3() throws Exception {
+    Map<String, Descriptors.FileDescriptor> fileDescriptors = new HashMap<>();
+    FileInputStream fin = new FileInputStream(Resources.getResource("TestRecordProtobuf3.desc").getPath());
+    DescriptorProtos.FileDescriptorSet set = DescriptorProtos.FileDescriptorSet.parseFrom(fin);
+    ProtobufTypeUtil.getAllFileDescriptors(set, new HashMap<>(), fileDescriptors);
+    Descriptors.Descriptor descriptor =
+        ProtobufTypeUtil.getDescriptor(set, fileDescriptors, "TestRecordProtobuf3.desc", "TestRecord");
+    ProtobufFieldWriter writer = new ProtobufFieldWriter(descriptor, new HashMap<>(), new HashMap<>());
+
+    Map<String, Field> map = new LinkedHashMap<>();
+    map.put("hello", Field.create("world"));
+    map.put("", Field.create("empty key"));
+    map.put("empty value", Field.create(""));
+    LinkedHashMap<String, Field> root = new LinkedHashMap<>();
+    // both members of the oneof are set, the last one declared wins
+    root.put("first_name", Field.create("Adam"));
+    root.put("full_name", Field.create("Adam Smith"));
+    root.put("test_map", Field.create(map));
+    root.put("samples", Field.create(Arrays.asList(Field.create(1), Field.create(-1))));
+    Record record = RecordCreator.create();
+    record.set(Field.createListMap(root));
+    assertSameBytes(writer, record, descriptor);
+
+    ProtobufFieldWriter.Buffer buffer = new ProtobufFieldWriter.Buffer();
+    writer.write(record, buffer, false);
+    ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+    buffer.writeTo(bOut);
+    DynamicMessage message = DynamicMessage.parseFrom(descriptor, bOut.toByteArray());
+    Assert.assertEquals("Adam Smith", message.getField(descriptor.findFieldByName("full_name")));
+    Assert.assertFalse(message.hasField(descriptor.findFieldByName("first_name")));
+  }
+
+  @Test
+  public void testMissingRequiredField() throws Exception {
+    Descriptors.Descriptor descriptor =
+        ProtobufTypeUtil.getDescriptor(set, fileDescriptorMap, "Employee.desc", "util.Person");
+    ProtobufFieldWriter writer = new ProtobufFieldWriter(descriptor, typeToExtensionMap, defaultValueMap);
+    Record record = RecordCreator.create();
+    record.set(Field.create(new HashMap<>()));
+    try {
+      writer.write(record, new ProtobufFieldWriter.Buffer(), true);
+      Assert.fail("DataGeneratorException expected as a required field is missing");
+    } catch (DataGeneratorException e) {
+      Assert.assertEquals(Errors.PROTOBUF_04, e.getErrorCode());
+    }
+  }
+
+  private void assertSameBytes(
+      ProtobufFieldWriter writer,
+      Record record,
+      Descriptors.Descriptor descriptor
+  ) throws Exception {
+    ProtobufFieldWriter.Buffer buffer = new ProtobufFieldWriter.Buffer();
+    DynamicMessage message =
+        ProtobufTypeUtil.sdcFieldToProtobufMsg(record, descriptor, typeToExtensionMap, defaultValueMap);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    message.writeTo(expected);
+    writer.write(record, buffer, false);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    buffer.writeTo(actual);
+    Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+    expected.reset();
+    message.writeDelimitedTo(expected);
+    writer.write(record, buffer, true);
+    actual.reset();
+    buffer.writeTo(actual);
+    Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+}
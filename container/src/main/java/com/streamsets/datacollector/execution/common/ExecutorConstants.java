@@ -24,6 +24,13 @@ public class ExecutorConstants {
   public static final int RUNNER_THREAD_POOL_SIZE_DEFAULT = 50;
   public static final int RUNNER_THREAD_POOL_SIZE_MULTIPLIER = 10;
 
+  // Runs the pipelines on virtual threads or a work stealing pool instead of one runner thread each
+  public static final String RUNNER_SHARED_SCHEDULER_ENABLED_KEY = "runner.shared.scheduler.enabled";
+  public static final boolean RUNNER_SHARED_SCHEDULER_ENABLED_DEFAULT = false;
+  // Target parallelism of the work stealing pool, 0 for the number of cores
+  public static final String RUNNER_SHARED_SCHEDULER_PARALLELISM_KEY = "runner.shared.scheduler.parallelism";
+  public static final int RUNNER_SHARED_SCHEDULER_PARALLELISM_DEFAULT = 0;
+
   public static final String RUNNER_STOP_THREAD_POOL_SIZE_KEY = "runner_stop.thread.pool.size";
   public static final String RUNNER_STOP_THREAD_POOL_KEEP_ALIVE_TIME_KEY = "runner_stop.thread.pool.size";
   public static final int RUNNER_STOP_THREAD_POOL_KEEP_ALIVE_TIME_DEFAULT = 5;
@@ -38,6 +38,9 @@ import java.util.concurrent.TimeUnit;
  *   <li><code>runner.thread.pool.size</code></li>
  * </ul>
  * The default size for both the pools are 10.
+ * <p/>
+ * Pipelines run on the runner executor unless <code>runner.shared.scheduler.enabled</code> is set, in which case they
+ * run on the shared {@link PipelineScheduler}.
  *
  */
 @Module(injects = SafeScheduledExecutorService.class, library = true, includes = {RuntimeModule.class})
@@ -67,6 +70,15 @@ public class ExecutorModule {
     );
   }
 
+  @Provides @Singleton
+  public PipelineScheduler providePipelineScheduler(
+    Configuration configuration,
+    RuntimeInfo runtimeInfo,
+    @Named("runnerExecutor") SafeScheduledExecutorService runnerExecutor
+  ) {
+    return new PipelineScheduler(configuration, runtimeInfo, runnerExecutor);
+  }
+
   @Provides @Singleton @Named("runnerStopExecutor")
   public SafeScheduledExecutorService provideRunnerStopExecutor(
     Configuration configuration,
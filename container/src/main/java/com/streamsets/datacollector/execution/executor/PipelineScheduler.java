@@ -0,0 +1,248 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.execution.executor;
+
+import com.streamsets.datacollector.execution.common.ExecutorConstants;
+import com.streamsets.datacollector.main.RuntimeInfo;
+import com.streamsets.datacollector.metrics.MetricsConfigurator;
+import com.streamsets.datacollector.util.Configuration;
+import com.streamsets.pipeline.lib.executor.SafeScheduledExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the long running tasks of the pipelines, the pipeline runnables and anything else that waits for the whole
+ * life of a pipeline.
+ * <p/>
+ * By default the tasks run on the runner executor, taking one of its threads each. When the shared scheduler is
+ * enabled they run on virtual threads if the JVM supports them, so an idle origin waiting for data parks instead of
+ * holding a platform thread. Otherwise they run on a work stealing pool that adds workers while the pipelines block and
+ * retires them once they are idle.
+ */
+public class PipelineScheduler extends AbstractExecutorService {
+  private static final Logger LOG = LoggerFactory.getLogger(PipelineScheduler.class);
+  private static final String THREAD_NAME_PREFIX = "PipelineScheduler-";
+
+  static final String MODE_RUNNER = "runner";
+  static final String MODE_VIRTUAL_THREADS = "virtualThreads";
+  static final String MODE_WORK_STEALING = "workStealing";
+
+  private static final String KEY_MODE = "mode";
+  private static final String KEY_RUNNING_COUNT = "running";
+
+  private final ExecutorService executor;
+  private final boolean shared;
+  private final String mode;
+  private final AtomicInteger running;
+
+  @Inject
+  public PipelineScheduler(
+      Configuration configuration,
+      RuntimeInfo runtimeInfo,
+      @Named("runnerExecutor") SafeScheduledExecutorService runnerExecutor
+  ) {
+    this.shared = isShared(configuration);
+    this.running = new AtomicInteger();
+    if (!shared) {
+      this.executor = runnerExecutor;
+      this.mode = MODE_RUNNER;
+      return;
+    }
+
+    ExecutorService virtualThreads = createVirtualThreadExecutor();
+    if (virtualThreads != null) {
+      this.executor = virtualThreads;
+      this.mode = MODE_VIRTUAL_THREADS;
+    } else {
+      this.executor = createWorkStealingPool(getParallelism(configuration));
+      this.mode = MODE_WORK_STEALING;
+    }
+    LOG.info("Running pipelines on the shared scheduler using {}", mode);
+
+    Map<String, Object> gaugeMap = MetricsConfigurator.createFrameworkGauge(
+        runtimeInfo.getMetrics(),
+        "pipeline-scheduler",
+        "runtime",
+        null
+    ).getValue();
+    gaugeMap.put(KEY_MODE, mode);
+    gaugeMap.put(KEY_RUNNING_COUNT, running);
+  }
+
+  public static boolean isShared(Configuration configuration) {
+    return configuration.get(
+        ExecutorConstants.RUNNER_SHARED_SCHEDULER_ENABLED_KEY,
+        ExecutorConstants.RUNNER_SHARED_SCHEDULER_ENABLED_DEFAULT
+    );
+  }
+
+  static int getParallelism(Configuration configuration) {
+    int parallelism = configuration.get(
+        ExecutorConstants.RUNNER_SHARED_SCHEDULER_PARALLELISM_KEY,
+        ExecutorConstants.RUNNER_SHARED_SCHEDULER_PARALLELISM_DEFAULT
+    );
+    return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns true if the pipelines run on the shared scheduler rather than on threads of the runner executor.
+   */
+  public boolean isShared() {
+    return shared;
+  }
+
+  String getMode() {
+    return mode;
+  }
+
+  // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(...).factory()), looked up at runtime as it is only
+  // available from Java 21
+  private static ExecutorService createVirtualThreadExecutor() {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX, 0L);
+      ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newExecutor.invoke(null, threadFactory);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOG.debug("Virtual threads are not available: {}", e.toString());
+      return null;
+    }
+  }
+
+  private static ExecutorService createWorkStealingPool(int parallelism) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName(THREAD_NAME_PREFIX + threadCount.getAndIncrement());
+      return thread;
+    };
+    return new ForkJoinPool(parallelism, threadFactory, null, true);
+  }
+
+  private Runnable wrap(Runnable task) {
+    if (!shared) {
+      return task;
+    }
+    return () -> {
+      running.incrementAndGet();
+      try {
+        if (executor instanceof ForkJoinPool) {
+          // Pipelines block for most of their life, the pool compensates with another worker while they do
+          ForkJoinPool.managedBlock(new BlockingTask(task));
+        } else {
+          task.run();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+    };
+  }
+
+  private static class BlockingTask implements ForkJoinPool.ManagedBlocker {
+    private final Runnable task;
+    private boolean done;
+
+    private BlockingTask(Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public boolean block() {
+      try {
+        task.run();
+      } finally {
+        done = true;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return done;
+    }
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    if (!shared) {
+      return executor.submit(task);
+    }
+    // FutureTask rather than the executor's own future, a ForkJoinTask is not interrupted when cancelled
+    return super.submit(task);
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    if (!shared) {
+      return executor.submit(task);
+    }
+    return super.submit(task);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    executor.execute(wrap(command));
+  }
+
+  @Override
+  public void shutdown() {
+    // the runner executor is shut down by its owner
+    if (shared) {
+      executor.shutdown();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return shared ? executor.shutdownNow() : Collections.emptyList();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return executor.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return executor.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+}
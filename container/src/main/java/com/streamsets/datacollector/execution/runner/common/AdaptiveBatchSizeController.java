@@ -0,0 +1,268 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.execution.runner.common;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.streamsets.datacollector.metrics.MetricsConfigurator;
+import com.streamsets.datacollector.util.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adjusts the batch size handed to the origin so that batches finish close to a target latency without pushing the
+ * heap over a budget.
+ * <p/>
+ * After every batch the controller looks at the batch duration, the time spent in destinations and executors and the
+ * heap occupancy. Heap occupancy is the occupancy of the tenured pool after its last collection, the current heap
+ * usage also counts garbage that is not collected yet and regularly goes over any budget just before a GC:
+ * <ul>
+ *   <li>Heap over budget after a collection that happened since the previous batch: the batch size is halved. The
+ *   occupancy only changes with the next collection, so a single reading doesn't keep shrinking the batch.</li>
+ *   <li>Latency over target: the batch size shrinks proportionally.</li>
+ *   <li>Latency under target and the origin filled the batch: the batch size grows, up to twice as fast when most of
+ *   the time is spent in destinations as bigger batches amortize their round trips.</li>
+ * </ul>
+ * The batch size always stays between the configured minimum and production.maxBatchSize. Decisions are published in
+ * the pipeline.adaptiveBatchSize gauge and histogram.
+ */
+public class AdaptiveBatchSizeController {
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBatchSizeController.class);
+
+  private static final String METRIC_NAME = "pipeline.adaptiveBatchSize";
+  private static final double LATENCY_SMOOTHING = 0.3;
+  private static final double SHRINK_THRESHOLD = 1.2;
+  private static final double GROW_THRESHOLD = 0.8;
+  private static final double MAX_GROWTH = 2.0;
+  private static final double MAX_GROWTH_PROCESSING_BOUND = 1.25;
+
+  enum Decision {
+    HOLD,
+    GROW,
+    SHRINK_LATENCY,
+    SHRINK_MEMORY,
+  }
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final long targetLatency;
+  private final double maxHeapUsage;
+  private final MemoryPoolMXBean tenuredPool;
+  private final List<GarbageCollectorMXBean> tenuredCollectors;
+  private final Map<String, Object> gauge;
+  private final Histogram batchSizeHistogram;
+
+  private volatile int batchSize;
+  private double averageLatency = -1;
+  private Decision lastDecision = Decision.HOLD;
+  private long lastHeapCollections = -1;
+  private long increases;
+  private long decreases;
+
+  public static boolean isEnabled(Configuration configuration) {
+    return configuration.get(Constants.ADAPTIVE_BATCH_SIZE_KEY, Constants.ADAPTIVE_BATCH_SIZE_DEFAULT);
+  }
+
+  public AdaptiveBatchSizeController(
+      Configuration configuration,
+      MetricRegistry metrics,
+      String pipelineName,
+      String revision
+  ) {
+    maxBatchSize = configuration.get(Constants.MAX_BATCH_SIZE_KEY, Constants.MAX_BATCH_SIZE_DEFAULT);
+    minBatchSize = Math.max(1, Math.min(maxBatchSize, configuration.get(
+        Constants.ADAPTIVE_BATCH_SIZE_MIN_KEY,
+        Constants.ADAPTIVE_BATCH_SIZE_MIN_DEFAULT
+    )));
+    targetLatency = Math.max(1, configuration.get(
+        Constants.ADAPTIVE_BATCH_SIZE_TARGET_LATENCY_KEY,
+        Constants.ADAPTIVE_BATCH_SIZE_TARGET_LATENCY_DEFAULT
+    ));
+    maxHeapUsage = configuration.get(
+        Constants.ADAPTIVE_BATCH_SIZE_MAX_HEAP_PERCENT_KEY,
+        Constants.ADAPTIVE_BATCH_SIZE_MAX_HEAP_PERCENT_DEFAULT
+    ) / 100.0;
+    batchSize = maxBatchSize;
+    tenuredPool = findTenuredPool();
+    if (tenuredPool == null) {
+      LOG.warn("Could not find the tenured heap pool, the batch size won't be adjusted to the heap usage");
+    }
+    tenuredCollectors = findCollectors(tenuredPool);
+
+    gauge = MetricsConfigurator.createGauge(
+        metrics,
+        METRIC_NAME,
+        (Comparator<String>) null,
+        pipelineName,
+        revision
+    ).getValue();
+    batchSizeHistogram = MetricsConfigurator.createHistogram5Min(metrics, METRIC_NAME, pipelineName, revision);
+    updateGauge(0, 0, heapUsage());
+    LOG.info(
+        "Adaptive batch size enabled: batch size between {} and {}, target latency {} ms, heap budget {}%",
+        minBatchSize,
+        maxBatchSize,
+        targetLatency,
+        (int) (maxHeapUsage * 100)
+    );
+  }
+
+  /**
+   * Batch size that the next batch should use.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Updates the batch size with the outcome of a finished batch.
+   *
+   * @param requestedSize batch size the batch was started with
+   * @param records records produced by the origin
+   * @param duration batch duration in milliseconds
+   * @param destinationTime milliseconds spent in destinations and executors
+   */
+  public void batchCompleted(int requestedSize, int records, long duration, long destinationTime) {
+    batchCompleted(requestedSize, records, duration, destinationTime, heapUsage(), heapCollections());
+  }
+
+  @VisibleForTesting
+  synchronized void batchCompleted(
+      int requestedSize,
+      int records,
+      long duration,
+      long destinationTime,
+      double heap,
+      long heapCollections
+  ) {
+    averageLatency = averageLatency < 0
+        ? duration
+        : LATENCY_SMOOTHING * duration + (1 - LATENCY_SMOOTHING) * averageLatency;
+    boolean newHeapReading = heapCollections != lastHeapCollections;
+    lastHeapCollections = heapCollections;
+
+    int newSize = batchSize;
+    Decision decision = Decision.HOLD;
+    if (heap > maxHeapUsage && newHeapReading) {
+      newSize = batchSize / 2;
+      decision = Decision.SHRINK_MEMORY;
+    } else if (averageLatency > targetLatency * SHRINK_THRESHOLD) {
+      newSize = (int) (batchSize * targetLatency / averageLatency);
+      decision = Decision.SHRINK_LATENCY;
+    } else if (averageLatency < targetLatency * GROW_THRESHOLD && records >= requestedSize) {
+      // Only grow when the batch size, not the amount of available data, limited the batch
+      double growth = Math.min(MAX_GROWTH, targetLatency / Math.max(1.0, averageLatency));
+      if (destinationTime * 2 < duration) {
+        growth = Math.min(growth, MAX_GROWTH_PROCESSING_BOUND);
+      }
+      newSize = Math.max(batchSize + 1, (int) (batchSize * growth));
+      decision = Decision.GROW;
+    }
+    newSize = Math.max(minBatchSize, Math.min(maxBatchSize, newSize));
+
+    if (newSize != batchSize) {
+      if (newSize > batchSize) {
+        increases++;
+      } else {
+        decreases++;
+      }
+      LOG.debug("Batch size changed from {} to {} ({})", batchSize, newSize, decision);
+      batchSize = newSize;
+      // Latency observed with the previous batch size doesn't predict the new one
+      averageLatency = -1;
+    } else if (decision != Decision.HOLD) {
+      // Already at the limit
+      decision = Decision.HOLD;
+    }
+    lastDecision = decision;
+    batchSizeHistogram.update(batchSize);
+    updateGauge(duration, destinationTime, heap);
+  }
+
+  @VisibleForTesting
+  Decision getLastDecision() {
+    return lastDecision;
+  }
+
+  private void updateGauge(long duration, long destinationTime, double heap) {
+    gauge.put("Batch Size", batchSize);
+    gauge.put("Decision", lastDecision.name());
+    gauge.put("Batch Latency (ms)", duration);
+    gauge.put("Target Latency (ms)", targetLatency);
+    gauge.put("Destination Time Share", duration == 0 ? "0%" : (destinationTime * 100 / duration) + "%");
+    gauge.put("Heap Usage", (int) (heap * 100) + "%");
+    gauge.put("Increases", increases);
+    gauge.put("Decreases", decreases);
+  }
+
+  private double heapUsage() {
+    MemoryUsage usage = tenuredPool == null ? null : tenuredPool.getCollectionUsage();
+    if (usage == null) {
+      return 0;
+    }
+    long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+    return max > 0 ? (double) usage.getUsed() / max : 0;
+  }
+
+  /**
+   * Returns the number of collections run by the collectors of the tenured pool, the occupancy after collection can
+   * only change when it changes.
+   */
+  private long heapCollections() {
+    long collections = 0;
+    for (GarbageCollectorMXBean collector : tenuredCollectors) {
+      collections += Math.max(0, collector.getCollectionCount());
+    }
+    return collections;
+  }
+
+  /**
+   * Returns the heap pool that holds long lived objects. As for low memory detection, it is the heap pool that
+   * supports usage thresholds, which the eden and survivor spaces don't.
+   */
+  private static MemoryPoolMXBean findTenuredPool() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.getCollectionUsage() != null) {
+        return pool;
+      }
+    }
+    return null;
+  }
+
+  private static List<GarbageCollectorMXBean> findCollectors(MemoryPoolMXBean pool) {
+    List<GarbageCollectorMXBean> collectors = new ArrayList<>();
+    if (pool != null) {
+      for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+        if (Arrays.asList(collector.getMemoryPoolNames()).contains(pool.getName())) {
+          collectors.add(collector);
+        }
+      }
+    }
+    return collectors;
+  }
+}
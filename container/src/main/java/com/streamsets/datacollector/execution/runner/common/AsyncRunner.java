@@ -41,11 +41,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 public class AsyncRunner implements Runner, PipelineInfo {
 
   private final Runner runner;
-  private final SafeScheduledExecutorService runnerExecutor;
+  private final ExecutorService runnerExecutor;
   private final SafeScheduledExecutorService runnerStopExecutor;
 
   @Inject
@@ -53,6 +54,17 @@ public class AsyncRunner implements Runner, PipelineInfo {
     Runner runner,
     @Named("runnerExecutor") SafeScheduledExecutorService runnerExecutor,
     @Named("runnerStopExecutor") SafeScheduledExecutorService runnerStopExecutor
+  ) {
+    this(runner, (ExecutorService) runnerExecutor, runnerStopExecutor);
+  }
+
+  /**
+   * @param runnerExecutor executor that runs the pipeline, the task started by it lasts for the whole run.
+   */
+  public AsyncRunner(
+    Runner runner,
+    ExecutorService runnerExecutor,
+    SafeScheduledExecutorService runnerStopExecutor
   ) {
     this.runner = runner;
     this.runnerExecutor = runnerExecutor;
@@ -26,6 +26,15 @@ public class Constants {
   public static final String PIPELINE_CLUSTER_TOKEN_KEY = "pipeline.cluster.token";
   public static final String MAX_BATCH_SIZE_KEY = "production.maxBatchSize";
   public static final int MAX_BATCH_SIZE_DEFAULT = 1000;
+  public static final String ADAPTIVE_BATCH_SIZE_KEY = "production.adaptiveBatchSize.enabled";
+  public static final boolean ADAPTIVE_BATCH_SIZE_DEFAULT = false;
+  public static final String ADAPTIVE_BATCH_SIZE_TARGET_LATENCY_KEY = "production.adaptiveBatchSize.targetLatencyMs";
+  public static final long ADAPTIVE_BATCH_SIZE_TARGET_LATENCY_DEFAULT = 1000;
+  public static final String ADAPTIVE_BATCH_SIZE_MIN_KEY = "production.adaptiveBatchSize.minBatchSize";
+  public static final int ADAPTIVE_BATCH_SIZE_MIN_DEFAULT = 10;
+  public static final String ADAPTIVE_BATCH_SIZE_MAX_HEAP_PERCENT_KEY =
+      "production.adaptiveBatchSize.maxHeapUsagePercent";
+  public static final int ADAPTIVE_BATCH_SIZE_MAX_HEAP_PERCENT_DEFAULT = 75;
   public static final String DELIVERY_GUARANTEE = "deliveryGuarantee";
   public static final String MAX_ERROR_FILE_SIZE_KEY = "production.maxErrorFileSize";
   public static final String MAX_ERROR_FILE_SIZE_DEFAULT = "1024MB";
@@ -36,6 +36,9 @@ public class DataObserverRunnable implements Runnable {
   private static final Logger LOG = LoggerFactory.getLogger(DataObserverRunnable.class);
   public static final String RUNNABLE_NAME = "DataObserverRunnable";
   private static final int SCHEDULED_DELAY = -1;
+  private static final int SHARED_SCHEDULED_DELAY = 1;
+  // how often handleQueuedRequests() is meant to be called, often enough for the bounded request queue not to fill up
+  public static final long SHARED_SCHEDULE_INTERVAL_MILLIS = 100;
 
   private BlockingQueue<Object> requestQueue;
   private final DataObserverRunner dataObserverRunner;
@@ -79,17 +82,7 @@ public class DataObserverRunnable implements Runnable {
         try {
           Object request = requestQueue.poll(1000, TimeUnit.MILLISECONDS);
           if (request != null) {
-            if (request instanceof DataRulesEvaluationRequest) {
-              //data monitoring
-              dataObserverRunner.handleDataRulesEvaluationRequest((DataRulesEvaluationRequest) request);
-            } else if (request instanceof RulesConfigurationChangeRequest) {
-              //configuration changes
-              dataObserverRunner.handleConfigurationChangeRequest((RulesConfigurationChangeRequest) request);
-            } else if (request instanceof PipelineErrorNotificationRequest) {
-              dataObserverRunner.handlePipelineErrorNotificationRequest((PipelineErrorNotificationRequest) request);
-            } else {
-              LOG.error("Unknown request: " + request.getClass().getName());
-            }
+            handleRequest(request);
           }
         } catch (InterruptedException e) {
           LOG.debug("Stopping the Pipeline Observer, Reason: {}", e.toString(), e);
@@ -101,6 +94,32 @@ public class DataObserverRunnable implements Runnable {
     }
   }
 
+  /**
+   * Handles the requests queued so far and returns, used instead of {@link #run()} when the observer is scheduled
+   * periodically rather than given its own thread.
+   */
+  public void handleQueuedRequests() {
+    threadHealthReporter.reportHealth(RUNNABLE_NAME, SHARED_SCHEDULED_DELAY, System.currentTimeMillis());
+    Object request;
+    while (!Thread.currentThread().isInterrupted() && (request = requestQueue.poll()) != null) {
+      handleRequest(request);
+    }
+  }
+
+  private void handleRequest(Object request) {
+    if (request instanceof DataRulesEvaluationRequest) {
+      //data monitoring
+      dataObserverRunner.handleDataRulesEvaluationRequest((DataRulesEvaluationRequest) request);
+    } else if (request instanceof RulesConfigurationChangeRequest) {
+      //configuration changes
+      dataObserverRunner.handleConfigurationChangeRequest((RulesConfigurationChangeRequest) request);
+    } else if (request instanceof PipelineErrorNotificationRequest) {
+      dataObserverRunner.handlePipelineErrorNotificationRequest((PipelineErrorNotificationRequest) request);
+    } else {
+      LOG.error("Unknown request: " + request.getClass().getName());
+    }
+  }
+
   public void setMetricRegistryJson(MetricRegistryJson metricRegistryJson) {
     dataObserverRunner.setMetricRegistryJson(metricRegistryJson);
   }
@@ -147,6 +147,7 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
   private final Counter batchErrorRecordsCounter;
   private final Counter batchErrorMessagesCounter;
   private final Histogram runnersHistogram;
+  private final AdaptiveBatchSizeController batchSizeController;
   private MetricRegistryJson metricRegistryJson;
   private Long rateLimit;
 
@@ -241,6 +242,9 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     batchErrorMessagesCounter = MetricsConfigurator.createCounter(metrics, "pipeline.batchErrorMessages", pipelineName,
       revision);
     runnersHistogram = MetricsConfigurator.createHistogram5Min(metrics, "pipeline.runners", pipelineName, revision);
+    batchSizeController = AdaptiveBatchSizeController.isEnabled(configuration)
+        ? new AdaptiveBatchSizeController(configuration, metrics, pipelineName, revision)
+        : null;
   }
 
   public void setObserveRequests(BlockingQueue<Object> observeRequests) {
@@ -451,6 +455,8 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     FullPipeBatch pipeBatch;
     if(batchesToCapture > 0) {
       pipeBatch = new FullPipeBatch(entityName, previousOffset, snapshotBatchSize, true);
+    } else if (batchSizeController != null) {
+      pipeBatch = new FullPipeBatch(entityName, previousOffset, batchSizeController.getBatchSize(), false);
     } else {
       pipeBatch = new FullPipeBatch(entityName, previousOffset, configuration.get(Constants.MAX_BATCH_SIZE_KEY, Constants.MAX_BATCH_SIZE_DEFAULT), false);
     }
@@ -857,6 +863,15 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
       if (isStatsAggregationEnabled()) {
         stageBatchMetrics.put(pipe.getStage().getInfo().getInstanceName(), ((StagePipe) pipe).getBatchMetrics());
       }
+      if (batchSizeController != null) {
+        StageType type = pipe.getStage().getDefinition().getType();
+        if (type == StageType.TARGET || type == StageType.EXECUTOR) {
+          Object processingTime = ((StagePipe) pipe).getBatchMetrics().get(AggregatorUtil.PROCESSING_TIME);
+          if (processingTime instanceof Long) {
+            pipeBatch.addDestinationTime((Long) processingTime);
+          }
+        }
+      }
     }
 
     return committed;
@@ -929,6 +944,16 @@ public class ProductionPipelineRunner implements PipelineRunner, PushSourceConte
     batchErrorRecordsCounter.inc(pipeBatch.getErrorRecords());
     batchErrorMessagesCounter.inc(pipeBatch.getErrorMessages());
 
+    // Snapshot batches use their own batch size and idle batches don't say anything about the data
+    if (batchSizeController != null && !pipeBatch.isIdleBatch() && pipeBatch.getSnapshotsOfAllStagesOutput() == null) {
+      batchSizeController.batchCompleted(
+          pipeBatch.getBatchSize(),
+          pipeBatch.getInputRecords(),
+          batchDuration,
+          pipeBatch.getDestinationTime()
+      );
+    }
+
     if (pipeContext != null) {
       pipeContext.getRuntimeStats().setLastBatchInputRecordsCount(pipeBatch.getInputRecords());
       pipeContext.getRuntimeStats().setLastBatchOutputRecordsCount((pipeBatch.getOutputRecords()));
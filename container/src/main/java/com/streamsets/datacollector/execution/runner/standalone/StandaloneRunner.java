@@ -43,6 +43,7 @@ import com.streamsets.datacollector.execution.SnapshotInfo;
 import com.streamsets.datacollector.execution.SnapshotStore;
 import com.streamsets.datacollector.execution.StateListener;
 import com.streamsets.datacollector.execution.alerts.AlertInfo;
+import com.streamsets.datacollector.execution.executor.PipelineScheduler;
 import com.streamsets.datacollector.execution.metrics.MetricsEventRunnable;
 import com.streamsets.datacollector.execution.runner.RetryUtils;
 import com.streamsets.datacollector.execution.runner.common.Constants;
@@ -142,6 +143,7 @@ public class StandaloneRunner extends AbstractRunner implements StateListener {
   @Inject SnapshotStore snapshotStore;
   @Inject @Named("runnerExecutor") SafeScheduledExecutorService runnerExecutor;
   @Inject ResourceManager resourceManager;
+  @Inject PipelineScheduler pipelineScheduler;
 
   private final ObjectGraph objectGraph;
   private String pipelineTitle = null;
@@ -670,13 +672,17 @@ public class StandaloneRunner extends AbstractRunner implements StateListener {
     getEventListenerManager().broadcastStateChange(
         fromState,
         pipelineState,
-        ThreadUsage.STANDALONE,
+        getThreadUsage(),
         OffsetFileUtil.getOffsets(getRuntimeInfo(), getName(), getRev())
     );
   }
 
 
 
+  private ThreadUsage getThreadUsage() {
+    return pipelineScheduler.isShared() ? ThreadUsage.SHARED : ThreadUsage.STANDALONE;
+  }
+
   private void checkState(boolean expr, ContainerError error, Object... args) throws PipelineRunnerException {
     if (!expr) {
       throw new PipelineRunnerException(error, args);
@@ -689,7 +695,7 @@ public class StandaloneRunner extends AbstractRunner implements StateListener {
     checkState(VALID_TRANSITIONS.get(fromState.getStatus()).contains(PipelineStatus.STARTING), ContainerError.CONTAINER_0102,
         fromState.getStatus(), PipelineStatus.STARTING);
 
-    if(!resourceManager.requestRunnerResources(ThreadUsage.STANDALONE)) {
+    if(!resourceManager.requestRunnerResources(getThreadUsage())) {
       throw new PipelineRunnerException(ContainerError.CONTAINER_0166, getName());
     }
     LOG.info("Preparing to start pipeline '{}::{}'", getName(), getRev());
@@ -899,7 +905,18 @@ public class StandaloneRunner extends AbstractRunner implements StateListener {
 
         observerRunnable.setRequestQueue(productionObserveRequests);
         observerRunnable.setStatsQueue(statsQueue);
-        Future<?> observerFuture = runnerExecutor.submit(observerRunnable);
+        Future<?> observerFuture;
+        if (pipelineScheduler.isShared()) {
+          // No thread waiting on the request queue for each pipeline, the queue is drained periodically instead
+          observerFuture = runnerExecutor.scheduleWithFixedDelay(
+            observerRunnable::handleQueuedRequests,
+            DataObserverRunnable.SHARED_SCHEDULE_INTERVAL_MILLIS,
+            DataObserverRunnable.SHARED_SCHEDULE_INTERVAL_MILLIS,
+            TimeUnit.MILLISECONDS
+          );
+        } else {
+          observerFuture = runnerExecutor.submit(observerRunnable);
+        }
         taskBuilder.add(observerFuture);
 
         pipelineRunnable = new ProductionPipelineRunnable(threadHealthReporter, this, prodPipeline, getName(), getRev(), taskBuilder.build());
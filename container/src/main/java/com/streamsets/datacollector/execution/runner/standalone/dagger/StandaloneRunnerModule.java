@@ -16,6 +16,7 @@
 package com.streamsets.datacollector.execution.runner.standalone.dagger;
 
 import com.streamsets.datacollector.execution.Runner;
+import com.streamsets.datacollector.execution.executor.PipelineScheduler;
 import com.streamsets.datacollector.execution.runner.common.AsyncRunner;
 import com.streamsets.datacollector.execution.runner.standalone.StandaloneRunner;
 import com.streamsets.pipeline.lib.executor.SafeScheduledExecutorService;
@@ -48,9 +49,9 @@ public class StandaloneRunnerModule {
   @Provides
   public Runner provideAsyncRunner(
       StandaloneRunner runner,
-      @Named("runnerExecutor") SafeScheduledExecutorService asyncExecutor,
+      PipelineScheduler pipelineScheduler,
       @Named("runnerStopExecutor") SafeScheduledExecutorService asyncStopExecutor
   ) {
-    return new AsyncRunner(runner, asyncExecutor, asyncStopExecutor);
+    return new AsyncRunner(runner, pipelineScheduler, asyncStopExecutor);
   }
 }
@@ -17,7 +17,6 @@ package com.streamsets.datacollector.restapi;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.streamsets.datacollector.config.DataRuleDefinition;
@@ -56,6 +55,7 @@ import com.streamsets.datacollector.restapi.bean.StageConfigurationJson;
 import com.streamsets.datacollector.restapi.bean.UserJson;
 import com.streamsets.datacollector.stagelibrary.StageLibraryTask;
 import com.streamsets.datacollector.store.AclStoreTask;
+import com.streamsets.datacollector.store.PipelineCatalog;
 import com.streamsets.datacollector.store.PipelineInfo;
 import com.streamsets.datacollector.store.PipelineStoreException;
 import com.streamsets.datacollector.store.PipelineStoreTask;
@@ -112,8 +112,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.Principal;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -167,6 +168,16 @@ public class PipelineStoreResource {
   private static final String SYSTEM_ERROR_PIPELINES = "system:errorPipelines";
   private static final String SHARED_WITH_ME_PIPELINES = "system:sharedWithMePipelines";
 
+  private static final EnumSet<PipelineStatus> ACTIVE_STATUSES = EnumSet.copyOf(
+      Arrays.stream(PipelineStatus.values()).filter(PipelineStatus::isActive).collect(Collectors.toList())
+  );
+  private static final EnumSet<PipelineStatus> ERROR_STATUSES = EnumSet.of(
+      PipelineStatus.START_ERROR,
+      PipelineStatus.RUNNING_ERROR,
+      PipelineStatus.RUN_ERROR,
+      PipelineStatus.CONNECT_ERROR
+  );
+
   private static final String SAMPLE_MICROSERVICE_PIPELINE = "sampleMicroservicePipeline.json";
 
   private static final String PIPELINE_IDS = "pipelineIds";
@@ -202,6 +213,7 @@ public class PipelineStoreResource {
   private final Configuration configuration;
   private final Manager manager;
   private final PipelineStoreTask store;
+  private final PipelineCatalog catalog;
   private final StageLibraryTask stageLibrary;
   private final CredentialStoresTask credentialStoresTask;
   private final URI uri;
@@ -235,6 +247,7 @@ public class PipelineStoreResource {
       currentUser = userGroupManager.getUser(principal);
     }
 
+    this.catalog = store.getCatalog();
     if (runtimeInfo.isAclEnabled()) {
       this.store = new AclPipelineStoreTask(store, aclStore, currentUser);
     } else {
@@ -307,184 +320,87 @@ public class PipelineStoreResource {
   ) throws PipelineException {
     RestAPIUtils.injectPipelineInMDC("*");
 
-    final List<PipelineInfo> pipelineInfoList = store.getPipelines().stream().filter(p -> {
-      boolean includeInList = true;
-      try {
-        manager.getPipelineState(p.getPipelineId(), p.getLastRev());
-      } catch (Exception e) {
-        LOG.error(Utils.format("State file not found for pipeline {}", p.getTitle()), e);
-        includeInList = false;
-      }
-      return includeInList;
-    }).collect(Collectors.toList());
-
-    final Map<String, PipelineState> pipelineStateCache = new HashMap<>();
-
-    Collection<PipelineInfo> filteredCollection = Collections2.filter(pipelineInfoList, pipelineInfo -> {
-      String title = pipelineInfo.getTitle() != null ? pipelineInfo.getTitle() : pipelineInfo.getPipelineId();
-      if (filterText != null && !title.toLowerCase().contains(filterText.toLowerCase())) {
-        return false;
-      }
-      if (label != null) {
-        try {
-          Map<String, Object> metadata = pipelineInfo.getMetadata();
-          switch (label) {
-            case SYSTEM_ALL_PIPELINES:
-              return true;
-            case SYSTEM_EDGE_PIPELINES:
-              PipelineState state = manager.getPipelineState(pipelineInfo.getPipelineId(), pipelineInfo.getLastRev());
-              pipelineStateCache.put(pipelineInfo.getPipelineId(), state);
-              return state.getExecutionMode().equals(ExecutionMode.EDGE);
-            case SYSTEM_MICROSERVICE_PIPELINES:
-              return metadata != null && metadata.containsKey(MICROSERVICE);
-            case SYSTEM_RUNNING_PIPELINES:
-              state = manager.getPipelineState(pipelineInfo.getPipelineId(), pipelineInfo.getLastRev());
-              pipelineStateCache.put(pipelineInfo.getPipelineId(), state);
-              return state.getStatus().isActive();
-            case SYSTEM_NON_RUNNING_PIPELINES:
-              state = manager.getPipelineState(pipelineInfo.getPipelineId(), pipelineInfo.getLastRev());
-              pipelineStateCache.put(pipelineInfo.getPipelineId(), state);
-              return !state.getStatus().isActive();
-            case SYSTEM_INVALID_PIPELINES:
-              return !pipelineInfo.isValid();
-            case SYSTEM_ERROR_PIPELINES:
-              state = manager.getPipelineState(pipelineInfo.getPipelineId(), pipelineInfo.getLastRev());
-              pipelineStateCache.put(pipelineInfo.getPipelineId(), state);
-              PipelineStatus status = state.getStatus();
-              return status == PipelineStatus.START_ERROR ||
-                  status == PipelineStatus.RUNNING_ERROR ||
-                  status == PipelineStatus.RUN_ERROR ||
-                  status == PipelineStatus.CONNECT_ERROR;
-            case SYSTEM_PUBLISHED_PIPELINES:
-              state = manager.getPipelineState(pipelineInfo.getPipelineId(), pipelineInfo.getLastRev());
-              pipelineStateCache.put(pipelineInfo.getPipelineId(), state);
-              return !isRemotePipeline(state) && metadata != null && metadata.containsKey(DPM_PIPELINE_ID);
-            case SYSTEM_DPM_CONTROLLED_PIPELINES:
-              state = manager.getPipelineState(pipelineInfo.getPipelineId(), pipelineInfo.getLastRev());
-              pipelineStateCache.put(pipelineInfo.getPipelineId(), state);
-              return isRemotePipeline(state);
-            case SYSTEM_LOCAL_PIPELINES:
-              return metadata == null || !metadata.containsKey(DPM_PIPELINE_ID);
-            case SHARED_WITH_ME_PIPELINES:
-              return !pipelineInfo.getCreator().equals(user);
-            default:
-              if (metadata != null && metadata.containsKey("labels")) {
-                List<String> labels = (List<String>) metadata.get("labels");
-                if (!labels.contains(label)) {
-                  return false;
-                }
-              } else {
-                return false;
-              }
-          }
-        } catch (PipelineException e) {
-          e.printStackTrace();
-        }
-      }
-      return true;
-    });
-
-    List<PipelineInfo> filteredList = new ArrayList<>(filteredCollection);
-
-    filteredList.sort((p1, p2) -> {
-      if (order.equals(Order.DESC)) {
-        PipelineInfo tmp = p1;
-        p1 = p2;
-        p2 = tmp;
-      }
-
-      if (orderBy.equals(PipelineOrderByFields.NAME)) {
-        return p1.getPipelineId().compareTo(p2.getPipelineId());
-      }
-
-      if (orderBy.equals(PipelineOrderByFields.TITLE)) {
-        String p1Title = p1.getTitle() != null ? p1.getTitle() : p1.getPipelineId();
-        String p2Title = p2.getTitle() != null ? p2.getTitle() : p2.getPipelineId();
-        return p1Title.compareTo(p2Title);
-      }
-
-      if (orderBy.equals(PipelineOrderByFields.LAST_MODIFIED)) {
-        return p2.getLastModified().compareTo(p1.getLastModified());
-      }
-
-      if (orderBy.equals(PipelineOrderByFields.CREATED)) {
-        return p2.getCreated().compareTo(p1.getCreated());
-      }
+    PipelineCatalog.Query query = new PipelineCatalog.Query()
+        .setText(filterText)
+        .setOrder(PipelineCatalog.SortKey.valueOf(orderBy.name()), order == Order.DESC)
+        .setPage(offset, len);
+
+    PipelineCatalog pipelineCatalog = catalog;
+    if (pipelineCatalog == null) {
+      pipelineCatalog = PipelineCatalog.of(store.getPipelines());
+    } else if (runtimeInfo.isAclEnabled()) {
+      // the catalog has all the pipelines, only the ones readable by the user are listed
+      query.setPipelineIds(store.getPipelines().stream().map(PipelineInfo::getPipelineId).collect(Collectors.toSet()));
+    }
 
-      if (orderBy.equals(PipelineOrderByFields.CREATOR)) {
-        return p1.getCreator().compareTo(p2.getCreator());
+    if (label != null) {
+      switch (label) {
+        case SYSTEM_ALL_PIPELINES:
+          break;
+        case SYSTEM_EDGE_PIPELINES:
+          query.setFilter(entry -> entry.getState() != null && entry.getState().getExecutionMode() == ExecutionMode.EDGE);
+          break;
+        case SYSTEM_MICROSERVICE_PIPELINES:
+          query.setFilter(entry -> hasMetadata(entry.getInfo(), MICROSERVICE));
+          break;
+        case SYSTEM_RUNNING_PIPELINES:
+          query.setStatuses(ACTIVE_STATUSES);
+          break;
+        case SYSTEM_NON_RUNNING_PIPELINES:
+          query.setStatuses(EnumSet.complementOf(ACTIVE_STATUSES));
+          break;
+        case SYSTEM_INVALID_PIPELINES:
+          query.setFilter(entry -> !entry.getInfo().isValid());
+          break;
+        case SYSTEM_ERROR_PIPELINES:
+          query.setStatuses(ERROR_STATUSES);
+          break;
+        case SYSTEM_PUBLISHED_PIPELINES:
+          query.setFilter(entry -> !isRemotePipeline(entry.getState()) && hasMetadata(entry.getInfo(), DPM_PIPELINE_ID));
+          break;
+        case SYSTEM_DPM_CONTROLLED_PIPELINES:
+          query.setFilter(entry -> isRemotePipeline(entry.getState()));
+          break;
+        case SYSTEM_LOCAL_PIPELINES:
+          query.setFilter(entry -> !hasMetadata(entry.getInfo(), DPM_PIPELINE_ID));
+          break;
+        case SHARED_WITH_ME_PIPELINES:
+          query.setExcludedCreator(user);
+          break;
+        default:
+          query.setLabel(label);
       }
+    }
 
-      if (orderBy.equals(PipelineOrderByFields.STATUS)) {
-        try {
-          PipelineState p1State = null;
-          PipelineState p2State = null;
-
-          if (pipelineStateCache.containsKey(p1.getPipelineId())) {
-            p1State = pipelineStateCache.get(p1.getPipelineId());
-          } else {
-            p1State = manager.getPipelineState(p1.getPipelineId(), p1.getLastRev());
-            pipelineStateCache.put(p1.getPipelineId(), p1State);
-          }
-
-          if (pipelineStateCache.containsKey(p2.getPipelineId())) {
-            p2State = pipelineStateCache.get(p2.getPipelineId());
-          } else {
-            p2State = manager.getPipelineState(p2.getPipelineId(), p2.getLastRev());
-            pipelineStateCache.put(p2.getPipelineId(), p2State);
-          }
+    PipelineCatalog.Page page = pipelineCatalog.find(query, manager::getPipelineState);
 
-          if (p1State != null && p2State != null) {
-            return p1State.getStatus().compareTo(p2State.getStatus());
-          }
-
-        } catch (PipelineException e) {
-          LOG.debug("Failed to get Pipeline State - " + e.getLocalizedMessage());
-        }
+    List<PipelineInfo> pipelineInfoList = new ArrayList<>(page.getEntries().size());
+    List<PipelineStateJson> statusList = new ArrayList<>(page.getEntries().size());
+    for (PipelineCatalog.Entry entry : page.getEntries()) {
+      pipelineInfoList.add(entry.getInfo());
+      if (entry.getState() != null) {
+        statusList.add(BeanHelper.wrapPipelineState(entry.getState(), true));
       }
-
-      return 0;
-    });
+    }
 
     Object responseData;
-
-    if (filteredList.size() > 0) {
-      int endIndex = offset + len;
-      if (len == -1 || endIndex > filteredList.size()) {
-        endIndex = filteredList.size();
-      }
-      List<PipelineInfoJson> subList = BeanHelper.wrapPipelineInfo(filteredList.subList(offset, endIndex));
-      if (includeStatus) {
-        List<PipelineStateJson> statusList = new ArrayList<>(subList.size());
-        for (PipelineInfoJson pipelineInfoJson: subList) {
-          PipelineState state = pipelineStateCache.get(pipelineInfoJson.getPipelineId());
-          if (state == null) {
-            state = manager.getPipelineState(pipelineInfoJson.getPipelineId(), pipelineInfoJson.getLastRev());
-          }
-          if(state != null) {
-            statusList.add(BeanHelper.wrapPipelineState(state, true));
-          }
-        }
-        responseData = ImmutableList.of(subList, statusList);
-      } else {
-        responseData = subList;
-      }
-
+    if (includeStatus) {
+      responseData = ImmutableList.of(BeanHelper.wrapPipelineInfo(pipelineInfoList), statusList);
     } else {
-      if (includeStatus) {
-        responseData = ImmutableList.of(Collections.emptyList(), Collections.emptyList());
-      } else {
-        responseData = Collections.emptyList();
-      }
+      responseData = BeanHelper.wrapPipelineInfo(pipelineInfoList);
     }
 
     return Response.ok()
         .type(MediaType.APPLICATION_JSON)
         .entity(responseData)
-        .header("TOTAL_COUNT", filteredList.size())
+        .header("TOTAL_COUNT", page.getTotalCount())
         .build();
   }
 
+  private static boolean hasMetadata(PipelineInfo pipelineInfo, String key) {
+    return pipelineInfo.getMetadata() != null && pipelineInfo.getMetadata().containsKey(key);
+  }
+
   @Path("/pipelines/delete")
   @POST
   @ApiOperation(value = "Deletes Pipelines", response = PipelineInfoJson.class,
@@ -1445,6 +1361,9 @@ public class PipelineStoreResource {
   }
 
   private boolean isRemotePipeline(PipelineState state) {
+    if (state == null) {
+      return false;
+    }
     Object isRemote = state.getAttributes().get(RemoteDataCollector.IS_REMOTE_PIPELINE);
     return isRemote != null && (boolean) isRemote;
   }
@@ -56,6 +56,8 @@ public class FullPipeBatch implements PipeBatch {
   private int inputRecords;
   private int outputRecords;
   private RateLimiter rateLimiter;
+  // Milliseconds spent in destinations and executors
+  private long destinationTime;
 
   // True if the batch was created by a framework rather then origin
   private boolean isIdleBatch;
@@ -401,4 +403,12 @@ public class FullPipeBatch implements PipeBatch {
   public boolean isIdleBatch() {
     return isIdleBatch;
   }
+
+  public void addDestinationTime(long time) {
+    destinationTime += time;
+  }
+
+  public long getDestinationTime() {
+    return destinationTime;
+  }
 }
@@ -0,0 +1,634 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.store;
+
+import com.streamsets.datacollector.execution.PipelineState;
+import com.streamsets.datacollector.execution.PipelineStatus;
+import com.streamsets.datacollector.execution.StateEventListener;
+import com.streamsets.datacollector.util.PipelineException;
+import com.streamsets.dc.execution.manager.standalone.ThreadUsage;
+import com.streamsets.pipeline.api.impl.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In memory catalog of the pipelines with secondary indexes, so listing pipelines can filter, sort and page without
+ * going through every pipeline on every request.
+ * <p/>
+ * The pipeline store keeps the catalog up to date as pipelines are created, saved and deleted, and state change events
+ * keep the pipeline states up to date. States that are not known yet, or were invalidated by a store change, are
+ * loaded by the next query that needs them.
+ */
+public class PipelineCatalog implements StateEventListener {
+  private static final Logger LOG = LoggerFactory.getLogger(PipelineCatalog.class);
+  private static final int GRAM_LENGTH = 3;
+  // candidates are sorted directly if they are less than this fraction of the catalog, otherwise the sorted index is
+  // walked skipping non candidates
+  private static final int SORT_CANDIDATES_RATIO = 4;
+
+  public enum SortKey {
+    NAME,
+    TITLE,
+    LAST_MODIFIED,
+    CREATED,
+    CREATOR,
+    STATUS,
+  }
+
+  @FunctionalInterface
+  public interface StateLoader {
+    PipelineState getPipelineState(String name, String rev) throws PipelineException;
+  }
+
+  public static final class Entry {
+    private final PipelineInfo info;
+    private final String title;
+    private final List<String> labels;
+    private final PipelineState state;
+    private final boolean stateLoaded;
+    private final boolean stateMissing;
+
+    @SuppressWarnings("unchecked")
+    private Entry(PipelineInfo info, PipelineState state, boolean stateLoaded, boolean stateMissing) {
+      this.info = info;
+      this.title = info.getTitle() != null ? info.getTitle() : info.getPipelineId();
+      Map<String, Object> metadata = info.getMetadata();
+      this.labels = metadata != null && metadata.get("labels") instanceof List
+          ? (List<String>) metadata.get("labels")
+          : Collections.emptyList();
+      this.state = state;
+      this.stateLoaded = stateLoaded;
+      this.stateMissing = stateMissing;
+    }
+
+    private Entry withState(PipelineState state, boolean stateLoaded, boolean stateMissing) {
+      return new Entry(info, state, stateLoaded, stateMissing);
+    }
+
+    public PipelineInfo getInfo() {
+      return info;
+    }
+
+    public String getPipelineId() {
+      return info.getPipelineId();
+    }
+
+    /**
+     * Title of the pipeline, its id if it has no title.
+     */
+    public String getTitle() {
+      return title;
+    }
+
+    public List<String> getLabels() {
+      return labels;
+    }
+
+    /**
+     * Returns the state of the pipeline as returned by the state loader, always loaded for the entries returned by a
+     * query.
+     */
+    public PipelineState getState() {
+      return state;
+    }
+  }
+
+  /**
+   * Filters, order and page of a {@link #find(Query, StateLoader)} call.
+   */
+  public static class Query {
+    private String text;
+    private String label;
+    private String excludedCreator;
+    private Set<PipelineStatus> statuses;
+    private Set<String> pipelineIds;
+    private Predicate<Entry> filter;
+    private SortKey sortKey = SortKey.NAME;
+    private boolean descending;
+    private int offset;
+    private int len = -1;
+
+    /**
+     * Only pipelines whose title contains the text, ignoring case.
+     */
+    public Query setText(String text) {
+      this.text = text;
+      return this;
+    }
+
+    /**
+     * Only pipelines with the label.
+     */
+    public Query setLabel(String label) {
+      this.label = label;
+      return this;
+    }
+
+    /**
+     * Only pipelines not created by the user.
+     */
+    public Query setExcludedCreator(String excludedCreator) {
+      this.excludedCreator = excludedCreator;
+      return this;
+    }
+
+    /**
+     * Only pipelines with one of the statuses.
+     */
+    public Query setStatuses(Set<PipelineStatus> statuses) {
+      this.statuses = statuses;
+      return this;
+    }
+
+    /**
+     * Only the given pipelines.
+     */
+    public Query setPipelineIds(Set<String> pipelineIds) {
+      this.pipelineIds = pipelineIds;
+      return this;
+    }
+
+    /**
+     * Additional condition that is not backed by an index, the total count of a query with a filter needs a pass over
+     * all the candidate pipelines.
+     */
+    public Query setFilter(Predicate<Entry> filter) {
+      this.filter = filter;
+      return this;
+    }
+
+    public Query setOrder(SortKey sortKey, boolean descending) {
+      this.sortKey = sortKey;
+      this.descending = descending;
+      return this;
+    }
+
+    /**
+     * @param len number of pipelines to return, -1 for all.
+     */
+    public Query setPage(int offset, int len) {
+      this.offset = offset;
+      this.len = len;
+      return this;
+    }
+  }
+
+  public static class Page {
+    private final List<Entry> entries;
+    private final int totalCount;
+
+    private Page(List<Entry> entries, int totalCount) {
+      this.entries = entries;
+      this.totalCount = totalCount;
+    }
+
+    public List<Entry> getEntries() {
+      return entries;
+    }
+
+    /**
+     * Number of pipelines matching the query, regardless of the page.
+     */
+    public int getTotalCount() {
+      return totalCount;
+    }
+  }
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Map<SortKey, NavigableSet<Entry>> sortedIndexes = new EnumMap<>(SortKey.class);
+  private final Map<String, Set<String>> gramIndex = new HashMap<>();
+  private final Map<String, Set<String>> labelIndex = new HashMap<>();
+  private final Map<String, Set<String>> creatorIndex = new HashMap<>();
+  private final Map<PipelineStatus, Set<String>> statusIndex = new EnumMap<>(PipelineStatus.class);
+  // pipelines whose state has to be loaded and pipelines whose state could not be loaded
+  private final Set<String> pendingStates = new HashSet<>();
+  private final Set<String> missingStates = new HashSet<>();
+
+  public PipelineCatalog() {
+    for (SortKey sortKey : SortKey.values()) {
+      sortedIndexes.put(sortKey, new TreeSet<>(comparator(sortKey)));
+    }
+  }
+
+  /**
+   * Returns a catalog of the given pipelines.
+   */
+  public static PipelineCatalog of(Collection<PipelineInfo> pipelines) {
+    PipelineCatalog catalog = new PipelineCatalog();
+    for (PipelineInfo info : pipelines) {
+      catalog.put(info);
+    }
+    return catalog;
+  }
+
+  private static Comparator<Entry> comparator(SortKey sortKey) {
+    Comparator<Entry> comparator;
+    switch (sortKey) {
+      case TITLE:
+        comparator = Comparator.comparing(Entry::getTitle);
+        break;
+      case LAST_MODIFIED:
+        // most recent first, the same as the pipeline listing always did
+        comparator = Comparator.comparing(
+            (Entry e) -> e.getInfo().getLastModified(),
+            Comparator.nullsLast(Comparator.<Date>reverseOrder())
+        );
+        break;
+      case CREATED:
+        comparator = Comparator.comparing(
+            (Entry e) -> e.getInfo().getCreated(),
+            Comparator.nullsLast(Comparator.<Date>reverseOrder())
+        );
+        break;
+      case CREATOR:
+        comparator = Comparator.comparing(
+            (Entry e) -> e.getInfo().getCreator(),
+            Comparator.nullsFirst(Comparator.<String>naturalOrder())
+        );
+        break;
+      case STATUS:
+        comparator = Comparator.comparing(
+            (Entry e) -> e.getState() == null ? null : e.getState().getStatus(),
+            Comparator.nullsLast(Comparator.<PipelineStatus>naturalOrder())
+        );
+        break;
+      case NAME:
+      default:
+        return Comparator.comparing(Entry::getPipelineId);
+    }
+    // the pipeline id makes the order total, entries are kept in sorted sets
+    return comparator.thenComparing(Entry::getPipelineId);
+  }
+
+  /**
+   * Adds or replaces the pipeline, its state is loaded again by the next query.
+   */
+  public void put(PipelineInfo info) {
+    lock.writeLock().lock();
+    try {
+      replace(info.getPipelineId(), new Entry(info, null, false, false));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String pipelineId) {
+    lock.writeLock().lock();
+    try {
+      replace(pipelineId, null);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      entries.clear();
+      sortedIndexes.values().forEach(Set::clear);
+      gramIndex.clear();
+      labelIndex.clear();
+      creatorIndex.clear();
+      statusIndex.clear();
+      pendingStates.clear();
+      missingStates.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Makes the next query load the state of the pipeline again.
+   */
+  public void invalidateState(String pipelineId) {
+    lock.writeLock().lock();
+    try {
+      Entry entry = entries.get(pipelineId);
+      if (entry != null) {
+        replace(pipelineId, entry.withState(null, false, false));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the labels of all the pipelines.
+   */
+  public Set<String> getLabels() {
+    lock.readLock().lock();
+    try {
+      return new HashSet<>(labelIndex.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void onStateChange(
+      PipelineState fromState,
+      PipelineState toState,
+      String toStateJson,
+      ThreadUsage threadUsage,
+      Map<String, String> offset
+  ) {
+    if (toState.getStatus() == PipelineStatus.DELETED) {
+      // the store removes the pipeline
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      Entry entry = entries.get(toState.getPipelineId());
+      if (entry != null) {
+        replace(toState.getPipelineId(), entry.withState(toState, true, false));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // must be called holding the write lock, a null entry removes the pipeline
+  private void replace(String pipelineId, Entry entry) {
+    Entry old = entries.remove(pipelineId);
+    if (old != null) {
+      sortedIndexes.values().forEach(index -> index.remove(old));
+      grams(old).forEach(gram -> removeFromIndex(gramIndex, gram, pipelineId));
+      old.getLabels().forEach(label -> removeFromIndex(labelIndex, label, pipelineId));
+      removeFromIndex(creatorIndex, old.getInfo().getCreator(), pipelineId);
+      if (old.getState() != null) {
+        removeFromIndex(statusIndex, old.getState().getStatus(), pipelineId);
+      }
+      pendingStates.remove(pipelineId);
+      missingStates.remove(pipelineId);
+    }
+    if (entry != null) {
+      entries.put(pipelineId, entry);
+      sortedIndexes.values().forEach(index -> index.add(entry));
+      grams(entry).forEach(gram -> addToIndex(gramIndex, gram, pipelineId));
+      entry.getLabels().forEach(label -> addToIndex(labelIndex, label, pipelineId));
+      addToIndex(creatorIndex, entry.getInfo().getCreator(), pipelineId);
+      if (!entry.stateLoaded) {
+        pendingStates.add(pipelineId);
+      } else if (entry.stateMissing) {
+        missingStates.add(pipelineId);
+      } else if (entry.getState() != null) {
+        addToIndex(statusIndex, entry.getState().getStatus(), pipelineId);
+      }
+    }
+  }
+
+  private static <K> void addToIndex(Map<K, Set<String>> index, K key, String pipelineId) {
+    if (key != null) {
+      index.computeIfAbsent(key, k -> new HashSet<>()).add(pipelineId);
+    }
+  }
+
+  private static <K> void removeFromIndex(Map<K, Set<String>> index, K key, String pipelineId) {
+    if (key != null) {
+      Set<String> ids = index.get(key);
+      if (ids != null) {
+        ids.remove(pipelineId);
+        if (ids.isEmpty()) {
+          index.remove(key);
+        }
+      }
+    }
+  }
+
+  private static Set<String> grams(Entry entry) {
+    return grams(entry.getTitle().toLowerCase());
+  }
+
+  private static Set<String> grams(String text) {
+    Set<String> grams = new HashSet<>();
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      grams.add(text.substring(i, i + GRAM_LENGTH));
+    }
+    return grams;
+  }
+
+  /**
+   * Returns the page of pipelines matching the query, loading the pipeline states that are not known yet first.
+   * Pipelines whose state cannot be loaded are left out.
+   */
+  public Page find(Query query, StateLoader stateLoader) {
+    loadStates(stateLoader);
+
+    lock.readLock().lock();
+    try {
+      Set<String> candidates = null;
+      if (query.text != null && !query.text.isEmpty()) {
+        candidates = intersect(candidates, withTitleContaining(query.text.toLowerCase()));
+      }
+      if (query.label != null) {
+        candidates = intersect(candidates, labelIndex.getOrDefault(query.label, Collections.emptySet()));
+      }
+      if (query.statuses != null) {
+        Set<String> withStatus = new HashSet<>();
+        query.statuses.forEach(status -> withStatus.addAll(statusIndex.getOrDefault(status, Collections.emptySet())));
+        candidates = intersect(candidates, withStatus);
+      }
+      if (query.pipelineIds != null) {
+        candidates = intersect(candidates, query.pipelineIds);
+      }
+      Set<String> excluded = query.excludedCreator == null
+          ? Collections.emptySet()
+          : creatorIndex.getOrDefault(query.excludedCreator, Collections.emptySet());
+
+      final Set<String> included = candidates;
+      Predicate<Entry> accept = entry -> !missingStates.contains(entry.getPipelineId())
+          && !excluded.contains(entry.getPipelineId())
+          && (included == null || included.contains(entry.getPipelineId()))
+          && (query.filter == null || query.filter.test(entry));
+
+      if (candidates != null && candidates.size() * SORT_CANDIDATES_RATIO < entries.size()) {
+        return sortCandidates(candidates, accept, query);
+      }
+      return walkIndex(candidates, excluded, accept, query);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static Set<String> intersect(Set<String> current, Set<String> ids) {
+    if (current == null) {
+      return ids;
+    }
+    Set<String> smaller = current.size() <= ids.size() ? current : ids;
+    Set<String> larger = smaller == current ? ids : current;
+    Set<String> intersection = new HashSet<>();
+    for (String id : smaller) {
+      if (larger.contains(id)) {
+        intersection.add(id);
+      }
+    }
+    return intersection;
+  }
+
+  // must be called holding the read lock
+  private Set<String> withTitleContaining(String text) {
+    Set<String> ids = new HashSet<>();
+    if (text.length() < GRAM_LENGTH) {
+      // too short for the index, titles are checked directly
+      for (Entry entry : entries.values()) {
+        if (entry.getTitle().toLowerCase().contains(text)) {
+          ids.add(entry.getPipelineId());
+        }
+      }
+      return ids;
+    }
+    Set<String> candidates = null;
+    for (String gram : grams(text)) {
+      candidates = intersect(candidates, gramIndex.getOrDefault(gram, Collections.emptySet()));
+      if (candidates.isEmpty()) {
+        return ids;
+      }
+    }
+    // the grams match anywhere in the title, only the contains check tells if they match in sequence
+    for (String id : candidates) {
+      if (entries.get(id).getTitle().toLowerCase().contains(text)) {
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  private Page sortCandidates(Set<String> candidates, Predicate<Entry> accept, Query query) {
+    List<Entry> matching = new ArrayList<>(candidates.size());
+    for (String id : candidates) {
+      Entry entry = entries.get(id);
+      if (entry != null && accept.test(entry)) {
+        matching.add(entry);
+      }
+    }
+    Comparator<Entry> comparator = comparator(query.sortKey);
+    matching.sort(query.descending ? comparator.reversed() : comparator);
+    int from = Math.min(query.offset, matching.size());
+    int to = query.len < 0 ? matching.size() : Math.min(matching.size(), from + query.len);
+    return new Page(new ArrayList<>(matching.subList(from, to)), matching.size());
+  }
+
+  private Page walkIndex(Set<String> candidates, Set<String> excluded, Predicate<Entry> accept, Query query) {
+    // without a filter the total count comes from the indexes, and the walk stops at the end of the page
+    int totalCount = -1;
+    if (query.filter == null) {
+      totalCount = candidates == null
+          ? entries.size() - countUnion(excluded, missingStates, null)
+          : candidates.size() - countUnion(excluded, missingStates, candidates);
+    }
+
+    NavigableSet<Entry> index = sortedIndexes.get(query.sortKey);
+    Iterator<Entry> iterator = query.descending ? index.descendingIterator() : index.iterator();
+    List<Entry> page = new ArrayList<>(query.len < 0 ? 16 : query.len);
+    int matched = 0;
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (!accept.test(entry)) {
+        continue;
+      }
+      if (matched >= query.offset && (query.len < 0 || page.size() < query.len)) {
+        page.add(entry);
+      }
+      matched++;
+      if (totalCount >= 0 && query.len >= 0 && page.size() >= query.len) {
+        break;
+      }
+    }
+    return new Page(page, totalCount >= 0 ? totalCount : matched);
+  }
+
+  // number of ids in either set, counting only the ids within the scope if not null
+  private static int countUnion(Set<String> first, Set<String> second, Set<String> scope) {
+    int count = 0;
+    for (String id : first) {
+      if (scope == null || scope.contains(id)) {
+        count++;
+      }
+    }
+    for (String id : second) {
+      if (!first.contains(id) && (scope == null || scope.contains(id))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void loadStates(StateLoader stateLoader) {
+    List<Entry> toLoad = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (String id : pendingStates) {
+        toLoad.add(entries.get(id));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (toLoad.isEmpty()) {
+      return;
+    }
+
+    List<Entry> loaded = new ArrayList<>(toLoad.size());
+    for (Entry entry : toLoad) {
+      try {
+        PipelineState state = stateLoader.getPipelineState(entry.getPipelineId(), entry.getInfo().getLastRev());
+        loaded.add(entry.withState(state, true, false));
+      } catch (Exception e) {
+        LOG.error(Utils.format("State file not found for pipeline {}", entry.getInfo().getTitle()), e);
+        loaded.add(entry.withState(null, true, true));
+      }
+    }
+
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < loaded.size(); i++) {
+        // the pipeline may have changed or got a newer state while loading
+        if (entries.get(toLoad.get(i).getPipelineId()) == toLoad.get(i)) {
+          replace(toLoad.get(i).getPipelineId(), loaded.get(i));
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+}
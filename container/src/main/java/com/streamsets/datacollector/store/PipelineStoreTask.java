@@ -93,4 +93,11 @@ public interface PipelineStoreTask extends Task {
       boolean draft
   ) throws PipelineException;
 
+  /**
+   * Returns the catalog of the pipelines kept up to date by this store, null if the store does not keep one.
+   */
+  default PipelineCatalog getCatalog() {
+    return null;
+  }
+
 }
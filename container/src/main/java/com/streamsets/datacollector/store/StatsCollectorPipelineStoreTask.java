@@ -149,6 +149,11 @@ public class StatsCollectorPipelineStoreTask implements PipelineStoreTask {
     return store.createPipelineFragment(user, pipelineId, pipelineTitle, description, draft);
   }
 
+  @Override
+  public PipelineCatalog getCatalog() {
+    return store.getCatalog();
+  }
+
   @Override
   public String getName() {
     return store.getName();
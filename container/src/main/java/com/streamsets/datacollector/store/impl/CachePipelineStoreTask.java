@@ -20,6 +20,7 @@ import com.streamsets.datacollector.config.PipelineConfiguration;
 import com.streamsets.datacollector.config.PipelineFragmentConfiguration;
 import com.streamsets.datacollector.config.RuleDefinitions;
 import com.streamsets.datacollector.execution.StateEventListener;
+import com.streamsets.datacollector.store.PipelineCatalog;
 import com.streamsets.datacollector.store.PipelineInfo;
 import com.streamsets.datacollector.store.PipelineRevInfo;
 import com.streamsets.datacollector.store.PipelineStoreException;
@@ -42,12 +43,14 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
   private final PipelineStoreTask pipelineStore;
   private final ConcurrentMap<String, PipelineInfo> pipelineInfoMap;
   private final LockCache<String> lockCache;
+  private final PipelineCatalog catalog;
 
   @Inject
   public CachePipelineStoreTask(PipelineStoreTask pipelineStore, LockCache<String> lockCache) {
     this.pipelineStore = pipelineStore;
     pipelineInfoMap = new ConcurrentHashMap<>();
     this.lockCache = lockCache;
+    this.catalog = new PipelineCatalog();
   }
 
   @Override
@@ -61,10 +64,12 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
     try {
       for (PipelineInfo info: pipelineStore.getPipelines()) {
         pipelineInfoMap.put(info.getPipelineId(), info);
+        catalog.put(info);
       }
     } catch (PipelineStoreException e) {
       throw new RuntimeException(Utils.format("Cannot fetch list of pipelines due to: '{}'", e), e);
     }
+    pipelineStore.registerStateListener(catalog);
   }
 
   @Override
@@ -81,6 +86,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
   public void stop() {
     pipelineStore.stop();
     pipelineInfoMap.clear();
+    catalog.clear();
   }
 
   @Override
@@ -103,6 +109,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
           .create(user, pipelineId, pipelineTitle, description, isRemote, draft, metadata);
       if (!draft) {
         pipelineInfoMap.put(pipelineConf.getInfo().getPipelineId(), pipelineConf.getInfo());
+        catalog.put(pipelineConf.getInfo());
       }
       return pipelineConf;
     }
@@ -113,6 +120,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
     synchronized (lockCache.getLock(name)) {
       pipelineStore.delete(name);
       pipelineInfoMap.remove(name);
+      catalog.remove(name);
     }
   }
 
@@ -142,6 +150,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
     synchronized (lockCache.getLock(name)) {
       PipelineConfiguration pipelineConf = pipelineStore.save(user, name, tag, tagDescription, pipeline, encryptCredentials);
       pipelineInfoMap.put(name, pipelineConf.getInfo());
+      catalog.put(pipelineConf.getInfo());
       return pipelineConf;
     }
   }
@@ -196,6 +205,7 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
     synchronized (lockCache.getLock(name)) {
       PipelineConfiguration pipelineConf = pipelineStore.saveMetadata(user, name, rev, metadata);
       pipelineInfoMap.put(name, pipelineConf.getInfo());
+      catalog.put(pipelineConf.getInfo());
       return pipelineConf;
     }
   }
@@ -220,4 +230,9 @@ public class CachePipelineStoreTask implements PipelineStoreTask {
   ) throws PipelineException {
     return pipelineStore.createPipelineFragment(user, pipelineId, pipelineTitle, description, draft);
   }
+
+  @Override
+  public PipelineCatalog getCatalog() {
+    return catalog;
+  }
 }
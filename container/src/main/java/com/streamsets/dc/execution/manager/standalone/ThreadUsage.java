@@ -19,7 +19,8 @@ public enum ThreadUsage {
 
   STANDALONE(22), //2.2 * ExecutorConstants.RUNNER_THREAD_POOL_SIZE_MULTIPLIER
   CLUSTER(2), //0.2 * ExecutorConstants.RUNNER_THREAD_POOL_SIZE_MULTIPLIER
-  SLAVE(22); //2.2 * ExecutorConstants.RUNNER_THREAD_POOL_SIZE_MULTIPLIER
+  SLAVE(22), //2.2 * ExecutorConstants.RUNNER_THREAD_POOL_SIZE_MULTIPLIER
+  SHARED(2); //0.2 * ExecutorConstants.RUNNER_THREAD_POOL_SIZE_MULTIPLIER, only periodic tasks use the runner pool
 
   private int resourceCount;
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.execution.executor;
+
+import com.codahale.metrics.MetricRegistry;
+import com.streamsets.datacollector.execution.common.ExecutorConstants;
+import com.streamsets.datacollector.main.RuntimeInfo;
+import com.streamsets.datacollector.util.Configuration;
+import com.streamsets.pipeline.lib.executor.SafeScheduledExecutorService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TestPipelineScheduler {
+
+  private SafeScheduledExecutorService runnerExecutor;
+  private RuntimeInfo runtimeInfo;
+  private PipelineScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    runnerExecutor = new SafeScheduledExecutorService(2, "runner");
+    runtimeInfo = Mockito.mock(RuntimeInfo.class);
+    Mockito.when(runtimeInfo.getMetrics()).thenReturn(new MetricRegistry());
+  }
+
+  @After
+  public void tearDown() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    runnerExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testRunnerExecutorByDefault() throws Exception {
+    scheduler = new PipelineScheduler(new Configuration(), runtimeInfo, runnerExecutor);
+    Assert.assertFalse(scheduler.isShared());
+    Assert.assertEquals(PipelineScheduler.MODE_RUNNER, scheduler.getMode());
+
+    Assert.assertEquals("done", scheduler.submit(() -> "done").get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, runnerExecutor.getCompletedTaskCount());
+
+    // the runner executor belongs to the module providing it
+    scheduler.shutdown();
+    Assert.assertFalse(runnerExecutor.isShutdown());
+  }
+
+  @Test
+  public void testBlockingTasksDoNotStarveSharedScheduler() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.set(ExecutorConstants.RUNNER_SHARED_SCHEDULER_ENABLED_KEY, true);
+    configuration.set(ExecutorConstants.RUNNER_SHARED_SCHEDULER_PARALLELISM_KEY, 2);
+    scheduler = new PipelineScheduler(configuration, runtimeInfo, runnerExecutor);
+    Assert.assertTrue(scheduler.isShared());
+    Assert.assertNotEquals(PipelineScheduler.MODE_RUNNER, scheduler.getMode());
+
+    // far more idle pipelines than the parallelism, all of them must get to run
+    int pipelines = 50;
+    CountDownLatch started = new CountDownLatch(pipelines);
+    CountDownLatch release = new CountDownLatch(1);
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < pipelines; i++) {
+      futures.add(scheduler.submit(() -> {
+        threadNames.add(Thread.currentThread().getName());
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }));
+    }
+    Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+    release.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    Assert.assertEquals(0, runnerExecutor.getCompletedTaskCount());
+    threadNames.forEach(name -> Assert.assertTrue(name, name.startsWith("PipelineScheduler-")));
+  }
+
+  @Test
+  public void testCancelInterruptsTask() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.set(ExecutorConstants.RUNNER_SHARED_SCHEDULER_ENABLED_KEY, true);
+    scheduler = new PipelineScheduler(configuration, runtimeInfo, runnerExecutor);
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Future<?> future = scheduler.submit(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+    future.cancel(true);
+    Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.execution.runner.common;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.streamsets.datacollector.metrics.MetricsConfigurator;
+import com.streamsets.datacollector.util.Configuration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class TestAdaptiveBatchSizeController {
+
+  private MetricRegistry metrics;
+  private AdaptiveBatchSizeController controller;
+
+  @Before
+  public void setUp() {
+    Configuration configuration = new Configuration();
+    configuration.set(Constants.ADAPTIVE_BATCH_SIZE_KEY, true);
+    configuration.set(Constants.MAX_BATCH_SIZE_KEY, 1000);
+    configuration.set(Constants.ADAPTIVE_BATCH_SIZE_MIN_KEY, 10);
+    configuration.set(Constants.ADAPTIVE_BATCH_SIZE_TARGET_LATENCY_KEY, 1000L);
+    configuration.set(Constants.ADAPTIVE_BATCH_SIZE_MAX_HEAP_PERCENT_KEY, 75);
+    Assert.assertTrue(AdaptiveBatchSizeController.isEnabled(configuration));
+
+    metrics = new MetricRegistry();
+    controller = new AdaptiveBatchSizeController(configuration, metrics, "myPipeline", "0");
+  }
+
+  @Test
+  public void testStartsAtMaxBatchSize() {
+    Assert.assertEquals(1000, controller.getBatchSize());
+    Assert.assertFalse(AdaptiveBatchSizeController.isEnabled(new Configuration()));
+  }
+
+  @Test
+  public void testShrinkOnLatency() {
+    controller.batchCompleted(1000, 1000, 4000, 3000, 0.1, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.SHRINK_LATENCY, controller.getLastDecision());
+    Assert.assertEquals(250, controller.getBatchSize());
+  }
+
+  @Test
+  public void testShrinkOnHeap() {
+    controller.batchCompleted(1000, 1000, 100, 50, 0.9, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.SHRINK_MEMORY, controller.getLastDecision());
+    Assert.assertEquals(500, controller.getBatchSize());
+
+    // Never below the minimum
+    for (int i = 0; i < 10; i++) {
+      controller.batchCompleted(controller.getBatchSize(), controller.getBatchSize(), 100, 50, 0.9, i + 2);
+    }
+    Assert.assertEquals(10, controller.getBatchSize());
+  }
+
+  @Test
+  public void testShrinkOnHeapOncePerCollection() {
+    controller.batchCompleted(1000, 1000, 100, 50, 0.9, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.SHRINK_MEMORY, controller.getLastDecision());
+    Assert.assertEquals(500, controller.getBatchSize());
+
+    // No collection since, the occupancy is the same reading and the latency decides again
+    controller.batchCompleted(500, 500, 100, 50, 0.9, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.GROW, controller.getLastDecision());
+    Assert.assertEquals(1000, controller.getBatchSize());
+    controller.batchCompleted(1000, 1000, 1000, 500, 0.9, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.HOLD, controller.getLastDecision());
+    Assert.assertEquals(1000, controller.getBatchSize());
+
+    // The next collection still leaves the heap over budget
+    controller.batchCompleted(1000, 1000, 100, 50, 0.9, 2);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.SHRINK_MEMORY, controller.getLastDecision());
+    Assert.assertEquals(500, controller.getBatchSize());
+  }
+
+  @Test
+  public void testGrowOnlyWhenBatchIsFull() {
+    controller.batchCompleted(1000, 1000, 8000, 0, 0.1, 1);
+    Assert.assertEquals(125, controller.getBatchSize());
+
+    // Origin didn't have more data, bigger batches wouldn't help
+    controller.batchCompleted(125, 20, 100, 90, 0.1, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.HOLD, controller.getLastDecision());
+    Assert.assertEquals(125, controller.getBatchSize());
+  }
+
+  @Test
+  public void testGrowthDependsOnDestinationShare() {
+    controller.batchCompleted(1000, 1000, 8000, 0, 0.1, 1);
+    Assert.assertEquals(125, controller.getBatchSize());
+
+    // Most of the time is spent in destinations, grow faster
+    controller.batchCompleted(125, 125, 100, 90, 0.1, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.GROW, controller.getLastDecision());
+    Assert.assertEquals(250, controller.getBatchSize());
+
+    // Processing bound
+    controller.batchCompleted(250, 250, 100, 10, 0.1, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.GROW, controller.getLastDecision());
+    Assert.assertEquals(312, controller.getBatchSize());
+  }
+
+  @Test
+  public void testHoldAtTarget() {
+    controller.batchCompleted(1000, 1000, 1000, 500, 0.1, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.HOLD, controller.getLastDecision());
+    Assert.assertEquals(1000, controller.getBatchSize());
+
+    // Already at the maximum
+    controller.batchCompleted(1000, 1000, 10, 5, 0.1, 1);
+    Assert.assertEquals(AdaptiveBatchSizeController.Decision.HOLD, controller.getLastDecision());
+    Assert.assertEquals(1000, controller.getBatchSize());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testMetrics() {
+    controller.batchCompleted(1000, 1000, 4000, 3000, 0.1, 1);
+
+    Gauge<Map<String, Object>> gauge = (Gauge<Map<String, Object>>) MetricsConfigurator.getGauge(
+        metrics,
+        "pipeline.adaptiveBatchSize"
+    );
+    Assert.assertNotNull(gauge);
+    Map<String, Object> value = gauge.getValue();
+    Assert.assertEquals(250, value.get("Batch Size"));
+    Assert.assertEquals("SHRINK_LATENCY", value.get("Decision"));
+    Assert.assertEquals("75%", value.get("Destination Time Share"));
+    Assert.assertEquals(0L, value.get("Increases"));
+    Assert.assertEquals(1L, value.get("Decreases"));
+    Assert.assertEquals(1, MetricsConfigurator.getHistogram(metrics, "pipeline.adaptiveBatchSize").getCount());
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.datacollector.store;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.streamsets.datacollector.execution.PipelineState;
+import com.streamsets.datacollector.execution.PipelineStatus;
+import com.streamsets.datacollector.util.ContainerError;
+import com.streamsets.datacollector.util.PipelineException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class TestPipelineCatalog {
+
+  private Map<String, PipelineStatus> statuses;
+  private AtomicInteger stateLoads;
+  private PipelineCatalog.StateLoader stateLoader;
+
+  @Before
+  public void setUp() {
+    statuses = new HashMap<>();
+    stateLoads = new AtomicInteger();
+    stateLoader = (name, rev) -> {
+      stateLoads.incrementAndGet();
+      PipelineStatus status = statuses.get(name);
+      if (status == null) {
+        throw new PipelineException(ContainerError.CONTAINER_0209, name);
+      }
+      return state(name, status);
+    };
+  }
+
+  private static PipelineState state(String name, PipelineStatus status) {
+    PipelineState state = Mockito.mock(PipelineState.class);
+    Mockito.when(state.getPipelineId()).thenReturn(name);
+    Mockito.when(state.getStatus()).thenReturn(status);
+    return state;
+  }
+
+  private static PipelineInfo info(String id, String title, String creator, long modified, String... labels) {
+    Map<String, Object> metadata = labels.length == 0
+        ? null
+        : ImmutableMap.of("labels", ImmutableList.copyOf(labels));
+    return new PipelineInfo(
+        id,
+        title,
+        "description",
+        new Date(modified),
+        new Date(modified),
+        creator,
+        creator,
+        "0",
+        UUID.randomUUID(),
+        true,
+        metadata,
+        "x",
+        "y"
+    );
+  }
+
+  private static List<String> ids(PipelineCatalog.Page page) {
+    return page.getEntries().stream().map(PipelineCatalog.Entry::getPipelineId).collect(Collectors.toList());
+  }
+
+  private PipelineCatalog createCatalog() {
+    statuses.put("a", PipelineStatus.RUNNING);
+    statuses.put("b", PipelineStatus.STOPPED);
+    statuses.put("c", PipelineStatus.RUN_ERROR);
+    statuses.put("d", PipelineStatus.EDITED);
+    return PipelineCatalog.of(ImmutableList.of(
+        info("a", "Kafka to HDFS", "admin", 4, "prod"),
+        info("b", "JDBC to Kafka", "guest", 3, "prod", "jdbc"),
+        info("c", "Directory to S3", "admin", 2),
+        info("d", null, "guest", 1, "test")
+    ));
+  }
+
+  @Test
+  public void testFilterByText() {
+    PipelineCatalog catalog = createCatalog();
+
+    PipelineCatalog.Page page = catalog.find(new PipelineCatalog.Query().setText("kafka"), stateLoader);
+    Assert.assertEquals(ImmutableList.of("a", "b"), ids(page));
+    Assert.assertEquals(2, page.getTotalCount());
+
+    // shorter than the indexed grams
+    page = catalog.find(new PipelineCatalog.Query().setText("s3"), stateLoader);
+    Assert.assertEquals(ImmutableList.of("c"), ids(page));
+
+    // all the grams match but not in sequence
+    page = catalog.find(new PipelineCatalog.Query().setText("hdfs to kafka"), stateLoader);
+    Assert.assertEquals(0, page.getTotalCount());
+
+    // pipelines without title match by id
+    page = catalog.find(new PipelineCatalog.Query().setText("d"), stateLoader);
+    Assert.assertEquals(ImmutableList.of("a", "b", "c", "d"), ids(page));
+  }
+
+  @Test
+  public void testFilterByLabelStatusAndCreator() {
+    PipelineCatalog catalog = createCatalog();
+
+    Assert.assertEquals(
+        ImmutableList.of("a", "b"),
+        ids(catalog.find(new PipelineCatalog.Query().setLabel("prod"), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("a", "d"),
+        ids(catalog.find(new PipelineCatalog.Query().setStatuses(EnumSet.of(PipelineStatus.RUNNING, PipelineStatus.EDITED)), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("b", "d"),
+        ids(catalog.find(new PipelineCatalog.Query().setExcludedCreator("admin"), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("b"),
+        ids(catalog.find(new PipelineCatalog.Query().setLabel("prod").setExcludedCreator("admin"), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("c"),
+        ids(catalog.find(new PipelineCatalog.Query().setPipelineIds(ImmutableSet.of("b", "c")).setFilter(e -> e.getLabels().isEmpty()), stateLoader))
+    );
+    Assert.assertEquals(ImmutableSet.of("prod", "jdbc", "test"), catalog.getLabels());
+  }
+
+  @Test
+  public void testSortAndPage() {
+    PipelineCatalog catalog = createCatalog();
+
+    Assert.assertEquals(
+        ImmutableList.of("c", "b", "a", "d"),
+        ids(catalog.find(new PipelineCatalog.Query().setOrder(PipelineCatalog.SortKey.TITLE, false), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("a", "b", "c", "d"),
+        ids(catalog.find(new PipelineCatalog.Query().setOrder(PipelineCatalog.SortKey.LAST_MODIFIED, false), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("d", "c", "b", "a"),
+        ids(catalog.find(new PipelineCatalog.Query().setOrder(PipelineCatalog.SortKey.LAST_MODIFIED, true), stateLoader))
+    );
+    Assert.assertEquals(
+        ImmutableList.of("d", "a", "c", "b"),
+        ids(catalog.find(new PipelineCatalog.Query().setOrder(PipelineCatalog.SortKey.STATUS, false), stateLoader))
+    );
+
+    PipelineCatalog.Page page = catalog.find(
+        new PipelineCatalog.Query().setOrder(PipelineCatalog.SortKey.NAME, true).setPage(1, 2),
+        stateLoader
+    );
+    Assert.assertEquals(ImmutableList.of("c", "b"), ids(page));
+    Assert.assertEquals(4, page.getTotalCount());
+
+    page = catalog.find(new PipelineCatalog.Query().setFilter(e -> !e.getPipelineId().equals("a")).setPage(2, 5), stateLoader);
+    Assert.assertEquals(ImmutableList.of("d"), ids(page));
+    Assert.assertEquals(3, page.getTotalCount());
+
+    page = catalog.find(new PipelineCatalog.Query().setPage(10, 5), stateLoader);
+    Assert.assertTrue(page.getEntries().isEmpty());
+    Assert.assertEquals(4, page.getTotalCount());
+  }
+
+  @Test
+  public void testStateUpdates() throws Exception {
+    PipelineCatalog catalog = createCatalog();
+    PipelineCatalog.Query running = new PipelineCatalog.Query().setStatuses(EnumSet.of(PipelineStatus.RUNNING));
+
+    Assert.assertEquals(ImmutableList.of("a"), ids(catalog.find(running, stateLoader)));
+    Assert.assertEquals(4, stateLoads.get());
+
+    // states are loaded once and then kept up to date by the state events
+    catalog.onStateChange(null, state("b", PipelineStatus.RUNNING), null, null, null);
+    Assert.assertEquals(ImmutableList.of("a", "b"), ids(catalog.find(running, stateLoader)));
+    Assert.assertEquals(4, stateLoads.get());
+
+    // saving a pipeline reloads its state
+    statuses.put("a", PipelineStatus.STOPPED);
+    catalog.put(info("a", "Kafka to HDFS", "admin", 5, "prod"));
+    Assert.assertEquals(ImmutableList.of("b"), ids(catalog.find(running, stateLoader)));
+    Assert.assertEquals(5, stateLoads.get());
+
+    catalog.remove("b");
+    Assert.assertTrue(catalog.find(running, stateLoader).getEntries().isEmpty());
+    Assert.assertEquals(3, catalog.size());
+    Assert.assertEquals(ImmutableSet.of("prod", "test"), catalog.getLabels());
+  }
+
+  @Test
+  public void testPipelinesWithoutStateAreExcluded() {
+    PipelineCatalog catalog = createCatalog();
+    statuses.remove("c");
+    catalog.invalidateState("c");
+
+    PipelineCatalog.Page page = catalog.find(new PipelineCatalog.Query(), stateLoader);
+    Assert.assertEquals(ImmutableList.of("a", "b", "d"), ids(page));
+    Assert.assertEquals(3, page.getTotalCount());
+  }
+
+  @Test
+  public void testManyPipelines() {
+    List<PipelineInfo> pipelines = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      String id = String.format("pipeline%05d", i);
+      statuses.put(id, i % 10 == 0 ? PipelineStatus.RUNNING : PipelineStatus.STOPPED);
+      pipelines.add(info(id, "Pipeline " + i, i % 2 == 0 ? "admin" : "guest", i, i % 3 == 0 ? "three" : "other"));
+    }
+    PipelineCatalog catalog = PipelineCatalog.of(pipelines);
+
+    PipelineCatalog.Page page = catalog.find(
+        new PipelineCatalog.Query()
+            .setLabel("three")
+            .setStatuses(EnumSet.of(PipelineStatus.RUNNING))
+            .setOrder(PipelineCatalog.SortKey.LAST_MODIFIED, false)
+            .setPage(0, 3),
+        stateLoader
+    );
+    Assert.assertEquals(ImmutableList.of("pipeline09990", "pipeline09960", "pipeline09930"), ids(page));
+    Assert.assertEquals(334, page.getTotalCount());
+
+    page = catalog.find(new PipelineCatalog.Query().setText("line 999").setPage(0, 2), stateLoader);
+    Assert.assertEquals(ImmutableList.of("pipeline00999", "pipeline09990"), ids(page));
+    Assert.assertEquals(11, page.getTotalCount());
+  }
+}
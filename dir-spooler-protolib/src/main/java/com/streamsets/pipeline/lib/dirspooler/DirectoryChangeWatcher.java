@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.dirspooler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the {@link DirectorySpooler} which spool directories changed, so only those have to be listed again instead
+ * of walking the whole spool directory tree.
+ * <p/>
+ * It uses the file system {@link WatchService} (inotify on Linux), events may be lost or not supported at all (i.e.
+ * NFS mounts), the periodic scan of the spooler reconciles whatever is missed here.
+ */
+class DirectoryChangeWatcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(DirectoryChangeWatcher.class);
+  // time to wait for more events once a change is seen, so a burst of new files is queued with a single listing
+  private static final long SETTLE_MILLIS = 100;
+  // upper bound of the settling time, files that are written all the time must not hold back the others
+  private static final long MAX_SETTLE_MILLIS = 1000;
+
+  private final WatchService watchService;
+  private final WrappedFileSystem fs;
+  private final boolean watchNewDirectories;
+  private final Map<Path, WrappedFile> watchedDirs;
+
+  private DirectoryChangeWatcher(WatchService watchService, WrappedFileSystem fs, boolean watchNewDirectories) {
+    this.watchService = watchService;
+    this.fs = fs;
+    this.watchNewDirectories = watchNewDirectories;
+    this.watchedDirs = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns a watcher for the file system, or <code>null</code> if the file system cannot be watched.
+   *
+   * @param watchNewDirectories if directories created in a watched directory must be watched and reported too.
+   */
+  static DirectoryChangeWatcher create(WrappedFileSystem fs, WrappedFile spoolDir, boolean watchNewDirectories) {
+    Path localDir = fs.getLocalPath(spoolDir);
+    if (localDir == null) {
+      return null;
+    }
+    try {
+      return new DirectoryChangeWatcher(
+          localDir.getFileSystem().newWatchService(),
+          fs,
+          watchNewDirectories
+      );
+    } catch (IOException | UnsupportedOperationException ex) {
+      LOG.warn("Could not create file watch service, relying on periodic scans only: {}", ex.toString(), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Watches the directory for created and modified files, it is a NOP if the directory is already watched.
+   */
+  void watch(WrappedFile dir) {
+    Path path = fs.getLocalPath(dir);
+    if (path != null && !watchedDirs.containsKey(path)) {
+      try {
+        path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirs.put(path, dir);
+        LOG.debug("Watching directory '{}'", path);
+      } catch (IOException | ClosedWatchServiceException ex) {
+        // the directory may be gone, the next periodic scan will register it again if it comes back
+        LOG.trace("Could not watch directory '{}': {}", path, ex.toString());
+      }
+    }
+  }
+
+  /**
+   * Waits up to the given time for changes in the watched directories.
+   *
+   * @return the directories with new or modified entries, empty if there were none.
+   */
+  Set<WrappedFile> awaitChanges(long waitMillis) throws InterruptedException {
+    WatchKey key;
+    try {
+      key = watchService.poll(waitMillis, TimeUnit.MILLISECONDS);
+      if (key == null) {
+        return Collections.emptySet();
+      }
+      Set<WrappedFile> changed = new LinkedHashSet<>();
+      long settleDeadline = System.currentTimeMillis() + MAX_SETTLE_MILLIS;
+      while (key != null) {
+        drain(key, changed);
+        key = System.currentTimeMillis() < settleDeadline ? watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS) : null;
+      }
+      return changed;
+    } catch (ClosedWatchServiceException ex) {
+      throw new InterruptedException("Watch service closed");
+    }
+  }
+
+  private void drain(WatchKey key, Set<WrappedFile> changed) {
+    Path dir = (Path) key.watchable();
+    WrappedFile wrappedDir = watchedDirs.get(dir);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (wrappedDir == null) {
+        continue;
+      }
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        changed.add(wrappedDir);
+      } else {
+        Path entry = dir.resolve((Path) event.context());
+        if (Files.isDirectory(entry)) {
+          if (watchNewDirectories && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+            try {
+              WrappedFile newDir = fs.getFile(entry.toString());
+              watch(newDir);
+              changed.add(newDir);
+            } catch (IOException ex) {
+              LOG.trace("Could not watch new directory '{}': {}", entry, ex.toString());
+            }
+          }
+        } else {
+          changed.add(wrappedDir);
+        }
+      }
+    }
+    if (!key.reset()) {
+      // the directory is gone, it will be registered again by the periodic scan if it comes back
+      watchedDirs.remove(dir);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
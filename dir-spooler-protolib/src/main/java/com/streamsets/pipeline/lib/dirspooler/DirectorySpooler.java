@@ -17,6 +17,7 @@ package com.streamsets.pipeline.lib.dirspooler;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
 import com.streamsets.pipeline.api.PushSource;
 import com.streamsets.pipeline.api.impl.Utils;
@@ -45,6 +46,14 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class DirectorySpooler {
   private static final Logger LOG = LoggerFactory.getLogger(DirectorySpooler.class);
   private static final String PENDING_FILES = "pending.files";
+  private static final String SPOOL_SCAN = "spoolScan";
+  public static final String SPOOL_BACKLOG_METRICS = "Spool Directory Backlog";
+  public static final String PENDING_FILES_GAUGE = "Pending Files";
+  public static final String FILES_BEING_PROCESSED = "Files Being Processed";
+  public static final String LAST_SCAN_TIME = "Last Scan Time (ms)";
+  public static final String WATCHING_CHANGES = "Watching Changes";
+  // how long the change watcher waits for events before checking if the spooler is still running
+  private static final long WATCH_POLL_MILLIS = 1000;
 
   private final PushSource.Context context;
   private final String spoolDir;
@@ -280,11 +289,18 @@ public class DirectorySpooler {
   private WrappedFile archiveDirPath;
   private WrappedFile errorArchiveDirPath;
   protected PriorityBlockingQueue<WrappedFile> filesQueue;
+  // index of the files in filesQueue, the queue is ordered but contains() on it is linear
+  private Set<WrappedFile> queuedFiles;
+  // runners waiting for files are notified through this monitor when a file is queued
+  private final Object queueSignal = new Object();
   private ScheduledExecutorService scheduledExecutor;
-  private boolean waitForPathAppearance;
+  private volatile boolean waitForPathAppearance;
+  private DirectoryChangeWatcher changeWatcher;
 
   protected Meter spoolQueueMeter;
   protected Counter pendingFilesCounter;
+  private Timer scanTimer;
+  private Map<String, Object> backlogGauge;
 
   protected volatile boolean running;
 
@@ -312,6 +328,7 @@ public class DirectorySpooler {
 
       // 11 is the DEFAULT_INITIAL_CAPACITY -- seems pretty random, but lets use the same one.
       filesQueue = new PriorityBlockingQueue<>(11, pathComparator);
+      queuedFiles = ConcurrentHashMap.newKeySet();
       filesBeingProcessed = ConcurrentHashMap.newKeySet();
 
       if(StringUtils.isEmpty(sourceFile)) {
@@ -328,7 +345,7 @@ public class DirectorySpooler {
         this.initialFile = this.currentFile;
         // Adding initialFile to the filesQueue as it is not added later due to thread safety
         if (fs.exists(initialFile)) {
-          filesQueue.add(initialFile);
+          enqueue(initialFile);
         }
       }
 
@@ -356,6 +373,10 @@ public class DirectorySpooler {
       spoolQueueMeter = context.createMeter("spoolQueue");
 
       pendingFilesCounter = context.createCounter(PENDING_FILES);
+      scanTimer = context.createTimer(SPOOL_SCAN);
+      backlogGauge = context.createGauge(SPOOL_BACKLOG_METRICS).getValue();
+      backlogGauge.put(WATCHING_CHANGES, false);
+      updateBacklogMetrics(0);
 
       if (!waitForPathAppearance) {
         startSpooling();
@@ -370,13 +391,20 @@ public class DirectorySpooler {
   private void startSpooling() throws IOException {
     running = true;
 
-    scheduledExecutor = new SafeScheduledExecutorService(1, "directory-dirspooler");
+    changeWatcher = DirectoryChangeWatcher.create(fs, spoolDirPath, processSubdirectories && useLastModified);
+    scheduledExecutor = new SafeScheduledExecutorService(changeWatcher == null ? 1 : 2, "directory-dirspooler");
 
-    findAndQueueFiles(true, false);
+    scan(true, false);
 
     finder = new FileFinder();
     scheduledExecutor.scheduleAtFixedRate(finder, spoolingPeriodSec, spoolingPeriodSec, TimeUnit.SECONDS);
 
+    if (changeWatcher != null) {
+      // the periodic scan stays as the reconciliation of whatever the watcher misses
+      scheduledExecutor.submit(new ChangeWatcher());
+      backlogGauge.put(WATCHING_CHANGES, true);
+    }
+
     if (postProcessing == FilePostProcessing.ARCHIVE && archiveRetentionMillis > 0) {
       // create and schedule file purger only if the retention time is > 0
       purger = new FilePurger();
@@ -399,6 +427,14 @@ public class DirectorySpooler {
     } catch (RuntimeException ex) {
       LOG.warn("Error during scheduledExecutor.shutdownNow(), {}", ex.toString(), ex);
     }
+    if (changeWatcher != null) {
+      try {
+        changeWatcher.close();
+      } catch (IOException ex) {
+        LOG.warn("Error while closing the directory change watcher: {}", ex.toString(), ex);
+      }
+      changeWatcher = null;
+    }
   }
 
   public boolean isRunning() {
@@ -531,13 +567,9 @@ public class DirectorySpooler {
       }
     }
 
-    if (!filesQueue.contains(file) && !filesBeingProcessed.contains(file)) {
-      if (currentFile != null) {
-        if (fs.compare(file, currentFile, useLastModified) > 0) {
-          filesQueue.add(file);
-        }
-      } else {
-        filesQueue.add(file);
+    if (!queuedFiles.contains(file) && !filesBeingProcessed.contains(file)) {
+      if (currentFile == null || fs.compare(file, currentFile, useLastModified) > 0) {
+        enqueue(file);
       }
       spoolQueueMeter.mark(filesQueue.size());
     } else {
@@ -545,21 +577,36 @@ public class DirectorySpooler {
     }
   }
 
+  private void enqueue(WrappedFile file) {
+    if (queuedFiles.add(file)) {
+      filesQueue.add(file);
+      synchronized (queueSignal) {
+        queueSignal.notifyAll();
+      }
+    }
+  }
+
   private boolean canPoolFiles() {
     if (waitForPathAppearance) {
-      try {
-        if (fs.findDirectoryPathCreationWatcher(Arrays.asList(spoolDirPath))) {
-          waitForPathAppearance = false;
-          startSpooling();
+      synchronized (this) {
+        try {
+          if (waitForPathAppearance && fs.findDirectoryPathCreationWatcher(Arrays.asList(spoolDirPath))) {
+            startSpooling();
+            waitForPathAppearance = false;
+          }
+        } catch (IOException e) {
+          throw new RuntimeException(Utils.format("Some Problem with the file system: {}", e.toString()), e);
         }
-      } catch (IOException e) {
-        throw new RuntimeException(Utils.format("Some Problem with the file system: {}", e.toString()), e);
       }
     }
     return !waitForPathAppearance;
   }
 
-  public synchronized WrappedFile poolForFile(long wait, TimeUnit timeUnit) throws InterruptedException {
+  /**
+   * Hands out the next file to process. Runner threads do not block each other, the queue and its index are
+   * concurrent and the read lock only keeps a scan from being half way while a file is taken.
+   */
+  public WrappedFile poolForFile(long wait, TimeUnit timeUnit) throws InterruptedException {
     Preconditions.checkArgument(wait >= 0, "wait must be zero or greater");
     Preconditions.checkNotNull(timeUnit, "timeUnit cannot be null");
     long initial = System.currentTimeMillis();
@@ -577,38 +624,61 @@ public class DirectorySpooler {
 
     LOG.debug("Polling for file, waiting '{}' ms", TimeUnit.MILLISECONDS.convert(wait, timeUnit));
     while (!context.isStopped() && System.currentTimeMillis() - initial < wait && next == null) {
+      WrappedFile polled;
       closeLock.readLock().lock();
       try {
-        next = filesQueue.peek();
-        if (next != null) {
-          if (filesBeingProcessed.contains(next)) {
-            // file is already being processed by some other thread
-            next = null;
-          } else {
-            addFileBeingProcessed(next);
+        polled = filesQueue.poll();
+        // the file goes into filesBeingProcessed before leaving the index so a scan never queues it again
+        if (polled != null) {
+          if (filesBeingProcessed.add(polled)) {
+            next = polled;
+            advanceCurrentFile(next);
           }
+          // otherwise the file is already being processed by some other thread
+          queuedFiles.remove(polled);
         }
       } finally {
         LOG.debug("Polling for file returned '{}'", next);
-
-        if (next != null) {
-          currentFile = next;
-        }
-
-        filesQueue.poll();
-
         closeLock.readLock().unlock();
       }
 
-      if (next == null) {
-        Thread.sleep(intervalMillis);
+      if (polled == null) {
+        long remaining = wait - (System.currentTimeMillis() - initial);
+        synchronized (queueSignal) {
+          if (remaining > 0 && filesQueue.isEmpty()) {
+            queueSignal.wait(Math.min(remaining, intervalMillis));
+          }
+        }
       }
     }
 
     pendingFilesCounter.inc(filesQueue.size() - pendingFilesCounter.getCount());
+    updateBacklogMetrics(-1);
     return next;
   }
 
+  /**
+   * Moves the current file forward to the given file. Runners polling together may get here in any order, the current
+   * file never goes back to an older file, otherwise the scans would queue files that were already processed.
+   */
+  private synchronized void advanceCurrentFile(WrappedFile file) {
+    if (currentFile == null
+        || StringUtils.isEmpty(currentFile.toString())
+        || fs.compare(file, currentFile, useLastModified) > 0) {
+      currentFile = file;
+    }
+  }
+
+  private void updateBacklogMetrics(long lastScanMillis) {
+    if (backlogGauge != null) {
+      backlogGauge.put(PENDING_FILES_GAUGE, filesQueue.size());
+      backlogGauge.put(FILES_BEING_PROCESSED, filesBeingProcessed.size());
+      if (lastScanMillis >= 0) {
+        backlogGauge.put(LAST_SCAN_TIME, lastScanMillis);
+      }
+    }
+  }
+
   public void handleFileAsError(WrappedFile fileToHandle) throws IOException {
     if (errorArchiveDirPath != null && !context.isPreview()) {
       if (fs.exists(fileToHandle)) {
@@ -645,6 +715,20 @@ public class DirectorySpooler {
     }
   }
 
+  /**
+   * Runs a full scan of the spool directory, timing it for the scan metrics.
+   */
+  private void scan(final boolean includeStartingFile, boolean checkCurrent) throws IOException {
+    long start = System.currentTimeMillis();
+    Timer.Context timerContext = scanTimer.time();
+    try {
+      findAndQueueFiles(includeStartingFile, checkCurrent);
+    } finally {
+      timerContext.stop();
+      updateBacklogMetrics(System.currentTimeMillis() - start);
+    }
+  }
+
   protected void findAndQueueFiles(final boolean includeStartingFile, boolean checkCurrent)
       throws IOException {
     if (filesQueue.size() >= maxSpoolFiles) {
@@ -672,46 +756,107 @@ public class DirectorySpooler {
     }
 
     for (WrappedFile dir : directories) {
+      if (changeWatcher != null) {
+        changeWatcher.watch(dir);
+      }
       try {
-        List<WrappedFile> matchingFile = new ArrayList<>();
+        if (!queueFiles(dir, includeStartingFile, checkCurrent)) {
+          return;
+        }
+      } catch(IOException ex) {
+        LOG.error("findAndQueueFiles(): newDirectoryStream failed. " + ex.getMessage(), ex);
+        destroy(ex);
+      }
+    }
 
-        fs.addFiles(dir, this.currentFile, matchingFile, includeStartingFile, useLastModified);
+    spoolQueueMeter.mark(filesQueue.size());
+    pendingFilesCounter.inc(filesQueue.size() - pendingFilesCounter.getCount());
+    LOG.debug("Found '{}' files", filesQueue.size());
+  }
 
-        if (matchingFile.size() > 0) {
-          try {
-            // if there are matching files, acquire write lock
-            closeLock.writeLock().lock();
+  /**
+   * Queues the matching files of a single directory.
+   *
+   * @return <code>false</code> if the spooler stopped running half way.
+   */
+  private boolean queueFiles(WrappedFile dir, final boolean includeStartingFile, boolean checkCurrent)
+      throws IOException {
+    List<WrappedFile> matchingFile = new ArrayList<>();
 
-            for (WrappedFile file : matchingFile) {
-              if (!running) {
-                return;
-              }
+    fs.addFiles(dir, this.currentFile, matchingFile, includeStartingFile, useLastModified);
 
-              if (this.currentFile == null
-                  || (this.initialFile != null && fs.compare(this.currentFile, this.initialFile, useLastModified) == 0)
-                  || fs.compare(file, this.currentFile, useLastModified) > 0) {
-                if (!fs.isDirectory(file)) {
-                  LOG.trace("Found file '{}'", file);
-                  addFileToQueue(file, checkCurrent);
-                }
-              } else {
-                LOG.trace("Discarding file {} because it is already older than currentFile", file.getAbsolutePath());
-              }
+    if (matchingFile.size() > 0) {
+      try {
+        // if there are matching files, acquire write lock
+        closeLock.writeLock().lock();
+
+        for (WrappedFile file : matchingFile) {
+          if (!running) {
+            return false;
+          }
+
+          if (this.currentFile == null
+              || (this.initialFile != null && fs.compare(this.currentFile, this.initialFile, useLastModified) == 0)
+              || fs.compare(file, this.currentFile, useLastModified) > 0) {
+            if (!fs.isDirectory(file)) {
+              LOG.trace("Found file '{}'", file);
+              addFileToQueue(file, checkCurrent);
             }
-          } finally {
-            closeLock.writeLock().unlock();
+          } else {
+            LOG.trace("Discarding file {} because it is already older than currentFile", file.getAbsolutePath());
           }
         }
-
-      } catch(IOException ex) {
-        LOG.error("findAndQueueFiles(): newDirectoryStream failed. " + ex.getMessage(), ex);
-        destroy(ex);
+      } finally {
+        closeLock.writeLock().unlock();
       }
     }
+    return true;
+  }
 
+  /**
+   * Queues the files of the directories reported by the change watcher, without walking the whole spool directory.
+   */
+  private void queueChangedFiles(Set<WrappedFile> changedDirs) {
+    for (WrappedFile dir : changedDirs) {
+      if (filesQueue.size() >= maxSpoolFiles) {
+        LOG.debug(Utils.format("Exceeded max number '{}' of spool files in directory", maxSpoolFiles));
+        break;
+      }
+      try {
+        if (!queueFiles(dir, false, true)) {
+          return;
+        }
+      } catch (IOException ex) {
+        // the next periodic scan picks up the files of this directory
+        LOG.warn("Error while listing changed directory '{}': {}", dir, ex.toString(), ex);
+      }
+    }
     spoolQueueMeter.mark(filesQueue.size());
     pendingFilesCounter.inc(filesQueue.size() - pendingFilesCounter.getCount());
-    LOG.debug("Found '{}' files", filesQueue.size());
+    updateBacklogMetrics(-1);
+  }
+
+  class ChangeWatcher implements Runnable {
+
+    @Override
+    public void run() {
+      DirectoryChangeWatcher watcher = changeWatcher;
+      try {
+        while (running && watcher != null) {
+          Set<WrappedFile> changedDirs = watcher.awaitChanges(WATCH_POLL_MILLIS);
+          if (!changedDirs.isEmpty()) {
+            LOG.trace("Directories changed: {}", changedDirs);
+            queueChangedFiles(changedDirs);
+          }
+        }
+      } catch (InterruptedException ex) {
+        LOG.debug("Directory change watcher stopped");
+      } catch (RuntimeException ex) {
+        // the periodic scan keeps finding files
+        LOG.warn("Directory change watcher failed, relying on periodic scans only: {}", ex.toString(), ex);
+        backlogGauge.put(WATCHING_CHANGES, false);
+      }
+    }
   }
 
   class FileFinder implements Runnable {
@@ -724,7 +869,7 @@ public class DirectorySpooler {
       // by using current we give a chance to have unprocessed files out of order
       LOG.debug("Starting file finder from '{}'", currentFile);
       try {
-        findAndQueueFiles(false, true);
+        scan(false, true);
       } catch (Exception ex) {
         LOG.warn("Error while scanning directory '{}' for files newer than '{}': {}", archiveDirPath, currentFile,
             ex.toString(), ex);
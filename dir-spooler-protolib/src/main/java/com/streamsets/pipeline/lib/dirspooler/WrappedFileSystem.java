@@ -18,6 +18,7 @@ package com.streamsets.pipeline.lib.dirspooler;
 import com.streamsets.pipeline.lib.io.fileref.AbstractSpoolerFileRef;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -185,4 +186,14 @@ public interface WrappedFileSystem {
    * @return  AbstractSpoolerFileRef.Builder
    */
   AbstractSpoolerFileRef.Builder getFileRefBuilder();
+
+  /**
+   * Returns the path of the file in the local file system, used to watch directories for changes.
+   *
+   * @param filePath {@link WrappedFile}
+   * @return  the local {@link Path}, or {@code null} if the file system is not local
+   */
+  default Path getLocalPath(WrappedFile filePath) {
+    return null;
+  }
 }
@@ -23,7 +23,7 @@ import com.streamsets.pipeline.api.base.configurablestage.DTarget;
 import com.streamsets.pipeline.stage.bigquery.lib.Groups;
 
 @StageDef(
-    version = 2,
+    version = 3,
     label = "Google BigQuery",
     description = "Streams data into Google Big Query",
     icon="bigquery.png",
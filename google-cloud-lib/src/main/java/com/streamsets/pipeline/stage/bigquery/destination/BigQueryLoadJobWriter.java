@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.bigquery.destination;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.TableId;
+import com.google.common.base.Joiner;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.stage.bigquery.lib.BigQueryLoadClient;
+import com.streamsets.pipeline.stage.bigquery.lib.Errors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes rows as newline delimited JSON into one resumable upload per table and commits each upload
+ * with a load job once it gets bigger than the configured size. The remaining uploads are committed
+ * at the end of every batch.
+ */
+class BigQueryLoadJobWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryLoadJobWriter.class);
+  private static final Joiner COMMA_JOINER = Joiner.on(",");
+  private static final byte NEW_LINE = '\n';
+
+  private final BigQueryLoadClient loadClient;
+  private final ObjectMapper objectMapper;
+  private final boolean ignoreUnknownValues;
+  private final long maxLoadBytes;
+  private final Map<TableId, PendingLoad> pendingLoads;
+
+  private static class PendingLoad {
+    private final WritableByteChannel channel;
+    private long bytes;
+
+    private PendingLoad(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  BigQueryLoadJobWriter(
+      BigQueryLoadClient loadClient,
+      boolean ignoreUnknownValues,
+      long maxLoadBytes
+  ) {
+    this.loadClient = loadClient;
+    this.objectMapper = new ObjectMapper();
+    this.ignoreUnknownValues = ignoreUnknownValues;
+    this.maxLoadBytes = maxLoadBytes;
+    this.pendingLoads = new LinkedHashMap<>();
+  }
+
+  /**
+   * Appends the row to the open upload of the table, committing the upload if it reached the maximum size.
+   */
+  void write(TableId tableId, Map<String, Object> row) throws StageException {
+    PendingLoad load = pendingLoads.get(tableId);
+    if (load == null) {
+      load = new PendingLoad(loadClient.open(tableId, ignoreUnknownValues));
+      pendingLoads.put(tableId, load);
+    }
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(row);
+      ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+      buffer.put(json).put(NEW_LINE);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        load.bytes += load.channel.write(buffer);
+      }
+    } catch (IOException e) {
+      pendingLoads.remove(tableId);
+      throw new StageException(Errors.BIGQUERY_21, tableId.getDataset(), tableId.getTable(), e.toString(), e);
+    }
+    if (load.bytes >= maxLoadBytes) {
+      pendingLoads.remove(tableId);
+      commit(tableId, load);
+    }
+  }
+
+  /**
+   * Commits all open uploads.
+   */
+  void commitAll() throws StageException {
+    List<Map.Entry<TableId, PendingLoad>> loads = new ArrayList<>(pendingLoads.entrySet());
+    pendingLoads.clear();
+    StageException failure = null;
+    for (Map.Entry<TableId, PendingLoad> load : loads) {
+      try {
+        commit(load.getKey(), load.getValue());
+      } catch (StageException e) {
+        LOG.error("Error committing load job for table {}", load.getKey(), e);
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Drops the open uploads without committing them. Their channels are not closed, as closing a channel
+   * finishes the upload and starts its load job; BigQuery discards resumable uploads that are never finished.
+   */
+  void discardAll() {
+    pendingLoads.clear();
+  }
+
+  private void commit(TableId tableId, PendingLoad load) throws StageException {
+    LOG.debug("Committing load job for table {} with {} bytes", tableId, load.bytes);
+    List<BigQueryError> errors;
+    try {
+      errors = loadClient.commit(load.channel);
+    } catch (IOException e) {
+      throw new StageException(Errors.BIGQUERY_21, tableId.getDataset(), tableId.getTable(), e.toString(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StageException(Errors.BIGQUERY_21, tableId.getDataset(), tableId.getTable(), e.toString(), e);
+    }
+    if (!errors.isEmpty()) {
+      String messages = COMMA_JOINER.join(errors.stream().map(BigQueryError::getMessage).collect(Collectors.toList()));
+      throw new StageException(Errors.BIGQUERY_20, tableId.getDataset(), tableId.getTable(), messages);
+    }
+  }
+}
@@ -39,6 +39,7 @@ import com.streamsets.pipeline.api.el.ELVars;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.lib.el.RecordEL;
 import com.streamsets.pipeline.stage.bigquery.lib.BigQueryDelegate;
+import com.streamsets.pipeline.stage.bigquery.lib.BigQueryLoadClient;
 import com.streamsets.pipeline.stage.bigquery.lib.Errors;
 import com.streamsets.pipeline.stage.bigquery.lib.Groups;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
@@ -78,6 +79,8 @@ public class BigQueryTarget extends BaseTarget {
   private final BigQueryTargetConfig conf;
 
   private BigQuery bigQuery;
+  private BigQueryLoadClient loadClient;
+  private BigQueryLoadJobWriter loadJobWriter;
   private ELEval dataSetEval;
   private ELEval tableNameELEval;
   private ELEval rowIdELEval;
@@ -85,7 +88,12 @@ public class BigQueryTarget extends BaseTarget {
   private ErrorRecordHandler errorRecordHandler;
 
   BigQueryTarget(BigQueryTargetConfig conf) {
+    this(conf, null);
+  }
+
+  BigQueryTarget(BigQueryTargetConfig conf, BigQueryLoadClient loadClient) {
     this.conf = conf;
+    this.loadClient = loadClient;
     this.dateFormat = createSimpleDateFormat(YYYY_MM_DD);
     this.timeFormat  = createSimpleDateFormat(HH_MM_SS_SSSSSS);
     this.dateTimeFormat = createSimpleDateFormat(YYYY_MM_DD_T_HH_MM_SS_SSSSSS);
@@ -134,6 +142,17 @@ public class BigQueryTarget extends BaseTarget {
     });
     errorRecordHandler = new DefaultErrorRecordHandler(getContext());
 
+    if (issues.isEmpty() && conf.writeMode == BigQueryWriteMode.LOAD_JOB) {
+      if (loadClient == null) {
+        loadClient = BigQueryLoadClient.of(bigQuery);
+      }
+      loadJobWriter = new BigQueryLoadJobWriter(
+          loadClient,
+          conf.ignoreInvalidColumn,
+          conf.maxLoadSizeMB * 1024L * 1024L
+      );
+    }
+
     return issues;
   }
 
@@ -188,6 +207,11 @@ public class BigQueryTarget extends BaseTarget {
         }
       });
 
+      if (loadJobWriter != null) {
+        load(tableIdToRecords);
+        return;
+      }
+
       tableIdToRecords.forEach((tableId, records) -> {
         final AtomicLong index = new AtomicLong(0);
         final AtomicBoolean areThereRecordsToWrite = new AtomicBoolean(false);
@@ -267,6 +291,37 @@ public class BigQueryTarget extends BaseTarget {
     }
   }
 
+  /**
+   * Appends the records to the uploads of their tables and commits all uploads with load jobs, so that the records
+   * are in BigQuery before the batch completes. Records that cannot be converted go to error.
+   */
+  private void load(Map<TableId, List<Record>> tableIdToRecords) throws StageException {
+    try {
+      for (Map.Entry<TableId, List<Record>> entry : tableIdToRecords.entrySet()) {
+        for (Record record : entry.getValue()) {
+          try {
+            Map<String, Object> rowContent = convertToRowObjectFromRecord(record);
+            if (rowContent.isEmpty()) {
+              throw new OnRecordErrorException(record, Errors.BIGQUERY_14);
+            }
+            loadJobWriter.write(entry.getKey(), rowContent);
+          } catch (OnRecordErrorException e) {
+            LOG.error(
+                "Error when converting record {} to row, Reason : {} ",
+                record.getHeader().getSourceId(),
+                e.getMessage()
+            );
+            errorRecordHandler.onError(e);
+          }
+        }
+      }
+      loadJobWriter.commitAll();
+    } finally {
+      // uploads left open by a failed batch are never committed
+      loadJobWriter.discardAll();
+    }
+  }
+
   /**
    * Evaluate and obtain the row id if the expression is present or return null.
    */
@@ -17,11 +17,25 @@ package com.streamsets.pipeline.stage.bigquery.destination;
 
 import com.streamsets.pipeline.api.ConfigDef;
 import com.streamsets.pipeline.api.ConfigDefBean;
+import com.streamsets.pipeline.api.ValueChooserModel;
 import com.streamsets.pipeline.lib.el.RecordEL;
 import com.streamsets.pipeline.lib.googlecloud.GoogleCloudCredentialsConfig;
 
 public class BigQueryTargetConfig {
 
+  @ConfigDef(
+      required = true,
+      label = "Write Mode",
+      type = ConfigDef.Type.MODEL,
+      defaultValue = "STREAMING",
+      description = "Streaming inserts make records available immediately. Load jobs upload newline delimited" +
+          " JSON and are not subject to streaming insert quotas or costs",
+      displayPosition = 5,
+      group = "BIGQUERY"
+  )
+  @ValueChooserModel(BigQueryWriteModeChooserValues.class)
+  public BigQueryWriteMode writeMode = BigQueryWriteMode.STREAMING;
+
   @ConfigDef(
       required = true,
       label = "Dataset",
@@ -55,6 +69,8 @@ public class BigQueryTargetConfig {
       type = ConfigDef.Type.STRING,
       description = "Expression for the insertId to insert or update. " +
           "Leave blank to perform an insert for each record",
+      dependsOn = "writeMode",
+      triggeredByValue = "STREAMING",
       displayPosition = 30,
       group = "BIGQUERY",
       evaluation = ConfigDef.Evaluation.EXPLICIT,
@@ -87,6 +103,22 @@ public class BigQueryTargetConfig {
   )
   public int maxCacheSize = -1;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "64",
+      label = "Max Load Size (MB)",
+      description = "Maximum amount of data uploaded for a table before the upload is committed with a load job." +
+          " Uploads are also committed at the end of every batch",
+      displayPosition = 60,
+      group = "BIGQUERY",
+      dependsOn = "writeMode",
+      triggeredByValue = "LOAD_JOB",
+      min = 1,
+      max = 10240
+  )
+  public int maxLoadSizeMB = 64;
+
   @ConfigDefBean(groups = "CREDENTIALS")
   public GoogleCloudCredentialsConfig credentials = new GoogleCloudCredentialsConfig();
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.bigquery.lib;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.FormatOptions;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.TableDataWriteChannel;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.WriteChannelConfiguration;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimal view of the BigQuery load API used by the destination in load job mode.
+ *
+ * Keeping it this small allows the load path to run against an in-memory or emulator backed
+ * implementation instead of a live project.
+ */
+public interface BigQueryLoadClient {
+
+  /**
+   * Opens a resumable upload of newline delimited JSON that will be appended to the given table.
+   */
+  WritableByteChannel open(TableId tableId, boolean ignoreUnknownValues);
+
+  /**
+   * Finishes the upload started by {@link #open(TableId, boolean)} and waits for the resulting load job.
+   *
+   * @return errors reported by the load job, empty if the data was loaded
+   */
+  List<BigQueryError> commit(WritableByteChannel channel) throws IOException, InterruptedException;
+
+  static BigQueryLoadClient of(BigQuery bigQuery) {
+    return new BigQueryLoadClient() {
+      @Override
+      public WritableByteChannel open(TableId tableId, boolean ignoreUnknownValues) {
+        WriteChannelConfiguration configuration = WriteChannelConfiguration.newBuilder(tableId)
+            .setFormatOptions(FormatOptions.json())
+            .setWriteDisposition(JobInfo.WriteDisposition.WRITE_APPEND)
+            .setIgnoreUnknownValues(ignoreUnknownValues)
+            .build();
+        return bigQuery.writer(configuration);
+      }
+
+      @Override
+      public List<BigQueryError> commit(WritableByteChannel channel) throws IOException, InterruptedException {
+        channel.close();
+        Job job = ((TableDataWriteChannel) channel).getJob();
+        if (job == null) {
+          // Nothing was uploaded, hence no job was created
+          return Collections.emptyList();
+        }
+        job = job.waitFor();
+        if (job == null) {
+          return Collections.singletonList(new BigQueryError("notFound", null, "Load job no longer exists"));
+        }
+        List<BigQueryError> errors = new ArrayList<>();
+        if (job.getStatus().getExecutionErrors() != null) {
+          errors.addAll(job.getStatus().getExecutionErrors());
+        }
+        if (errors.isEmpty() && job.getStatus().getError() != null) {
+          errors.add(job.getStatus().getError());
+        }
+        return errors;
+      }
+    };
+  }
+}
@@ -34,6 +34,8 @@ public enum Errors implements ErrorCode {
   BIGQUERY_17("Data set '{}' or Table '{}' does not exist in Big Query under project '{}'"),
   BIGQUERY_18("Big Query getTable failed. Reason : '{}'"),
   BIGQUERY_19("Batch size greater than maximal batch size allowed in sdc.properties, maxBatchSize: {}"),
+  BIGQUERY_20("Load job for data set '{}' and table '{}' failed. Reason : {}"),
+  BIGQUERY_21("Error uploading data for data set '{}' and table '{}'. Reason : {}"),
   ;
 
   private final String msg;
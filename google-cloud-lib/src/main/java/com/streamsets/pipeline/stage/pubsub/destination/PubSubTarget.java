@@ -31,9 +31,8 @@ import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.base.BaseTarget;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
-import com.streamsets.pipeline.lib.generator.DataGenerator;
 import com.streamsets.pipeline.lib.generator.DataGeneratorException;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
 import com.streamsets.pipeline.stage.pubsub.lib.Errors;
@@ -42,7 +41,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Duration;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -57,7 +55,7 @@ public class PubSubTarget extends BaseTarget {
   private final PubSubTargetConfig conf;
 
   private Publisher publisher;
-  private DataGeneratorFactory generatorFactory;
+  private RecordSerializer recordSerializer;
   private List<PendingMessage> pendingMessages = new ArrayList<>();
   private ErrorRecordHandler errorRecordHandler;
   private CredentialsProvider credentialsProvider;
@@ -98,7 +96,7 @@ public class PubSubTarget extends BaseTarget {
         "conf.dataFormat.",
         issues
     )) {
-      generatorFactory = conf.dataFormatConfig.getDataGeneratorFactory();
+      recordSerializer = new RecordSerializer(conf.dataFormatConfig.getDataGeneratorFactory());
     }
 
     ProjectTopicName topic = ProjectTopicName.of(conf.credentials.projectId, conf.topicId);
@@ -204,16 +202,15 @@ public class PubSubTarget extends BaseTarget {
   }
 
   private void publish(Record record) throws StageException {
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    try (DataGenerator generator = generatorFactory.getGenerator(os)) {
-      generator.write(record);
+    ByteString data;
+    try {
+      // Copies the serialized bytes straight out of the reused buffer
+      data = recordSerializer.serialize(record, ByteString::copyFrom);
     } catch (IOException | DataGeneratorException e) {
       errorRecordHandler.onError(new OnRecordErrorException(record, Errors.PUBSUB_06, e.toString(), e));
       return;
     }
 
-    ByteString data = ByteString.copyFrom(os.toByteArray());
-
     Map<String, String> attributes = new HashMap<>();
     Record.Header header = record.getHeader();
     header.getAttributeNames().forEach(k -> attributes.put(k, header.getAttribute(k)));
@@ -24,6 +24,7 @@ public class BigQueryTargetConfigBuilder {
   private String rowIdExpression;
 
   private boolean ignoreInvalidColumns;
+  private BigQueryWriteMode writeMode;
 
   BigQueryTargetConfigBuilder() {
     this.ignoreInvalidColumns = true;
@@ -31,6 +32,7 @@ public class BigQueryTargetConfigBuilder {
     this.tableNameEL = "correctTable";
     this.projectId = "sample";
     this.rowIdExpression = "";
+    this.writeMode = BigQueryWriteMode.STREAMING;
   }
 
   public BigQueryTargetConfigBuilder projectId(String projectId) {
@@ -58,6 +60,11 @@ public class BigQueryTargetConfigBuilder {
     return this;
   }
 
+  public BigQueryTargetConfigBuilder writeMode(BigQueryWriteMode writeMode) {
+    this.writeMode = writeMode;
+    return this;
+  }
+
   public BigQueryTargetConfig build() throws Exception {
     BigQueryTargetConfig config = new BigQueryTargetConfig();
     config.credentials.projectId = projectId;
@@ -65,6 +72,7 @@ public class BigQueryTargetConfigBuilder {
     config.tableNameEL = tableNameEL;
     config.ignoreInvalidColumn = ignoreInvalidColumns;
     config.rowIdExpression = rowIdExpression;
+    config.writeMode = writeMode;
     config.credentials.credentialsProvider = CredentialsProviderType.JSON_PROVIDER;
     return config;
   }
@@ -30,12 +30,14 @@ import com.streamsets.pipeline.api.OnRecordError;
 import com.streamsets.pipeline.api.ProtoConfigurableEntity;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.Stage;
+import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.Target;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.lib.googlecloud.GoogleCloudCredentialsConfig;
 import com.streamsets.pipeline.sdk.RecordCreator;
 import com.streamsets.pipeline.sdk.TargetRunner;
 import com.streamsets.pipeline.stage.bigquery.lib.BigQueryDelegate;
+import com.streamsets.pipeline.stage.bigquery.lib.BigQueryLoadClient;
 import com.streamsets.pipeline.stage.bigquery.lib.Errors;
 import org.junit.Assert;
 import org.junit.Before;
@@ -50,11 +52,16 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
@@ -95,7 +102,10 @@ public class TestBigQueryTarget {
   }
 
   private TargetRunner createAndRunner(BigQueryTargetConfig config, List<Record> records) throws Exception {
-    Target target = new BigQueryTarget(config);
+    return createAndRunner(new BigQueryTarget(config), records);
+  }
+
+  private TargetRunner createAndRunner(Target target, List<Record> records) throws Exception {
     TargetRunner runner = new TargetRunner.Builder(BigQueryDTarget.class, target)
         .setOnRecordError(OnRecordError.TO_ERROR)
         .build();
@@ -562,4 +572,95 @@ public class TestBigQueryTarget {
     }
 
   }
-}
\ No newline at end of file
+
+  /**
+   * Keeps the uploaded data in memory instead of sending it to BigQuery.
+   */
+  private static class InMemoryLoadClient implements BigQueryLoadClient {
+    private final Map<WritableByteChannel, ByteArrayOutputStream> uploads = new HashMap<>();
+    private final List<String> loadedRows = new ArrayList<>();
+    private final List<BigQueryError> loadErrors;
+
+    InMemoryLoadClient(List<BigQueryError> loadErrors) {
+      this.loadErrors = loadErrors;
+    }
+
+    @Override
+    public WritableByteChannel open(TableId tableId, boolean ignoreUnknownValues) {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      WritableByteChannel channel = Channels.newChannel(os);
+      uploads.put(channel, os);
+      return channel;
+    }
+
+    @Override
+    public List<BigQueryError> commit(WritableByteChannel channel) throws IOException {
+      channel.close();
+      String data = new String(uploads.remove(channel).toByteArray(), StandardCharsets.UTF_8);
+      if (loadErrors.isEmpty()) {
+        loadedRows.addAll(Arrays.asList(data.split("\n")));
+      }
+      return loadErrors;
+    }
+  }
+
+  @Test
+  public void testLoadJobMode() throws Exception {
+    List<Record> records = new ArrayList<>();
+    records.add(createRecord(ImmutableMap.of("a", "1", "b", 1)));
+    records.add(createRecord(ImmutableMap.of("a", "2", "b", 2)));
+    records.add(createRecord(ImmutableMap.of("a", "3", "b", BigDecimal.ONE)));
+
+    PowerMockito.doAnswer((Answer<Table>) invocationOnMock -> Mockito.mock(Table.class))
+        .when(bigQuery).getTable(Mockito.any(TableId.class));
+
+    InMemoryLoadClient loadClient = new InMemoryLoadClient(Collections.emptyList());
+    BigQueryTargetConfig config = new BigQueryTargetConfigBuilder().writeMode(BigQueryWriteMode.LOAD_JOB).build();
+    TargetRunner targetRunner = createAndRunner(new BigQueryTarget(config, loadClient), records);
+
+    Assert.assertEquals(1, targetRunner.getErrorRecords().size());
+    Assert.assertEquals(Errors.BIGQUERY_13.getCode(), targetRunner.getErrorRecords().get(0).getHeader().getErrorCode());
+    Assert.assertEquals(Arrays.asList("{\"a\":\"1\",\"b\":1}", "{\"a\":\"2\",\"b\":2}"), loadClient.loadedRows);
+    Assert.assertTrue(loadClient.uploads.isEmpty());
+  }
+
+  @Test
+  public void testLoadJobModeCommitsEveryBatch() throws Exception {
+    PowerMockito.doAnswer((Answer<Table>) invocationOnMock -> Mockito.mock(Table.class))
+        .when(bigQuery).getTable(Mockito.any(TableId.class));
+
+    InMemoryLoadClient loadClient = new InMemoryLoadClient(Collections.emptyList());
+    BigQueryTargetConfig config = new BigQueryTargetConfigBuilder().writeMode(BigQueryWriteMode.LOAD_JOB).build();
+    Target target = new BigQueryTarget(config, loadClient);
+    TargetRunner runner = new TargetRunner.Builder(BigQueryDTarget.class, target)
+        .setOnRecordError(OnRecordError.TO_ERROR)
+        .build();
+    runner.runInit();
+    Whitebox.setInternalState(target, "bigQuery", bigQuery);
+    try {
+      runner.runWrite(Collections.singletonList(createRecord(ImmutableMap.of("a", "1"))));
+      Assert.assertEquals(Collections.singletonList("{\"a\":\"1\"}"), loadClient.loadedRows);
+      Assert.assertTrue(loadClient.uploads.isEmpty());
+
+      runner.runWrite(Collections.singletonList(createRecord(ImmutableMap.of("a", "2"))));
+      Assert.assertEquals(Arrays.asList("{\"a\":\"1\"}", "{\"a\":\"2\"}"), loadClient.loadedRows);
+      Assert.assertTrue(loadClient.uploads.isEmpty());
+    } finally {
+      runner.runDestroy();
+    }
+  }
+
+  @Test(expected = StageException.class)
+  public void testLoadJobFailure() throws Exception {
+    PowerMockito.doAnswer((Answer<Table>) invocationOnMock -> Mockito.mock(Table.class))
+        .when(bigQuery).getTable(Mockito.any(TableId.class));
+
+    BigQueryError bigQueryError = PowerMockito.mock(BigQueryError.class);
+    Mockito.doReturn("Error in bigquery").when(bigQueryError).getMessage();
+    InMemoryLoadClient loadClient = new InMemoryLoadClient(Collections.singletonList(bigQueryError));
+    BigQueryTargetConfig config = new BigQueryTargetConfigBuilder().writeMode(BigQueryWriteMode.LOAD_JOB).build();
+    createAndRunner(new BigQueryTarget(config, loadClient), Collections.singletonList(
+        createRecord(ImmutableMap.of("a", "1"))
+    ));
+  }
+}
@@ -16,6 +16,7 @@
 package com.streamsets.pipeline.stage.destination.hdfs;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.Batch;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
@@ -33,6 +34,7 @@ import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
 import com.streamsets.pipeline.stage.destination.hdfs.writer.ActiveRecordWriters;
 import com.streamsets.pipeline.stage.destination.hdfs.writer.RecordWriter;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,9 +42,17 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HdfsTarget extends BaseTarget {
   private static final Logger LOG = LoggerFactory.getLogger(HdfsTarget.class);
@@ -55,6 +65,7 @@ public class HdfsTarget extends BaseTarget {
   private final HdfsTargetConfigBean hdfsTargetConfigBean;
   private ErrorRecordHandler errorRecordHandler;
   private Date batchTime;
+  private ExecutorService writeExecutor;
 
   public HdfsTarget(HdfsTargetConfigBean hdfsTargetConfigBean) {
     this.hdfsTargetConfigBean = hdfsTargetConfigBean;
@@ -65,9 +76,19 @@ public class HdfsTarget extends BaseTarget {
     List<ConfigIssue> issues = super.init();
     errorRecordHandler = new DefaultErrorRecordHandler(getContext());
     hdfsTargetConfigBean.init(getContext(), issues);
+    if (issues.isEmpty() && isParallelWrite()) {
+      writeExecutor = Executors.newFixedThreadPool(
+          hdfsTargetConfigBean.writeThreads,
+          new ThreadFactoryBuilder().setNameFormat("HDFS Write Thread - %d").setDaemon(true).build()
+      );
+    }
     return issues;
   }
 
+  private boolean isParallelWrite() {
+    return hdfsTargetConfigBean.writeThreads > 1 && hdfsTargetConfigBean.dataFormat != DataFormat.WHOLE_FILE;
+  }
+
   private static StageException throwStageException(Exception e) {
     // Hadoop libraries will wrap any non InterruptedException, RuntimeException, Error or IOException to
     // UndeclaredThrowableException so we manually unwrap it here and properly propagate it to user.
@@ -89,6 +110,10 @@ public class HdfsTarget extends BaseTarget {
 
   @Override
   public void destroy() {
+    if (writeExecutor != null) {
+      writeExecutor.shutdownNow();
+      writeExecutor = null;
+    }
     hdfsTargetConfigBean.destroy();
     super.destroy();
   }
@@ -105,7 +130,10 @@ public class HdfsTarget extends BaseTarget {
             hdfsTargetConfigBean.getLateWriters().purge();
           }
           Iterator<Record> it = batch.getRecords();
-          if (it.hasNext()) {
+          if (it.hasNext() && writeExecutor != null) {
+            writeInParallel(it);
+            hdfsTargetConfigBean.getCurrentWriters().flushAll();
+          } else if (it.hasNext()) {
             while (it.hasNext()) {
               Record record = it.next();
               try {
@@ -190,65 +218,207 @@ public class HdfsTarget extends BaseTarget {
         return;
       }
 
-      boolean write = true;
-      while (write) {
-        write = false;
-        RecordWriter writer = hdfsTargetConfigBean.getCurrentWriters().get(getBatchTime(), recordTime, record);
-        if (writer != null) {
+      if (!writeToCurrentWriter(record, recordTime, null)) {
+        writeLateRecord(record);
+      }
+    } catch (IOException ex) {
+      throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
+    } catch (StageException ex) {
+      throw new OnRecordErrorException(ex.getErrorCode(), ex.getParams()); // params includes exception
+    }
+  }
+
+  /**
+   * Writes the record to the current writer of its path, the path is resolved from the record if not given. When the
+   * path is given the record is written by a write thread and released writers are not purged.
+   *
+   * @return false if the record is late and hence was not written
+   */
+  private boolean writeToCurrentWriter(Record record, Date recordTime, Path path) throws StageException, IOException {
+    boolean purge = path == null;
+    while (true) {
+      RecordWriter writer = (path == null) ?
+          hdfsTargetConfigBean.getCurrentWriters().get(getBatchTime(), recordTime, record) :
+          hdfsTargetConfigBean.getCurrentWriters().get(getBatchTime(), recordTime, record, path);
+      if (writer == null) {
+        return false;
+      }
+      try {
+        writer.write(record);
+        //close the file immediately if there are no errors/exceptions
+        if (hdfsTargetConfigBean.dataFormat == DataFormat.WHOLE_FILE) {
+          hdfsTargetConfigBean.getCurrentWriters().release(writer, false, purge);
+        }
+        // To avoid double counting, in case of IdleClosedException
+        hdfsTargetConfigBean.getToHdfsRecordsCounter().inc();
+        hdfsTargetConfigBean.getToHdfsRecordsMeter().mark();
+        hdfsTargetConfigBean.getCurrentWriters().release(writer, false, purge);
+        return true;
+      } catch (IdleClosedException ex) {
+        //For whole file we will not get here.
+        hdfsTargetConfigBean.getCurrentWriters().release(writer, false, purge);
+        // Try to write again, this time with a new writer
+        // No use printing path, since it is a temp path - the real one is created later.
+        LOG.debug("Writer was idle closed. Retrying.. ");
+      }
+    }
+  }
+
+  private void writeLateRecord(Record record) throws StageException, IOException {
+    boolean write = true;
+    while (write) {
+      write = false;
+      switch (hdfsTargetConfigBean.lateRecordsAction) {
+        case SEND_TO_ERROR:
+          incrementAndMarkLateRecords();
+          getContext().toError(record, Errors.HADOOPFS_12, record.getHeader().getSourceId());
+          break;
+        case SEND_TO_LATE_RECORDS_FILE:
+          RecordWriter lateWriter =
+              hdfsTargetConfigBean.getLateWriters().get(getBatchTime(), getBatchTime(), record);
           try {
-            writer.write(record);
-            //close the file immediately if there are no errors/exceptions
-            if (hdfsTargetConfigBean.dataFormat == DataFormat.WHOLE_FILE) {
-              hdfsTargetConfigBean.getCurrentWriters().release(writer, false);
-            }
+            lateWriter.write(record);
             // To avoid double counting, in case of IdleClosedException
-            hdfsTargetConfigBean.getToHdfsRecordsCounter().inc();
-            hdfsTargetConfigBean.getToHdfsRecordsMeter().mark();
-            hdfsTargetConfigBean.getCurrentWriters().release(writer, false);
+            incrementAndMarkLateRecords();
+            //We anyway close the late record writers after writing,
+            //no need to handle specially for whole file
+            hdfsTargetConfigBean.getLateWriters().release(lateWriter, false);
           } catch (IdleClosedException ex) {
-            //For whole file we will not get here.
-            hdfsTargetConfigBean.getCurrentWriters().release(writer, false);
-            // Try to write again, this time with a new writer
+            // Try to write again, this time with a new lateWriter
+            hdfsTargetConfigBean.getLateWriters().release(lateWriter, false);
             write = true;
             // No use printing path, since it is a temp path - the real one is created later.
             LOG.debug("Writer was idle closed. Retrying.. ");
           }
-        } else {
-          switch (hdfsTargetConfigBean.lateRecordsAction) {
-            case SEND_TO_ERROR:
-              incrementAndMarkLateRecords();
-              getContext().toError(record, Errors.HADOOPFS_12, record.getHeader().getSourceId());
-              break;
-            case SEND_TO_LATE_RECORDS_FILE:
-              RecordWriter lateWriter =
-                  hdfsTargetConfigBean.getLateWriters().get(getBatchTime(), getBatchTime(), record);
-              try {
-                lateWriter.write(record);
-                // To avoid double counting, in case of IdleClosedException
-                incrementAndMarkLateRecords();
-                //We anyway close the late record writers after writing,
-                //no need to handle specially for whole file
-                hdfsTargetConfigBean.getLateWriters().release(lateWriter, false);
-              } catch (IdleClosedException ex) {
-                // Try to write again, this time with a new lateWriter
-                hdfsTargetConfigBean.getCurrentWriters().release(lateWriter, false);
-                write = true;
-                // No use printing path, since it is a temp path - the real one is created later.
-                LOG.debug("Writer was idle closed. Retrying.. ");
-              }
-              break;
-            default:
-              incrementAndMarkLateRecords();
-              throw new RuntimeException(Utils.format("Unknown late records action: {}",
-                  hdfsTargetConfigBean.lateRecordsAction));
-          }
+          break;
+        default:
+          incrementAndMarkLateRecords();
+          throw new RuntimeException(Utils.format("Unknown late records action: {}",
+              hdfsTargetConfigBean.lateRecordsAction));
+      }
+    }
+  }
+
+  /**
+   * Record of the batch waiting to be written by a write thread, index is its position in the batch.
+   */
+  private static class PendingRecord {
+    private final int index;
+    private final Record record;
+    private final Date recordTime;
+
+    private PendingRecord(int index, Record record, Date recordTime) {
+      this.index = index;
+      this.record = record;
+      this.recordTime = recordTime;
+    }
+  }
+
+  /**
+   * Outcome of writing the records of one path, late records and errors are keyed by their index in the batch.
+   */
+  private static class PathWriteResult {
+    private final Map<Integer, PendingRecord> lateRecords = new LinkedHashMap<>();
+    private final Map<Integer, OnRecordErrorException> errors = new LinkedHashMap<>();
+  }
+
+  /**
+   * Resolves the path of every record on the pipeline thread (EL evaluation is not thread safe), then writes the
+   * records of each path on the write threads. All records of a path are written by the same task and in batch
+   * order, so the order within every file is kept. Late records and errors are handled afterwards on the pipeline
+   * thread, again in batch order. As in {@link #write(Record)}, an IOException fails the whole batch.
+   */
+  private void writeInParallel(Iterator<Record> it) throws Exception {
+    Map<Path, List<PendingRecord>> recordsByPath = new LinkedHashMap<>();
+    TreeMap<Integer, PendingRecord> lateRecords = new TreeMap<>();
+    TreeMap<Integer, OnRecordErrorException> errors = new TreeMap<>();
+
+    int index = 0;
+    while (it.hasNext()) {
+      Record record = it.next();
+      int recordIndex = index++;
+      try {
+        Date recordTime = getRecordTime(record);
+        if (recordTime == null) {
+          throw new StageException(Errors.HADOOPFS_47, hdfsTargetConfigBean.getTimeDriver());
         }
+        if(hdfsTargetConfigBean.dirPathTemplateInHeader
+            && !record.getHeader().getAttributeNames().contains(TARGET_DIRECTORY_HEADER)) {
+          getContext().toError(record, Errors.HADOOPFS_50);
+          continue;
+        }
+        Path path = hdfsTargetConfigBean.getCurrentWriters().getWriterManager().getPath(recordTime, record);
+        recordsByPath.computeIfAbsent(path, p -> new ArrayList<>())
+            .add(new PendingRecord(recordIndex, record, recordTime));
+      } catch (IOException ex) {
+        throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
+      } catch (StageException ex) {
+        errors.put(recordIndex, new OnRecordErrorException(record, ex.getErrorCode(), ex.getParams()));
+      }
+    }
+
+    List<Future<PathWriteResult>> futures = new ArrayList<>(recordsByPath.size());
+    for (Map.Entry<Path, List<PendingRecord>> entry : recordsByPath.entrySet()) {
+      futures.add(writeExecutor.submit(() -> hdfsTargetConfigBean.getUGI().doAs(
+          (PrivilegedExceptionAction<PathWriteResult>) () -> writeRecordsOfPath(entry.getKey(), entry.getValue())
+      )));
+    }
+    // Wait for every task, even after a failure, so that no write thread still uses the writers when purging
+    Exception failure = null;
+    for (Future<PathWriteResult> future : futures) {
+      try {
+        PathWriteResult result = future.get();
+        lateRecords.putAll(result.lateRecords);
+        errors.putAll(result.errors);
+      } catch (ExecutionException ex) {
+        if (failure == null) {
+          Throwable cause = ex.getCause();
+          failure = cause instanceof Exception ? (Exception) cause : ex;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    hdfsTargetConfigBean.getCurrentWriters().purge();
+
+    // Merge late records and errors back in batch order
+    while (!lateRecords.isEmpty() || !errors.isEmpty()) {
+      if (errors.isEmpty() || (!lateRecords.isEmpty() && lateRecords.firstKey() < errors.firstKey())) {
+        Record record = lateRecords.pollFirstEntry().getValue().record;
+        try {
+          writeLateRecord(record);
+        } catch (IOException ex) {
+          throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
+        } catch (StageException ex) {
+          errorRecordHandler.onError(new OnRecordErrorException(record, ex.getErrorCode(), ex.getParams()));
+        }
+      } else {
+        errorRecordHandler.onError(errors.pollFirstEntry().getValue());
+      }
+    }
+  }
+
+  /**
+   * Writes the records of one path in batch order.
+   */
+  private PathWriteResult writeRecordsOfPath(Path path, List<PendingRecord> records) throws StageException {
+    PathWriteResult result = new PathWriteResult();
+    for (PendingRecord pending : records) {
+      try {
+        if (!writeToCurrentWriter(pending.record, pending.recordTime, path)) {
+          result.lateRecords.put(pending.index, pending);
+        }
+      } catch (IOException ex) {
+        throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
+      } catch (StageException ex) {
+        result.errors.put(
+            pending.index,
+            new OnRecordErrorException(pending.record, ex.getErrorCode(), ex.getParams())
+        );
       }
-    } catch (IOException ex) {
-      throw new StageException(Errors.HADOOPFS_14, ex.toString(), ex);
-    } catch (StageException ex) {
-      throw new OnRecordErrorException(ex.getErrorCode(), ex.getParams()); // params includes exception
     }
+    return result;
   }
 
   private void incrementAndMarkLateRecords() {
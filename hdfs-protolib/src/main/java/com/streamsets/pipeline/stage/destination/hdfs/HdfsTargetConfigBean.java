@@ -55,6 +55,7 @@ import java.security.PrivilegedExceptionAction;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -379,6 +380,46 @@ public class HdfsTargetConfigBean extends HdfsBaseConfigBean {
   )
   public boolean skipOldTempFileRecovery = false;
 
+  @ConfigDef(
+    required = true,
+    type = ConfigDef.Type.NUMBER,
+    label = "Flush Threads",
+    defaultValue = "1",
+    description = "Number of threads used to flush the files written to at the end of each batch. " +
+        "Use more than one thread when records of a batch are spread across many files.",
+    displayPosition = 1010,
+    group = "OUTPUT_FILES",
+    min = 1,
+    max = 64
+  )
+  public int flushThreads = 1;
+
+  @ConfigDef(
+    required = true,
+    type = ConfigDef.Type.BOOLEAN,
+    label = "Sync on Flush",
+    defaultValue = "false",
+    description = "Persist the data written in each batch to disk (hsync) instead of only making it visible " +
+        "to readers (hflush). Slower, but no data is lost if the whole cluster loses power.",
+    displayPosition = 1020,
+    group = "OUTPUT_FILES"
+  )
+  public boolean syncOnFlush = false;
+
+  @ConfigDef(
+    required = true,
+    type = ConfigDef.Type.NUMBER,
+    label = "Write Threads",
+    defaultValue = "1",
+    description = "Number of threads used to write the records of a batch when they go to different files. " +
+        "Records of the same file are always written in order by a single thread. Not used for Whole File.",
+    displayPosition = 1030,
+    group = "OUTPUT_FILES",
+    min = 1,
+    max = 64
+  )
+  public int writeThreads = 1;
+
   @ConfigDefBean(groups = {"DATA_FORMAT"})
   public DataGeneratorFormatConfig dataGeneratorFormatConfig;
 
@@ -528,6 +569,7 @@ public class HdfsTargetConfigBean extends HdfsBaseConfigBean {
         if (idleTimeSecs > 0) {
           mgr.setIdleTimeoutSeconds(idleTimeSecs);
         }
+        mgr.setSyncOnFlush(syncOnFlush);
 
         // We're skipping all hdfs-target-directory related validations if we're getting the configuration from header
         if(dirPathTemplateInHeader) {
@@ -586,6 +628,7 @@ public class HdfsTargetConfigBean extends HdfsBaseConfigBean {
           if (idleTimeSecs > 0) {
             mgr.setIdleTimeoutSeconds(idleTimeSecs);
           }
+          mgr.setSyncOnFlush(syncOnFlush);
 
           // validate if the lateRecordsDirPathTemplate can be resolved by Els constants
           if (mgr.validateDirTemplate(
@@ -663,6 +706,13 @@ public class HdfsTargetConfigBean extends HdfsBaseConfigBean {
       toHdfsRecordsMeter = context.createMeter("toHdfsRecords");
       lateRecordsCounter = context.createCounter("lateRecords");
       lateRecordsMeter = context.createMeter("lateRecords");
+
+      Map<String, Object> openFilesGauge = context.createGauge("Open Files").getValue();
+      currentWriters.setMetrics(context.createTimer("flush"), openFilesGauge, "Current");
+      currentWriters.setFlushThreads(flushThreads);
+      if (lateWriters != null) {
+        lateWriters.setMetrics(null, openFilesGauge, "Late Records");
+      }
     }
 
     if (issues.isEmpty()) {
@@ -16,21 +16,30 @@
 package com.streamsets.pipeline.stage.destination.hdfs.writer;
 
 
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.impl.Utils;
 import com.streamsets.pipeline.lib.hdfs.common.Errors;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public class ActiveRecordWriters {
@@ -72,16 +81,52 @@ public class ActiveRecordWriters {
 
   private final RecordWriterManager manager;
 
+  // Writers are only ever locked individually (see RecordWriter#closeLock), so the pipeline thread
+  // and the idle close threads don't contend on this registry.
   @VisibleForTesting
   Map<String, RecordWriter> writers;
   private DelayQueue<DelayedRecordWriter> cutOffQueue;
+  private ExecutorService flushExecutor;
+  private Timer flushTimer;
+  private Map<String, Object> openWritersGauge;
+  private String openWritersGaugeKey;
 
   public ActiveRecordWriters(RecordWriterManager manager) {
-    writers = new HashMap<>();
+    writers = new ConcurrentHashMap<>();
     cutOffQueue = new DelayQueue<>();
     this.manager = manager;
   }
 
+  /**
+   * Flush the writers that have data in parallel using the given number of threads, by default
+   * they are flushed one after the other on the calling thread.
+   */
+  public void setFlushThreads(int flushThreads) {
+    if (flushThreads > 1) {
+      flushExecutor = Executors.newFixedThreadPool(
+          flushThreads,
+          new ThreadFactoryBuilder().setNameFormat("HDFS Flush Thread - %d").setDaemon(true).build()
+      );
+    }
+  }
+
+  /**
+   * Report the time taken by {@link #flushAll()} to the given timer and the number of open writers
+   * under the given key of the gauge map.
+   */
+  public void setMetrics(Timer flushTimer, Map<String, Object> openWritersGauge, String openWritersGaugeKey) {
+    this.flushTimer = flushTimer;
+    this.openWritersGauge = openWritersGauge;
+    this.openWritersGaugeKey = openWritersGaugeKey;
+    updateOpenWritersGauge();
+  }
+
+  private void updateOpenWritersGauge() {
+    if (openWritersGauge != null && writers != null) {
+      openWritersGauge.put(openWritersGaugeKey, writers.size());
+    }
+  }
+
   public void commitOldFiles(FileSystem fs) throws IOException, StageException {
     manager.commitOldFiles(fs);
   }
@@ -92,47 +137,63 @@ public class ActiveRecordWriters {
     }
     DelayedRecordWriter delayedWriter = cutOffQueue.poll();
     while (delayedWriter != null) {
-      if (!delayedWriter.getWriter().isClosed()) {
-        if (IS_TRACE_ENABLED) {
-          LOG.trace("Purging '{}'", delayedWriter.getWriter().getPath());
-        }
-        //We are fine no lock on writer needed.
-        synchronized (this) {
-          writers.remove(delayedWriter.getWriter().getPath().toString());
+      RecordWriter writer = delayedWriter.getWriter();
+      writer.closeLock();
+      try {
+        if (!writer.isClosed()) {
+          if (IS_TRACE_ENABLED) {
+            LOG.trace("Purging '{}'", writer.getPath());
+          }
+          writers.remove(writer.getPath().toString(), writer);
+          manager.commitWriter(writer);
         }
-        manager.commitWriter(delayedWriter.getWriter());
+      } finally {
+        writer.closeUnlock();
       }
       delayedWriter = cutOffQueue.poll();
     }
+    updateOpenWritersGauge();
   }
 
   public RecordWriter get(Date now, Date recordDate, Record record) throws StageException, IOException {
-    String path = manager.getPath(recordDate, record).toString();
-    RecordWriter writer = null;
+    return get(now, recordDate, record, manager.getPath(recordDate, record), true);
+  }
 
-    //We are fine no lock on writer needed.
-    synchronized (this) {
-      writer = writers.get(path);
-    }
+  /**
+   * Returns the writer for an already resolved path (see {@link RecordWriterManager#getPath(Date, Record)}).
+   *
+   * Can be called concurrently as long as each thread uses different paths. A rolled writer is released without
+   * purging, callers must call {@link #purge()} once no other thread is using the writers.
+   */
+  public RecordWriter get(Date now, Date recordDate, Record record, Path tempPath) throws StageException, IOException {
+    return get(now, recordDate, record, tempPath, false);
+  }
+
+  private RecordWriter get(
+      Date now,
+      Date recordDate,
+      Record record,
+      Path tempPath,
+      boolean purge
+  ) throws StageException, IOException {
+    String path = tempPath.toString();
+    RecordWriter writer = writers.get(path);
 
     if(writer != null && manager.shouldRoll(writer, record)) {
-      release(writer, true);
+      release(writer, true, purge);
       writer = null;
     }
 
     if (writer == null) {
-      writer = manager.getWriter(now, recordDate, record);
+      writer = manager.getWriter(now, recordDate, tempPath);
       if (writer != null) {
         if (IS_TRACE_ENABLED) {
           LOG.trace("Got '{}'", writer.getPath());
         }
         writer.setActiveRecordWriters(this);
-
-        //We are fine no lock on writer needed.
-        synchronized(this) {
-          writers.put(path, writer);
-        }
+        writers.put(path, writer);
         cutOffQueue.add(new DelayedRecordWriter(writer));
+        updateOpenWritersGauge();
       }
     }
     return writer;
@@ -147,49 +208,105 @@ public class ActiveRecordWriters {
     return cutOffQueue.size();
   }
 
-  //The whole function is synchronized because
-  //the locks always have to taken in the following order
-  //1. ActiveRecordWriters and 2. RecordWriter (if we need both of them)
-  //or else we will get into a deadlock
-  //For Ex: idle close thread calls this method
-  //and the hdfsTarget (in the pipeline runnable thread), calls flushAll
-  public synchronized void release(RecordWriter writer, boolean roll) throws StageException, IOException {
+  // Only the lock of the given writer is taken, callers must not hold the lock of any other writer.
+  public void release(RecordWriter writer, boolean roll) throws StageException, IOException {
+    release(writer, roll, true);
+  }
+
+  /**
+   * Same as {@link #release(RecordWriter, boolean)}, but doesn't purge the expired writers if purge is false. Used
+   * by the write threads, as purging could close a writer that another write thread has just obtained.
+   */
+  public void release(RecordWriter writer, boolean roll, boolean purge) throws StageException, IOException {
     writer.closeLock();
     try {
       if (roll || writer.isIdleClosed() || manager.isOverThresholds(writer)) {
         if (IS_TRACE_ENABLED) {
           LOG.trace("Release '{}'", writer.getPath());
         }
-        writers.remove(writer.getPath().toString());
+        writers.remove(writer.getPath().toString(), writer);
         manager.commitWriter(writer);
       }
     } finally {
       writer.closeUnlock();
     }
-    purge();
+    if (purge) {
+      purge();
+    }
   }
 
-  public synchronized void flushAll() throws StageException {
+  public void flushAll() throws StageException {
     if (IS_TRACE_ENABLED) {
       LOG.trace("Flush all '{}'", toString());
     }
+    List<RecordWriter> dirtyWriters = new ArrayList<>();
     for (RecordWriter writer : writers.values()) {
-      if (!writer.isClosed()) {
-        try {
-          writer.flush();
-        } catch (IOException ex) {
-          String msg = Utils.format("Flush failed on file : '{}'", writer.getPath().toString());
-          LOG.error(msg);
-          throw new StageException(Errors.HADOOPFS_58, writer.getPath().toString(), ex);
+      if (writer.hasUnflushedData() && !writer.isClosed()) {
+        dirtyWriters.add(writer);
+      }
+    }
+    if (dirtyWriters.isEmpty()) {
+      return;
+    }
+
+    Timer.Context timerContext = flushTimer == null ? null : flushTimer.time();
+    try {
+      if (flushExecutor == null || dirtyWriters.size() == 1) {
+        for (RecordWriter writer : dirtyWriters) {
+          flush(writer);
+        }
+      } else {
+        List<Future<Void>> futures = new ArrayList<>(dirtyWriters.size());
+        for (RecordWriter writer : dirtyWriters) {
+          futures.add(flushExecutor.submit(() -> {
+            flush(writer);
+            return null;
+          }));
+        }
+        StageException failure = null;
+        for (Future<Void> future : futures) {
+          try {
+            future.get();
+          } catch (ExecutionException ex) {
+            if (failure == null) {
+              failure = ex.getCause() instanceof StageException ?
+                  (StageException) ex.getCause() :
+                  new StageException(Errors.HADOOPFS_58, "", ex.getCause(), ex.getCause());
+            }
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StageException(Errors.HADOOPFS_58, "", ex, ex);
+          }
+        }
+        if (failure != null) {
+          throw failure;
         }
       }
+    } finally {
+      if (timerContext != null) {
+        timerContext.stop();
+      }
     }
   }
 
-  public synchronized void closeAll() throws StageException{
+  private static void flush(RecordWriter writer) throws StageException {
+    try {
+      writer.flush();
+    } catch (IOException ex) {
+      String msg = Utils.format("Flush failed on file : '{}'", writer.getPath().toString());
+      LOG.error(msg);
+      throw new StageException(Errors.HADOOPFS_58, writer.getPath().toString(), ex);
+    }
+  }
+
+  public void closeAll() throws StageException{
     if (IS_TRACE_ENABLED) {
       LOG.trace("Close all '{}'", toString());
     }
+    if (flushExecutor != null) {
+      flushExecutor.shutdownNow();
+      flushExecutor = null;
+    }
     if(writers != null) {
       for (RecordWriter writer : writers.values()) {
         writer.closeLock();
@@ -120,7 +120,7 @@ final class DefaultFsHelper implements FsHelper {
 
   @Override
   public OutputStream create(FileSystem fs, Path path) throws IOException {
-    return new HflushableWrapperOutputStream(fs.create(path, false));
+    return new HflushableWrapperOutputStream(fs.create(path, false), recordWriterManager.isSyncOnFlush());
   }
 
   @Override
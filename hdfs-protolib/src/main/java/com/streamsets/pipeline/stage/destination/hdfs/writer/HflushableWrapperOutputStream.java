@@ -21,22 +21,33 @@ import org.apache.hadoop.fs.FSDataOutputStream;
 import java.io.IOException;
 
 /**
- * A Wrapper Output stream for {@link FSDataOutputStream} which will call {@link FSDataOutputStream#hflush()} in
- * addition to {@link FSDataOutputStream#flush()} when {@link #flush()} is called
+ * A Wrapper Output stream for {@link FSDataOutputStream} which will call {@link FSDataOutputStream#hflush()}
+ * (or {@link FSDataOutputStream#hsync()} if requested) in addition to {@link FSDataOutputStream#flush()}
+ * when {@link #flush()} is called
  *
  * Rest of the method calls are delegated to {@link FSDataOutputStream} by extending {@link org.apache.commons.io.output.ProxyOutputStream}
  */
 public final class HflushableWrapperOutputStream extends ProxyOutputStream {
   FSDataOutputStream os;
+  private final boolean sync;
 
   HflushableWrapperOutputStream(FSDataOutputStream os) {
+    this(os, false);
+  }
+
+  HflushableWrapperOutputStream(FSDataOutputStream os, boolean sync) {
     super(os);
     this.os = os;
+    this.sync = sync;
   }
 
   @Override
   public void flush() throws IOException {
     super.flush();
-    os.hflush();
+    if (sync) {
+      os.hsync();
+    } else {
+      os.hflush();
+    }
   }
 }
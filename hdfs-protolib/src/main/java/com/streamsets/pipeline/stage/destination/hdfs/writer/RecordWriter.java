@@ -68,7 +68,8 @@ public class RecordWriter {
   private boolean idleClosed;
   private Future<Void> currentIdleCloseFuture = null;
   private ActiveRecordWriters writers = null;
-  private boolean batchContainsData = false;
+  private volatile boolean batchContainsData = false;
+  private boolean syncOnFlush = false;
   private volatile boolean renamed = false;
 
   private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
@@ -183,7 +184,11 @@ public class RecordWriter {
       if (generator != null) {
         generator.flush();
       } else if (seqWriter != null) {
-        seqWriter.hflush();
+        if (syncOnFlush) {
+          seqWriter.hsync();
+        } else {
+          seqWriter.hflush();
+        }
       }
     } finally {
       // reset this flag so we flush only when there is data.
@@ -192,6 +197,17 @@ public class RecordWriter {
     }
   }
 
+  /**
+   * Returns true if records were written since the last flush.
+   */
+  public boolean hasUnflushedData() {
+    return batchContainsData;
+  }
+
+  void setSyncOnFlush(boolean syncOnFlush) {
+    this.syncOnFlush = syncOnFlush;
+  }
+
   // due to buffering of underlying streams, the reported length may be less than the actual one up to the
   // buffer size.
   public long getLength() throws IOException {
@@ -213,6 +229,7 @@ public class RecordWriter {
   }
 
   private void close(boolean idleClosed) throws IOException, StageException {
+    boolean release = false;
     closeLock.writeLock().lock();
     LOG.debug("Path[{}] - Closing", path);
     try {
@@ -229,9 +246,7 @@ public class RecordWriter {
       }
       this.idleClosed = idleClosed;
       // writers can never be null, except in tests
-      if (idleClosed && writers != null) {
-        writers.release(this, false);
-      }
+      release = idleClosed && writers != null;
     } finally {
       generator = null;
       seqWriter = null;
@@ -239,6 +254,11 @@ public class RecordWriter {
       //Gracefully Shutdown the thread, so rename goes through without glitch.
       idleCloseExecutor.shutdown();
     }
+    // Released after giving up our own lock, release() locks this writer again and may purge (and so lock)
+    // other writers, holding two writer locks at once could deadlock with another idle close thread.
+    if (release) {
+      writers.release(this, false);
+    }
   }
 
   public void setIdleTimeout(long timeout) {
@@ -317,18 +337,7 @@ public class RecordWriter {
     @Override
     public Void call() throws StageException{
       try {
-        if (writers != null) {
-          //We are going to call close(true) which takes a lock on writers
-          //and then going to call writers.release() -> which will take a lock on
-          //ActiveRecordWriters
-          //The ordering for locking both ActiveRecordWriters and RecordWriter is
-          //1.ActiveRecordWriters 2. RecordWriter
-          synchronized (writers) {
-            close(true);
-          }
-        } else {
-          close(true);
-        }
+        close(true);
       } catch (IOException e) {
         LOG.error("Error while attempting to close " + getPath().toString(), e);
       }
@@ -79,6 +79,7 @@ public class RecordWriterManager {
   private DataGeneratorFactory generatorFactory;
   private Target.Context context;
   private long idleTimeoutSeconds = -1L;
+  private boolean syncOnFlush = false;
   private final boolean rollIfHeader;
   private final String rollHeaderName;
   private final FsHelper fsHelper;
@@ -144,6 +145,17 @@ public class RecordWriterManager {
     this.idleTimeoutSeconds = idleTimeoutSeconds;
   }
 
+  /**
+   * Use hsync instead of hflush when flushing written data, so it gets persisted to disk.
+   */
+  public void setSyncOnFlush(boolean syncOnFlush) {
+    this.syncOnFlush = syncOnFlush;
+  }
+
+  public boolean isSyncOnFlush() {
+    return syncOnFlush;
+  }
+
   public long getCutOffMillis() {
     return cutOffMillis;
   }
@@ -275,6 +287,7 @@ public class RecordWriterManager {
           if (idleTimeoutSeconds != -1) {
             seqRecordWriter.setIdleTimeout(idleTimeoutSeconds);
           }
+          seqRecordWriter.setSyncOnFlush(syncOnFlush);
           return seqRecordWriter;
         } catch (UnsatisfiedLinkError unsatisfiedLinkError) {
           throw new StageException(Errors.HADOOPFS_46, compressionType.name(), unsatisfiedLinkError,
@@ -286,9 +299,16 @@ public class RecordWriterManager {
   }
 
   public RecordWriter getWriter(Date now, Date recordDate, Record record) throws StageException, IOException {
+    return getWriter(now, recordDate, getPath(recordDate, record));
+  }
+
+  /**
+   * Same as {@link #getWriter(Date, Date, Record)} for an already resolved path, doesn't evaluate any EL
+   * and hence can be called from multiple threads for different paths.
+   */
+  public RecordWriter getWriter(Date now, Date recordDate, Path tempPath) throws StageException, IOException {
     RecordWriter writer = null;
     long writerTimeToLive = getTimeToLiveMillis(now, recordDate);
-    Path tempPath = getPath(recordDate, record);
     if (writerTimeToLive >= 0) {
       if (fs.exists(tempPath)) {
         fsHelper.handleAlreadyExistingFile(fs, tempPath);
@@ -345,27 +365,33 @@ public class RecordWriterManager {
    */
   public Path commitWriter(RecordWriter writer) throws IOException, StageException {
     Path path = null;
-    if ((!writer.isClosed() || writer.isIdleClosed()) && !writer.isRenamed()) {
-      // Unset the interrupt flag before close(). InterruptedIOException makes close() fail
-      // resulting that the tmp file never gets renamed when stopping the pipeline.
-      boolean interrupted = Thread.interrupted();
-      try {
-        // Since this method is always called from exactly one thread, and
-        // we checked to make sure that it was not closed or it was idle closed, this method either closes
-        // the file or pushes us into the catch block.
-        writer.close();
-      } catch (IdleClosedException e) {
-        LOG.info("Writer for {} was idle closed, renaming.." , writer.getPath());
-      }
+    // Writers are committed from the pipeline, flush and idle close threads, the writer lock makes the
+    // check below and the close and rename that follow atomic.
+    writer.closeLock();
+    try {
+      if ((!writer.isClosed() || writer.isIdleClosed()) && !writer.isRenamed()) {
+        // Unset the interrupt flag before close(). InterruptedIOException makes close() fail
+        // resulting that the tmp file never gets renamed when stopping the pipeline.
+        boolean interrupted = Thread.interrupted();
+        try {
+          // We checked to make sure that it was not closed or it was idle closed, this method either closes
+          // the file or pushes us into the catch block.
+          writer.close();
+        } catch (IdleClosedException e) {
+          LOG.info("Writer for {} was idle closed, renaming.." , writer.getPath());
+        }
 
-      LOG.debug("Path[{}] - Committing Writer", writer.getPath());
-      path = renameToFinalName(fs, writer.getPath());
-      writer.setRenamed(true);
-      LOG.debug("Path[{}] - Committed Writer to '{}'", writer.getPath(), path);
-      // Reset the interrupt flag back.
-      if (interrupted) {
-        Thread.currentThread().interrupt();
+        LOG.debug("Path[{}] - Committing Writer", writer.getPath());
+        path = renameToFinalName(fs, writer.getPath());
+        writer.setRenamed(true);
+        LOG.debug("Path[{}] - Committed Writer to '{}'", writer.getPath(), path);
+        // Reset the interrupt flag back.
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
       }
+    } finally {
+      writer.closeUnlock();
     }
     return path;
   }
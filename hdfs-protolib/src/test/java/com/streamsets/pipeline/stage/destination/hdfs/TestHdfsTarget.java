@@ -598,4 +598,92 @@ public class TestHdfsTarget {
     File targetDirectory = new File(getTestDir() + "/hdfs/a/b/c");
     Assert.assertFalse(targetDirectory.exists());
   }
+
+  @Test
+  public void testParallelWriteKeepsOrderPerFile() throws Exception {
+    DataGeneratorFormatConfig dataGeneratorFormatConfig = new DataGeneratorFormatConfig();
+    dataGeneratorFormatConfig.jsonMode = JsonMode.MULTIPLE_OBJECTS;
+
+    HdfsTarget hdfsTarget = HdfsTargetUtil.newBuilder()
+      .dataGeneratorFormatConfig(dataGeneratorFormatConfig)
+      .dataForamt(DataFormat.JSON)
+      .dirPathTemplate(getTestDir() + "/hdfs/${record:value('/dir')}")
+      .maxRecordsPerFile(1000)
+      .writeThreads(4)
+      .build();
+
+    TargetRunner runner = new TargetRunner.Builder(HdfsDTarget.class, hdfsTarget)
+        .setOnRecordError(OnRecordError.STOP_PIPELINE)
+        .build();
+    runner.runInit();
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      Record record = RecordCreator.create();
+      Map<String, Field> map = new LinkedHashMap<>();
+      map.put("dir", Field.create("d" + (i % 6)));
+      map.put("i", Field.create(i));
+      record.set(Field.create(map));
+      records.add(record);
+    }
+    try {
+      runner.runWrite(records);
+      Assert.assertTrue(runner.getErrorRecords().isEmpty());
+    } finally {
+      runner.runDestroy();
+    }
+
+    Assert.assertEquals(6, runner.getEventRecords().size());
+    for (int dir = 0; dir < 6; dir++) {
+      File[] list = new File(getTestDir() + "/hdfs/d" + dir).listFiles();
+      Assert.assertEquals(1, list.length);
+      List<String> lines = FileUtils.readLines(list[0], Charset.defaultCharset());
+      Assert.assertEquals(10, lines.size());
+      for (int i = 0; i < lines.size(); i++) {
+        Assert.assertEquals("{\"dir\":\"d" + dir + "\",\"i\":" + (dir + i * 6) + "}", lines.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testParallelWriteFailsBatchOnIOException() throws Exception {
+    DataGeneratorFormatConfig dataGeneratorFormatConfig = new DataGeneratorFormatConfig();
+    dataGeneratorFormatConfig.jsonMode = JsonMode.MULTIPLE_OBJECTS;
+
+    HdfsTarget hdfsTarget = HdfsTargetUtil.newBuilder()
+      .dataGeneratorFormatConfig(dataGeneratorFormatConfig)
+      .dataForamt(DataFormat.JSON)
+      .dirPathTemplate(getTestDir() + "/hdfs/${record:value('/dir')}")
+      .writeThreads(4)
+      .build();
+
+    TargetRunner runner = new TargetRunner.Builder(HdfsDTarget.class, hdfsTarget)
+        .setOnRecordError(OnRecordError.TO_ERROR)
+        .build();
+    runner.runInit();
+
+    // A regular file where the directory of some records should be, so creating their file fails
+    File notADirectory = new File(getTestDir() + "/hdfs/d0");
+    Assert.assertTrue(notADirectory.getParentFile().isDirectory() || notADirectory.getParentFile().mkdirs());
+    Assert.assertTrue(notADirectory.createNewFile());
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      Record record = RecordCreator.create();
+      Map<String, Field> map = new LinkedHashMap<>();
+      map.put("dir", Field.create("d" + (i % 3)));
+      map.put("i", Field.create(i));
+      record.set(Field.create(map));
+      records.add(record);
+    }
+    try {
+      runner.runWrite(records);
+      Assert.fail("Expected StageException as a file of the batch can't be created");
+    } catch (StageException ex) {
+      // The batch fails instead of sending its records to error
+      Assert.assertTrue(runner.getErrorRecords().isEmpty());
+    } finally {
+      runner.runDestroy();
+    }
+  }
 }
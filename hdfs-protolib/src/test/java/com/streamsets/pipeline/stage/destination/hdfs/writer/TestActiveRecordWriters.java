@@ -15,6 +15,8 @@
  */
 package com.streamsets.pipeline.stage.destination.hdfs.writer;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.OnRecordError;
 import com.streamsets.pipeline.api.Record;
@@ -35,8 +37,10 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -253,4 +257,52 @@ public class TestActiveRecordWriters {
       Assert.assertTrue(ex.getCause() instanceof IOException);
     }
   }
+
+  @Test
+  public void testParallelFlushOfDirtyWriters() throws Exception {
+    RecordWriterManager mgr = new RecordWriterManagerTestBuilder()
+        .context(ContextInfoCreator.createTargetContext(HdfsDTarget.class, "testParallelFlush", false, OnRecordError.TO_ERROR, null))
+        .dirPathTemplate(getTestDir().toString() + "/${record:value('/')}")
+        .build();
+
+    ActiveRecordWriters writers = new ActiveRecordWriters(mgr);
+    Timer flushTimer = new MetricRegistry().timer("flush");
+    Map<String, Object> gauge = new HashMap<>();
+    writers.setMetrics(flushTimer, gauge, "Current");
+    writers.setFlushThreads(4);
+
+    Date now = new Date();
+    List<RecordWriter> written = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Record record = RecordCreator.create();
+      record.set(Field.create("dir" + i));
+      RecordWriter writer = writers.get(now, now, record);
+      Assert.assertNotNull(writer);
+      // Only half of the writers get data in this batch
+      if (i % 2 == 0) {
+        writer.write(record);
+        written.add(writer);
+      }
+    }
+    Assert.assertEquals(10, gauge.get("Current"));
+    Assert.assertEquals(5, written.size());
+    for (RecordWriter writer : written) {
+      Assert.assertTrue(writer.hasUnflushedData());
+    }
+
+    writers.flushAll();
+    for (RecordWriter writer : written) {
+      Assert.assertFalse(writer.hasUnflushedData());
+    }
+    Assert.assertEquals(1, flushTimer.getCount());
+
+    // Nothing is dirty anymore, so nothing gets flushed
+    writers.flushAll();
+    Assert.assertEquals(1, flushTimer.getCount());
+
+    writers.closeAll();
+    for (RecordWriter writer : written) {
+      Assert.assertTrue(writer.isClosed());
+    }
+  }
 }
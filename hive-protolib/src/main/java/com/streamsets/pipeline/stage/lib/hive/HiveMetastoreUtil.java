@@ -598,7 +598,7 @@ public final class HiveMetastoreUtil {
   /**
    *  Evaluate precision or scale in context of record and given field path.
    */
-  private static int resolveScaleOrPrecisionExpression(
+  public static int resolveScaleOrPrecisionExpression(
       String type,
       ELEval elEval,
       ELVars variables,
@@ -700,35 +700,7 @@ public final class HiveMetastoreUtil {
       if (StringUtils.isEmpty(pair.getKey())) {
         throw new HiveStageCheckedException(Errors.HIVE_01, "Field name is empty");
       }
-      Field currField = pair.getValue();
-      switch(currField.getType()) {
-        case SHORT:
-          currField = Field.create(Field.Type.INTEGER, currField.getValue());
-          break;
-        case CHAR:
-          currField = Field.create(currField.getValueAsString());
-          break;
-        case DATETIME:
-          if (convertTimesToString) {
-            currField = Field.create(
-                Field.Type.STRING,
-                currField.getValue() == null ? null : datetimeFormat.get().format(currField.getValueAsDate())
-            );
-          } else {
-            currField = Field.create(
-                Field.Type.DATETIME,
-                currField.getValue() == null ? null : getDateForTimeZone(timeZone, currField));
-          }
-          break;
-        case TIME:
-          currField = Field.create(
-              Field.Type.STRING,
-              currField.getValue() == null ? null : timeFormat.get().format(currField.getValueAsTime())
-          );
-          break;
-        default:
-          break;
-      }
+      Field currField = convertFieldToHMSType(pair.getValue(), convertTimesToString, timeZone);
 
       // Set current field in the context - used by subsequent ELs (decimal resolution, comments, ...)
       FieldPathEL.setFieldInContext(variables, pair.getKey());
@@ -746,12 +718,9 @@ public final class HiveMetastoreUtil {
       if (hiveType == HiveType.DECIMAL) {
         int precision = resolveScaleOrPrecisionExpression("precision", precisionEL, variables, precisionExpression, pair.getKey());
         int scale = resolveScaleOrPrecisionExpression("scale", scaleEL, variables, scaleExpression, pair.getKey());
-        validateScaleAndPrecision(pair.getKey(), currField, precision, scale);
+        Field decimalField = convertDecimalField(pair.getKey(), currField, precision, scale);
         hiveTypeInfo = hiveType.getSupport().generateHiveTypeInfoFromRecordField(currField, comment, precision, scale);
-        // We need to make sure that all java objects have the same scale
-        if(currField.getValue() != null) {
-          pair.setValue(Field.create(currField.getValueAsDecimal().setScale(scale)));
-        }
+        pair.setValue(decimalField);
       } else {
         hiveTypeInfo = hiveType.getSupport().generateHiveTypeInfoFromRecordField(currField, comment);
       }
@@ -760,6 +729,64 @@ public final class HiveMetastoreUtil {
     return columns;
   }
 
+  /**
+   * Converts the value of a record field to the type of the corresponding Hive column. Avro does not support
+   * char, short and date types, so they are converted to supported types.
+   * @param field record field
+   * @param convertTimesToString whether datetime values are converted to strings
+   * @param timeZone time zone of datetime values that are not converted to strings
+   * @return converted field, or the given field if no conversion is needed
+   * @throws HiveStageCheckedException
+   */
+  public static Field convertFieldToHMSType(
+      Field field,
+      boolean convertTimesToString,
+      TimeZone timeZone
+  ) throws HiveStageCheckedException {
+    switch(field.getType()) {
+      case SHORT:
+        return Field.create(Field.Type.INTEGER, field.getValue());
+      case CHAR:
+        return Field.create(field.getValueAsString());
+      case DATETIME:
+        if (convertTimesToString) {
+          return Field.create(
+              Field.Type.STRING,
+              field.getValue() == null ? null : datetimeFormat.get().format(field.getValueAsDate())
+          );
+        }
+        return Field.create(
+            Field.Type.DATETIME,
+            field.getValue() == null ? null : getDateForTimeZone(timeZone, field)
+        );
+      case TIME:
+        return Field.create(
+            Field.Type.STRING,
+            field.getValue() == null ? null : timeFormat.get().format(field.getValueAsTime())
+        );
+      default:
+        return field;
+    }
+  }
+
+  /**
+   * Validates a decimal field against the resolved precision and scale.
+   * @return field with the value set to the given scale, so that all java objects have the same scale
+   * @throws HiveStageCheckedException if the precision, the scale or the value are not valid
+   */
+  public static Field convertDecimalField(
+      String fieldName,
+      Field field,
+      int precision,
+      int scale
+  ) throws HiveStageCheckedException {
+    validateScaleAndPrecision(fieldName, field, precision, scale);
+    if(field.getValue() == null) {
+      return field;
+    }
+    return Field.create(field.getValueAsDecimal().setScale(scale));
+  }
+
   /**
    * Checks if partition value contains unsupported character.
    * @param value String to check
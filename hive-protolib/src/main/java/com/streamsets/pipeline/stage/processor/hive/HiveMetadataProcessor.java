@@ -20,6 +20,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Batch;
 import com.streamsets.pipeline.api.Stage;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.Field;
@@ -37,6 +38,7 @@ import com.streamsets.pipeline.lib.el.TimeEL;
 import com.streamsets.pipeline.lib.el.TimeNowEL;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
+import com.streamsets.pipeline.stage.lib.hive.FieldPathEL;
 import com.streamsets.pipeline.stage.lib.hive.HiveConfigBean;
 import com.streamsets.pipeline.stage.lib.hive.HiveMetastoreUtil;
 import com.streamsets.pipeline.stage.lib.hive.HiveQueryExecutor;
@@ -77,6 +79,8 @@ public class HiveMetadataProcessor extends RecordProcessor {
   private static final String TEMP_AVRO_DIR_NAME = "/.avro";
   private static final String ATTRIBUTE_EXPRESSION = "metadataHeaderAttributeConfigs";
   private static final String KEY_HMS_CACHE = "hms-cache";
+  private static final String SHAPE_CACHE_GAUGE = "Record Shape Cache";
+  private static final int MAX_RECORD_SHAPES = 1000;
 
   protected static final String HDFS_HEADER_ROLL = "roll";
   protected static final String HDFS_HEADER_AVROSCHEMA = "avroSchema";
@@ -119,10 +123,25 @@ public class HiveMetadataProcessor extends RecordProcessor {
   // The HMS cache is holding all info about tables
   private HMSCache cache;
 
+  // Hive structure of the record shapes seen by this runner
+  private RecordShapeCache shapeCache;
+  private Map<String, Object> shapeCacheGauge;
+  // Comments only need to be resolved for each record if they are expressions
+  private boolean constantComment;
+
+  // Table metadata resolved from the HMS cache during the current batch
+  private final Map<String, TableMetadata> batchTables = new HashMap<>();
+
   private ErrorRecordHandler errorRecordHandler;
   private HiveMetadataProcessorELEvals elEvals = new HiveMetadataProcessorELEvals();
   private HiveQueryExecutor queryExecutor;
 
+  private static class TableMetadata {
+    private TBLPropertiesInfoCacheSupport.TBLPropertiesInfo tblPropertiesInfo;
+    private TypeInfoCacheSupport.TypeInfo typeInfo;
+    private PartitionInfoCacheSupport.PartitionInfo partitionInfo;
+  }
+
   private static class HiveMetadataProcessorELEvals {
     private ELEval dbNameELEval;
     private ELEval tableNameELEval;
@@ -250,6 +269,10 @@ public class HiveMetadataProcessor extends RecordProcessor {
             )
         );
       }
+      shapeCache = new RecordShapeCache(MAX_RECORD_SHAPES);
+      shapeCacheGauge = getContext().createGauge(SHAPE_CACHE_GAUGE).getValue();
+      constantComment = commentExpression != null && !commentExpression.contains("${");
+      updateShapeCacheGauge();
       hdfsLane = getContext().getOutputLanes().get(0);
       hmsLane = getContext().getOutputLanes().get(1);
       // load cache
@@ -344,6 +367,32 @@ public class HiveMetadataProcessor extends RecordProcessor {
     record.set(Field.create(newFieldMap));
   }
 
+  @Override
+  public void process(Batch batch, BatchMaker batchMaker) throws StageException {
+    // Table metadata are looked up in the HMS cache once per batch and table
+    batchTables.clear();
+    try {
+      super.process(batch, batchMaker);
+    } finally {
+      batchTables.clear();
+      updateShapeCacheGauge();
+    }
+  }
+
+  @VisibleForTesting
+  RecordShapeCache getShapeCache() {
+    return shapeCache;
+  }
+
+  private void updateShapeCacheGauge() {
+    long hits = shapeCache.getHits();
+    long total = hits + shapeCache.getMisses();
+    shapeCacheGauge.put("Shapes", shapeCache.size());
+    shapeCacheGauge.put("Hits", hits);
+    shapeCacheGauge.put("Misses", shapeCache.getMisses());
+    shapeCacheGauge.put("Hit Rate", String.format("%.2f %%", total == 0 ? 0.0 : hits * 100.0 / total));
+  }
+
   @Override
   protected void process(Record record, BatchMaker batchMaker) throws StageException {
     ELVars variables = getContext().createELVars();
@@ -408,52 +457,21 @@ public class HiveMetadataProcessor extends RecordProcessor {
         throw new HiveStageCheckedException(Errors.HIVE_METADATA_02, targetPath);
       }
 
-        // Obtain the record structure from current record
-      LinkedHashMap<String, HiveTypeInfo> recordStructure = HiveMetastoreUtil.convertRecordToHMSType(
-          record,
-          elEvals.scaleEL,
-          elEvals.precisionEL,
-          elEvals.commentEL,
-          decimalDefaultsConfig.scaleExpression,
-          decimalDefaultsConfig.precisionExpression,
-          commentExpression,
-          variables,
-          convertTimesToString,
-          (TimeZone) timeZone.clone()
-      );
+      // Obtain the record structure from current record
+      RecordShapeCache.ShapeInfo shapeInfo = getRecordShapeInfo(record, variables);
+      LinkedHashMap<String, HiveTypeInfo> recordStructure = shapeInfo.getStructure();
 
       if (recordStructure.isEmpty()) {  // If record has no data to process, No-op
         return;
       }
 
-      TBLPropertiesInfoCacheSupport.TBLPropertiesInfo tblPropertiesInfo = HiveMetastoreUtil.getCacheInfo(
-          cache,
-          HMSCacheType.TBLPROPERTIES_INFO,
-          qualifiedName,
-          queryExecutor
-      );
+      TableMetadata tableMetadata = getTableMetadata(qualifiedName, tableName);
+      TypeInfoCacheSupport.TypeInfo tableCache = tableMetadata.typeInfo;
 
-      if (tblPropertiesInfo != null) {
-        HiveMetastoreUtil.validateTblPropertiesInfo(dataFormat, tblPropertiesInfo, tableName);
+      // Records with a known shape were already validated against the table and didn't introduce any drift
+      boolean knownShape = shapeInfo.hasNoDrift(qualifiedName, tableCache);
 
-        if (tblPropertiesInfo.isExternal() != externalTable) {
-          throw new HiveStageCheckedException(
-              com.streamsets.pipeline.stage.lib.hive.Errors.HIVE_23,
-              "EXTERNAL",
-              externalTable,
-              tblPropertiesInfo.isExternal()
-          );
-        }
-      }
-
-      TypeInfoCacheSupport.TypeInfo tableCache = HiveMetastoreUtil.getCacheInfo(
-          cache,
-          HMSCacheType.TYPE_INFO,
-          qualifiedName,
-          queryExecutor
-      );
-
-      if (tableCache != null) {
+      if (tableCache != null && !knownShape) {
         //Checks number and name of partitions.
         HiveMetastoreUtil.validatePartitionInformation(tableCache, partitionValMap, qualifiedName);
         //Checks the type of partitions.
@@ -495,7 +513,9 @@ public class HiveMetadataProcessor extends RecordProcessor {
 
       // Build final structure of how the table should look like
       LinkedHashMap<String, HiveTypeInfo> finalStructure;
-      if(tableCache != null) {
+      if (knownShape) {
+        finalStructure = tableCache.getColumnTypeInfo();
+      } else if(tableCache != null) {
         // Table already exists in Hive - so it's columns will be preserved and in their original order
         finalStructure = new LinkedHashMap<>();
         finalStructure.putAll(tableCache.getColumnTypeInfo());
@@ -506,6 +526,8 @@ public class HiveMetadataProcessor extends RecordProcessor {
           LOG.trace("Detected drift for table {} - new columns: {}", qualifiedName, StringUtils.join(columnDiff.keySet(), ","));
           schemaDrift = true;
           finalStructure.putAll(columnDiff);
+        } else {
+          shapeInfo.setNoDrift(qualifiedName, tableCache);
         }
       } else {
         LOG.trace("{} is a new table", qualifiedName);
@@ -536,12 +558,15 @@ public class HiveMetadataProcessor extends RecordProcessor {
       }
 
       if (partitioned) {
-        PartitionInfoCacheSupport.PartitionInfo pCache = HiveMetastoreUtil.getCacheInfo(
-            cache,
-            HMSCacheType.PARTITION_VALUE_INFO,
-            qualifiedName,
-            queryExecutor
-        );
+        if (tableMetadata.partitionInfo == null) {
+          tableMetadata.partitionInfo = HiveMetastoreUtil.getCacheInfo(
+              cache,
+              HMSCacheType.PARTITION_VALUE_INFO,
+              qualifiedName,
+              queryExecutor
+          );
+        }
+        PartitionInfoCacheSupport.PartitionInfo pCache = tableMetadata.partitionInfo;
 
         PartitionInfoCacheSupport.PartitionValues partitionValues = new PartitionInfoCacheSupport.PartitionValues(partitionValMap);
 
@@ -595,6 +620,121 @@ public class HiveMetadataProcessor extends RecordProcessor {
     }
   }
 
+  /**
+   * Returns the Hive structure of the record, computing it only for records with a shape that was not seen yet.
+   * Field values are converted to the types of the corresponding columns in both cases.
+   */
+  private RecordShapeCache.ShapeInfo getRecordShapeInfo(Record record, ELVars variables) throws StageException {
+    RecordShapeCache.Shape shape = null;
+    Field root = record.get();
+    if (root != null && root.getType().isOneOf(Field.Type.MAP, Field.Type.LIST_MAP)) {
+      Map<String, Field> fields = root.getValueAsMap();
+      shape = new RecordShapeCache.Shape(fields.size());
+      for (Map.Entry<String, Field> entry : fields.entrySet()) {
+        Field.Type type = entry.getValue().getType();
+        shape.addField(entry.getKey(), type);
+        if (type == Field.Type.DECIMAL || !constantComment) {
+          FieldPathEL.setFieldInContext(variables, entry.getKey());
+        }
+        if (type == Field.Type.DECIMAL) {
+          shape.addDecimal(
+              HiveMetastoreUtil.resolveScaleOrPrecisionExpression(
+                  "precision",
+                  elEvals.precisionEL,
+                  variables,
+                  decimalDefaultsConfig.precisionExpression,
+                  entry.getKey()
+              ),
+              HiveMetastoreUtil.resolveScaleOrPrecisionExpression(
+                  "scale",
+                  elEvals.scaleEL,
+                  variables,
+                  decimalDefaultsConfig.scaleExpression,
+                  entry.getKey()
+              )
+          );
+        }
+        if (!constantComment) {
+          shape.addComment(elEvals.commentEL.eval(variables, commentExpression, String.class));
+        }
+      }
+
+      RecordShapeCache.ShapeInfo shapeInfo = shapeCache.get(shape);
+      if (shapeInfo != null) {
+        TimeZone recordTimeZone = (TimeZone) timeZone.clone();
+        int decimal = 0;
+        for (Map.Entry<String, Field> entry : fields.entrySet()) {
+          Field field = entry.getValue();
+          if (field.getType() == Field.Type.DECIMAL) {
+            entry.setValue(HiveMetastoreUtil.convertDecimalField(
+                entry.getKey(),
+                field,
+                shape.getPrecision(decimal),
+                shape.getScale(decimal)
+            ));
+            decimal++;
+          } else {
+            entry.setValue(HiveMetastoreUtil.convertFieldToHMSType(field, convertTimesToString, recordTimeZone));
+          }
+        }
+        return shapeInfo;
+      }
+    }
+
+    LinkedHashMap<String, HiveTypeInfo> recordStructure = HiveMetastoreUtil.convertRecordToHMSType(
+        record,
+        elEvals.scaleEL,
+        elEvals.precisionEL,
+        elEvals.commentEL,
+        decimalDefaultsConfig.scaleExpression,
+        decimalDefaultsConfig.precisionExpression,
+        commentExpression,
+        variables,
+        convertTimesToString,
+        (TimeZone) timeZone.clone()
+    );
+    return shapeCache.put(shape, recordStructure);
+  }
+
+  /**
+   * Returns the metadata of the table from the HMS cache. Metadata found in the cache are kept for the rest of
+   * the batch, missing ones (new tables) are looked up again for the next record.
+   */
+  private TableMetadata getTableMetadata(String qualifiedName, String tableName) throws StageException {
+    TableMetadata tableMetadata = batchTables.computeIfAbsent(qualifiedName, key -> new TableMetadata());
+    if (tableMetadata.tblPropertiesInfo == null) {
+      TBLPropertiesInfoCacheSupport.TBLPropertiesInfo tblPropertiesInfo = HiveMetastoreUtil.getCacheInfo(
+          cache,
+          HMSCacheType.TBLPROPERTIES_INFO,
+          qualifiedName,
+          queryExecutor
+      );
+
+      if (tblPropertiesInfo != null) {
+        HiveMetastoreUtil.validateTblPropertiesInfo(dataFormat, tblPropertiesInfo, tableName);
+
+        if (tblPropertiesInfo.isExternal() != externalTable) {
+          throw new HiveStageCheckedException(
+              com.streamsets.pipeline.stage.lib.hive.Errors.HIVE_23,
+              "EXTERNAL",
+              externalTable,
+              tblPropertiesInfo.isExternal()
+          );
+        }
+      }
+      tableMetadata.tblPropertiesInfo = tblPropertiesInfo;
+    }
+    if (tableMetadata.typeInfo == null) {
+      tableMetadata.typeInfo = HiveMetastoreUtil.getCacheInfo(
+          cache,
+          HMSCacheType.TYPE_INFO,
+          qualifiedName,
+          queryExecutor
+      );
+    }
+    return tableMetadata;
+  }
+
   private void validateNames(String dbName, String tableName) throws HiveStageCheckedException {
     if (!HiveMetastoreUtil.validateObjectName(dbName)){
       throw new HiveStageCheckedException(Errors.HIVE_METADATA_03, HIVE_DB_NAME, dbName);
@@ -657,10 +797,11 @@ public class HiveMetadataProcessor extends RecordProcessor {
     if (tableCache != null) {
       tableCache.updateState(recordStructure);
     } else {
+      // The record structure may be shared by other records of the same shape, so the table gets its own copy
       cache.put(
           HMSCacheType.TYPE_INFO,
           qualifiedName,
-          new TypeInfoCacheSupport.TypeInfo(recordStructure, partitionTypeInfo)
+          new TypeInfoCacheSupport.TypeInfo(new LinkedHashMap<>(recordStructure), partitionTypeInfo)
       );
     }
     updateAvroCache(schemaCache, avroSchema, qualifiedName);
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.hive;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.stage.lib.hive.cache.TypeInfoCacheSupport;
+import com.streamsets.pipeline.stage.lib.hive.typesupport.HiveTypeInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers the Hive structure derived from the records seen by the processor, keyed by the record shape.
+ *
+ * The shape of a record is made of the names and types of its top level fields, plus everything else the column
+ * types depend on: the resolved precision and scale of decimal fields and the resolved column comments. Records
+ * with a known shape reuse the structure, and for tables they have already been checked against, the decision
+ * that they don't introduce any drift.
+ */
+final class RecordShapeCache {
+  private final int maxShapes;
+  private final Map<Shape, ShapeInfo> shapes;
+  private long hits;
+  private long misses;
+
+  RecordShapeCache(int maxShapes) {
+    this.maxShapes = maxShapes;
+    this.shapes = new LinkedHashMap<Shape, ShapeInfo>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Shape, ShapeInfo> eldest) {
+        return size() > RecordShapeCache.this.maxShapes;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached info of the shape or null if the shape is not known yet.
+   */
+  ShapeInfo get(Shape shape) {
+    ShapeInfo info = shapes.get(shape);
+    if (info == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return info;
+  }
+
+  /**
+   * Caches the structure computed for a record of the given shape.
+   */
+  ShapeInfo put(Shape shape, LinkedHashMap<String, HiveTypeInfo> structure) {
+    ShapeInfo info = new ShapeInfo(structure);
+    shapes.put(shape.trim(), info);
+    return info;
+  }
+
+  long getHits() {
+    return hits;
+  }
+
+  long getMisses() {
+    return misses;
+  }
+
+  int size() {
+    return shapes.size();
+  }
+
+  /**
+   * Fingerprint of a record, the hash code is computed incrementally as the parts are added.
+   */
+  static final class Shape {
+    private Object[] parts;
+    private int size;
+    private int hash = 1;
+    private int[] decimals = new int[0];
+    private int decimalCount;
+
+    Shape(int fieldCount) {
+      this.parts = new Object[Math.max(2, fieldCount * 2)];
+    }
+
+    private void add(Object part) {
+      if (size == parts.length) {
+        parts = Arrays.copyOf(parts, size * 2);
+      }
+      parts[size++] = part;
+      hash = 31 * hash + (part == null ? 0 : part.hashCode());
+    }
+
+    void addField(String name, Field.Type type) {
+      add(name);
+      add(type);
+    }
+
+    void addDecimal(int precision, int scale) {
+      add(precision);
+      add(scale);
+      if (decimalCount + 2 > decimals.length) {
+        decimals = Arrays.copyOf(decimals, Math.max(4, decimals.length * 2));
+      }
+      decimals[decimalCount++] = precision;
+      decimals[decimalCount++] = scale;
+    }
+
+    void addComment(String comment) {
+      add(comment);
+    }
+
+    /**
+     * Returns the precision of the n-th decimal field of the record.
+     */
+    int getPrecision(int decimal) {
+      return decimals[decimal * 2];
+    }
+
+    /**
+     * Returns the scale of the n-th decimal field of the record.
+     */
+    int getScale(int decimal) {
+      return decimals[decimal * 2 + 1];
+    }
+
+    private Shape trim() {
+      parts = Arrays.copyOf(parts, size);
+      decimals = Arrays.copyOf(decimals, decimalCount);
+      return this;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Shape)) {
+        return false;
+      }
+      Shape other = (Shape) o;
+      if (size != other.size || hash != other.hash) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (!Objects.equals(parts[i], other.parts[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  static final class ShapeInfo {
+    private final LinkedHashMap<String, HiveTypeInfo> structure;
+    // Table metadata instances the shape has been checked against without detecting any drift
+    private final Map<String, TypeInfoCacheSupport.TypeInfo> noDriftTables = new HashMap<>();
+
+    private ShapeInfo(LinkedHashMap<String, HiveTypeInfo> structure) {
+      this.structure = structure;
+    }
+
+    /**
+     * Returns the record structure, the map must not be modified.
+     */
+    LinkedHashMap<String, HiveTypeInfo> getStructure() {
+      return structure;
+    }
+
+    /**
+     * Returns true if records of this shape were already checked against the given table metadata and didn't
+     * introduce any drift. Columns are only ever added to a table, so the decision holds as long as the metadata
+     * are not reloaded.
+     */
+    boolean hasNoDrift(String qualifiedName, TypeInfoCacheSupport.TypeInfo tableInfo) {
+      return tableInfo != null && noDriftTables.get(qualifiedName) == tableInfo;
+    }
+
+    void setNoDrift(String qualifiedName, TypeInfoCacheSupport.TypeInfo tableInfo) {
+      noDriftTables.put(qualifiedName, tableInfo);
+    }
+  }
+}
@@ -56,6 +56,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
@@ -660,4 +661,52 @@ public class TestHiveMetadataProcessor {
         hdfsRecord.getHeader().getAttribute("targetDirectory")
     );
   }
+
+  @Test
+  public void testRecordShapeCache() throws Exception {
+    HiveMetadataProcessor processor = new HiveMetadataProcessorBuilder().build();
+    ProcessorRunner runner = getProcessRunner(processor);
+    runner.runInit();
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Map<String, Field> map = new LinkedHashMap<>();
+      map.put("name", Field.create(Field.Type.STRING, "name" + i));
+      map.put("count", Field.create(Field.Type.SHORT, (short) i));
+      if (i == 2) {
+        // New column
+        map.put("ratio", Field.create(Field.Type.DOUBLE, 0.5));
+      }
+      Record record = RecordCreator.create("s", "s:" + i);
+      record.set(Field.create(map));
+      records.add(record);
+    }
+
+    StageRunner.Output output = runner.runProcess(records);
+    Assert.assertEquals(0, runner.getErrorRecords().size());
+    List<Record> hdfsRecords = output.getRecords().get("hdfs");
+    Assert.assertEquals(3, hdfsRecords.size());
+
+    // The second record has a known shape, so it reuses the structure and doesn't cause any drift
+    Assert.assertEquals("true", hdfsRecords.get(0).getHeader().getAttribute("roll"));
+    Assert.assertNull(hdfsRecords.get(1).getHeader().getAttribute("roll"));
+    Assert.assertEquals("true", hdfsRecords.get(2).getHeader().getAttribute("roll"));
+    Assert.assertEquals(
+        hdfsRecords.get(0).getHeader().getAttribute("avroSchema"),
+        hdfsRecords.get(1).getHeader().getAttribute("avroSchema")
+    );
+    Assert.assertNotEquals(
+        hdfsRecords.get(1).getHeader().getAttribute("avroSchema"),
+        hdfsRecords.get(2).getHeader().getAttribute("avroSchema")
+    );
+
+    // Values are converted for records with a known shape as well
+    Assert.assertEquals(Field.Type.INTEGER, hdfsRecords.get(1).get("/count").getType());
+    Assert.assertEquals(1, hdfsRecords.get(1).get("/count").getValueAsInteger());
+
+    Assert.assertEquals(1, processor.getShapeCache().getHits());
+    Assert.assertEquals(2, processor.getShapeCache().getMisses());
+    Assert.assertEquals(2, processor.getShapeCache().size());
+    runner.runDestroy();
+  }
 }
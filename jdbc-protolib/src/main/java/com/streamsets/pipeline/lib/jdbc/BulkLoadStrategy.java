@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.jdbc;
+
+import com.streamsets.pipeline.api.Field;
+import org.apache.commons.csv.CSVFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Vendor specific fast path used by {@link JdbcLoadRecordWriter} to bulk load rows into a table.
+ *
+ * Records are encoded as CSV in {@link #getFormat()} on a background thread and streamed to
+ * {@link #load(Connection, String, List, DuplicateKeyAction, InputStream)}, which hands the stream
+ * to the database's native load protocol on the calling thread.
+ */
+public interface BulkLoadStrategy {
+
+  /**
+   * @return the CSV dialect the database expects on the load stream
+   */
+  CSVFormat getFormat();
+
+  /**
+   * Converts a record field into the value printed to the load stream.
+   *
+   * @param field record field, never null
+   * @return value to print, null for SQL NULL
+   */
+  default Object toLoadValue(Field field) {
+    return field.getValue();
+  }
+
+  /**
+   * Loads all rows read from the given stream into the table. The caller commits the transaction.
+   *
+   * @param connection connection to load with, not in auto-commit mode
+   * @param tableName table name, already quoted if needed
+   * @param columns columns in the order they are printed on each row
+   * @param duplicateKeyAction action for duplicate-key errors, null for the database default
+   * @param data stream of CSV encoded rows
+   * @return number of rows loaded
+   */
+  long load(
+      Connection connection,
+      String tableName,
+      List<String> columns,
+      DuplicateKeyAction duplicateKeyAction,
+      InputStream data
+  ) throws SQLException, IOException;
+
+  /**
+   * Returns the 1-based row of the load stream that caused the given error, so that only the
+   * offending record is sent to error and the rest of the batch can be loaded again.
+   *
+   * @param e error thrown by {@link #load(Connection, String, List, DuplicateKeyAction, InputStream)}
+   * @return row number, or -1 if the error can't be attributed to a single row
+   */
+  default long getFailedRow(SQLException e) {
+    return -1;
+  }
+}
@@ -113,6 +113,8 @@ public enum JdbcErrors implements ErrorCode {
   JDBC_87("Interrupted while waiting to read data"),
   JDBC_88("'{}' is not a valid decimal number"),
   JDBC_89("Error while processing batch of records together: {}"),
+  JDBC_90("Bulk load is not supported for connection string '{}'"),
+  JDBC_91("Record could not be bulk loaded: {}"),
 
   JDBC_100("Could not enable partitioning for table {}: {}"),
   JDBC_101("Invalid partition size for table {}: {}"),
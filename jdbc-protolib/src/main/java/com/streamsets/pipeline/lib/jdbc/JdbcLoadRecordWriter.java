@@ -15,7 +15,7 @@
  */
 package com.streamsets.pipeline.lib.jdbc;
 
-import com.google.common.base.Joiner;
+import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.Field;
 import com.streamsets.pipeline.api.Record;
@@ -23,45 +23,50 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
 import com.streamsets.pipeline.lib.operation.OperationType;
 import com.streamsets.pipeline.lib.operation.UnsupportedOperationAction;
-import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
- * JDBC RecordWriter for LOAD operation only. Other operations will be treated
- * as error records. Currently only MySQL format is supported, and it executes
- * LOAD DATA LOCAL INFILE query using Apache CSVPrinter.
+ * JDBC RecordWriter for LOAD operation only. INSERT records are loaded as well, other operations
+ * will be treated as error records. Records are encoded with Apache CSVPrinter on a background
+ * thread and streamed to the database's native bulk load path through a {@link BulkLoadStrategy}.
  */
 public class JdbcLoadRecordWriter extends JdbcBaseRecordWriter {
   private static final Logger LOG = LoggerFactory.getLogger(JdbcLoadRecordWriter.class);
 
+  /** Size of the pipe between the encoding thread and the loading thread */
+  private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
   /** Action to take for duplicate-key errors */
   private final DuplicateKeyAction duplicateKeyAction;
 
+  /** Vendor specific bulk load path */
+  private final BulkLoadStrategy bulkLoadStrategy;
+
   /** Single thread executor to write LOAD output stream */
   private final ExecutorService loadOutputExecutor;
 
   /**
-   * Class constructor
+   * Class constructor, picks the bulk load strategy from the connection string.
    *
    * @param connectionString database connection string
    * @param dataSource JDBC {@link DataSource} to get a connection from
@@ -83,6 +88,46 @@ public class JdbcLoadRecordWriter extends JdbcBaseRecordWriter {
       JdbcRecordReader recordReader,
       boolean caseSensitive,
       List<String> customDataSqlStateCodes
+  ) throws StageException {
+    this(
+        connectionString,
+        dataSource,
+        schema,
+        tableName,
+        customMappings,
+        duplicateKeyAction,
+        recordReader,
+        caseSensitive,
+        customDataSqlStateCodes,
+        JdbcRecordReaderWriterFactory.createBulkLoadStrategy(connectionString)
+    );
+  }
+
+  /**
+   * Class constructor
+   *
+   * @param connectionString database connection string
+   * @param dataSource JDBC {@link DataSource} to get a connection from
+   * @param schema schema name
+   * @param tableName table name
+   * @param customMappings any custom mappings the user provided
+   * @param duplicateKeyAction action to take for duplicate-key errors
+   * @param recordReader base JdbcRecordReader, no CDC support
+   * @param caseSensitive indicate whether to enclose the table name or not
+   * @param bulkLoadStrategy vendor specific bulk load path
+   * @throws StageException
+   */
+  public JdbcLoadRecordWriter(
+      String connectionString,
+      DataSource dataSource,
+      String schema,
+      String tableName,
+      List<JdbcFieldColumnParamMapping> customMappings,
+      DuplicateKeyAction duplicateKeyAction,
+      JdbcRecordReader recordReader,
+      boolean caseSensitive,
+      List<String> customDataSqlStateCodes,
+      BulkLoadStrategy bulkLoadStrategy
   ) throws StageException {
     super(
         connectionString,
@@ -98,7 +143,11 @@ public class JdbcLoadRecordWriter extends JdbcBaseRecordWriter {
         caseSensitive,
         customDataSqlStateCodes
     );
+    if (bulkLoadStrategy == null) {
+      throw new StageException(JdbcErrors.JDBC_90, connectionString);
+    }
     this.duplicateKeyAction = duplicateKeyAction;
+    this.bulkLoadStrategy = bulkLoadStrategy;
     String threadName = "JDBC LOAD DATA Stream " + getTableName();
     loadOutputExecutor = Executors.newSingleThreadExecutor(
         new ThreadFactoryBuilder().setNameFormat(threadName).build());
@@ -135,48 +184,29 @@ public class JdbcLoadRecordWriter extends JdbcBaseRecordWriter {
       throw new StageException(JdbcErrors.JDBC_22);
     }
 
-    final Set<String> columnNames = columnsToParameters.keySet();
-    final String loadSql = "LOAD DATA LOCAL INFILE '' " + duplicateKeyAction.getKeyword()
-        + " INTO TABLE " + getTableName() + " (" + Joiner.on(", ").join(columnNames) + ")";
+    final List<String> columnNames = new ArrayList<>(columnsToParameters.keySet());
+    Iterator<Record> records = Iterators.concat(Iterators.singletonIterator(first), recordIterator);
     try (Connection connection = getDataSource().getConnection()) {
-      Connection conn = connection.unwrap(Connection.class);
-      try (PreparedStatement statement = conn.prepareStatement(loadSql)) {
-        PipedInputStream is = new PipedInputStream();
-        PipedOutputStream os = new PipedOutputStream(is);
-        statement.getClass().getMethod("setLocalInfileInputStream", InputStream.class).invoke(statement, is);
-
-        Future<?> future = loadOutputExecutor.submit(() -> {
-          try (OutputStreamWriter writer = new OutputStreamWriter(os)) {
-            CSVPrinter printer = new CSVPrinter(writer, CSVFormat.MYSQL);
-            Record record = first;
-            while (record != null) {
-              int opCode = getOperationCode(record, errorRecords);
-              if (opCode == OperationType.LOAD_CODE) {
-                for (String column : columnNames) {
-                  Field field = record.get(getColumnsToFields().get(column));
-                  printer.print(field.getValue());
-                }
-                printer.println();
-              } else if (opCode > 0) {
-                LOG.debug("Sending record to error due to unsupported operation {}", opCode);
-                errorRecords.add(new OnRecordErrorException(record, JdbcErrors.JDBC_70, opCode));
-              } else {
-                // It should be added to the error records.
-              }
-              record = recordIterator.hasNext() ? recordIterator.next() : null;
-            };
-          } catch (IOException e) {
-            throw new RuntimeException(e);
+      while (records != null) {
+        // Records printed to the load stream, in order, so that a failed row can be traced back to its record
+        List<Record> loaded = new ArrayList<>();
+        try {
+          load(connection, columnNames, records, loaded, errorRecords);
+          connection.commit();
+          records = null;
+        } catch (SQLException e) {
+          long failedRow = bulkLoadStrategy.getFailedRow(e);
+          if (failedRow < 1 || failedRow > loaded.size()) {
+            throw e;
           }
-        });
-
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Executing query: {}", statement.toString());
+          connection.rollback();
+          Record failed = loaded.remove((int) failedRow - 1);
+          LOG.debug("Sending record to error and loading the rest again after error on row {}", failedRow);
+          errorRecords.add(new OnRecordErrorException(failed, JdbcErrors.JDBC_91, jdbcUtil.formatSqlException(e)));
+          // Records not yet printed when the load failed are still in the iterator
+          records = Iterators.concat(loaded.iterator(), records);
         }
-        statement.execute();
-        future.get();
       }
-      connection.commit();
     } catch (SQLException e) {
       handleSqlException(e);
     } catch (Exception e) {
@@ -184,4 +214,59 @@ public class JdbcLoadRecordWriter extends JdbcBaseRecordWriter {
     }
     return errorRecords;
   }
+
+  /**
+   * Encodes the records on the LOAD output thread while the bulk load strategy streams them to the database.
+   */
+  private void load(
+      Connection connection,
+      List<String> columnNames,
+      Iterator<Record> records,
+      List<Record> loaded,
+      List<OnRecordErrorException> errorRecords
+  ) throws SQLException, IOException, InterruptedException, ExecutionException {
+    PipedInputStream is = new PipedInputStream(PIPE_BUFFER_SIZE);
+    PipedOutputStream os = new PipedOutputStream(is);
+
+    Future<?> future = loadOutputExecutor.submit(() -> {
+      try (OutputStreamWriter writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+        CSVPrinter printer = new CSVPrinter(writer, bulkLoadStrategy.getFormat());
+        while (records.hasNext()) {
+          Record record = records.next();
+          int opCode = getOperationCode(record, errorRecords);
+          if (opCode == OperationType.LOAD_CODE || opCode == OperationType.INSERT_CODE) {
+            loaded.add(record);
+            for (String column : columnNames) {
+              Field field = record.get(getColumnsToFields().get(column));
+              printer.print(field == null ? null : bulkLoadStrategy.toLoadValue(field));
+            }
+            printer.println();
+          } else if (opCode > 0) {
+            LOG.debug("Sending record to error due to unsupported operation {}", opCode);
+            errorRecords.add(new OnRecordErrorException(record, JdbcErrors.JDBC_70, opCode));
+          } else {
+            // It should be added to the error records.
+          }
+        }
+        printer.flush();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    try {
+      long rows = bulkLoadStrategy.load(connection, getTableName(), columnNames, duplicateKeyAction, is);
+      LOG.debug("Loaded {} rows into {}", rows, getTableName());
+      future.get();
+    } catch (SQLException | IOException | RuntimeException e) {
+      // Unblock the encoding thread if the load stopped reading, then wait for it before the records are reused
+      is.close();
+      try {
+        future.get();
+      } catch (ExecutionException ex) {
+        LOG.debug("Encoding stopped after load error", ex);
+      }
+      throw e;
+    }
+  }
 }
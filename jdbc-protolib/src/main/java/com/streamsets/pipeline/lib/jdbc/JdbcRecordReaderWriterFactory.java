@@ -138,6 +138,20 @@ public final class JdbcRecordReaderWriterFactory {
     return recordWriter;
   }
 
+  /**
+   * Returns the bulk load strategy for the database of the connection string, or null if the
+   * database has no supported bulk load path.
+   */
+  public static BulkLoadStrategy createBulkLoadStrategy(String connectionString) {
+    String url = connectionString.toLowerCase();
+    if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+      return new MySqlLoadDataStrategy();
+    } else if (url.startsWith("jdbc:postgresql:")) {
+      return new PostgresCopyStrategy();
+    }
+    return null;
+  }
+
   public static JdbcRecordReader createRecordReader(ChangeLogFormat changeLogFormat){
     JdbcRecordReader recordReader;
     switch (changeLogFormat) {
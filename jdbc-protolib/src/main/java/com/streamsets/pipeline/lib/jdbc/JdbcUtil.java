@@ -639,165 +639,195 @@ public class JdbcUtil {
       boolean timestampToString,
       DatabaseVendor vendor
   ) throws SQLException, IOException, StageException {
-      Field field;
-      if (userSpecifiedType != DataType.USE_COLUMN_TYPE) {
-        // If user specifies the data type, overwrite the column type returned by database.
-        field = Field.create(Field.Type.valueOf(userSpecifiedType.getLabel()), rs.getObject(columnIndex));
-      } else {
-        // Firstly resolve some vendor specific types - we are careful in case that someone will be clashing
-        if(vendor == DatabaseVendor.ORACLE) {
-          switch (md.getColumnType(columnIndex)) {
-            case TableContextUtil.TYPE_ORACLE_BINARY_FLOAT:
-              float floatValue = rs.getFloat(columnIndex);
-              return Field.create(Field.Type.FLOAT, rs.wasNull() ? null : floatValue);
-            case TableContextUtil.TYPE_ORACLE_BINARY_DOUBLE:
-              double doubleValue = rs.getDouble(columnIndex);
-              return Field.create(Field.Type.DOUBLE, rs.wasNull() ? null : doubleValue);
-            case TableContextUtil.TYPE_ORACLE_TIMESTAMP_WITH_TIME_ZONE:
-            case TableContextUtil.TYPE_ORACLE_TIMESTAMP_WITH_LOCAL_TIME_ZONE:
-              OffsetDateTime offsetDateTime = rs.getObject(columnIndex, OffsetDateTime.class);
-              if (offsetDateTime == null) {
-                return timestampToString ?
-                    Field.create(Field.Type.STRING, null) :
-                    Field.create(Field.Type.ZONED_DATETIME, null);
-              }
-              if (timestampToString) {
-                return Field.create(Field.Type.STRING, offsetDateTime.toZonedDateTime().toString());
-              }
-              // Zoned Datetime can handle high precision
-              return Field.create(Field.Type.ZONED_DATETIME, offsetDateTime.toZonedDateTime());
-            case Types.SQLXML:
-              SQLXML xml = rs.getSQLXML(columnIndex);
-              return Field.create(Field.Type.STRING, xml == null ? null : xml.getString());
-          }
-        } else if (vendor == DatabaseVendor.SQL_SERVER) {
-          if (md.getColumnType(columnIndex) == TableContextUtil.TYPE_SQL_SERVER_DATETIMEOFFSET) {
-              DateTimeOffset dateTimeOffset = rs.getObject(columnIndex, DateTimeOffset.class);
-              if (dateTimeOffset == null) {
-                return timestampToString ?
-                    Field.create(Field.Type.STRING, null) :
-                    Field.create(Field.Type.ZONED_DATETIME, null);
-              }
-              if (timestampToString) {
-                return Field.create(Field.Type.STRING, dateTimeOffset.toString());
-              }
-              return Field.create(Field.Type.ZONED_DATETIME, dateTimeOffset.getOffsetDateTime().toZonedDateTime());
-          }
-        }
+    return compileColumnExtractor(
+        md,
+        columnIndex,
+        maxClobSize,
+        maxBlobSize,
+        userSpecifiedType,
+        unknownTypeAction,
+        timestampToString,
+        vendor
+    ).extract(rs);
+  }
 
-        // All types as of JDBC 2.0 are here:
-        // https://docs.oracle.com/javase/8/docs/api/constant-values.html#java.sql.Types.ARRAY
-        // Good source of recommended mappings is here:
-        // http://www.cs.mun.ca/java-api-1.5/guide/jdbc/getstart/mapping.html
-        switch (md.getColumnType(columnIndex)) {
-          case Types.BIGINT:
-            field = Field.create(Field.Type.LONG, rs.getObject(columnIndex));
-            break;
-          case Types.BINARY:
-          case Types.LONGVARBINARY:
-          case Types.VARBINARY:
-            field = Field.create(Field.Type.BYTE_ARRAY, rs.getBytes(columnIndex));
-            break;
-          case Types.BIT:
-          case Types.BOOLEAN:
-            field = Field.create(Field.Type.BOOLEAN, rs.getObject(columnIndex));
-            break;
-          case Types.CHAR:
-          case Types.LONGNVARCHAR:
-          case Types.LONGVARCHAR:
-          case Types.NCHAR:
-          case Types.NVARCHAR:
-          case Types.VARCHAR:
-            field = Field.create(Field.Type.STRING, rs.getObject(columnIndex));
-            break;
-          case Types.CLOB:
-          case Types.NCLOB:
-            field = Field.create(Field.Type.STRING, getClobString(rs.getClob(columnIndex), maxClobSize));
-            break;
-          case Types.BLOB:
-            field = Field.create(Field.Type.BYTE_ARRAY, getBlobBytes(rs.getBlob(columnIndex), maxBlobSize));
-            break;
-          case Types.DATE:
-            field = Field.create(Field.Type.DATE, rs.getDate(columnIndex));
-            break;
-          case Types.DECIMAL:
-          case Types.NUMERIC:
-            field = Field.create(Field.Type.DECIMAL, rs.getBigDecimal(columnIndex));
-            field.setAttribute(HeaderAttributeConstants.ATTR_SCALE, String.valueOf(rs.getMetaData().getScale(columnIndex)));
-            field.setAttribute(HeaderAttributeConstants.ATTR_PRECISION, String.valueOf(rs.getMetaData().getPrecision(columnIndex)));
-            break;
-          case Types.DOUBLE:
-            field = Field.create(Field.Type.DOUBLE, rs.getObject(columnIndex));
-            break;
-          case Types.FLOAT:
-          case Types.REAL:
-            field = Field.create(Field.Type.FLOAT, rs.getObject(columnIndex));
-            break;
-          case Types.INTEGER:
-            field = Field.create(Field.Type.INTEGER, rs.getObject(columnIndex));
-            break;
-          case Types.ROWID:
-            field = Field.create(Field.Type.STRING, rs.getRowId(columnIndex).toString());
-            break;
-          case Types.SMALLINT:
-          case Types.TINYINT:
-            field = Field.create(Field.Type.SHORT, rs.getObject(columnIndex));
-            break;
-          case Types.TIME:
-            field = Field.create(Field.Type.TIME, rs.getObject(columnIndex));
-            break;
-          case Types.TIMESTAMP:
-            final Timestamp timestamp = rs.getTimestamp(columnIndex);
-            if (timestampToString) {
-              field = Field.create(Field.Type.STRING, timestamp == null ? null : timestamp.toString());
-            } else {
-              field = Field.create(Field.Type.DATETIME, timestamp);
-              if (timestamp != null) {
-                setNanosecondsinAttribute(timestamp.getNanos(), field);
-              }
-            }
-            break;
-          // Ugly hack until we can support LocalTime, LocalDate, LocalDateTime, etc.
-          case Types.TIME_WITH_TIMEZONE:
-            OffsetTime offsetTime = rs.getObject(columnIndex, OffsetTime.class);
-            field = Field.create(Field.Type.TIME, Date.from(offsetTime.atDate(LocalDate.MIN).toInstant()));
-            break;
-          case Types.TIMESTAMP_WITH_TIMEZONE:
+  /**
+   * Resolves how the given column is converted to a {@link Field} based on its metadata, so that the resolution can
+   * be done once per query instead of once per row.
+   */
+  public ResultSetRowPlan.ColumnExtractor compileColumnExtractor(
+      ResultSetMetaData md,
+      int columnIndex,
+      int maxClobSize,
+      int maxBlobSize,
+      DataType userSpecifiedType,
+      UnknownTypeAction unknownTypeAction,
+      boolean timestampToString,
+      DatabaseVendor vendor
+  ) throws SQLException {
+    if (userSpecifiedType != DataType.USE_COLUMN_TYPE) {
+      // If user specifies the data type, overwrite the column type returned by database.
+      Field.Type type = Field.Type.valueOf(userSpecifiedType.getLabel());
+      return rs -> Field.create(type, rs.getObject(columnIndex));
+    }
+
+    final int columnType = md.getColumnType(columnIndex);
+
+    // Firstly resolve some vendor specific types - we are careful in case that someone will be clashing
+    if(vendor == DatabaseVendor.ORACLE) {
+      switch (columnType) {
+        case TableContextUtil.TYPE_ORACLE_BINARY_FLOAT:
+          return rs -> {
+            float floatValue = rs.getFloat(columnIndex);
+            return Field.create(Field.Type.FLOAT, rs.wasNull() ? null : floatValue);
+          };
+        case TableContextUtil.TYPE_ORACLE_BINARY_DOUBLE:
+          return rs -> {
+            double doubleValue = rs.getDouble(columnIndex);
+            return Field.create(Field.Type.DOUBLE, rs.wasNull() ? null : doubleValue);
+          };
+        case TableContextUtil.TYPE_ORACLE_TIMESTAMP_WITH_TIME_ZONE:
+        case TableContextUtil.TYPE_ORACLE_TIMESTAMP_WITH_LOCAL_TIME_ZONE:
+          return rs -> {
             OffsetDateTime offsetDateTime = rs.getObject(columnIndex, OffsetDateTime.class);
-            field = Field.create(Field.Type.ZONED_DATETIME, offsetDateTime.toZonedDateTime());
-            break;
-          //case Types.REF_CURSOR: // JDK8 only
-          case Types.SQLXML:
-          case Types.STRUCT:
-          case Types.ARRAY:
-          case Types.DATALINK:
-          case Types.DISTINCT:
-          case Types.JAVA_OBJECT:
-          case Types.NULL:
-          case Types.OTHER:
-          case Types.REF:
-          default:
-            if(unknownTypeAction == null) {
-              return null;
+            if (offsetDateTime == null) {
+              return timestampToString ?
+                  Field.create(Field.Type.STRING, null) :
+                  Field.create(Field.Type.ZONED_DATETIME, null);
             }
-            switch (unknownTypeAction) {
-              case STOP_PIPELINE:
-                throw new StageException(JdbcErrors.JDBC_37, md.getColumnType(columnIndex), md.getColumnLabel(columnIndex));
-              case CONVERT_TO_STRING:
-                Object value = rs.getObject(columnIndex);
-                if(value != null) {
-                  field = Field.create(Field.Type.STRING, rs.getObject(columnIndex).toString());
-                } else {
-                  field = Field.create(Field.Type.STRING, null);
-                }
-                break;
-              default:
-                throw new IllegalStateException("Unknown action: " + unknownTypeAction);
+            if (timestampToString) {
+              return Field.create(Field.Type.STRING, offsetDateTime.toZonedDateTime().toString());
             }
-        }
+            // Zoned Datetime can handle high precision
+            return Field.create(Field.Type.ZONED_DATETIME, offsetDateTime.toZonedDateTime());
+          };
+        case Types.SQLXML:
+          return rs -> {
+            SQLXML xml = rs.getSQLXML(columnIndex);
+            return Field.create(Field.Type.STRING, xml == null ? null : xml.getString());
+          };
+      }
+    } else if (vendor == DatabaseVendor.SQL_SERVER) {
+      if (columnType == TableContextUtil.TYPE_SQL_SERVER_DATETIMEOFFSET) {
+        return rs -> {
+          DateTimeOffset dateTimeOffset = rs.getObject(columnIndex, DateTimeOffset.class);
+          if (dateTimeOffset == null) {
+            return timestampToString ?
+                Field.create(Field.Type.STRING, null) :
+                Field.create(Field.Type.ZONED_DATETIME, null);
+          }
+          if (timestampToString) {
+            return Field.create(Field.Type.STRING, dateTimeOffset.toString());
+          }
+          return Field.create(Field.Type.ZONED_DATETIME, dateTimeOffset.getOffsetDateTime().toZonedDateTime());
+        };
       }
+    }
 
-      return field;
+    // All types as of JDBC 2.0 are here:
+    // https://docs.oracle.com/javase/8/docs/api/constant-values.html#java.sql.Types.ARRAY
+    // Good source of recommended mappings is here:
+    // http://www.cs.mun.ca/java-api-1.5/guide/jdbc/getstart/mapping.html
+    switch (columnType) {
+      case Types.BIGINT:
+        return rs -> Field.create(Field.Type.LONG, rs.getObject(columnIndex));
+      case Types.BINARY:
+      case Types.LONGVARBINARY:
+      case Types.VARBINARY:
+        return rs -> Field.create(Field.Type.BYTE_ARRAY, rs.getBytes(columnIndex));
+      case Types.BIT:
+      case Types.BOOLEAN:
+        return rs -> Field.create(Field.Type.BOOLEAN, rs.getObject(columnIndex));
+      case Types.CHAR:
+      case Types.LONGNVARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.VARCHAR:
+        return rs -> Field.create(Field.Type.STRING, rs.getObject(columnIndex));
+      case Types.CLOB:
+      case Types.NCLOB:
+        return rs -> Field.create(Field.Type.STRING, getClobString(rs.getClob(columnIndex), maxClobSize));
+      case Types.BLOB:
+        return rs -> Field.create(Field.Type.BYTE_ARRAY, getBlobBytes(rs.getBlob(columnIndex), maxBlobSize));
+      case Types.DATE:
+        return rs -> Field.create(Field.Type.DATE, rs.getDate(columnIndex));
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        final String scale = String.valueOf(md.getScale(columnIndex));
+        final String precision = String.valueOf(md.getPrecision(columnIndex));
+        return rs -> {
+          Field field = Field.create(Field.Type.DECIMAL, rs.getBigDecimal(columnIndex));
+          field.setAttribute(HeaderAttributeConstants.ATTR_SCALE, scale);
+          field.setAttribute(HeaderAttributeConstants.ATTR_PRECISION, precision);
+          return field;
+        };
+      case Types.DOUBLE:
+        return rs -> Field.create(Field.Type.DOUBLE, rs.getObject(columnIndex));
+      case Types.FLOAT:
+      case Types.REAL:
+        return rs -> Field.create(Field.Type.FLOAT, rs.getObject(columnIndex));
+      case Types.INTEGER:
+        return rs -> Field.create(Field.Type.INTEGER, rs.getObject(columnIndex));
+      case Types.ROWID:
+        return rs -> Field.create(Field.Type.STRING, rs.getRowId(columnIndex).toString());
+      case Types.SMALLINT:
+      case Types.TINYINT:
+        return rs -> Field.create(Field.Type.SHORT, rs.getObject(columnIndex));
+      case Types.TIME:
+        return rs -> Field.create(Field.Type.TIME, rs.getObject(columnIndex));
+      case Types.TIMESTAMP:
+        return rs -> {
+          final Timestamp timestamp = rs.getTimestamp(columnIndex);
+          if (timestampToString) {
+            return Field.create(Field.Type.STRING, timestamp == null ? null : timestamp.toString());
+          }
+          Field field = Field.create(Field.Type.DATETIME, timestamp);
+          if (timestamp != null) {
+            setNanosecondsinAttribute(timestamp.getNanos(), field);
+          }
+          return field;
+        };
+      // Ugly hack until we can support LocalTime, LocalDate, LocalDateTime, etc.
+      case Types.TIME_WITH_TIMEZONE:
+        return rs -> {
+          OffsetTime offsetTime = rs.getObject(columnIndex, OffsetTime.class);
+          return Field.create(Field.Type.TIME, Date.from(offsetTime.atDate(LocalDate.MIN).toInstant()));
+        };
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return rs -> {
+          OffsetDateTime offsetDateTime = rs.getObject(columnIndex, OffsetDateTime.class);
+          return Field.create(Field.Type.ZONED_DATETIME, offsetDateTime.toZonedDateTime());
+        };
+      //case Types.REF_CURSOR: // JDK8 only
+      case Types.SQLXML:
+      case Types.STRUCT:
+      case Types.ARRAY:
+      case Types.DATALINK:
+      case Types.DISTINCT:
+      case Types.JAVA_OBJECT:
+      case Types.NULL:
+      case Types.OTHER:
+      case Types.REF:
+      default:
+        if(unknownTypeAction == null) {
+          return rs -> null;
+        }
+        switch (unknownTypeAction) {
+          case STOP_PIPELINE:
+            final String columnLabel = md.getColumnLabel(columnIndex);
+            return rs -> {
+              throw new StageException(JdbcErrors.JDBC_37, columnType, columnLabel);
+            };
+          case CONVERT_TO_STRING:
+            return rs -> {
+              Object value = rs.getObject(columnIndex);
+              return Field.create(Field.Type.STRING, value != null ? value.toString() : null);
+            };
+          default:
+            throw new IllegalStateException("Unknown action: " + unknownTypeAction);
+        }
+    }
   }
 
   public static void setNanosecondsinAttribute(int nanoseconds, Field field) {
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.jdbc;
+
+import com.google.common.base.Joiner;
+import org.apache.commons.csv.CSVFormat;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk loads rows into MySQL with LOAD DATA LOCAL INFILE, reading the file from the load stream.
+ */
+public class MySqlLoadDataStrategy implements BulkLoadStrategy {
+
+  @Override
+  public CSVFormat getFormat() {
+    return CSVFormat.MYSQL;
+  }
+
+  @Override
+  public long load(
+      Connection connection,
+      String tableName,
+      List<String> columns,
+      DuplicateKeyAction duplicateKeyAction,
+      InputStream data
+  ) throws SQLException {
+    String loadSql = "LOAD DATA LOCAL INFILE '' "
+        + (duplicateKeyAction == null ? "" : duplicateKeyAction.getKeyword() + " ")
+        + "INTO TABLE " + tableName + " (" + Joiner.on(", ").join(columns) + ")";
+    Connection conn = connection.unwrap(Connection.class);
+    try (PreparedStatement statement = conn.prepareStatement(loadSql)) {
+      try {
+        // The MySQL driver is not on our classpath
+        statement.getClass().getMethod("setLocalInfileInputStream", InputStream.class).invoke(statement, data);
+      } catch (ReflectiveOperationException e) {
+        throw new SQLException("Driver does not support loading from a stream: " + e, e);
+      }
+      statement.execute();
+      return statement.getUpdateCount();
+    }
+  }
+}
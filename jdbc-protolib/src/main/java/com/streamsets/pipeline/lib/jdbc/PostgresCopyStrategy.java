@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.jdbc;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.BaseEncoding;
+import com.streamsets.pipeline.api.Field;
+import org.apache.commons.csv.CSVFormat;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk loads rows into PostgreSQL with COPY ... FROM STDIN through the driver's {@link CopyManager}.
+ */
+public class PostgresCopyStrategy implements BulkLoadStrategy {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgresCopyStrategy.class);
+
+  // Server error context looks like "COPY my_table, line 3, column id: "abc""
+  private static final Pattern COPY_LINE = Pattern.compile("COPY .*?, line (\\d+)");
+  // Data exceptions (22) and integrity constraint violations (23) are caused by a row
+  private static final String DATA_EXCEPTION_CLASS = "22";
+  private static final String INTEGRITY_CONSTRAINT_CLASS = "23";
+
+  @Override
+  public CSVFormat getFormat() {
+    return CSVFormat.POSTGRESQL_CSV;
+  }
+
+  @Override
+  public Object toLoadValue(Field field) {
+    if (field.getValue() == null) {
+      return null;
+    }
+    switch (field.getType()) {
+      case DATE:
+        return new java.sql.Date(field.getValueAsDate().getTime()).toString();
+      case TIME:
+        return new java.sql.Time(field.getValueAsTime().getTime()).toString();
+      case DATETIME:
+        return new java.sql.Timestamp(field.getValueAsDatetime().getTime()).toString();
+      case ZONED_DATETIME:
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(field.getValueAsZonedDateTime());
+      case BYTE_ARRAY:
+        return "\\x" + BaseEncoding.base16().lowerCase().encode(field.getValueAsByteArray());
+      default:
+        return field.getValue();
+    }
+  }
+
+  @Override
+  public long load(
+      Connection connection,
+      String tableName,
+      List<String> columns,
+      DuplicateKeyAction duplicateKeyAction,
+      InputStream data
+  ) throws SQLException, IOException {
+    if (duplicateKeyAction != null) {
+      LOG.debug("COPY does not support duplicate-key action {}, duplicate keys fail the load", duplicateKeyAction);
+    }
+    String copySql = "COPY " + tableName + " (" + Joiner.on(", ").join(columns) + ") FROM STDIN WITH (FORMAT csv)";
+    CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+    return copyManager.copyIn(copySql, data);
+  }
+
+  @Override
+  public long getFailedRow(SQLException e) {
+    String sqlState = e.getSQLState();
+    if (!(e instanceof PSQLException) || sqlState == null
+        || !(sqlState.startsWith(DATA_EXCEPTION_CLASS) || sqlState.startsWith(INTEGRITY_CONSTRAINT_CLASS))) {
+      return -1;
+    }
+    ServerErrorMessage serverError = ((PSQLException) e).getServerErrorMessage();
+    if (serverError == null || serverError.getWhere() == null) {
+      return -1;
+    }
+    Matcher matcher = COPY_LINE.matcher(serverError.getWhere());
+    return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.jdbc;
+
+import com.google.common.base.Joiner;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.lib.jdbc.multithread.DatabaseVendor;
+import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
+import com.streamsets.pipeline.stage.origin.jdbc.CommonSourceConfigBean;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Conversion of the rows of one result set into fields and record headers.
+ *
+ * Column types, names and the JDBC header attributes are resolved from {@link ResultSetMetaData} once when the plan is
+ * compiled, so converting a row only reads the values. A plan is only valid for the result set it was compiled for,
+ * use {@link #isFor(ResultSet)} to find out whether a new plan is needed.
+ */
+public final class ResultSetRowPlan {
+  private static final Joiner COMMA_JOINER = Joiner.on(",");
+
+  /**
+   * Reads the value of one column of the current row.
+   */
+  @FunctionalInterface
+  public interface ColumnExtractor {
+    Field extract(ResultSet rs) throws SQLException, IOException, StageException;
+  }
+
+  private static final class Column {
+    private final int index;
+    private final String name;
+    private final String label;
+    private final int type;
+    private final ColumnExtractor extractor;
+
+    private Column(int index, String name, String label, int type, ColumnExtractor extractor) {
+      this.index = index;
+      this.name = name;
+      this.label = label;
+      this.type = type;
+      this.extractor = extractor;
+    }
+  }
+
+  private final ResultSet resultSet;
+  private final int columnCount;
+  private final Column[] columns;
+  // Per column header attributes without the namespace prefix, e.g. "id.jdbcType" -> "4"
+  private final List<Map.Entry<String, String>> columnHeaders;
+  private final Set<String> columnTableNames;
+
+  // Header attributes with their prefix, computed on first use
+  private String headerPrefix;
+  private Set<String> headerKnownTableNames;
+  private String[] headerNames;
+  private String[] headerValues;
+
+  private ResultSetRowPlan(
+      ResultSet resultSet,
+      int columnCount,
+      Column[] columns,
+      List<Map.Entry<String, String>> columnHeaders,
+      Set<String> columnTableNames
+  ) {
+    this.resultSet = resultSet;
+    this.columnCount = columnCount;
+    this.columns = columns;
+    this.columnHeaders = columnHeaders;
+    this.columnTableNames = columnTableNames;
+  }
+
+  public static ResultSetRowPlan compile(
+      JdbcUtil jdbcUtil,
+      ResultSet rs,
+      CommonSourceConfigBean commonSourceBean,
+      UnknownTypeAction unknownTypeAction,
+      Set<String> recordHeader,
+      DatabaseVendor vendor
+  ) throws SQLException {
+    return compile(
+        jdbcUtil,
+        rs,
+        commonSourceBean.maxClobSize,
+        commonSourceBean.maxBlobSize,
+        Collections.emptyMap(),
+        unknownTypeAction,
+        recordHeader,
+        commonSourceBean.convertTimestampToString,
+        vendor
+    );
+  }
+
+  public static ResultSetRowPlan compile(
+      JdbcUtil jdbcUtil,
+      ResultSet rs,
+      int maxClobSize,
+      int maxBlobSize,
+      Map<String, DataType> columnsToTypes,
+      UnknownTypeAction unknownTypeAction,
+      Set<String> recordHeader,
+      boolean timestampToString,
+      DatabaseVendor vendor
+  ) throws SQLException {
+    ResultSetMetaData md = rs.getMetaData();
+    int columnCount = md.getColumnCount();
+    List<Column> columns = new ArrayList<>(columnCount);
+    List<Map.Entry<String, String>> columnHeaders = new ArrayList<>(columnCount);
+    Set<String> columnTableNames = new HashSet<>();
+
+    for (int i = 1; i <= columnCount; i++) {
+      String name = md.getColumnName(i);
+      String label = md.getColumnLabel(i);
+      int type = md.getColumnType(i);
+
+      if (recordHeader == null || !recordHeader.contains(name)) {
+        DataType dataType = columnsToTypes.get(name);
+        ColumnExtractor extractor = jdbcUtil.compileColumnExtractor(
+            md,
+            i,
+            maxClobSize,
+            maxBlobSize,
+            dataType == null ? DataType.USE_COLUMN_TYPE : dataType,
+            unknownTypeAction,
+            timestampToString,
+            vendor
+        );
+        columns.add(new Column(i, name, label, type, extractor));
+      }
+
+      columnHeaders.add(entry(label + ".jdbcType", String.valueOf(type)));
+      // Additional headers per various types
+      switch (type) {
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+          columnHeaders.add(entry(label + ".scale", String.valueOf(md.getScale(i))));
+          columnHeaders.add(entry(label + ".precision", String.valueOf(md.getPrecision(i))));
+          break;
+        default:
+          break;
+      }
+
+      String tableName = md.getTableName(i);
+      // Store the column's table name (if not empty)
+      if (StringUtils.isNotEmpty(tableName)) {
+        columnTableNames.add(tableName);
+      }
+    }
+
+    return new ResultSetRowPlan(
+        rs,
+        columnCount,
+        columns.toArray(new Column[0]),
+        columnHeaders,
+        columnTableNames
+    );
+  }
+
+  private static Map.Entry<String, String> entry(String key, String value) {
+    return new AbstractMap.SimpleImmutableEntry<>(key, value);
+  }
+
+  /**
+   * Returns true if this plan was compiled for the given result set.
+   */
+  public boolean isFor(ResultSet rs) {
+    return resultSet == rs;
+  }
+
+  /**
+   * Number of columns in the result set, including the ones that are not converted to fields.
+   */
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  /**
+   * Converts the current row of the result set, same as {@link JdbcUtil#resultSetToFields}.
+   */
+  public LinkedHashMap<String, Field> toFields(
+      ResultSet rs,
+      ErrorRecordHandler errorRecordHandler
+  ) throws SQLException, StageException {
+    LinkedHashMap<String, Field> fields = new LinkedHashMap<>(columns.length * 4 / 3 + 1);
+    for (Column column : columns) {
+      try {
+        fields.put(column.label, column.extractor.extract(rs));
+      } catch (IOException|SQLException e) {
+        errorRecordHandler.onError(JdbcErrors.JDBC_03, column.name, column.type, rs.getObject(column.index), e);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Sets the same headers as {@link JdbcUtil#setColumnSpecificHeaders}.
+   */
+  public void setColumnSpecificHeaders(Record record, Set<String> knownTableNames, String jdbcNameSpacePrefix) {
+    if (headerNames == null
+        || !jdbcNameSpacePrefix.equals(headerPrefix)
+        || !knownTableNames.equals(headerKnownTableNames)) {
+      compileHeaders(knownTableNames, jdbcNameSpacePrefix);
+    }
+    Record.Header header = record.getHeader();
+    for (int i = 0; i < headerNames.length; i++) {
+      header.setAttribute(headerNames[i], headerValues[i]);
+    }
+  }
+
+  private void compileHeaders(Set<String> knownTableNames, String jdbcNameSpacePrefix) {
+    int size = columnHeaders.size() + 1;
+    String[] names = new String[size];
+    String[] values = new String[size];
+    for (int i = 0; i < columnHeaders.size(); i++) {
+      names[i] = jdbcNameSpacePrefix + columnHeaders.get(i).getKey();
+      values[i] = columnHeaders.get(i).getValue();
+    }
+    names[size - 1] = jdbcNameSpacePrefix + "tables";
+    values[size - 1] = COMMA_JOINER.join(columnTableNames.isEmpty() ? knownTableNames : columnTableNames);
+
+    headerPrefix = jdbcNameSpacePrefix;
+    headerKnownTableNames = knownTableNames;
+    headerNames = names;
+    headerValues = values;
+  }
+}
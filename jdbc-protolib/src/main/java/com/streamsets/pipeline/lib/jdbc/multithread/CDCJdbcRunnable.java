@@ -28,6 +28,7 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.lib.jdbc.JdbcErrors;
 import com.streamsets.pipeline.lib.jdbc.JdbcUtil;
 import com.streamsets.pipeline.lib.jdbc.MSOperationCode;
+import com.streamsets.pipeline.lib.jdbc.ResultSetRowPlan;
 import com.streamsets.pipeline.lib.jdbc.multithread.util.MSQueryUtil;
 import com.streamsets.pipeline.lib.jdbc.multithread.util.OffsetQueryUtil;
 import com.streamsets.pipeline.lib.operation.OperationType;
@@ -101,16 +102,8 @@ public class CDCJdbcRunnable extends JdbcBaseRunnable {
       TableRuntimeContext tableRuntimeContext,
       BatchContext batchContext
   ) throws SQLException, StageException {
-    ResultSetMetaData md = rs.getMetaData();
-
-    LinkedHashMap<String, Field> fields = jdbcUtil.resultSetToFields(
-        rs,
-        commonSourceConfigBean,
-        errorRecordHandler,
-        tableJdbcConfigBean.unknownTypeAction,
-        recordHeader,
-        DatabaseVendor.SQL_SERVER
-    );
+    ResultSetRowPlan rowPlan = getRowPlan(rs, recordHeader, DatabaseVendor.SQL_SERVER);
+    LinkedHashMap<String, Field> fields = rowPlan.toFields(rs, errorRecordHandler);
 
     Map<String, String> columnOffsets = new HashMap<>();
 
@@ -134,10 +127,9 @@ public class CDCJdbcRunnable extends JdbcBaseRunnable {
     record.set(Field.createListMap(fields));
 
     //Set Column Headers
-    jdbcUtil.setColumnSpecificHeaders(
+    rowPlan.setColumnSpecificHeaders(
         record,
         Collections.singleton(tableRuntimeContext.getSourceTableContext().getTableName()),
-        md,
         JDBC_NAMESPACE_HEADER
     );
 
@@ -28,6 +28,7 @@ import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.ToErrorContext;
 import com.streamsets.pipeline.lib.jdbc.JdbcErrors;
 import com.streamsets.pipeline.lib.jdbc.JdbcUtil;
+import com.streamsets.pipeline.lib.jdbc.ResultSetRowPlan;
 import com.streamsets.pipeline.lib.jdbc.UtilsProvider;
 import com.streamsets.pipeline.lib.jdbc.multithread.cache.JdbcTableReadContextInvalidationListener;
 import com.streamsets.pipeline.lib.jdbc.multithread.cache.JdbcTableReadContextLoader;
@@ -50,6 +51,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -94,6 +96,7 @@ public abstract class JdbcBaseRunnable implements Runnable, JdbcRunnable {
   private boolean isReconnect;
 
   protected final JdbcUtil jdbcUtil;
+  private ResultSetRowPlan rowPlan;
 
   private enum Status {
     WAITING_FOR_RATE_LIMIT_PERMIT,
@@ -537,4 +540,25 @@ public abstract class JdbcBaseRunnable implements Runnable, JdbcRunnable {
     return connectionManager.getVendor();
   }
 
+  /**
+   * Returns the row plan for the given result set, a new plan is compiled whenever the result set changes.
+   */
+  protected ResultSetRowPlan getRowPlan(
+      ResultSet rs,
+      Set<String> recordHeader,
+      DatabaseVendor vendor
+  ) throws SQLException {
+    if (rowPlan == null || !rowPlan.isFor(rs)) {
+      rowPlan = ResultSetRowPlan.compile(
+          jdbcUtil,
+          rs,
+          commonSourceConfigBean,
+          tableJdbcConfigBean.unknownTypeAction,
+          recordHeader,
+          vendor
+      );
+    }
+    return rowPlan;
+  }
+
 }
@@ -39,6 +39,7 @@ import com.streamsets.pipeline.lib.jdbc.SchemaAndTable;
 import com.streamsets.pipeline.lib.jdbc.SchemaTableClassifier;
 import com.streamsets.pipeline.lib.jdbc.UtilsProvider;
 import com.streamsets.pipeline.lib.operation.ChangeLogFormat;
+import com.streamsets.pipeline.lib.operation.OperationType;
 import com.streamsets.pipeline.lib.operation.UnsupportedOperationAction;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
@@ -232,6 +233,16 @@ public class JdbcTarget extends BaseTarget {
       ));
     }
 
+    if (defaultOpCode == OperationType.LOAD_CODE
+        && JdbcRecordReaderWriterFactory.createBulkLoadStrategy(hikariConfigBean.getConnectionString()) == null) {
+      issues.add(context.createConfigIssue(
+          Groups.JDBC.name(),
+          CONNECTION_STRING,
+          JdbcErrors.JDBC_90,
+          hikariConfigBean.getConnectionString()
+      ));
+    }
+
     if (dynamicSchemaName || dynamicTableName) {
       schemaTableClassifier = new SchemaTableClassifier(schemaNameTemplate, tableNameTemplate, context);
     }
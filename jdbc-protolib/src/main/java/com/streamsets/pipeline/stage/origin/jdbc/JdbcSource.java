@@ -37,6 +37,7 @@ import com.streamsets.pipeline.lib.jdbc.HikariPoolConfigBean;
 import com.streamsets.pipeline.lib.jdbc.JdbcErrors;
 import com.streamsets.pipeline.lib.jdbc.JdbcUtil;
 import com.streamsets.pipeline.lib.jdbc.MSOperationCode;
+import com.streamsets.pipeline.lib.jdbc.ResultSetRowPlan;
 import com.streamsets.pipeline.lib.jdbc.UnknownTypeAction;
 import com.streamsets.pipeline.lib.jdbc.UtilsProvider;
 import com.streamsets.pipeline.lib.util.ThreadUtil;
@@ -101,6 +102,7 @@ public class JdbcSource extends BaseSource {
   private long queryIntervalMillis = Long.MIN_VALUE;
   private HikariDataSource dataSource = null;
   private ResultSet resultSet = null;
+  private ResultSetRowPlan rowPlan = null;
   private long lastQueryCompletedTime = 0L;
   private String preparedQuery;
   private int queryRowCount = 0;
@@ -574,17 +576,19 @@ public class JdbcSource extends BaseSource {
 
   private Record processRow(ResultSet resultSet, long rowCount) throws SQLException {
     Source.Context context = getContext();
-    ResultSetMetaData md = resultSet.getMetaData();
-    int numColumns = md.getColumnCount();
-
-    LinkedHashMap<String, Field> fields = jdbcUtil.resultSetToFields(
-        resultSet,
-        commonSourceConfigBean,
-        errorRecordHandler,
-        unknownTypeAction,
-        null,
-        hikariConfigBean.getVendor()
-    );
+    if (rowPlan == null || !rowPlan.isFor(resultSet)) {
+      rowPlan = ResultSetRowPlan.compile(
+          jdbcUtil,
+          resultSet,
+          commonSourceConfigBean,
+          unknownTypeAction,
+          null,
+          hikariConfigBean.getVendor()
+      );
+    }
+    int numColumns = rowPlan.getColumnCount();
+
+    LinkedHashMap<String, Field> fields = rowPlan.toFields(resultSet, errorRecordHandler);
 
     if (fields.size() != numColumns) {
       errorRecordHandler.onError(JdbcErrors.JDBC_35, fields.size(), numColumns);
@@ -609,7 +613,7 @@ public class JdbcSource extends BaseSource {
       record.set(Field.create(row));
     }
     if (createJDBCNsHeaders) {
-      jdbcUtil.setColumnSpecificHeaders(record, Collections.emptySet(), md, jdbcNsHeaderPrefix);
+      rowPlan.setColumnSpecificHeaders(record, Collections.emptySet(), jdbcNsHeaderPrefix);
     }
     // We will add cdc operation type to record header even if createJDBCNsHeaders is false
     // we currently support CDC on only MS SQL.
@@ -44,7 +44,11 @@ import com.streamsets.pipeline.stage.common.MissingValuesBehavior;
 import com.streamsets.pipeline.stage.common.MultipleValuesBehavior;
 import com.streamsets.pipeline.stage.destination.jdbc.Groups;
 import com.streamsets.pipeline.stage.processor.kv.CacheConfig;
+import com.streamsets.pipeline.stage.processor.kv.FieldCodec;
+import com.streamsets.pipeline.stage.processor.kv.LookupCacheNamespace;
+import com.streamsets.pipeline.stage.processor.kv.LookupCacheService;
 import com.streamsets.pipeline.stage.processor.kv.LookupUtils;
+import com.streamsets.pipeline.stage.processor.kv.SharedCacheConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -62,6 +66,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 
 public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
@@ -75,7 +80,10 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
   private static final String HIKARI_CONFIG_PREFIX = "hikariConfigBean.";
   private static final String CONNECTION_STRING = HIKARI_CONFIG_PREFIX + "connectionString";
   private static final String COLUMN_MAPPINGS = "columnMappings";
+  private static final String SHARED_CACHE_CONFIG_PREFIX = "sharedCacheConfig.";
+  private static final String SHARED_CACHE_GAUGE = "Shared Lookup Cache";
   private final CacheConfig cacheConfig;
+  private final SharedCacheConfig sharedCacheConfig;
 
   private ELEval queryEval;
 
@@ -95,6 +103,8 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
   private LoadingCache<String, Optional<List<Map<String, Field>>>> cache;
   private Optional<List<Map<String, Field>>> defaultValue;
   private CacheCleaner cacheCleaner;
+  private LookupCacheNamespace sharedCache;
+  private Map<String, Object> sharedCacheGauge;
   private final MissingValuesBehavior missingValuesBehavior;
 
   private ExecutorService generationExecutor;
@@ -109,7 +119,8 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
       int maxClobSize,
       int maxBlobSize,
       HikariPoolConfigBean hikariConfigBean,
-      CacheConfig cacheConfig
+      CacheConfig cacheConfig,
+      SharedCacheConfig sharedCacheConfig
   ) {
     this.query = query;
     this.columnMappings = columnMappings;
@@ -119,6 +130,7 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     this.maxBlobSize = maxBlobSize;
     this.hikariConfigBean = hikariConfigBean;
     this.cacheConfig = cacheConfig;
+    this.sharedCacheConfig = sharedCacheConfig;
   }
 
   /** {@inheritDoc} */
@@ -156,6 +168,20 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
       this.defaultValue = calculateDefault(context, issues);
     }
 
+    if (issues.isEmpty() && sharedCacheConfig.enabled) {
+      sharedCache = sharedCacheConfig.acquire(
+          context,
+          Groups.JDBC.name(),
+          SHARED_CACHE_CONFIG_PREFIX,
+          getSharedCacheDefinition(),
+          issues
+      );
+      if (sharedCache != null) {
+        sharedCacheGauge = context.createGauge(SHARED_CACHE_GAUGE).getValue();
+        updateSharedCacheGauge();
+      }
+    }
+
     if (issues.isEmpty()) {
       cache = buildCache();
       cacheCleaner = new CacheCleaner(cache, "JdbcLookupProcessor", 10 * 60 * 1000);
@@ -254,9 +280,33 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     return defaultValues.isEmpty() ? Optional.empty() : Optional.of(ImmutableList.of(defaultValues));
   }
 
+  // Everything that determines the looked up values, so that only identical lookups share a namespace
+  private String getSharedCacheDefinition() {
+    StringBuilder definition = new StringBuilder(hikariConfigBean.getConnectionString());
+    if (hikariConfigBean.useCredentials) {
+      try {
+        definition.append('\n').append(hikariConfigBean.username.get());
+      } catch (StageException e) {
+        LOG.debug("Can't resolve the username for the shared cache definition", e);
+      }
+    }
+    definition.append('\n').append(query);
+    definition.append('\n').append(new TreeMap<>(columnsToTypes));
+    definition.append('\n').append(maxClobSize).append('\n').append(maxBlobSize);
+    return definition.toString();
+  }
+
+  private void updateSharedCacheGauge() {
+    sharedCacheGauge.putAll(sharedCache.getStats().toGaugeMap());
+  }
+
   /** {@inheritDoc} */
   @Override
   public void destroy() {
+    if (sharedCache != null) {
+      LookupCacheService.get().release(sharedCache);
+      sharedCache = null;
+    }
     if (getContext().getRunnerId() == 0) {
       if (generationExecutor != null) {
         generationExecutor.shutdown();
@@ -326,6 +376,9 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
     }
     //Normal processing per record
     super.process(batch, batchMaker);
+    if (sharedCache != null) {
+      updateSharedCacheGauge();
+    }
   }
 
   /** {@inheritDoc} */
@@ -437,6 +490,6 @@ public class JdbcLookupProcessor extends SingleLaneRecordProcessor {
       maxBlobSize,
       errorRecordHandler
     );
-    return LookupUtils.buildCache(loader, cacheConfig, defaultValue);
+    return LookupUtils.buildCache(loader, cacheConfig, defaultValue, sharedCache, FieldCodec.ROWS);
   }
 }
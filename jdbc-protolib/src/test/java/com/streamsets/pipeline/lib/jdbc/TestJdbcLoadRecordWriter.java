@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.lib.jdbc;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.base.OnRecordErrorException;
+import com.streamsets.pipeline.lib.operation.OperationType;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestJdbcLoadRecordWriter {
+
+  private final String username = "sa";
+  private final String password = "sa";
+  private static final String connectionString = "jdbc:h2:mem:test";
+  private HikariDataSource dataSource;
+  private Connection connection;
+
+  /**
+   * Stand-in for a native bulk load path: reads the load stream back and inserts it row by row.
+   */
+  private static class H2LoadStrategy implements BulkLoadStrategy {
+
+    private static class RowLoadException extends SQLException {
+      private final long row;
+
+      RowLoadException(long row, SQLException cause) {
+        super(cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), cause);
+        this.row = row;
+      }
+    }
+
+    @Override
+    public CSVFormat getFormat() {
+      return CSVFormat.DEFAULT.withNullString("");
+    }
+
+    @Override
+    public long load(
+        Connection connection,
+        String tableName,
+        List<String> columns,
+        DuplicateKeyAction duplicateKeyAction,
+        InputStream data
+    ) throws SQLException, IOException {
+      String sql = "INSERT INTO " + tableName + " (" + Joiner.on(", ").join(columns) + ") VALUES (" +
+          Joiner.on(", ").join(Collections.nCopies(columns.size(), "?")) + ")";
+      long rows = 0;
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (CSVRecord row : getFormat().parse(new InputStreamReader(data, StandardCharsets.UTF_8))) {
+          rows++;
+          for (int i = 0; i < columns.size(); i++) {
+            statement.setString(i + 1, row.get(i));
+          }
+          try {
+            statement.executeUpdate();
+          } catch (SQLException e) {
+            throw new RowLoadException(rows, e);
+          }
+        }
+      }
+      return rows;
+    }
+
+    @Override
+    public long getFailedRow(SQLException e) {
+      return e instanceof RowLoadException ? ((RowLoadException) e).row : -1;
+    }
+  }
+
+  @Before
+  public void setUp() throws SQLException {
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl(connectionString);
+    config.setUsername(username);
+    config.setPassword(password);
+    config.setMaximumPoolSize(2);
+    config.setAutoCommit(false);
+    dataSource = new HikariDataSource(config);
+
+    connection = dataSource.getConnection();
+    try (Statement statement = connection.createStatement()) {
+      statement.addBatch("CREATE SCHEMA IF NOT EXISTS TEST;");
+      statement.addBatch(
+          "CREATE TABLE IF NOT EXISTS TEST.TEST_TABLE " +
+              "(P_ID INT NOT NULL, MSG VARCHAR(255), PRIMARY KEY(P_ID));"
+      );
+      statement.executeBatch();
+    }
+    connection.commit();
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS TEST.TEST_TABLE;");
+    }
+    connection.commit();
+    // Last open connection terminates H2
+    connection.close();
+    dataSource.close();
+  }
+
+  private JdbcLoadRecordWriter createWriter() throws StageException {
+    return new JdbcLoadRecordWriter(
+        connectionString,
+        dataSource,
+        "TEST",
+        "TEST_TABLE",
+        Collections.emptyList(),
+        null,
+        new JdbcRecordReader(),
+        false,
+        Collections.emptyList(),
+        new H2LoadStrategy()
+    );
+  }
+
+  private static Record createRecord(int id, String msg) {
+    Record record = RecordCreator.create();
+    Map<String, Field> fields = new HashMap<>();
+    fields.put("P_ID", Field.create(id));
+    fields.put("MSG", Field.create(Field.Type.STRING, msg));
+    record.set(Field.create(fields));
+    return record;
+  }
+
+  private int countRows() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM TEST.TEST_TABLE");
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    JdbcLoadRecordWriter writer = createWriter();
+    try {
+      List<Record> batch = ImmutableList.of(
+          createRecord(1, "first"),
+          createRecord(2, null),
+          createRecord(3, "with, \"quotes\"")
+      );
+      List<OnRecordErrorException> errors = writer.writeBatch(batch.iterator());
+
+      Assert.assertTrue(errors.isEmpty());
+      Assert.assertEquals(3, countRows());
+      try (Statement statement = connection.createStatement()) {
+        ResultSet rs = statement.executeQuery("SELECT MSG FROM TEST.TEST_TABLE ORDER BY P_ID");
+        rs.next();
+        Assert.assertEquals("first", rs.getString(1));
+        rs.next();
+        Assert.assertNull(rs.getString(1));
+        rs.next();
+        Assert.assertEquals("with, \"quotes\"", rs.getString(1));
+      }
+    } finally {
+      writer.deinit();
+    }
+  }
+
+  @Test
+  public void testFailedRowSentToError() throws Exception {
+    JdbcLoadRecordWriter writer = createWriter();
+    try {
+      Record duplicate = createRecord(1, "duplicate");
+      List<Record> batch = ImmutableList.of(
+          createRecord(1, "first"),
+          createRecord(2, "second"),
+          duplicate,
+          createRecord(3, "third")
+      );
+      List<OnRecordErrorException> errors = writer.writeBatch(batch.iterator());
+
+      Assert.assertEquals(1, errors.size());
+      Assert.assertSame(duplicate, errors.get(0).getRecord());
+      Assert.assertEquals(JdbcErrors.JDBC_91, errors.get(0).getErrorCode());
+      Assert.assertEquals(3, countRows());
+    } finally {
+      writer.deinit();
+    }
+  }
+
+  @Test
+  public void testUnsupportedOperation() throws Exception {
+    JdbcLoadRecordWriter writer = createWriter();
+    try {
+      Record delete = createRecord(2, "second");
+      delete.getHeader().setAttribute(OperationType.SDC_OPERATION_TYPE, String.valueOf(OperationType.DELETE_CODE));
+      Record insert = createRecord(3, "third");
+      insert.getHeader().setAttribute(OperationType.SDC_OPERATION_TYPE, String.valueOf(OperationType.INSERT_CODE));
+      List<Record> batch = ImmutableList.of(createRecord(1, "first"), delete, insert);
+      List<OnRecordErrorException> errors = writer.writeBatch(batch.iterator());
+
+      Assert.assertEquals(1, errors.size());
+      Assert.assertSame(delete, errors.get(0).getRecord());
+      Assert.assertEquals(JdbcErrors.JDBC_70, errors.get(0).getErrorCode());
+      Assert.assertEquals(2, countRows());
+    } finally {
+      writer.deinit();
+    }
+  }
+
+  @Test
+  public void testUnsupportedDatabase() throws Exception {
+    try {
+      new JdbcLoadRecordWriter(
+          connectionString,
+          dataSource,
+          "TEST",
+          "TEST_TABLE",
+          Collections.emptyList(),
+          null,
+          new JdbcRecordReader(),
+          false,
+          Collections.emptyList()
+      );
+      Assert.fail("H2 has no bulk load strategy");
+    } catch (StageException e) {
+      Assert.assertEquals(JdbcErrors.JDBC_90, e.getErrorCode());
+    }
+  }
+
+  @Test
+  public void testCreateBulkLoadStrategy() {
+    Assert.assertTrue(
+        JdbcRecordReaderWriterFactory.createBulkLoadStrategy("jdbc:postgresql://localhost/db")
+            instanceof PostgresCopyStrategy
+    );
+    Assert.assertTrue(
+        JdbcRecordReaderWriterFactory.createBulkLoadStrategy("jdbc:mysql://localhost/db")
+            instanceof MySqlLoadDataStrategy
+    );
+    Assert.assertNull(JdbcRecordReaderWriterFactory.createBulkLoadStrategy(connectionString));
+  }
+}
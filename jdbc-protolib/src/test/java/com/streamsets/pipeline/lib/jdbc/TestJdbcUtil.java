@@ -16,7 +16,10 @@
 package com.streamsets.pipeline.lib.jdbc;
 
 import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.lib.jdbc.multithread.DatabaseVendor;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
 import com.streamsets.pipeline.stage.origin.jdbc.table.QuoteChar;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -35,16 +38,19 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.hasEntry;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
 
 public class TestJdbcUtil {
 
@@ -203,6 +209,68 @@ public class TestJdbcUtil {
     }
   }
 
+  @Test
+  public void testResultSetRowPlan() throws Exception {
+    HikariPoolConfigBean config = createConfigBean();
+    ErrorRecordHandler errorRecordHandler = mock(ErrorRecordHandler.class);
+    try (HikariDataSource dataSource = jdbcUtil.createDataSourceForRead(config)) {
+      try (Connection connection = dataSource.getConnection()) {
+        try (Statement stmt = connection.createStatement()) {
+          stmt.execute("INSERT INTO " + schema + "." + tableName + " VALUES (1, 'a'), (2, NULL), (3, 'c')");
+          ResultSet resultSet = stmt.executeQuery(
+              "SELECT T.P_ID, T.MSG, D.TS_WITH_TZ, D.MY_DATE, D.MY_TIME FROM " + schema + "." + tableName + " T, " +
+                  schema + "." + dataTypesTestTable + " D ORDER BY T.P_ID"
+          );
+          ResultSetRowPlan plan = ResultSetRowPlan.compile(
+              jdbcUtil,
+              resultSet,
+              0,
+              0,
+              Collections.emptyMap(),
+              UnknownTypeAction.STOP_PIPELINE,
+              null,
+              false,
+              DatabaseVendor.UNKNOWN
+          );
+          assertTrue(plan.isFor(resultSet));
+          assertEquals(5, plan.getColumnCount());
+
+          int rows = 0;
+          while (resultSet.next()) {
+            rows++;
+            // The compiled plan has to produce exactly what the per row conversion does
+            assertEquals(
+                jdbcUtil.resultSetToFields(
+                    resultSet,
+                    0,
+                    0,
+                    Collections.emptyMap(),
+                    errorRecordHandler,
+                    UnknownTypeAction.STOP_PIPELINE
+                ),
+                plan.toFields(resultSet, errorRecordHandler)
+            );
+
+            Record expected = RecordCreator.create();
+            jdbcUtil.setColumnSpecificHeaders(
+                expected,
+                Collections.singleton(tableName),
+                resultSet.getMetaData(),
+                "jdbc."
+            );
+            Record actual = RecordCreator.create();
+            plan.setColumnSpecificHeaders(actual, Collections.singleton(tableName), "jdbc.");
+            assertEquals(expected.getHeader().getAllAttributes(), actual.getHeader().getAllAttributes());
+          }
+          assertEquals(3, rows);
+
+          ResultSet other = stmt.executeQuery("SELECT * FROM " + schema + "." + tableName);
+          assertFalse(plan.isFor(other));
+        }
+      }
+    }
+  }
+
   @Test
   public void testGetMinValues() throws Exception {
     HikariPoolConfigBean config = createConfigBean();
@@ -258,6 +258,52 @@ public class TestJdbcLookup {
     Assert.assertEquals(3, outputRecords.get(2).get("[2]").getValueAsInteger());
   }
 
+  private int lookupWithSharedCache(int maxClobSize) throws Exception {
+    List<JdbcFieldColumnMapping> columnMappings = ImmutableList.of(new JdbcFieldColumnMapping("P_ID", "[2]"));
+
+    JdbcLookupDProcessor processor = createProcessor();
+    processor.sharedCacheConfig.enabled = true;
+    processor.sharedCacheConfig.namespace = "testSharedCache";
+
+    ProcessorRunner processorRunner = new ProcessorRunner.Builder(JdbcLookupDProcessor.class, processor)
+        .addConfiguration("query", listQuery)
+        .addConfiguration("columnMappings", columnMappings)
+        .addConfiguration("multipleValuesBehavior", MultipleValuesBehavior.FIRST_ONLY)
+        .addConfiguration("missingValuesBehavior", MissingValuesBehavior.SEND_TO_ERROR)
+        .addConfiguration("maxClobSize", maxClobSize)
+        .addConfiguration("maxBlobSize", 1000)
+        .addOutputLane("lane")
+        .build();
+
+    Record record = RecordCreator.create();
+    List<Field> fields = new ArrayList<>();
+    fields.add(Field.create("Adam"));
+    fields.add(Field.create("Kunicki"));
+    record.set(Field.create(fields));
+
+    processorRunner.runInit();
+    try {
+      List<Record> outputRecords = processorRunner.runProcess(ImmutableList.of(record)).getRecords().get("lane");
+      return outputRecords.get(0).get("[2]").getValueAsInteger();
+    } finally {
+      processorRunner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testSharedCache() throws Exception {
+    Assert.assertEquals(1, lookupWithSharedCache(1000));
+
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("UPDATE TEST.TEST_TABLE SET P_ID = 10 WHERE P_ID = 1");
+    }
+
+    // Same lookup definition in another pipeline is served from the shared cache
+    Assert.assertEquals(1, lookupWithSharedCache(1000));
+    // A different lookup definition doesn't share values even with the same namespace
+    Assert.assertEquals(10, lookupWithSharedCache(2000));
+  }
+
   @Test
   public void testMultiRecordMissingRow() throws Exception {
     thrown.expect(OnRecordErrorException.class);
@@ -18,11 +18,15 @@ package com.streamsets.pipeline.stage.processor.jdbclookup;
 
 import com.streamsets.pipeline.api.Config;
 import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.StageUpgrader;
 import com.streamsets.pipeline.config.upgrade.UpgraderTestUtils;
 import com.streamsets.pipeline.stage.common.MissingValuesBehavior;
 import com.streamsets.pipeline.stage.processor.jdbclookup.JdbcLookupProcessorUpgrader;
+import com.streamsets.pipeline.upgrader.SelectorStageUpgrader;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,4 +60,23 @@ public class TestJdbcLookupUpgrader {
 
     UpgraderTestUtils.assertExists(upgradedConfigs, "missingValuesBehavior", MissingValuesBehavior.SEND_TO_ERROR);
   }
+
+  @Test
+  public void testUpgradeV3toV4() {
+    URL yamlResource = ClassLoader.getSystemClassLoader().getResource("upgrader/JdbcLookupDProcessor.yaml");
+    StageUpgrader upgrader = new SelectorStageUpgrader("stage", new JdbcLookupProcessorUpgrader(), yamlResource);
+    StageUpgrader.Context context = Mockito.mock(StageUpgrader.Context.class);
+    Mockito.doReturn(3).when(context).getFromVersion();
+    Mockito.doReturn(4).when(context).getToVersion();
+
+    List<Config> configs = upgrader.upgrade(new ArrayList<>(), context);
+
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.enabled", false);
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.namespace", "default");
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.maxEntries", 100000);
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.maxMemoryMB", 64);
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.expirationSeconds", 3600);
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.persist", false);
+    UpgraderTestUtils.assertExists(configs, "sharedCacheConfig.persistDirectory", "lookup-cache");
+  }
 }
@@ -102,6 +102,19 @@ public class MultiKafkaBeanConfig {
   )
   public int numberOfThreads;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "0",
+      label = "Number of Parser Threads",
+      description = "Number of threads shared by all consumers to parse messages. Consumer threads only poll " +
+          "when set. Use 0 to parse the messages on the consumer threads.",
+      displayPosition = 55,
+      min = 0,
+      group = "KAFKA"
+  )
+  public int parserThreads;
+
   @ConfigDef(
       required = true,
       type = ConfigDef.Type.NUMBER,
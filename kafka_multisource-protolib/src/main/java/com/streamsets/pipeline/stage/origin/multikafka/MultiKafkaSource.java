@@ -16,6 +16,7 @@
 package com.streamsets.pipeline.stage.origin.multikafka;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.BatchContext;
 import com.streamsets.pipeline.api.DeliveryGuarantee;
 import com.streamsets.pipeline.api.ErrorCode;
@@ -54,6 +55,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -78,6 +80,7 @@ public class MultiKafkaSource extends BasePushSource {
 
   private DataParserFactory parserFactory;
   private ExecutorService executor;
+  private ExecutorService parserExecutor;
 
   private SdcKafkaValidationUtil kafkaValidationUtil;
   private String keytabFileName;
@@ -122,6 +125,23 @@ public class MultiKafkaSource extends BasePushSource {
     }
   }
 
+  /**
+   * Records parsed out of a single Kafka message, or the error that prevented parsing it.
+   */
+  private static class ParsedMessage {
+    private final String messageId;
+    private final List<Record> records;
+    private final Record errorRecord;
+    private final Exception error;
+
+    private ParsedMessage(String messageId, List<Record> records, Record errorRecord, Exception error) {
+      this.messageId = messageId;
+      this.records = records;
+      this.errorRecord = errorRecord;
+      this.error = error;
+    }
+  }
+
   public class MultiTopicCallable implements Callable<Long> {
 
     // keep it same as BaseKafkaConsumer09.CONSUMER_POLLING_WINDOW_MS for now
@@ -181,30 +201,16 @@ public class MultiKafkaSource extends BasePushSource {
             errorRecordHandler = new CountingDefaultErrorRecordHandler(getContext(), batchContext);
           }
 
-          for (ConsumerRecord<String, byte[]> item : messages) {
-
-            // We still support Kafka 0.9 that doesn't have support for timestamp. Thus this code simply calls those
-            // methods in a safe manner and fills defaults in case that those methods do not exists. This fragment can
-            // be dropped (or this patch reverted) when we drop support for Kafka 0.9.
-            long timestamp;
-            String timestampType;
-            try {
-              timestamp = item.timestamp();
-              timestampType = item.timestampType().name;
-            } catch (NoSuchMethodError _) {
-              timestamp = -1;
-              timestampType = "";
-            }
+          List<ConsumerRecord<String, byte[]>> items = new ArrayList<>(messages.count());
+          messages.forEach(items::add);
+          List<ParsedMessage> parsedMessages = null;
+          if (parserExecutor != null && items.size() > 1) {
+            parsedMessages = parseInParallel(items);
+          }
 
-            records.addAll(createRecord(errorRecordHandler,
-                item.topic(),
-                item.partition(),
-                item.offset(),
-                item.value(),
-                item.key(),
-                timestamp,
-                timestampType
-            ));
+          for (int i = 0; i < items.size(); i++) {
+            ParsedMessage parsedMessage = parsedMessages == null ? parse(items.get(i)) : parsedMessages.get(i);
+            records.addAll(createRecords(errorRecordHandler, parsedMessage));
 
             if (records.size() >= batchSize) {
               records.forEach(batchContext.getBatchMaker()::addRecord);
@@ -264,8 +270,88 @@ public class MultiKafkaSource extends BasePushSource {
       }
     }
 
-    private List<Record> createRecord(
+    /**
+     * Parses the messages on the shared parser pool in contiguous chunks and returns the results in the order the
+     * messages were polled, so that records of a partition stay in offset order.
+     */
+    private List<ParsedMessage> parseInParallel(
+        List<ConsumerRecord<String, byte[]>> items
+    ) throws StageException, InterruptedException {
+      int chunks = Math.min(conf.parserThreads, items.size());
+      int chunkSize = (items.size() + chunks - 1) / chunks;
+      List<Future<List<ParsedMessage>>> futures = new ArrayList<>(chunks);
+      for (int from = 0; from < items.size(); from += chunkSize) {
+        List<ConsumerRecord<String, byte[]>> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+        futures.add(parserExecutor.submit(() -> {
+          List<ParsedMessage> parsed = new ArrayList<>(chunk.size());
+          for (ConsumerRecord<String, byte[]> item : chunk) {
+            parsed.add(parse(item));
+          }
+          return parsed;
+        }));
+      }
+
+      List<ParsedMessage> parsedMessages = new ArrayList<>(items.size());
+      for (Future<List<ParsedMessage>> future : futures) {
+        try {
+          parsedMessages.addAll(future.get());
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), StageException.class);
+          Throwables.propagate(e.getCause());
+        }
+      }
+      return parsedMessages;
+    }
+
+    /**
+     * Hands the records of the parsed message over to the batch, sending the message to error if it could not be
+     * parsed.
+     */
+    private List<Record> createRecords(
         ErrorRecordHandler errorRecordHandler,
+        ParsedMessage parsedMessage
+    ) throws StageException {
+      if (parsedMessage.error != null) {
+        errorRecordHandler.onError(new OnRecordErrorException(
+            parsedMessage.errorRecord,
+            KafkaErrors.KAFKA_37,
+            parsedMessage.messageId,
+            parsedMessage.error.toString(),
+            parsedMessage.error
+        ));
+      }
+      return parsedMessage.records;
+    }
+
+    private ParsedMessage parse(ConsumerRecord<String, byte[]> item) throws StageException {
+      // We still support Kafka 0.9 that doesn't have support for timestamp. Thus this code simply calls those
+      // methods in a safe manner and fills defaults in case that those methods do not exists. This fragment can
+      // be dropped (or this patch reverted) when we drop support for Kafka 0.9.
+      long timestamp;
+      String timestampType;
+      try {
+        timestamp = item.timestamp();
+        timestampType = item.timestampType().name;
+      } catch (NoSuchMethodError _) {
+        timestamp = -1;
+        timestampType = "";
+      }
+
+      return parse(
+          item.topic(),
+          item.partition(),
+          item.offset(),
+          item.value(),
+          item.key(),
+          timestamp,
+          timestampType
+      );
+    }
+
+    /**
+     * Parses a single message. Does not use the error record handler, hence it can run on any thread.
+     */
+    private ParsedMessage parse(
         String topic,
         int partition,
         long offset,
@@ -311,16 +397,10 @@ public class MultiKafkaSource extends BasePushSource {
       } catch (DataParserException | IOException e) {
         Record record = getContext().createRecord(messageId);
         record.set(Field.create(payload));
-        errorRecordHandler.onError(new OnRecordErrorException(
-            record,
-            KafkaErrors.KAFKA_37,
-            messageId,
-            e.toString(),
-            e
-        ));
+        return new ParsedMessage(messageId, Collections.emptyList(), record, e);
       }
 
-      if (conf.produceSingleRecordPerMessage) {
+      if (conf.produceSingleRecordPerMessage && !records.isEmpty()) {
         List<Field> list = new ArrayList<>();
         for (Record record : records) {
           list.add(record.get());
@@ -331,7 +411,7 @@ public class MultiKafkaSource extends BasePushSource {
         records.add(record);
       }
 
-      return records;
+      return new ParsedMessage(messageId, records, null, null);
     }
 
     private void handleException(KafkaErrors error, Object... args) throws StageException {
@@ -347,7 +427,8 @@ public class MultiKafkaSource extends BasePushSource {
 
     conf.init(getContext(), issues);
 
-    conf.dataFormatConfig.stringBuilderPoolSize = getNumberOfThreads();
+    // Polls of a single message are parsed on the consumer threads even when there are parser threads
+    conf.dataFormatConfig.stringBuilderPoolSize = conf.parserThreads + getNumberOfThreads();
 
     if (issues.isEmpty()) {
       conf.dataFormatConfig.init(getContext(),
@@ -380,6 +461,12 @@ public class MultiKafkaSource extends BasePushSource {
     }
 
     executor = Executors.newFixedThreadPool(getNumberOfThreads());
+    if (conf.parserThreads > 0) {
+      parserExecutor = Executors.newFixedThreadPool(
+          conf.parserThreads,
+          new ThreadFactoryBuilder().setNameFormat("kafkaParserThread-%d").setDaemon(true).build()
+      );
+    }
     for (String topic : conf.topicList) {
       LineageEvent event = getContext().createLineageEvent(LineageEventType.ENTITY_READ);
       event.setSpecificAttribute(LineageSpecificAttribute.ENDPOINT_TYPE, EndPointType.KAFKA.name());
@@ -499,6 +586,9 @@ public class MultiKafkaSource extends BasePushSource {
     super.destroy();
     KafkaKerberosUtil.deleteUserKeytabIfExists(keytabFileName, getContext());
     executor.shutdownNow();
+    if (parserExecutor != null) {
+      parserExecutor.shutdownNow();
+    }
   }
 
   private void shutdown() {
@@ -162,6 +162,101 @@ public class TestMultiKafkaSource {
     }
   }
 
+  @Test
+  public void testParallelParsingKeepsOrder() throws StageException, InterruptedException, ExecutionException {
+    MultiKafkaBeanConfig conf = getConfig();
+    conf.topicList = Collections.singletonList("topic");
+    conf.numberOfThreads = 1;
+    conf.parserThreads = 3;
+
+    ConsumerRecords<String, byte[]> consumerRecords = generateConsumerRecords(8, "topic", 0);
+    ConsumerRecords<String, byte[]> emptyRecords = generateConsumerRecords(0, "topic", 0);
+
+    Consumer mockConsumer = Mockito.mock(Consumer.class);
+    List<Consumer> consumerList = Collections.singletonList(mockConsumer);
+    Mockito.when(mockConsumer.poll(Mockito.anyInt())).thenReturn(consumerRecords).thenReturn(emptyRecords);
+
+    conf.userKeytab = Mockito.mock(CredentialValue.class);
+    Mockito.when(conf.userKeytab.get()).thenReturn("");
+
+    MockKafkaConsumerLoader.consumers = consumerList.iterator();
+    MultiKafkaSource source = new MultiKafkaSource(conf);
+    PushSourceRunner sourceRunner = new PushSourceRunner.Builder(MultiKafkaDSource.class, source).addOutputLane("lane")
+        .build();
+    sourceRunner.runInit();
+
+    List<String> values = Collections.synchronizedList(new ArrayList<>());
+    try {
+      sourceRunner.runProduce(new HashMap<>(), 8, output -> {
+        List<Record> records = output.getRecords().get("lane");
+        records.forEach(record -> values.add(record.get("/text").getValueAsString()));
+        if (!records.isEmpty()) {
+          sourceRunner.setStop();
+        }
+      });
+      sourceRunner.waitOnProduce();
+
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        expected.add("value" + i);
+      }
+      Assert.assertEquals(expected, values);
+    } finally {
+      sourceRunner.runDestroy();
+    }
+  }
+
+  @Test
+  public void testParallelParsingWithSingleMessagePolls() throws StageException, InterruptedException {
+    MultiKafkaBeanConfig conf = getConfig();
+    conf.topicList = Collections.singletonList("topic");
+    conf.numberOfThreads = 2;
+    conf.parserThreads = 2;
+
+    ConsumerRecords<String, byte[]> singleRecord = generateConsumerRecords(1, "topic", 0);
+    ConsumerRecords<String, byte[]> consumerRecords = generateConsumerRecords(8, "topic", 1);
+    ConsumerRecords<String, byte[]> emptyRecords = generateConsumerRecords(0, "topic", 0);
+
+    // single message polls are parsed on the consumer thread while the other poll is parsed on the parser threads
+    Consumer mockConsumer1 = Mockito.mock(Consumer.class);
+    Mockito
+        .when(mockConsumer1.poll(Mockito.anyInt()))
+        .thenReturn(singleRecord)
+        .thenReturn(singleRecord)
+        .thenReturn(singleRecord)
+        .thenReturn(singleRecord)
+        .thenReturn(emptyRecords);
+    Consumer mockConsumer2 = Mockito.mock(Consumer.class);
+    Mockito.when(mockConsumer2.poll(Mockito.anyInt())).thenReturn(consumerRecords).thenReturn(emptyRecords);
+    List<Consumer> consumerList = new ArrayList<>();
+    consumerList.add(mockConsumer1);
+    consumerList.add(mockConsumer2);
+
+    conf.userKeytab = Mockito.mock(CredentialValue.class);
+    Mockito.when(conf.userKeytab.get()).thenReturn("");
+
+    MockKafkaConsumerLoader.consumers = consumerList.iterator();
+    MultiKafkaSource source = new MultiKafkaSource(conf);
+    PushSourceRunner sourceRunner = new PushSourceRunner.Builder(MultiKafkaDSource.class, source).addOutputLane("lane")
+        .build();
+    sourceRunner.runInit();
+
+    // every thread that can parse at the same time needs its own string builder
+    Assert.assertEquals(4, conf.dataFormatConfig.stringBuilderPoolSize);
+
+    MultiKafkaPushSourceTestCallback callback = new MultiKafkaPushSourceTestCallback(sourceRunner, 2);
+    try {
+      sourceRunner.runProduce(new HashMap<>(), 9, callback);
+      int records = callback.waitForAllBatches();
+
+      source.await();
+      Assert.assertEquals(12, records);
+      Assert.assertTrue(sourceRunner.getErrorRecords().isEmpty());
+    } finally {
+      sourceRunner.runDestroy();
+    }
+  }
+
   @Test
   public void testMultipleTopics() throws StageException, InterruptedException, ExecutionException {
     MultiKafkaBeanConfig conf = getConfig();
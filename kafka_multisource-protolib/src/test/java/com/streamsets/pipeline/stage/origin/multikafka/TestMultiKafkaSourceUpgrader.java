@@ -100,4 +100,14 @@ public class TestMultiKafkaSourceUpgrader {
         "user/host@REALM"
     );
   }
+
+  @Test
+  public void testV6ToV7() {
+    Mockito.doReturn(6).when(context).getFromVersion();
+    Mockito.doReturn(7).when(context).getToVersion();
+
+    configs = upgrader.upgrade(configs, context);
+
+    UpgraderTestUtils.assertExists(configs, "conf.parserThreads", 0);
+  }
 }
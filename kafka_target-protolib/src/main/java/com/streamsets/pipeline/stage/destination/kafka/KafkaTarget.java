@@ -15,6 +15,7 @@
  */
 package com.streamsets.pipeline.stage.destination.kafka;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.streamsets.pipeline.api.Batch;
 import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
@@ -27,6 +28,7 @@ import com.streamsets.pipeline.api.lineage.LineageSpecificAttribute;
 import com.streamsets.pipeline.kafka.api.PartitionStrategy;
 import com.streamsets.pipeline.kafka.api.SdcKafkaProducer;
 import com.streamsets.pipeline.lib.generator.DataGenerator;
+import com.streamsets.pipeline.lib.generator.RecordSerializer;
 import com.streamsets.pipeline.lib.kafka.KafkaErrors;
 import com.streamsets.pipeline.lib.kafka.exception.KafkaConnectionException;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
@@ -45,6 +47,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class KafkaTarget extends BaseTarget {
 
@@ -57,6 +61,8 @@ public class KafkaTarget extends BaseTarget {
   private SdcKafkaProducer kafkaProducer;
   private ErrorRecordHandler errorRecordHandler;
   private Set<String> accessedTopic;
+  private RecordSerializer recordSerializer;
+  private ExecutorService serializationExecutor;
 
   public KafkaTarget(KafkaTargetConfig conf, ToOriginResponseConfig responseConf) {
     this.conf = conf;
@@ -72,6 +78,15 @@ public class KafkaTarget extends BaseTarget {
     kafkaProducer = conf.getKafkaProducer();
     errorRecordHandler = new DefaultErrorRecordHandler(getContext());
     accessedTopic = new HashSet<>();
+    if (issues.isEmpty() && !conf.singleMessagePerBatch) {
+      recordSerializer = new RecordSerializer(conf.dataGeneratorFormatConfig.getDataGeneratorFactory());
+      if (conf.serializationThreads > 1) {
+        serializationExecutor = Executors.newFixedThreadPool(
+            conf.serializationThreads,
+            new ThreadFactoryBuilder().setNameFormat("Kafka Serialization Thread - %d").setDaemon(true).build()
+        );
+      }
+    }
     return issues;
   }
 
@@ -226,10 +241,18 @@ public class KafkaTarget extends BaseTarget {
     long count = 0;
     Iterator<Record> records = batch.getRecords();
     List<Record> recordList = new ArrayList<>();
-
     while (records.hasNext()) {
-      Record record = records.next();
-      recordList.add(record);
+      recordList.add(records.next());
+    }
+
+    // Records are serialized up front when running in parallel, messages are still enqueued in batch order
+    List<RecordSerializer.Result> serialized = null;
+    if (serializationExecutor != null) {
+      serialized = recordSerializer.serialize(recordList, serializationExecutor, conf.serializationThreads);
+    }
+
+    for (int i = 0; i < recordList.size(); i++) {
+      Record record = recordList.get(i);
       try {
         String topic = conf.getTopic(record);
         Object messageKey = conf.getMessageKey(record);
@@ -239,7 +262,8 @@ public class KafkaTarget extends BaseTarget {
           messageKey = conf.getPartitionKey(record, topic);
         }
 
-        kafkaProducer.enqueueMessage(topic, serializeRecord(record), messageKey);
+        byte[] message = serialized == null ? recordSerializer.serialize(record) : serialized.get(i).getBytes();
+        kafkaProducer.enqueueMessage(topic, message, messageKey);
         count++;
         sendLineageEventIfNeeded(topic);
       } catch (KafkaConnectionException ex) {
@@ -294,17 +318,12 @@ public class KafkaTarget extends BaseTarget {
     LOG.debug("Wrote {} records in this batch.", count);
   }
 
-  private Object serializeRecord(Record record) throws StageException, IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-    DataGenerator generator = conf.dataGeneratorFormatConfig.getDataGeneratorFactory().getGenerator(baos);
-    generator.write(record);
-    generator.close();
-    return baos.toByteArray();
-  }
-
   @Override
   public void destroy() {
     LOG.info("Wrote {} number of records to Kafka Broker", recordCounter);
+    if (serializationExecutor != null) {
+      serializationExecutor.shutdownNow();
+    }
     conf.destroy(getContext());
   }
 
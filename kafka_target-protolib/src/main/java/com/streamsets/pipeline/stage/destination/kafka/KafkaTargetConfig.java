@@ -205,6 +205,22 @@ public class KafkaTargetConfig {
   )
   public boolean singleMessagePerBatch;
 
+  @ConfigDef(
+    required = true,
+    type = ConfigDef.Type.NUMBER,
+    defaultValue = "1",
+    label = "Serialization Threads",
+    description = "Number of threads used to serialize the records of a batch. Messages are still sent in the " +
+        "order of the batch.",
+    displayPosition = 55,
+    group = "#0",
+    dependsOn = "singleMessagePerBatch",
+    triggeredByValue = "false",
+    min = 1,
+    max = 64
+  )
+  public int serializationThreads = 1;
+
   @ConfigDef(
       required = true,
       type = ConfigDef.Type.MODEL,
@@ -36,7 +36,8 @@ import com.streamsets.pipeline.stage.destination.lib.ToOriginResponseConfig;
 @HideConfigs(
     preconditions = true,
     onErrorRecord = true,
-    value = {"conf.dataFormat", "conf.singleMessagePerBatch", "responseConf.sendResponseToOrigin"}
+    value = {"conf.dataFormat", "conf.singleMessagePerBatch", "conf.serializationThreads",
+        "responseConf.sendResponseToOrigin"}
 )
 @StatsAggregatorStage
 @HideStage(HideStage.Type.STATS_AGGREGATOR_STAGE)
@@ -77,6 +77,7 @@ import com.streamsets.pipeline.stage.destination.kafka.KafkaTargetConfig;
         "conf.partitionStrategy",
         "conf.partition",
         "conf.singleMessagePerBatch",
+        "conf.serializationThreads",
         "conf.topicExpression",
         "conf.topicWhiteList",
         "configs.tlsConfigBean.trustStoreFilePath",
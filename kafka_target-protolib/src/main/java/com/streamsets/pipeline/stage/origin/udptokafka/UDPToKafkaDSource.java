@@ -76,6 +76,7 @@ import com.streamsets.pipeline.stage.destination.kafka.KafkaTargetConfig;
       "kafkaTargetConfig.partitionStrategy",
       "kafkaTargetConfig.partition",
       "kafkaTargetConfig.singleMessagePerBatch",
+      "kafkaTargetConfig.serializationThreads",
       "kafkaTargetConfig.topicExpression",
       "kafkaTargetConfig.topicWhiteList"
   }
@@ -117,6 +117,33 @@ public class KuduConfigBean {
   )
   public int mutationBufferSpace;
 
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.MODEL,
+      defaultValue = "MANUAL",
+      label = "Flush Mode",
+      description = "Flush each batch synchronously, or let the Kudu client flush buffered operations in the" +
+          " background and only wait for them at the end of the batch.",
+      displayPosition = 16,
+      group = "ADVANCED"
+  )
+  @ValueChooserModel(FlushModeChooserValues.class)
+  public FlushMode flushMode = FlushMode.MANUAL;
+
+  @ConfigDef(
+      required = false,
+      type = ConfigDef.Type.NUMBER,
+      defaultValue = "1000",
+      label = "Background Flush Interval (milliseconds)",
+      description = "Maximum time buffered operations wait before the Kudu client flushes them in the background.",
+      displayPosition = 17,
+      group = "ADVANCED",
+      min = 1,
+      dependsOn = "flushMode",
+      triggeredByValue = "BACKGROUND"
+  )
+  public int flushInterval = 1000;
+
   @ConfigDef(
       required = false,
       type = ConfigDef.Type.NUMBER,
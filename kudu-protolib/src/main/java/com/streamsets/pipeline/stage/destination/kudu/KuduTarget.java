@@ -15,6 +15,7 @@
  */
 package com.streamsets.pipeline.stage.destination.kudu;
 
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -58,6 +59,7 @@ import org.apache.kudu.client.Operation;
 import org.apache.kudu.client.OperationResponse;
 import org.apache.kudu.client.PartialRow;
 import org.apache.kudu.client.RowError;
+import org.apache.kudu.client.RowErrorsAndOverflowStatus;
 import org.apache.kudu.client.SessionConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -65,6 +67,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -109,6 +112,9 @@ public class KuduTarget extends BaseTarget {
   private static final String FIELD_MAPPING_CONFIGS = "fieldMappingConfigs";
   private static final String OPERATION_TIMEOUT = "operationTimeout";
   private static final String ADMIN_OPERATION_TIMEOUT = "adminOperationTimeout";
+  private static final String FLUSH_INTERVAL = "flushInterval";
+  private static final String INGEST_LATENCY = "Ingest Latency";
+  private static final String FLUSH_LATENCY = "Flush Latency";
 
 
   private final String kuduMaster;
@@ -131,6 +137,8 @@ public class KuduTarget extends BaseTarget {
   private KuduOperationType defaultOperation;
   private Set<String> accessedTables;
   private long CACHE_EXPIRATION_PERIOD = 60;
+  private Timer ingestLatencyTimer;
+  private Timer flushLatencyTimer;
 
   public KuduTarget(KuduConfigBean configBean) {
     this.configBean = configBean;
@@ -183,6 +191,8 @@ public class KuduTarget extends BaseTarget {
     tableNameVars = getContext().createELVars();
     tableNameEval = getContext().createELEval(TABLE_NAME_TEMPLATE);
     errorRecordHandler = new DefaultErrorRecordHandler(getContext());
+    ingestLatencyTimer = getContext().createTimer(INGEST_LATENCY);
+    flushLatencyTimer = getContext().createTimer(FLUSH_LATENCY);
     validateServerSideConfig(issues);
     accessedTables = new HashSet<>();
 
@@ -221,6 +231,16 @@ public class KuduTarget extends BaseTarget {
       );
     }
 
+    if (configBean.flushMode == FlushMode.BACKGROUND && configBean.flushInterval <= 0) {
+      issues.add(
+          getContext().createConfigIssue(
+              Groups.ADVANCED.name(),
+              KuduConfigBean.CONF_PREFIX + FLUSH_INTERVAL,
+              Errors.KUDU_02
+          )
+      );
+    }
+
     if (configBean.adminOperationTimeout < 0) {
       issues.add(
           getContext().createConfigIssue(
@@ -324,7 +344,14 @@ public class KuduTarget extends BaseTarget {
       );
     }
     session.setMutationBufferSpace(configBean.mutationBufferSpace);
-    session.setFlushMode(SessionConfiguration.FlushMode.MANUAL_FLUSH);
+    if (configBean.flushMode == FlushMode.BACKGROUND) {
+      // The client groups buffered operations per tablet server and flushes them on its own, apply() only blocks
+      // once the mutation buffer is full.
+      session.setFlushMode(SessionConfiguration.FlushMode.AUTO_FLUSH_BACKGROUND);
+      session.setFlushInterval(configBean.flushInterval);
+    } else {
+      session.setFlushMode(SessionConfiguration.FlushMode.MANUAL_FLUSH);
+    }
     return session;
   }
 
@@ -410,6 +437,12 @@ public class KuduTarget extends BaseTarget {
     );
 
     KuduSession session = Preconditions.checkNotNull(kuduSession, KUDU_SESSION);
+    boolean background = configBean.flushMode == FlushMode.BACKGROUND;
+
+    // In background mode operations of all tables stay in flight until the end of the batch, hence row keys are
+    // tracked per table so that errors reported for any table can be mapped back to their records.
+    Map<String, Map<String, Record>> keyToRecordMaps = new HashMap<>();
+    Timer.Context ingestContext = null;
 
     for (String tableName : partitions.keySet()) {
 
@@ -421,7 +454,6 @@ public class KuduTarget extends BaseTarget {
         }
       }
 
-      Map<String, Record> keyToRecordMap = new HashMap<>();
       Iterator<Record> it = partitions.get(tableName).iterator();
 
       KuduTable table;
@@ -437,6 +469,12 @@ public class KuduTarget extends BaseTarget {
         continue;
       }
 
+      Map<String, Record> keyToRecordMap = new HashMap<>();
+      keyToRecordMaps.put(table.getName(), keyToRecordMap);
+      if (ingestContext == null) {
+        ingestContext = ingestLatencyTimer.time();
+      }
+
       while (it.hasNext()) {
         Record record = null;
         try {
@@ -493,37 +531,79 @@ public class KuduTarget extends BaseTarget {
           LOG.error(Errors.KUDU_03.getMessage(), ex.toString(), ex);
           errorRecordHandler.onError(new OnRecordErrorException(record, Errors.KUDU_03, ex.getMessage(), ex));
         }
+        if (background && session.countPendingErrors() > 0) {
+          // Handle errors of background flushes as they come so that the error buffer doesn't overflow
+          handlePendingErrors(session, keyToRecordMaps);
+        }
       }
-      // from here, executed at the end of batch
-      try {
+
+      if (!background) {
+        // from here, executed at the end of each table
         List<RowError> rowErrors = Collections.emptyList();
-        List<OperationResponse> responses = session.flush();
+        List<OperationResponse> responses = flush(session);
         if (responses != null) {
           rowErrors = OperationResponse.collectErrors(responses);
         }
-        // log ALL errors then process them
-        for (RowError error : rowErrors) {
-          LOG.warn(Errors.KUDU_03.getMessage(), error.toString());
-        }
-        for (RowError error : rowErrors) {
-          Operation operation = error.getOperation();
-          String rowKey = operation.getRow().stringifyRowKey();
-          Record errorRecord = keyToRecordMap.get(rowKey);
-          if (error.getErrorStatus().isAlreadyPresent()) {
-            // Failed due to inserting duplicate row key
-            errorRecordHandler.onError(new OnRecordErrorException(errorRecord, Errors.KUDU_08, rowKey));
-          } else if (error.getErrorStatus().isNotFound()) {
-            // Row key not found error, mostly for update and delete operations.
-            errorRecordHandler.onError(new OnRecordErrorException(errorRecord, Errors.KUDU_15, rowKey, tableName));
-          } else {
-            // Failure is most likely caused by setting, network, or corrupted table.
-            // Worth throwing StageException.
-            throw new StageException(Errors.KUDU_03, error.toString());
-          }
-        }
-      } catch (KuduException ex) {
-        LOG.error(Errors.KUDU_03.getMessage(), ex.toString(), ex);
-        throw new StageException(Errors.KUDU_03, ex.getMessage(), ex);
+        handleRowErrors(rowErrors, keyToRecordMaps);
+      }
+    }
+
+    if (background) {
+      // The batch is only acknowledged once all its operations are durable, so anything that was still buffered
+      // when a failure happens is written again with the batch.
+      flush(session);
+      handlePendingErrors(session, keyToRecordMaps);
+    }
+    if (ingestContext != null) {
+      ingestContext.stop();
+    }
+  }
+
+  private List<OperationResponse> flush(KuduSession session) throws StageException {
+    try (Timer.Context ignored = flushLatencyTimer.time()) {
+      return session.flush();
+    } catch (KuduException ex) {
+      LOG.error(Errors.KUDU_03.getMessage(), ex.toString(), ex);
+      throw new StageException(Errors.KUDU_03, ex.getMessage(), ex);
+    }
+  }
+
+  private void handlePendingErrors(
+      KuduSession session,
+      Map<String, Map<String, Record>> keyToRecordMaps
+  ) throws StageException {
+    RowErrorsAndOverflowStatus pendingErrors = session.getPendingErrors();
+    handleRowErrors(Arrays.asList(pendingErrors.getRowErrors()), keyToRecordMaps);
+    if (pendingErrors.isOverflowed()) {
+      // Some errors were dropped and we can't tell which records they belong to
+      throw new StageException(Errors.KUDU_16);
+    }
+  }
+
+  private void handleRowErrors(
+      List<RowError> rowErrors,
+      Map<String, Map<String, Record>> keyToRecordMaps
+  ) throws StageException {
+    // log ALL errors then process them
+    for (RowError error : rowErrors) {
+      LOG.warn(Errors.KUDU_03.getMessage(), error.toString());
+    }
+    for (RowError error : rowErrors) {
+      Operation operation = error.getOperation();
+      String tableName = operation.getTable().getName();
+      String rowKey = operation.getRow().stringifyRowKey();
+      Map<String, Record> keyToRecordMap = keyToRecordMaps.get(tableName);
+      Record errorRecord = keyToRecordMap == null ? null : keyToRecordMap.get(rowKey);
+      if (error.getErrorStatus().isAlreadyPresent()) {
+        // Failed due to inserting duplicate row key
+        errorRecordHandler.onError(new OnRecordErrorException(errorRecord, Errors.KUDU_08, rowKey));
+      } else if (error.getErrorStatus().isNotFound()) {
+        // Row key not found error, mostly for update and delete operations.
+        errorRecordHandler.onError(new OnRecordErrorException(errorRecord, Errors.KUDU_15, rowKey, tableName));
+      } else {
+        // Failure is most likely caused by setting, network, or corrupted table.
+        // Worth throwing StageException.
+        throw new StageException(Errors.KUDU_03, error.toString());
       }
     }
   }
@@ -35,6 +35,7 @@ public enum Errors implements ErrorCode {
   KUDU_13("Operation not supported: {}"),
   KUDU_14("Unknown action for unsupported operation: {}"),
   KUDU_15("Row key '{}' not found for table '{}'"),
+  KUDU_16("Kudu session dropped row errors because its error buffer overflowed"),
 
   KUDU_30("Column mappings must be specified for lookup processor"),
   KUDU_31("No rows found"),
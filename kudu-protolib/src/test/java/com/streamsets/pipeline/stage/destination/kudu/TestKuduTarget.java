@@ -429,6 +429,53 @@ public class TestKuduTarget {
     targetRunner.runDestroy();
   }
 
+  @Test
+  public void testBackgroundFlush() throws Exception {
+    KuduTarget target = new KuduTarget(new KuduConfigBeanBuilder()
+        .setMaster(KUDU_MASTER)
+        .setTableName(tableName)
+        .setDefaultOperation(KuduOperationType.INSERT)
+        .setUnsupportedAction(UnsupportedOperationAction.DISCARD)
+        .setFlushMode(FlushMode.BACKGROUND)
+        .build());
+    TargetRunner targetRunner = getTargetRunner(target);
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Record record = RecordCreator.create();
+      LinkedHashMap<String, Field> field = new LinkedHashMap<>();
+      field.put("key", Field.create(i));
+      field.put("value", Field.create("value"));
+      field.put("name", Field.create("name"));
+      record.set(Field.createListMap(field));
+      records.add(record);
+    }
+    targetRunner.runInit();
+
+    try {
+      targetRunner.runWrite(records);
+    } catch (StageException e){
+      Assert.fail();
+    }
+    Assert.assertEquals(0, targetRunner.getErrorRecords().size());
+    targetRunner.runDestroy();
+  }
+
+  @Test
+  public void testInvalidFlushInterval() throws Exception {
+    KuduTarget target = new KuduTarget(new KuduConfigBeanBuilder()
+        .setMaster(KUDU_MASTER)
+        .setTableName(tableName)
+        .setDefaultOperation(KuduOperationType.INSERT)
+        .setUnsupportedAction(UnsupportedOperationAction.DISCARD)
+        .setFlushMode(FlushMode.BACKGROUND)
+        .setFlushInterval(0)
+        .build());
+    TargetRunner targetRunner = getTargetRunner(target);
+
+    List<Stage.ConfigIssue> issues = targetRunner.runValidateConfigs();
+    Assert.assertEquals(1, issues.size());
+  }
 
   private TargetRunner getTargetRunner(String tableName,
                                        KuduOperationType defaultOperation,
@@ -457,6 +504,8 @@ public class TestKuduTarget {
     KuduOperationType defaultOperation;
     List<KuduFieldMappingConfig> mapping;
     UnsupportedOperationAction unsupportedAction;
+    FlushMode flushMode = FlushMode.MANUAL;
+    int flushInterval = 1000;
 
     public KuduConfigBeanBuilder setMaster(String master) {
       this.kuduMaster = master;
@@ -478,6 +527,16 @@ public class TestKuduTarget {
       return this;
     }
 
+    public KuduConfigBeanBuilder setFlushMode(FlushMode flushMode) {
+      this.flushMode = flushMode;
+      return this;
+    }
+
+    public KuduConfigBeanBuilder setFlushInterval(int flushInterval) {
+      this.flushInterval = flushInterval;
+      return this;
+    }
+
     public KuduConfigBean build() {
       KuduConfigBean conf = new KuduConfigBean();
       conf.kuduMaster = kuduMaster;
@@ -485,6 +544,8 @@ public class TestKuduTarget {
       conf.defaultOperation = KuduOperationType.INSERT;
       conf.fieldMappingConfigs = mapping;
       conf.unsupportedAction = unsupportedAction;
+      conf.flushMode = flushMode;
+      conf.flushInterval = flushInterval;
       return conf;
     }
   }
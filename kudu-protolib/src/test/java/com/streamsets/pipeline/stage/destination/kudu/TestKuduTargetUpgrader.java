@@ -18,9 +18,13 @@ package com.streamsets.pipeline.stage.destination.kudu;
 
 import com.streamsets.pipeline.api.Config;
 import com.streamsets.pipeline.api.StageException;
+import com.streamsets.pipeline.api.StageUpgrader;
+import com.streamsets.pipeline.upgrader.SelectorStageUpgrader;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,4 +55,30 @@ public class TestKuduTargetUpgrader {
     Assert.assertEquals("kuduConfigBean.numWorkers", addedConf2.getName());
     Assert.assertEquals(0, addedConf2.getValue());
   }
+
+  @Test
+  public void testUpgradeV5toV6() throws StageException {
+    List<Config> configs = new ArrayList<>();
+
+    final URL yamlResource = ClassLoader.getSystemClassLoader().getResource("upgrader/KuduDTarget.yaml");
+    final SelectorStageUpgrader upgrader = new SelectorStageUpgrader(
+        "stage",
+        new KuduTargetUpgrader(),
+        yamlResource
+    );
+
+    StageUpgrader.Context context = Mockito.mock(StageUpgrader.Context.class);
+    Mockito.doReturn(5).when(context).getFromVersion();
+    Mockito.doReturn(6).when(context).getToVersion();
+
+    configs = upgrader.upgrade(configs, context);
+
+    Assert.assertEquals(2, configs.size());
+    Config addedConf1 = configs.get(0);
+    Assert.assertEquals("kuduConfigBean.flushMode", addedConf1.getName());
+    Assert.assertEquals("MANUAL", addedConf1.getValue());
+    Config addedConf2 = configs.get(1);
+    Assert.assertEquals("kuduConfigBean.flushInterval", addedConf2.getName());
+    Assert.assertEquals(1000, addedConf2.getValue());
+  }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import com.streamsets.pipeline.api.Field;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codecs for lookup values made of {@link Field}s. Every primitive field type, maps, lists and field attributes are
+ * supported; file references can't be serialized and are rejected.
+ */
+public final class FieldCodec {
+
+  /** Codec for a single field. */
+  public static final LookupValueCodec<Field> FIELD = new LookupValueCodec<Field>() {
+    @Override
+    public void write(Field value, DataOutput out) throws IOException {
+      writeField(value, out);
+    }
+
+    @Override
+    public Field read(DataInput in) throws IOException {
+      return readField(in);
+    }
+  };
+
+  /** Codec for rows of column name to field maps, as returned by the JDBC lookup. */
+  public static final LookupValueCodec<List<Map<String, Field>>> ROWS =
+      new LookupValueCodec<List<Map<String, Field>>>() {
+    @Override
+    public void write(List<Map<String, Field>> rows, DataOutput out) throws IOException {
+      out.writeInt(rows.size());
+      for (Map<String, Field> row : rows) {
+        writeMap(row, out);
+      }
+    }
+
+    @Override
+    public List<Map<String, Field>> read(DataInput in) throws IOException {
+      int size = in.readInt();
+      List<Map<String, Field>> rows = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        rows.add(readMap(in));
+      }
+      return rows;
+    }
+  };
+
+  private static final Field.Type[] TYPES = Field.Type.values();
+
+  private FieldCodec() {}
+
+  public static void writeField(Field field, DataOutput out) throws IOException {
+    Field.Type type = field.getType();
+    if (type == Field.Type.FILE_REF) {
+      throw new IOException("File reference fields can't be serialized");
+    }
+    out.writeByte(type.ordinal());
+
+    Map<String, String> attributes = field.getAttributes();
+    int attributeCount = attributes == null ? 0 : attributes.size();
+    out.writeInt(attributeCount);
+    if (attributeCount > 0) {
+      for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+        writeString(attribute.getKey(), out);
+        writeString(attribute.getValue(), out);
+      }
+    }
+
+    Object value = field.getValue();
+    out.writeBoolean(value != null);
+    if (value == null) {
+      return;
+    }
+    switch (type) {
+      case BOOLEAN:
+        out.writeBoolean((Boolean) value);
+        break;
+      case CHAR:
+        out.writeChar((Character) value);
+        break;
+      case BYTE:
+        out.writeByte((Byte) value);
+        break;
+      case SHORT:
+        out.writeShort((Short) value);
+        break;
+      case INTEGER:
+        out.writeInt((Integer) value);
+        break;
+      case LONG:
+        out.writeLong((Long) value);
+        break;
+      case FLOAT:
+        out.writeFloat((Float) value);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case DATE:
+      case DATETIME:
+      case TIME:
+        out.writeLong(((Date) value).getTime());
+        break;
+      case ZONED_DATETIME:
+      case DECIMAL:
+      case STRING:
+        writeString(value.toString(), out);
+        break;
+      case BYTE_ARRAY:
+        byte[] bytes = (byte[]) value;
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        break;
+      case MAP:
+      case LIST_MAP:
+        writeMap(field.getValueAsMap(), out);
+        break;
+      case LIST:
+        List<Field> list = field.getValueAsList();
+        out.writeInt(list.size());
+        for (Field element : list) {
+          writeField(element, out);
+        }
+        break;
+      default:
+        throw new IOException("Unsupported field type " + type);
+    }
+  }
+
+  public static Field readField(DataInput in) throws IOException {
+    int ordinal = in.readByte();
+    if (ordinal < 0 || ordinal >= TYPES.length) {
+      throw new IOException("Invalid field type " + ordinal);
+    }
+    Field.Type type = TYPES[ordinal];
+
+    int attributeCount = in.readInt();
+    Map<String, String> attributes = null;
+    if (attributeCount > 0) {
+      attributes = new LinkedHashMap<>();
+      for (int i = 0; i < attributeCount; i++) {
+        attributes.put(readString(in), readString(in));
+      }
+    }
+
+    Object value = null;
+    if (in.readBoolean()) {
+      switch (type) {
+        case BOOLEAN:
+          value = in.readBoolean();
+          break;
+        case CHAR:
+          value = in.readChar();
+          break;
+        case BYTE:
+          value = in.readByte();
+          break;
+        case SHORT:
+          value = in.readShort();
+          break;
+        case INTEGER:
+          value = in.readInt();
+          break;
+        case LONG:
+          value = in.readLong();
+          break;
+        case FLOAT:
+          value = in.readFloat();
+          break;
+        case DOUBLE:
+          value = in.readDouble();
+          break;
+        case DATE:
+        case DATETIME:
+        case TIME:
+          value = new Date(in.readLong());
+          break;
+        case ZONED_DATETIME:
+          value = ZonedDateTime.parse(readString(in));
+          break;
+        case DECIMAL:
+          value = new BigDecimal(readString(in));
+          break;
+        case STRING:
+          value = readString(in);
+          break;
+        case BYTE_ARRAY:
+          byte[] bytes = new byte[in.readInt()];
+          in.readFully(bytes);
+          value = bytes;
+          break;
+        case MAP:
+        case LIST_MAP:
+          value = readMap(in);
+          break;
+        case LIST:
+          int size = in.readInt();
+          List<Field> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readField(in));
+          }
+          value = list;
+          break;
+        default:
+          throw new IOException("Unsupported field type " + type);
+      }
+    }
+
+    Field field = Field.create(type, value);
+    if (attributes != null) {
+      attributes.forEach(field::setAttribute);
+    }
+    return field;
+  }
+
+  private static void writeMap(Map<String, Field> map, DataOutput out) throws IOException {
+    out.writeInt(map.size());
+    for (Map.Entry<String, Field> entry : map.entrySet()) {
+      writeString(entry.getKey(), out);
+      writeField(entry.getValue(), out);
+    }
+  }
+
+  private static Map<String, Field> readMap(DataInput in) throws IOException {
+    int size = in.readInt();
+    Map<String, Field> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readField(in));
+    }
+    return map;
+  }
+
+  // DataOutput.writeUTF() is limited to 64KB, which isn't enough for CLOB columns
+  static void writeString(String value, DataOutput out) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One namespace of the {@link LookupCacheService}: serialized values kept outside of the Java heap.
+ * <p/>
+ * Values are appended to a ring of direct byte buffer segments while only the key index lives on the heap. When the
+ * ring is full the oldest segment is recycled: values that were read since they were written and haven't expired yet
+ * are copied forward, everything else in the segment is evicted. Overwritten values simply become dead space that is
+ * reclaimed the same way.
+ * <p/>
+ * All methods are synchronized as a namespace is used by several pipelines at the same time.
+ */
+public final class LookupCacheNamespace {
+  private static final int MAX_SEGMENT_SIZE = 4 * 1024 * 1024;
+  private static final int MIN_SEGMENTS = 4;
+  private static final int SNAPSHOT_MAGIC = 0x53444c43;
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private static final class Entry {
+    private final String key;
+    private final int segment;
+    private final int offset;
+    private final int length;
+    private final long writeTime;
+    private boolean referenced;
+
+    private Entry(String key, int segment, int offset, int length, long writeTime) {
+      this.key = key;
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.writeTime = writeTime;
+    }
+  }
+
+  private final String name;
+  private final int maxEntries;
+  private final long expirationMillis;
+  private final int segmentSize;
+  private final ByteBuffer[] segments;
+  private final int[] segmentUsed;
+  private final List<List<Entry>> segmentEntries;
+  // Insertion ordered, the first entry is the oldest write
+  private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>();
+  private int head;
+  private long liveBytes;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+
+  LookupCacheNamespace(String name, int maxEntries, long maxBytes, long expirationMillis) {
+    this.name = name;
+    this.maxEntries = maxEntries;
+    this.expirationMillis = expirationMillis;
+    this.segmentSize = (int) Math.max(1, Math.min(MAX_SEGMENT_SIZE, maxBytes / MIN_SEGMENTS));
+    int segmentCount = (int) Math.max(MIN_SEGMENTS, maxBytes / segmentSize);
+    this.segments = new ByteBuffer[segmentCount];
+    this.segmentUsed = new int[segmentCount];
+    this.segmentEntries = new ArrayList<>(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      segmentEntries.add(new ArrayList<>());
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns a copy of the serialized value or null if the key isn't cached or has expired.
+   */
+  public byte[] get(String key) {
+    return get(key, System.currentTimeMillis());
+  }
+
+  @VisibleForTesting
+  synchronized byte[] get(String key, long now) {
+    Entry entry = index.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (isExpired(entry, now)) {
+      remove(entry);
+      expirations++;
+      misses++;
+      return null;
+    }
+    entry.referenced = true;
+    hits++;
+    return read(entry);
+  }
+
+  /**
+   * Stores the serialized value, returns false if the value is larger than a segment and can't be cached.
+   */
+  public boolean put(String key, byte[] value) {
+    return put(key, value, System.currentTimeMillis());
+  }
+
+  @VisibleForTesting
+  synchronized boolean put(String key, byte[] value, long now) {
+    return store(key, value, now, now);
+  }
+
+  private boolean store(String key, byte[] value, long writeTime, long now) {
+    if (value.length > segmentSize) {
+      return false;
+    }
+    Entry previous = index.get(key);
+    if (previous != null) {
+      remove(previous);
+    }
+    // Terminates as values copied forward by advance() are no longer referenced
+    while (segmentSize - segmentUsed[head] < value.length) {
+      advance(now);
+    }
+    append(key, value, writeTime);
+
+    Iterator<Entry> oldest = index.values().iterator();
+    while (index.size() > maxEntries && oldest.hasNext()) {
+      Entry entry = oldest.next();
+      oldest.remove();
+      liveBytes -= entry.length;
+      evictions++;
+    }
+    return true;
+  }
+
+  public synchronized void invalidate(String key) {
+    Entry entry = index.get(key);
+    if (entry != null) {
+      remove(entry);
+    }
+  }
+
+  public synchronized Stats getStats() {
+    long capacity = (long) segmentSize * segments.length;
+    return new Stats(index.size(), liveBytes, capacity, hits, misses, evictions, expirations);
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return now - entry.writeTime >= expirationMillis;
+  }
+
+  private void remove(Entry entry) {
+    index.remove(entry.key);
+    liveBytes -= entry.length;
+  }
+
+  private byte[] read(Entry entry) {
+    byte[] bytes = new byte[entry.length];
+    ByteBuffer buffer = segments[entry.segment].duplicate();
+    buffer.position(entry.offset);
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private void append(String key, byte[] value, long writeTime) {
+    if (segments[head] == null) {
+      segments[head] = ByteBuffer.allocateDirect(segmentSize);
+    }
+    ByteBuffer buffer = segments[head].duplicate();
+    buffer.position(segmentUsed[head]);
+    buffer.put(value);
+
+    Entry entry = new Entry(key, head, segmentUsed[head], value.length, writeTime);
+    segmentUsed[head] += value.length;
+    segmentEntries.get(head).add(entry);
+    index.put(key, entry);
+    liveBytes += value.length;
+  }
+
+  // Moves the write position to the next segment of the ring, recycling it if it's already in use
+  private void advance(long now) {
+    head = (head + 1) % segments.length;
+    if (segmentUsed[head] == 0) {
+      return;
+    }
+
+    List<Entry> survivors = new ArrayList<>();
+    List<byte[]> survivorValues = new ArrayList<>();
+    for (Entry entry : segmentEntries.get(head)) {
+      if (index.get(entry.key) != entry) {
+        // Overwritten, invalidated or already evicted
+        continue;
+      }
+      remove(entry);
+      if (isExpired(entry, now)) {
+        expirations++;
+      } else if (entry.referenced) {
+        survivors.add(entry);
+        survivorValues.add(read(entry));
+      } else {
+        evictions++;
+      }
+    }
+    segmentEntries.get(head).clear();
+    segmentUsed[head] = 0;
+
+    // Survivors come from this very segment so they always fit
+    for (int i = 0; i < survivors.size(); i++) {
+      Entry entry = survivors.get(i);
+      append(entry.key, survivorValues.get(i), entry.writeTime);
+    }
+  }
+
+  /**
+   * Writes all live values, oldest first.
+   */
+  synchronized void writeTo(DataOutputStream out) throws IOException {
+    out.writeInt(SNAPSHOT_MAGIC);
+    out.writeInt(SNAPSHOT_VERSION);
+    out.writeInt(index.size());
+    for (Entry entry : index.values()) {
+      FieldCodec.writeString(entry.key, out);
+      out.writeLong(entry.writeTime);
+      out.writeInt(entry.length);
+      out.write(read(entry));
+    }
+  }
+
+  /**
+   * Loads values written by {@link #writeTo(DataOutputStream)}, skipping the ones that expired in the meantime.
+   */
+  synchronized void readFrom(DataInputStream in) throws IOException {
+    if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+      throw new IOException("Not a lookup cache snapshot");
+    }
+    long now = System.currentTimeMillis();
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      String key = FieldCodec.readString(in);
+      long writeTime = in.readLong();
+      byte[] value = new byte[in.readInt()];
+      in.readFully(value);
+      if (now - writeTime < expirationMillis) {
+        store(key, value, writeTime, now);
+      }
+    }
+  }
+
+  synchronized void close() {
+    index.clear();
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = null;
+      segmentUsed[i] = 0;
+      segmentEntries.get(i).clear();
+    }
+    liveBytes = 0;
+  }
+
+  /**
+   * Point in time statistics of a namespace.
+   */
+  public static final class Stats {
+    private final long entries;
+    private final long bytes;
+    private final long capacity;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+
+    Stats(long entries, long bytes, long capacity, long hits, long misses, long evictions, long expirations) {
+      this.entries = entries;
+      this.bytes = bytes;
+      this.capacity = capacity;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.expirations = expirations;
+    }
+
+    public long getEntries() {
+      return entries;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getCapacity() {
+      return capacity;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getExpirations() {
+      return expirations;
+    }
+
+    public Map<String, Object> toGaugeMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      long lookups = hits + misses;
+      map.put("Entries", entries);
+      map.put("Off-Heap Bytes", bytes);
+      map.put("Hits", hits);
+      map.put("Misses", misses);
+      map.put("Hit Rate", lookups == 0 ? "0.00%" : String.format("%.2f%%", hits * 100.0 / lookups));
+      map.put("Evictions", evictions);
+      map.put("Expirations", expirations);
+      return map;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cache tier shared by all pipelines of the Data Collector that load the same stage library.
+ * <p/>
+ * Stages acquire a {@link LookupCacheNamespace} in init() and release it in destroy(). A namespace is identified by
+ * the user provided name and a fingerprint of the lookup definition (connection, query, type mappings, ...), so
+ * lookups returning different values never share entries even if they use the same name. The first stage to
+ * acquire a namespace defines its limits.
+ * <p/>
+ * When the last stage releases a namespace it is written to disk if persistence is enabled and kept in memory for a
+ * while, so that restarting a pipeline finds a warm cache. A background task closes it shortly after that retention
+ * time passes, freeing its off-heap memory even if no lookup stage starts again.
+ */
+public final class LookupCacheService {
+  private static final Logger LOG = LoggerFactory.getLogger(LookupCacheService.class);
+  private static final long IDLE_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final String SNAPSHOT_SUFFIX = ".cache";
+
+  private static final LookupCacheService INSTANCE = new LookupCacheService();
+
+  public static LookupCacheService get() {
+    return INSTANCE;
+  }
+
+  private static final class Holder {
+    private final LookupCacheNamespace namespace;
+    private final File snapshot;
+    private int references;
+    private long idleSince;
+
+    private Holder(LookupCacheNamespace namespace, File snapshot) {
+      this.namespace = namespace;
+      this.snapshot = snapshot;
+    }
+  }
+
+  private final Map<String, Holder> namespaces = new HashMap<>();
+  private final long idleRetentionMillis;
+
+  private LookupCacheService() {
+    this(IDLE_RETENTION_MILLIS);
+  }
+
+  @VisibleForTesting
+  LookupCacheService(long idleRetentionMillis) {
+    this.idleRetentionMillis = idleRetentionMillis;
+    ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Shared Lookup Cache Purger - %d").setDaemon(true).build()
+    );
+    long interval = Math.max(1, idleRetentionMillis / 10);
+    purger.scheduleWithFixedDelay(this::purgeIdle, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the namespace for the given configuration and lookup definition, creating it (and loading its snapshot
+   * if persistence is enabled) if needed.
+   *
+   * @param config shared cache configuration of the stage
+   * @param definition everything that determines the looked up values
+   * @param persistDirectory absolute directory for snapshots, ignored unless persistence is enabled
+   */
+  public synchronized LookupCacheNamespace acquire(SharedCacheConfig config, String definition, File persistDirectory) {
+    purgeIdle(System.currentTimeMillis());
+
+    String id = config.namespace + "-" + Hashing.sha256().hashString(definition, StandardCharsets.UTF_8).toString()
+        .substring(0, 16);
+    Holder holder = namespaces.get(id);
+    if (holder == null) {
+      LookupCacheNamespace namespace = new LookupCacheNamespace(
+          id,
+          config.maxEntries,
+          config.maxMemoryMB * 1024L * 1024L,
+          TimeUnit.SECONDS.toMillis(config.expirationSeconds)
+      );
+      File snapshot = null;
+      if (config.persist) {
+        snapshot = new File(persistDirectory, id.replaceAll("[^A-Za-z0-9_.-]", "_") + SNAPSHOT_SUFFIX);
+        load(namespace, snapshot);
+      }
+      holder = new Holder(namespace, snapshot);
+      namespaces.put(id, holder);
+      LOG.debug("Created shared lookup cache namespace '{}'", id);
+    }
+    holder.references++;
+    return holder.namespace;
+  }
+
+  /**
+   * Releases a namespace obtained from {@link #acquire(SharedCacheConfig, String, File)}.
+   */
+  public synchronized void release(LookupCacheNamespace namespace) {
+    long now = System.currentTimeMillis();
+    Holder holder = namespaces.get(namespace.getName());
+    if (holder != null && holder.namespace == namespace && --holder.references == 0) {
+      holder.idleSince = now;
+      if (holder.snapshot != null) {
+        save(namespace, holder.snapshot);
+      }
+    }
+    purgeIdle(now);
+  }
+
+  @VisibleForTesting
+  synchronized int getNamespaceCount() {
+    return namespaces.size();
+  }
+
+  private synchronized void purgeIdle() {
+    purgeIdle(System.currentTimeMillis());
+  }
+
+  private void purgeIdle(long now) {
+    Iterator<Holder> it = namespaces.values().iterator();
+    while (it.hasNext()) {
+      Holder holder = it.next();
+      if (holder.references == 0 && now - holder.idleSince >= idleRetentionMillis) {
+        it.remove();
+        holder.namespace.close();
+        LOG.debug("Closed idle shared lookup cache namespace '{}'", holder.namespace.getName());
+      }
+    }
+  }
+
+  private static void load(LookupCacheNamespace namespace, File snapshot) {
+    if (!snapshot.isFile()) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+      namespace.readFrom(in);
+      LOG.info(
+          "Loaded {} values into shared lookup cache '{}'",
+          namespace.getStats().getEntries(),
+          namespace.getName()
+      );
+    } catch (IOException ex) {
+      LOG.warn("Can't load shared lookup cache snapshot '{}', starting empty: {}", snapshot, ex.toString(), ex);
+      namespace.close();
+    }
+  }
+
+  private static void save(LookupCacheNamespace namespace, File snapshot) {
+    File tmp = new File(snapshot.getParentFile(), snapshot.getName() + ".tmp");
+    try {
+      Files.createDirectories(snapshot.getParentFile().toPath());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        namespace.writeTo(out);
+      }
+      Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      LOG.warn("Can't save shared lookup cache snapshot '{}': {}", snapshot, ex.toString(), ex);
+    }
+  }
+}
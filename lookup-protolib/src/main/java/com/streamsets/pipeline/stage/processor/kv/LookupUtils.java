@@ -56,6 +56,28 @@ public class LookupUtils {
     );
   }
 
+  /**
+   * Same as {@link #buildCache(CacheLoader, CacheConfig, Optional)} with the shared lookup cache as second tier
+   * between the stage's local cache and the loader. The shared tier is skipped if sharedCache is null.
+   */
+  @NotNull
+  public static<Value> LoadingCache<String, Optional<Value>> buildCache(
+    CacheLoader<String, Optional<Value>> cacheLoader,
+    CacheConfig conf,
+    Optional<Value> defaultValue,
+    LookupCacheNamespace sharedCache,
+    LookupValueCodec<Value> codec
+  ) {
+    if (sharedCache == null) {
+      return buildCache(cacheLoader, conf, defaultValue);
+    }
+    return buildCache(
+      new SharedTierCacheLoader<>(cacheLoader, sharedCache, codec, !conf.retryOnCacheMiss),
+      conf,
+      defaultValue
+    );
+  }
+
   private static CacheBuilder createBuilder(CacheConfig conf) {
     CacheBuilder cacheBuilder = CacheBuilder.newBuilder();
 
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes looked up values so that they can be kept in the shared off-heap cache.
+ * <p/>
+ * Implementations throw {@link IOException} for values they can't represent, such values are then simply not
+ * stored in the shared cache.
+ */
+public interface LookupValueCodec<Value> {
+
+  void write(Value value, DataOutput out) throws IOException;
+
+  Value read(DataInput in) throws IOException;
+
+}
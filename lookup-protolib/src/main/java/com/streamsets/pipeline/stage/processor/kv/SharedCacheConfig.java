@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import com.streamsets.pipeline.api.ConfigDef;
+import com.streamsets.pipeline.api.Stage;
+
+import java.io.File;
+import java.util.List;
+
+public class SharedCacheConfig {
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      label = "Share Cache Across Pipelines",
+      defaultValue = "false",
+      description = "Keep looked up values in an off-heap cache shared by all pipelines of this Data Collector that " +
+          "use the same namespace and lookup definition. Values survive pipeline restarts.",
+      displayPosition = 200,
+      group = "#0"
+  )
+  public boolean enabled = false;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.STRING,
+      label = "Cache Namespace",
+      defaultValue = "default",
+      description = "Name of the shared cache. Lookups only share values when they use the same namespace and the " +
+          "same lookup definition.",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 210,
+      group = "#0"
+  )
+  public String namespace = "default";
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      label = "Maximum Shared Entries",
+      defaultValue = "100000",
+      min = 1,
+      description = "Maximum number of values kept in the namespace. If exceeded, oldest values are evicted",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 220,
+      group = "#0"
+  )
+  public int maxEntries = 100000;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      label = "Maximum Off-Heap Memory (MB)",
+      defaultValue = "64",
+      min = 1,
+      description = "Maximum amount of off-heap memory used by the namespace",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 230,
+      group = "#0"
+  )
+  public int maxMemoryMB = 64;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.NUMBER,
+      label = "Shared Expiration Time (seconds)",
+      defaultValue = "3600",
+      min = 1,
+      description = "Time after which a value written to the namespace is looked up again",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 240,
+      group = "#0"
+  )
+  public long expirationSeconds = 3600;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      label = "Persist to Disk",
+      defaultValue = "false",
+      description = "Save the namespace to disk when the last pipeline using it stops and reload it on the next start",
+      dependsOn = "enabled",
+      triggeredByValue = "true",
+      displayPosition = 250,
+      group = "#0"
+  )
+  public boolean persist = false;
+
+  @ConfigDef(
+      required = true,
+      type = ConfigDef.Type.STRING,
+      label = "Persistence Directory",
+      defaultValue = "lookup-cache",
+      description = "Directory for the saved namespaces. Relative paths are resolved against the resources directory",
+      dependsOn = "persist",
+      triggeredByValue = "true",
+      displayPosition = 260,
+      group = "#0"
+  )
+  public String persistDirectory = "lookup-cache";
+
+  /**
+   * Acquires the shared namespace for the given lookup definition, returns null if the shared cache is disabled or
+   * the configuration is invalid in which case an issue is added.
+   * <p/>
+   * The namespace must be released with {@link LookupCacheService#release(LookupCacheNamespace)} in destroy().
+   */
+  public LookupCacheNamespace acquire(
+      Stage.Context context,
+      String group,
+      String configPrefix,
+      String definition,
+      List<Stage.ConfigIssue> issues
+  ) {
+    if (!enabled) {
+      return null;
+    }
+    File directory = null;
+    if (persist) {
+      directory = new File(persistDirectory);
+      if (!directory.isAbsolute()) {
+        directory = new File(context.getResourcesDirectory(), persistDirectory);
+      }
+      directory = directory.getAbsoluteFile();
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        issues.add(context.createConfigIssue(group, configPrefix + "persistDirectory", Errors.LOOKUP_04, directory));
+        return null;
+      }
+    }
+    return LookupCacheService.get().acquire(this, definition, directory);
+  }
+}
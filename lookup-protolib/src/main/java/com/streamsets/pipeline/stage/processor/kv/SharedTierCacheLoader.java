@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import com.google.common.cache.CacheLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Cache loader that consults the shared lookup cache before delegating to the stage's own loader, and stores what
+ * the stage loaded so that other pipelines can reuse it.
+ */
+final class SharedTierCacheLoader<Value> extends CacheLoader<String, Optional<Value>> {
+  private static final Logger LOG = LoggerFactory.getLogger(SharedTierCacheLoader.class);
+
+  private final CacheLoader<String, Optional<Value>> delegate;
+  private final LookupCacheNamespace namespace;
+  private final LookupValueCodec<Value> codec;
+  private final boolean cacheMissingValues;
+
+  SharedTierCacheLoader(
+      CacheLoader<String, Optional<Value>> delegate,
+      LookupCacheNamespace namespace,
+      LookupValueCodec<Value> codec,
+      boolean cacheMissingValues
+  ) {
+    this.delegate = delegate;
+    this.namespace = namespace;
+    this.codec = codec;
+    this.cacheMissingValues = cacheMissingValues;
+  }
+
+  @Override
+  public Optional<Value> load(String key) throws Exception {
+    byte[] bytes = namespace.get(key);
+    if (bytes != null) {
+      try {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        return in.readBoolean() ? Optional.of(codec.read(in)) : Optional.empty();
+      } catch (IOException ex) {
+        LOG.debug("Can't read shared lookup cache value for '{}', looking it up again", key, ex);
+        namespace.invalidate(key);
+      }
+    }
+
+    Optional<Value> value = delegate.load(key);
+    if (value.isPresent() || cacheMissingValues) {
+      try {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeBoolean(value.isPresent());
+        if (value.isPresent()) {
+          codec.write(value.get(), out);
+        }
+        out.flush();
+        namespace.put(key, buffer.toByteArray());
+      } catch (IOException ex) {
+        LOG.debug("Value for '{}' can't be stored in the shared lookup cache", key, ex);
+      }
+    }
+    return value;
+  }
+}
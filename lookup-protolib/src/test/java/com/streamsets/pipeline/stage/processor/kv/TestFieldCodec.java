@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.streamsets.pipeline.api.Field;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestFieldCodec {
+
+  private static Map<Field.Type, Object> sampleValues() {
+    Map<String, Field> map = new LinkedHashMap<>();
+    map.put("a", Field.create(1));
+    map.put("b", Field.create("b"));
+
+    Map<Field.Type, Object> values = new EnumMap<>(Field.Type.class);
+    values.put(Field.Type.BOOLEAN, true);
+    values.put(Field.Type.CHAR, 'c');
+    values.put(Field.Type.BYTE, (byte) -3);
+    values.put(Field.Type.SHORT, (short) 1234);
+    values.put(Field.Type.INTEGER, Integer.MIN_VALUE);
+    values.put(Field.Type.LONG, Long.MAX_VALUE);
+    values.put(Field.Type.FLOAT, 1.5f);
+    values.put(Field.Type.DOUBLE, -2.25d);
+    values.put(Field.Type.DATE, new Date(1577836800000L));
+    values.put(Field.Type.DATETIME, new Date(1577836800123L));
+    values.put(Field.Type.TIME, new Date(45296789L));
+    values.put(
+        Field.Type.ZONED_DATETIME,
+        ZonedDateTime.of(2020, 3, 29, 1, 30, 0, 500, ZoneId.of("Europe/Prague"))
+    );
+    values.put(Field.Type.DECIMAL, new BigDecimal("12345678901234567890.0100"));
+    values.put(Field.Type.STRING, "multi-byte \u017elu\u0165ou\u010dk\u00fd \ud83d\ude00");
+    values.put(Field.Type.BYTE_ARRAY, new byte[]{0, 1, -1, 127});
+    values.put(Field.Type.MAP, map);
+    values.put(Field.Type.LIST_MAP, new LinkedHashMap<>(map));
+    values.put(Field.Type.LIST, ImmutableList.of(Field.create(1L), Field.create(Field.Type.STRING, null)));
+    return values;
+  }
+
+  private static Field roundTrip(Field field) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    FieldCodec.FIELD.write(field, new DataOutputStream(bytes));
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    Field read = FieldCodec.FIELD.read(in);
+    Assert.assertEquals(-1, in.read());
+    return read;
+  }
+
+  private static void assertRoundTrip(Field field) throws IOException {
+    Field read = roundTrip(field);
+    Assert.assertEquals(field.getType(), read.getType());
+    Assert.assertEquals(field.getAttributes(), read.getAttributes());
+    if (field.getType() == Field.Type.BYTE_ARRAY && field.getValue() != null) {
+      Assert.assertArrayEquals((byte[]) field.getValue(), (byte[]) read.getValue());
+    } else {
+      Assert.assertEquals(field.getValue(), read.getValue());
+    }
+  }
+
+  @Test
+  public void testEveryType() throws IOException {
+    Map<Field.Type, Object> values = sampleValues();
+    for (Field.Type type : Field.Type.values()) {
+      if (type == Field.Type.FILE_REF) {
+        continue;
+      }
+      Assert.assertTrue("No sample value for " + type, values.containsKey(type));
+      assertRoundTrip(Field.create(type, values.get(type)));
+    }
+  }
+
+  @Test
+  public void testNullValues() throws IOException {
+    for (Field.Type type : Field.Type.values()) {
+      if (type != Field.Type.FILE_REF) {
+        assertRoundTrip(Field.create(type, null));
+      }
+    }
+  }
+
+  @Test
+  public void testAttributes() throws IOException {
+    Field nested = Field.create("nested");
+    nested.setAttribute("inner", "1");
+    Field field = Field.create(ImmutableMap.of("nested", nested));
+    field.setAttribute("outer", "2");
+    field.setAttribute("empty", "");
+
+    Field read = roundTrip(field);
+    Assert.assertEquals(field.getAttributes(), read.getAttributes());
+    Assert.assertEquals(nested.getAttributes(), read.getValueAsMap().get("nested").getAttributes());
+  }
+
+  @Test
+  public void testRows() throws IOException {
+    List<Map<String, Field>> rows = ImmutableList.of(
+        ImmutableMap.of("id", Field.create(1), "name", Field.create("one")),
+        ImmutableMap.of("id", Field.create(2), "name", Field.create(Field.Type.STRING, null))
+    );
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    FieldCodec.ROWS.write(rows, new DataOutputStream(bytes));
+    List<Map<String, Field>> read =
+        FieldCodec.ROWS.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    Assert.assertEquals(rows, read);
+  }
+
+  @Test
+  public void testLongString() throws IOException {
+    // Longer than the 64KB supported by DataOutput.writeUTF()
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 70000; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    assertRoundTrip(Field.create(sb.toString()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testFileRefRejected() throws IOException {
+    FieldCodec.FIELD.write(Field.create(Field.Type.FILE_REF, null), new DataOutputStream(new ByteArrayOutputStream()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidType() throws IOException {
+    FieldCodec.FIELD.read(new DataInputStream(new ByteArrayInputStream(new byte[]{(byte) 120, 0, 0, 0, 0, 0})));
+  }
+}
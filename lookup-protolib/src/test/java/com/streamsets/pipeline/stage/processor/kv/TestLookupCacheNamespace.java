@@ -0,0 +1,287 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TestLookupCacheNamespace {
+  private static final long HOUR = 3600 * 1000L;
+
+  private static byte[] value(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String get(LookupCacheNamespace namespace, String key, long now) {
+    byte[] value = namespace.get(key, now);
+    return value == null ? null : new String(value, StandardCharsets.UTF_8);
+  }
+
+  // 4 segments of 10 bytes, each holds two of the 5 byte values used below
+  private static LookupCacheNamespace createSmall(int maxEntries) {
+    return new LookupCacheNamespace("test", maxEntries, 40, HOUR);
+  }
+
+  private static void fill(LookupCacheNamespace namespace, int from, int to) {
+    for (int i = from; i < to; i++) {
+      Assert.assertTrue(namespace.put("k" + i, value("val-" + i), 0));
+    }
+  }
+
+  @Test
+  public void testPutGet() {
+    LookupCacheNamespace namespace = createSmall(100);
+    Assert.assertTrue(namespace.put("a", value("va"), 0));
+    Assert.assertEquals("va", get(namespace, "a", 1));
+    Assert.assertNull(get(namespace, "b", 1));
+
+    LookupCacheNamespace.Stats stats = namespace.getStats();
+    Assert.assertEquals(1, stats.getEntries());
+    Assert.assertEquals(2, stats.getBytes());
+    Assert.assertEquals(40, stats.getCapacity());
+    Assert.assertEquals(1, stats.getHits());
+    Assert.assertEquals(1, stats.getMisses());
+  }
+
+  @Test
+  public void testOverwriteAndInvalidate() {
+    LookupCacheNamespace namespace = createSmall(100);
+    namespace.put("a", value("first"), 0);
+    namespace.put("a", value("2nd"), 0);
+    Assert.assertEquals("2nd", get(namespace, "a", 1));
+    Assert.assertEquals(1, namespace.getStats().getEntries());
+    Assert.assertEquals(3, namespace.getStats().getBytes());
+
+    namespace.invalidate("a");
+    Assert.assertNull(get(namespace, "a", 1));
+    Assert.assertEquals(0, namespace.getStats().getEntries());
+    Assert.assertEquals(0, namespace.getStats().getBytes());
+  }
+
+  @Test
+  public void testValueLargerThanSegment() {
+    LookupCacheNamespace namespace = createSmall(100);
+    Assert.assertFalse(namespace.put("a", new byte[11], 0));
+    Assert.assertNull(get(namespace, "a", 1));
+    Assert.assertTrue(namespace.put("a", new byte[10], 0));
+  }
+
+  @Test
+  public void testSegmentRecycling() {
+    LookupCacheNamespace namespace = createSmall(100);
+    fill(namespace, 0, 8);
+    Assert.assertEquals(8, namespace.getStats().getEntries());
+    Assert.assertEquals(0, namespace.getStats().getEvictions());
+
+    // k0 was read, k1 wasn't, both live in the oldest segment which is recycled by the next write
+    Assert.assertEquals("val-0", get(namespace, "k0", 1));
+    fill(namespace, 8, 9);
+
+    Assert.assertEquals("val-0", get(namespace, "k0", 1));
+    Assert.assertNull(get(namespace, "k1", 1));
+    Assert.assertEquals("val-8", get(namespace, "k8", 1));
+    Assert.assertEquals(8, namespace.getStats().getEntries());
+    Assert.assertEquals(1, namespace.getStats().getEvictions());
+
+    // Unread values in the next segment are evicted, other segments are left alone
+    fill(namespace, 9, 10);
+    Assert.assertNull(get(namespace, "k2", 1));
+    Assert.assertNull(get(namespace, "k3", 1));
+    for (int i = 4; i < 10; i++) {
+      Assert.assertEquals("val-" + i, get(namespace, "k" + i, 1));
+    }
+    Assert.assertEquals(7, namespace.getStats().getEntries());
+    Assert.assertEquals(3, namespace.getStats().getEvictions());
+  }
+
+  @Test
+  public void testCopiedForwardValueMustBeReadAgain() {
+    LookupCacheNamespace namespace = createSmall(100);
+    fill(namespace, 0, 8);
+    get(namespace, "k0", 1);
+    // k0 is copied forward once, then evicted when its new segment is recycled without being read in between
+    fill(namespace, 8, 16);
+    Assert.assertNull(get(namespace, "k0", 1));
+  }
+
+  @Test
+  public void testRecyclingAllReferenced() {
+    LookupCacheNamespace namespace = createSmall(100);
+    fill(namespace, 0, 8);
+    for (int i = 0; i < 8; i++) {
+      get(namespace, "k" + i, 1);
+    }
+    // Every value survives the first pass around the ring, the copies of k0 and k1 make room on the second one
+    fill(namespace, 8, 9);
+    Assert.assertEquals("val-8", get(namespace, "k8", 1));
+    Assert.assertNull(get(namespace, "k0", 1));
+    Assert.assertNull(get(namespace, "k1", 1));
+    for (int i = 2; i < 8; i++) {
+      Assert.assertEquals("val-" + i, get(namespace, "k" + i, 1));
+    }
+    Assert.assertEquals(7, namespace.getStats().getEntries());
+    Assert.assertEquals(2, namespace.getStats().getEvictions());
+  }
+
+  @Test
+  public void testRecyclingSkipsOverwrittenValues() {
+    LookupCacheNamespace namespace = createSmall(100);
+    fill(namespace, 0, 8);
+    get(namespace, "k0", 1);
+    // The referenced k0 in the oldest segment is dead space once overwritten
+    namespace.put("k0", value("new-0"), 0);
+    Assert.assertEquals("new-0", get(namespace, "k0", 1));
+    Assert.assertNull(get(namespace, "k1", 1));
+    Assert.assertEquals(7, namespace.getStats().getEntries());
+    Assert.assertEquals(35, namespace.getStats().getBytes());
+    Assert.assertEquals(1, namespace.getStats().getEvictions());
+  }
+
+  @Test
+  public void testExpiredValuesNotCopiedForward() {
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 100, 40, 10);
+    fill(namespace, 0, 8);
+    get(namespace, "k0", 1);
+    Assert.assertTrue(namespace.put("k8", value("val-8"), 20));
+    Assert.assertNull(get(namespace, "k0", 20));
+    Assert.assertEquals(2, namespace.getStats().getExpirations());
+  }
+
+  @Test
+  public void testMaxEntries() {
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 3, 1024 * 1024, HOUR);
+    fill(namespace, 0, 3);
+    // Reads don't change the order, the oldest write goes first
+    get(namespace, "k0", 1);
+    fill(namespace, 3, 5);
+
+    Assert.assertNull(get(namespace, "k0", 1));
+    Assert.assertNull(get(namespace, "k1", 1));
+    for (int i = 2; i < 5; i++) {
+      Assert.assertEquals("val-" + i, get(namespace, "k" + i, 1));
+    }
+    Assert.assertEquals(3, namespace.getStats().getEntries());
+    Assert.assertEquals(15, namespace.getStats().getBytes());
+    Assert.assertEquals(2, namespace.getStats().getEvictions());
+  }
+
+  @Test
+  public void testExpirationOnGet() {
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 100, 1024, 1000);
+    namespace.put("a", value("va"), 100);
+    Assert.assertEquals("va", get(namespace, "a", 1099));
+    Assert.assertNull(get(namespace, "a", 1100));
+    Assert.assertEquals(0, namespace.getStats().getEntries());
+    Assert.assertEquals(1, namespace.getStats().getExpirations());
+    Assert.assertEquals(1, namespace.getStats().getMisses());
+  }
+
+  private static byte[] snapshot(LookupCacheNamespace namespace) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      namespace.writeTo(out);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void load(LookupCacheNamespace namespace, byte[] snapshot) throws IOException {
+    namespace.readFrom(new DataInputStream(new ByteArrayInputStream(snapshot)));
+  }
+
+  @Test
+  public void testSnapshotRoundTrip() throws IOException {
+    long now = System.currentTimeMillis();
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 100, 1024, HOUR);
+    namespace.put("a", value("va"), now - 2);
+    namespace.put("b", new byte[0], now - 1);
+    namespace.put("c", value("vc"), now);
+    namespace.invalidate("c");
+
+    LookupCacheNamespace loaded = new LookupCacheNamespace("test", 100, 1024, HOUR);
+    load(loaded, snapshot(namespace));
+    Assert.assertEquals(2, loaded.getStats().getEntries());
+    Assert.assertEquals("va", get(loaded, "a", now));
+    Assert.assertEquals("", get(loaded, "b", now));
+    Assert.assertNull(get(loaded, "c", now));
+
+    // Write times are kept, so values don't live longer because they went through a snapshot
+    Assert.assertNull(get(loaded, "a", now - 2 + HOUR));
+  }
+
+  @Test
+  public void testSnapshotSkipsExpired() throws IOException {
+    long now = System.currentTimeMillis();
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 100, 1024, 10000);
+    namespace.put("old", value("vo"), now - 20000);
+    namespace.put("new", value("vn"), now);
+
+    LookupCacheNamespace loaded = new LookupCacheNamespace("test", 100, 1024, 10000);
+    load(loaded, snapshot(namespace));
+    Assert.assertEquals(1, loaded.getStats().getEntries());
+    Assert.assertNull(get(loaded, "old", now));
+    Assert.assertEquals("vn", get(loaded, "new", now));
+  }
+
+  @Test
+  public void testSnapshotIntoSmallerNamespace() throws IOException {
+    long now = System.currentTimeMillis();
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 100, 1024, HOUR);
+    for (int i = 0; i < 10; i++) {
+      namespace.put("k" + i, value("val-" + i), now);
+    }
+
+    LookupCacheNamespace loaded = new LookupCacheNamespace("test", 4, 1024, HOUR);
+    load(loaded, snapshot(namespace));
+    Assert.assertEquals(4, loaded.getStats().getEntries());
+    Assert.assertEquals("val-9", get(loaded, "k9", now));
+    Assert.assertNull(get(loaded, "k0", now));
+  }
+
+  @Test(expected = IOException.class)
+  public void testSnapshotBadMagic() throws IOException {
+    load(new LookupCacheNamespace("test", 100, 1024, HOUR), new byte[]{1, 2, 3, 4, 0, 0, 0, 1});
+  }
+
+  @Test(expected = IOException.class)
+  public void testSnapshotTruncated() throws IOException {
+    LookupCacheNamespace namespace = new LookupCacheNamespace("test", 100, 1024, HOUR);
+    namespace.put("a", value("va"), System.currentTimeMillis());
+    byte[] snapshot = snapshot(namespace);
+    load(new LookupCacheNamespace("test", 100, 1024, HOUR), Arrays.copyOf(snapshot, snapshot.length - 1));
+  }
+
+  @Test
+  public void testClose() {
+    LookupCacheNamespace namespace = createSmall(100);
+    fill(namespace, 0, 8);
+    namespace.close();
+    Assert.assertEquals(0, namespace.getStats().getEntries());
+    Assert.assertEquals(0, namespace.getStats().getBytes());
+    Assert.assertNull(get(namespace, "k7", 1));
+
+    // Still usable, the segments are allocated again
+    fill(namespace, 0, 9);
+    Assert.assertEquals("val-8", get(namespace, "k8", 1));
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.processor.kv;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class TestLookupCacheService {
+  private File persistDir;
+
+  @Before
+  public void setUp() {
+    persistDir = new File("target", UUID.randomUUID().toString()).getAbsoluteFile();
+  }
+
+  private static SharedCacheConfig createConfig(boolean persist) {
+    SharedCacheConfig config = new SharedCacheConfig();
+    config.enabled = true;
+    config.namespace = "test";
+    config.maxEntries = 100;
+    config.maxMemoryMB = 1;
+    config.expirationSeconds = 3600;
+    config.persist = persist;
+    return config;
+  }
+
+  private static LookupCacheService createService() {
+    return new LookupCacheService(TimeUnit.HOURS.toMillis(1));
+  }
+
+  private static byte[] value(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testAcquireRelease() {
+    LookupCacheService service = createService();
+    SharedCacheConfig config = createConfig(false);
+
+    LookupCacheNamespace ns1 = service.acquire(config, "select 1", persistDir);
+    LookupCacheNamespace ns2 = service.acquire(config, "select 1", persistDir);
+    LookupCacheNamespace other = service.acquire(config, "select 2", persistDir);
+    Assert.assertSame(ns1, ns2);
+    Assert.assertNotSame(ns1, other);
+    Assert.assertTrue(ns1.getName().startsWith("test-"));
+    Assert.assertEquals(2, service.getNamespaceCount());
+
+    ns1.put("a", value("va"));
+    service.release(ns1);
+    service.release(ns2);
+    service.release(other);
+
+    // Idle namespaces are retained, so a restarted pipeline finds the cached values
+    LookupCacheNamespace ns3 = service.acquire(config, "select 1", persistDir);
+    Assert.assertSame(ns1, ns3);
+    Assert.assertArrayEquals(value("va"), ns3.get("a"));
+    Assert.assertFalse(persistDir.exists());
+  }
+
+  @Test
+  public void testIdleNamespacePurged() throws Exception {
+    LookupCacheService service = new LookupCacheService(100);
+    SharedCacheConfig config = createConfig(false);
+
+    LookupCacheNamespace idle = service.acquire(config, "select 1", persistDir);
+    LookupCacheNamespace used = service.acquire(config, "select 2", persistDir);
+    idle.put("a", value("va"));
+    used.put("a", value("va"));
+    service.release(idle);
+
+    // No further acquire() or release() calls, the namespace is purged in the background
+    long deadline = System.currentTimeMillis() + 10000;
+    while (service.getNamespaceCount() > 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(1, service.getNamespaceCount());
+    Assert.assertEquals(0, idle.getStats().getEntries());
+    Assert.assertArrayEquals(value("va"), used.get("a"));
+
+    Assert.assertNotSame(idle, service.acquire(config, "select 1", persistDir));
+  }
+
+  @Test
+  public void testSnapshotRoundTrip() {
+    SharedCacheConfig config = createConfig(true);
+
+    LookupCacheService service = createService();
+    LookupCacheNamespace namespace = service.acquire(config, "select 1", persistDir);
+    namespace.put("a", value("va"));
+    namespace.put("b", value("vb"));
+    service.release(namespace);
+    Assert.assertEquals(1, persistDir.list().length);
+
+    // A new Data Collector run starts with the values of the previous one
+    LookupCacheNamespace loaded = createService().acquire(config, "select 1", persistDir);
+    Assert.assertNotSame(namespace, loaded);
+    Assert.assertEquals(2, loaded.getStats().getEntries());
+    Assert.assertArrayEquals(value("va"), loaded.get("a"));
+    Assert.assertArrayEquals(value("vb"), loaded.get("b"));
+
+    // Snapshots of other lookup definitions aren't used
+    Assert.assertEquals(0, createService().acquire(config, "select 2", persistDir).getStats().getEntries());
+  }
+
+  @Test
+  public void testCorruptSnapshot() throws IOException {
+    SharedCacheConfig config = createConfig(true);
+
+    LookupCacheService service = createService();
+    LookupCacheNamespace namespace = service.acquire(config, "select 1", persistDir);
+    for (int i = 0; i < 10; i++) {
+      namespace.put("k" + i, value("val-" + i));
+    }
+    service.release(namespace);
+
+    File snapshot = persistDir.listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    // Nothing of a partially read snapshot is used
+    LookupCacheNamespace loaded = createService().acquire(config, "select 1", persistDir);
+    Assert.assertEquals(0, loaded.getStats().getEntries());
+    Assert.assertNull(loaded.get("k0"));
+    loaded.put("k0", value("new-0"));
+    Assert.assertArrayEquals(value("new-0"), loaded.get("k0"));
+  }
+}
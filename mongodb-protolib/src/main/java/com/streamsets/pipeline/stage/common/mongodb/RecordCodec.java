@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.common.mongodb;
+
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import org.bson.BsonBinary;
+import org.bson.BsonReader;
+import org.bson.BsonSerializationException;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a record straight into a {@link BsonWriter} without going through an intermediate JSON
+ * representation.
+ *
+ * By default the values are written with the same BSON types that parsing the record's JSON
+ * representation gives: dates as epoch milliseconds, decimals as doubles, byte arrays as base64
+ * strings and integral numbers as 32-bit integers when they fit. With native types, dates are
+ * written as BSON dates, decimals as {@link Decimal128} and byte arrays as binary data.
+ * The root field of the record must be a MAP or LIST_MAP.
+ */
+public class RecordCodec implements Codec<Record> {
+
+  private final boolean nativeTypes;
+
+  public RecordCodec() {
+    this(false);
+  }
+
+  public RecordCodec(boolean nativeTypes) {
+    this.nativeTypes = nativeTypes;
+  }
+
+  @Override
+  public void encode(BsonWriter writer, Record record, EncoderContext encoderContext) {
+    Field root = record.get();
+    if (root == null || root.getValue() == null ||
+        (root.getType() != Field.Type.MAP && root.getType() != Field.Type.LIST_MAP)) {
+      throw new BsonSerializationException(
+          "Root field must be a MAP or LIST_MAP, found " + (root == null ? "null" : root.getType())
+      );
+    }
+    writeField(writer, root);
+  }
+
+  @Override
+  public Record decode(BsonReader reader, DecoderContext decoderContext) {
+    throw new UnsupportedOperationException("Decoding records is not supported");
+  }
+
+  @Override
+  public Class<Record> getEncoderClass() {
+    return Record.class;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void writeField(BsonWriter writer, Field field) {
+    if (field.getValue() == null) {
+      writer.writeNull();
+      return;
+    }
+    if (!nativeTypes && writeJsonCompatibleField(writer, field)) {
+      return;
+    }
+    switch (field.getType()) {
+      case MAP:
+      case LIST_MAP:
+        writer.writeStartDocument();
+        for (Map.Entry<String, Field> entry : ((Map<String, Field>) field.getValue()).entrySet()) {
+          writer.writeName(entry.getKey());
+          writeField(writer, entry.getValue());
+        }
+        writer.writeEndDocument();
+        break;
+      case LIST:
+        writer.writeStartArray();
+        for (Field element : (List<Field>) field.getValue()) {
+          writeField(writer, element);
+        }
+        writer.writeEndArray();
+        break;
+      case BOOLEAN:
+        writer.writeBoolean(field.getValueAsBoolean());
+        break;
+      case CHAR:
+      case STRING:
+        writer.writeString(field.getValueAsString());
+        break;
+      case BYTE:
+      case SHORT:
+      case INTEGER:
+        writer.writeInt32(field.getValueAsInteger());
+        break;
+      case LONG:
+        writer.writeInt64(field.getValueAsLong());
+        break;
+      case FLOAT:
+      case DOUBLE:
+        writer.writeDouble(field.getValueAsDouble());
+        break;
+      case DECIMAL:
+        writer.writeDecimal128(new Decimal128((BigDecimal) field.getValue()));
+        break;
+      case DATE:
+      case DATETIME:
+      case TIME:
+        writer.writeDateTime(((Date) field.getValue()).getTime());
+        break;
+      case ZONED_DATETIME:
+        writer.writeString(((ZonedDateTime) field.getValue()).format(DateTimeFormatter.ISO_ZONED_DATE_TIME));
+        break;
+      case BYTE_ARRAY:
+        writer.writeBinaryData(new BsonBinary(field.getValueAsByteArray()));
+        break;
+      default:
+        throw new BsonSerializationException("Unsupported field type " + field.getType());
+    }
+  }
+
+  /**
+   * Writes the field the way Document.parse() reads it from the JSON data generator output, which is how
+   * records were stored before they were encoded directly.
+   *
+   * @return false if the field is written the same way in both modes
+   */
+  private static boolean writeJsonCompatibleField(BsonWriter writer, Field field) {
+    switch (field.getType()) {
+      case BYTE:
+        writer.writeString(Base64.getEncoder().encodeToString(new byte[] {field.getValueAsByte()}));
+        return true;
+      case LONG:
+        writeIntegral(writer, field.getValueAsLong());
+        return true;
+      case FLOAT:
+        writer.writeDouble(Double.parseDouble(Float.toString(field.getValueAsFloat())));
+        return true;
+      case DECIMAL:
+        String decimal = field.getValueAsDecimal().toString();
+        if (decimal.indexOf('.') >= 0 || decimal.indexOf('E') >= 0) {
+          writer.writeDouble(Double.parseDouble(decimal));
+        } else {
+          writeIntegral(writer, Long.parseLong(decimal));
+        }
+        return true;
+      case DATE:
+      case DATETIME:
+      case TIME:
+        writeIntegral(writer, ((Date) field.getValue()).getTime());
+        return true;
+      case BYTE_ARRAY:
+        writer.writeString(Base64.getEncoder().encodeToString(field.getValueAsByteArray()));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static void writeIntegral(BsonWriter writer, long value) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      writer.writeInt32((int) value);
+    } else {
+      writer.writeInt64(value);
+    }
+  }
+}
@@ -15,10 +15,14 @@
  */
 package com.streamsets.pipeline.stage.destination.mongodb;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.InsertOneModel;
 import com.mongodb.client.model.ReplaceOneModel;
@@ -30,43 +34,43 @@ import com.streamsets.pipeline.api.Record;
 import com.streamsets.pipeline.api.StageException;
 import com.streamsets.pipeline.api.base.BaseTarget;
 import com.streamsets.pipeline.api.base.OnRecordErrorException;
-import com.streamsets.pipeline.api.ext.json.Mode;
 import com.streamsets.pipeline.api.impl.Utils;
-import com.streamsets.pipeline.config.DataFormat;
-import com.streamsets.pipeline.lib.generator.DataGenerator;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactory;
-import com.streamsets.pipeline.lib.generator.DataGeneratorFactoryBuilder;
 import com.streamsets.pipeline.lib.operation.OperationType;
 import com.streamsets.pipeline.stage.common.DefaultErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.ErrorRecordHandler;
 import com.streamsets.pipeline.stage.common.mongodb.Errors;
+import com.streamsets.pipeline.stage.common.mongodb.RecordCodec;
 import org.apache.commons.io.IOUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonSerializationException;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 public class MongoDBTarget extends BaseTarget {
   private static final Logger LOG = LoggerFactory.getLogger(MongoDBTarget.class);
 
-  public static final int DEFAULT_CAPACITY = 1024;
-
   private final MongoTargetConfigBean mongoTargetConfigBean;
+  private final RecordCodec recordCodec;
   private MongoClient mongoClient;
-  private MongoCollection<Document> mongoCollection;
+  private MongoCollection<RawBsonDocument> mongoCollection;
   private ErrorRecordHandler errorRecordHandler;
-  private DataGeneratorFactory generatorFactory;
+  private ExecutorService writeExecutor;
 
   public MongoDBTarget(MongoTargetConfigBean mongoTargetConfigBean) {
     this.mongoTargetConfigBean = mongoTargetConfigBean;
+    this.recordCodec = new RecordCodec(mongoTargetConfigBean.nativeBsonTypes);
   }
 
   @SuppressWarnings("unchecked")
@@ -88,21 +92,25 @@ public class MongoDBTarget extends BaseTarget {
     // since no issue was found in validation, the followings must not be null at this point.
     Utils.checkNotNull(mongoTargetConfigBean.mongoConfig.getMongoDatabase(), "MongoDatabase");
     mongoClient = Utils.checkNotNull(mongoTargetConfigBean.mongoConfig.getMongoClient(), "MongoClient");
-    mongoCollection = Utils.checkNotNull(mongoTargetConfigBean.mongoConfig.getMongoCollection(), "MongoCollection");
+    // Records are encoded by RecordCodec into raw BSON, which the driver then sends as is
+    mongoCollection = Utils.checkNotNull(mongoTargetConfigBean.mongoConfig.getMongoCollection(), "MongoCollection")
+        .withDocumentClass(RawBsonDocument.class);
 
-    DataGeneratorFactoryBuilder builder = new DataGeneratorFactoryBuilder(
-        getContext(),
-        DataFormat.JSON.getGeneratorFormat()
-    );
-    builder.setCharset(StandardCharsets.UTF_8);
-    builder.setMode(Mode.MULTIPLE_OBJECTS);
-    generatorFactory = builder.build();
+    if (mongoTargetConfigBean.unorderedWrites && mongoTargetConfigBean.writeThreads > 1) {
+      writeExecutor = Executors.newFixedThreadPool(
+          mongoTargetConfigBean.writeThreads,
+          new ThreadFactoryBuilder().setNameFormat("MongoDB Write Thread - %d").setDaemon(true).build()
+      );
+    }
 
     return issues;
   }
 
   @Override
   public void destroy() {
+    if (writeExecutor != null) {
+      writeExecutor.shutdownNow();
+    }
     IOUtils.closeQuietly(mongoClient);
     super.destroy();
   }
@@ -110,16 +118,12 @@ public class MongoDBTarget extends BaseTarget {
   @Override
   public void write(Batch batch) throws StageException {
     Iterator<Record> records = batch.getRecords();
-    List<WriteModel<Document>> documentList = new ArrayList<>();
+    List<WriteModel<RawBsonDocument>> documentList = new ArrayList<>();
     List<Record> recordList = new ArrayList<>();
     while (records.hasNext()) {
       Record record = records.next();
       try {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(DEFAULT_CAPACITY);
-        DataGenerator generator = generatorFactory.getGenerator(baos);
-        generator.write(record);
-        generator.close();
-        Document document = Document.parse(new String(baos.toByteArray()));
+        RawBsonDocument document = new RawBsonDocument(record, recordCodec);
 
         // create a write model based on record header
         if (isNullOrEmpty(record.getHeader().getAttribute(OperationType.SDC_OPERATION_TYPE))) {
@@ -167,7 +171,7 @@ public class MongoDBTarget extends BaseTarget {
             documentList.add(
                 new UpdateOneModel<>(
                     updateKey,
-                    new Document("$set", document),
+                    new BsonDocument("$set", document),
                     new UpdateOptions().upsert(mongoTargetConfigBean.isUpsert)
                 )
             );
@@ -180,7 +184,7 @@ public class MongoDBTarget extends BaseTarget {
             LOG.error(Errors.MONGODB_14.getMessage(), operation, record.getHeader().getSourceId());
             throw new StageException(Errors.MONGODB_14, operation, record.getHeader().getSourceId());
         }
-      } catch (IOException | StageException | NumberFormatException e) {
+      } catch (BsonSerializationException | StageException | NumberFormatException e) {
         errorRecordHandler.onError(
             new OnRecordErrorException(
                 record,
@@ -193,28 +197,101 @@ public class MongoDBTarget extends BaseTarget {
     }
 
     if (!documentList.isEmpty()) {
+      List<OnRecordErrorException> errors;
+      if (writeExecutor != null && documentList.size() > 1) {
+        errors = parallelBulkWrite(documentList, recordList);
+      } else {
+        errors = bulkWrite(documentList, recordList);
+      }
+      for (OnRecordErrorException error : errors) {
+        errorRecordHandler.onError(error);
+      }
+    }
+  }
+
+  /**
+   * Splits the write models of the batch into one contiguous chunk per write thread and sends each chunk
+   * as an unordered bulk write of its own.
+   */
+  private List<OnRecordErrorException> parallelBulkWrite(
+      List<WriteModel<RawBsonDocument>> documentList,
+      List<Record> recordList
+  ) throws StageException {
+    int splits = Math.min(mongoTargetConfigBean.writeThreads, documentList.size());
+    int splitSize = (documentList.size() + splits - 1) / splits;
+    List<Future<List<OnRecordErrorException>>> futures = new ArrayList<>(splits);
+    for (int from = 0; from < documentList.size(); from += splitSize) {
+      int to = Math.min(from + splitSize, documentList.size());
+      List<WriteModel<RawBsonDocument>> documents = documentList.subList(from, to);
+      List<Record> records = recordList.subList(from, to);
+      futures.add(writeExecutor.submit(() -> bulkWrite(documents, records)));
+    }
+
+    List<OnRecordErrorException> errors = new ArrayList<>();
+    for (Future<List<OnRecordErrorException>> future : futures) {
       try {
-        BulkWriteResult bulkWriteResult = mongoCollection.bulkWrite(documentList);
-        if (bulkWriteResult.wasAcknowledged()) {
-          LOG.trace(
-              "Wrote batch with {} inserts, {} updates and {} deletes",
-              bulkWriteResult.getInsertedCount(),
-              bulkWriteResult.getModifiedCount(),
-              bulkWriteResult.getDeletedCount()
-          );
-        }
-      } catch (MongoException e) {
-        for (Record record : recordList) {
-          errorRecordHandler.onError(
-              new OnRecordErrorException(
-                  record,
-                  Errors.MONGODB_17,
-                  e.toString(),
-                  e
-              )
+        errors.addAll(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new StageException(Errors.MONGODB_17, e.toString(), e);
+      } catch (ExecutionException e) {
+        throw new StageException(Errors.MONGODB_17, e.getCause().toString(), e.getCause());
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Sends the write models as a single bulk write and returns the errors for the records that were not written.
+   *
+   * Errors are returned rather than reported so that the error record handler is only used from the pipeline thread.
+   */
+  private List<OnRecordErrorException> bulkWrite(
+      List<WriteModel<RawBsonDocument>> documentList,
+      List<Record> recordList
+  ) {
+    List<OnRecordErrorException> errors = new ArrayList<>();
+    boolean ordered = !mongoTargetConfigBean.unorderedWrites;
+    try {
+      BulkWriteResult bulkWriteResult = mongoCollection.bulkWrite(
+          documentList,
+          new BulkWriteOptions().ordered(ordered)
+      );
+      if (bulkWriteResult.wasAcknowledged()) {
+        LOG.trace(
+            "Wrote batch with {} inserts, {} updates and {} deletes",
+            bulkWriteResult.getInsertedCount(),
+            bulkWriteResult.getModifiedCount(),
+            bulkWriteResult.getDeletedCount()
+        );
+      }
+    } catch (MongoBulkWriteException e) {
+      if (!ordered && e.getWriteConcernError() == null && !e.getWriteErrors().isEmpty()) {
+        // An unordered bulk write attempts every operation, hence only the reported ones have failed
+        for (BulkWriteError error : e.getWriteErrors()) {
+          errors.add(
+              new OnRecordErrorException(recordList.get(error.getIndex()), Errors.MONGODB_17, error.getMessage())
           );
         }
+      } else {
+        addErrors(errors, recordList, e);
       }
+    } catch (MongoException e) {
+      addErrors(errors, recordList, e);
+    }
+    return errors;
+  }
+
+  private static void addErrors(List<OnRecordErrorException> errors, List<Record> recordList, MongoException e) {
+    for (Record record : recordList) {
+      errors.add(
+          new OnRecordErrorException(
+              record,
+              Errors.MONGODB_17,
+              e.toString(),
+              e
+          )
+      );
     }
   }
 
@@ -61,4 +61,43 @@ public class MongoTargetConfigBean {
   @ValueChooserModel(WriteConcernChooserValues.class)
   public WriteConcernLabel writeConcern = WriteConcernLabel.JOURNALED;
 
+  @ConfigDef(
+      type = ConfigDef.Type.BOOLEAN,
+      label = "Unordered Writes",
+      defaultValue = "false",
+      description = "Sends the bulk write of each batch as unordered, so that the server can apply the operations" +
+          " in any order and a failed operation does not stop the remaining ones",
+      required = true,
+      displayPosition = 1030,
+      group = "MONGODB"
+  )
+  public boolean unorderedWrites;
+
+  @ConfigDef(
+      type = ConfigDef.Type.NUMBER,
+      label = "Write Threads",
+      defaultValue = "1",
+      description = "Number of threads used to send the unordered bulk write of each batch in parallel splits",
+      required = true,
+      min = 1,
+      max = 64,
+      dependsOn = "unorderedWrites",
+      triggeredByValue = "true",
+      displayPosition = 1040,
+      group = "MONGODB"
+  )
+  public int writeThreads = 1;
+
+  @ConfigDef(
+      type = ConfigDef.Type.BOOLEAN,
+      label = "Write Native BSON Types",
+      defaultValue = "false",
+      description = "Writes dates as BSON dates, decimals as Decimal128 and byte arrays as binary data. When not" +
+          " set, they are stored as epoch milliseconds, doubles and base64 strings as in earlier versions",
+      required = true,
+      displayPosition = 1050,
+      group = "MONGODB"
+  )
+  public boolean nativeBsonTypes;
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 StreamSets Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.streamsets.pipeline.stage.common.mongodb;
+
+import com.google.common.collect.ImmutableList;
+import com.streamsets.pipeline.api.Field;
+import com.streamsets.pipeline.api.Record;
+import com.streamsets.pipeline.sdk.RecordCreator;
+import org.bson.BsonSerializationException;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestRecordCodec {
+
+  private static Document encode(Record record, boolean nativeTypes) {
+    return new RawBsonDocument(record, new RecordCodec(nativeTypes)).decode(new DocumentCodec());
+  }
+
+  @Test
+  public void testTypesArePreserved() {
+    Date date = new Date(1500000000000L);
+    byte[] bytes = {1, 2, 3};
+
+    Map<String, Field> nested = new LinkedHashMap<>();
+    nested.put("s", Field.create("value"));
+
+    LinkedHashMap<String, Field> root = new LinkedHashMap<>();
+    root.put("string", Field.create("text"));
+    root.put("int", Field.create(10));
+    root.put("long", Field.create(10L));
+    root.put("double", Field.create(1.5d));
+    root.put("boolean", Field.create(true));
+    root.put("decimal", Field.create(new BigDecimal("12.345")));
+    root.put("date", Field.createDatetime(date));
+    root.put("bytes", Field.create(bytes));
+    root.put("null", Field.create(Field.Type.STRING, null));
+    root.put("list", Field.create(ImmutableList.of(Field.create(1), Field.create(2))));
+    root.put("map", Field.create(nested));
+
+    Record record = RecordCreator.create();
+    record.set(Field.createListMap(root));
+
+    Document document = encode(record, true);
+    Assert.assertEquals("text", document.get("string"));
+    Assert.assertEquals(10, document.get("int"));
+    Assert.assertEquals(10L, document.get("long"));
+    Assert.assertEquals(1.5d, document.get("double"));
+    Assert.assertEquals(true, document.get("boolean"));
+    Assert.assertEquals(new Decimal128(new BigDecimal("12.345")), document.get("decimal"));
+    Assert.assertEquals(date, document.get("date"));
+    Assert.assertArrayEquals(bytes, ((Binary) document.get("bytes")).getData());
+    Assert.assertTrue(document.containsKey("null"));
+    Assert.assertNull(document.get("null"));
+    Assert.assertEquals(ImmutableList.of(1, 2), document.get("list"));
+    Assert.assertEquals("value", ((Document) document.get("map")).get("s"));
+
+    // Field order of a LIST_MAP is kept
+    List<String> keys = ImmutableList.copyOf(document.keySet());
+    Assert.assertEquals(ImmutableList.copyOf(root.keySet()), keys);
+  }
+
+  @Test
+  public void testJsonCompatibleTypesByDefault() {
+    LinkedHashMap<String, Field> root = new LinkedHashMap<>();
+    root.put("smallLong", Field.create(10L));
+    root.put("long", Field.create(5000000000L));
+    root.put("float", Field.create(1.5f));
+    root.put("decimal", Field.create(new BigDecimal("12.345")));
+    root.put("integralDecimal", Field.create(new BigDecimal("12")));
+    root.put("date", Field.createDatetime(new Date(1500000000000L)));
+    root.put("bytes", Field.create(new byte[] {1, 2, 3}));
+
+    Record record = RecordCreator.create();
+    record.set(Field.createListMap(root));
+
+    // Same values and types as Document.parse() gives for the JSON representation of the record
+    Document document = encode(record, false);
+    Assert.assertEquals(10, document.get("smallLong"));
+    Assert.assertEquals(5000000000L, document.get("long"));
+    Assert.assertEquals(1.5d, document.get("float"));
+    Assert.assertEquals(12.345d, document.get("decimal"));
+    Assert.assertEquals(12, document.get("integralDecimal"));
+    Assert.assertEquals(1500000000000L, document.get("date"));
+    Assert.assertEquals("AQID", document.get("bytes"));
+  }
+
+  @Test(expected = BsonSerializationException.class)
+  public void testRootMustBeMap() {
+    Record record = RecordCreator.create();
+    record.set(Field.create("text"));
+    encode(record, false);
+  }
+}
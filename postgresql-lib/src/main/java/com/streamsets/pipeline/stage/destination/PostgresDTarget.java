@@ -16,20 +16,24 @@
 
 package com.streamsets.pipeline.stage.destination;
 
+import com.streamsets.pipeline.api.ConfigDef;
 import com.streamsets.pipeline.api.ConfigDefBean;
 import com.streamsets.pipeline.api.ConfigGroups;
 import com.streamsets.pipeline.api.GenerateResourceBundle;
 import com.streamsets.pipeline.api.HideConfigs;
 import com.streamsets.pipeline.api.StageDef;
+import com.streamsets.pipeline.api.Target;
 import com.streamsets.pipeline.api.service.ServiceDependency;
 import com.streamsets.pipeline.api.service.sshtunnel.SshTunnelService;
 import com.streamsets.pipeline.lib.jdbc.EncryptionGroups;
 import com.streamsets.pipeline.lib.jdbc.HikariPoolConfigBean;
+import com.streamsets.pipeline.lib.operation.OperationType;
 import com.streamsets.pipeline.stage.config.PostgresHikariPoolConfigBean;
 import com.streamsets.pipeline.stage.destination.jdbc.JdbcDTarget;
+import com.streamsets.pipeline.stage.destination.jdbc.JdbcTarget;
 
 @GenerateResourceBundle
-@StageDef(version = 1,
+@StageDef(version = 2,
     label = "PostgreSQL Producer",
     description = "Writes data to PostgreSQL",
     upgraderDef = "upgrader/PostgresDTarget.yaml",
@@ -46,9 +50,44 @@ public class PostgresDTarget extends JdbcDTarget {
   @ConfigDefBean
   public PostgresHikariPoolConfigBean hikariConfigBean;
 
+  @ConfigDef(
+      displayMode = ConfigDef.DisplayMode.ADVANCED,
+      required = true,
+      type = ConfigDef.Type.BOOLEAN,
+      defaultValue = "false",
+      label = "Use COPY",
+      description = "Load records with COPY instead of INSERT statements. Significantly improves performance, but " +
+          "only inserts records: records with other operations are sent to error.",
+      displayPosition = 65,
+      group = "JDBC"
+  )
+  public boolean useCopy;
+
   @Override
   protected HikariPoolConfigBean getHikariConfigBean() {
     return hikariConfigBean;
   }
 
+  @Override
+  protected Target createTarget() {
+    if (!useCopy) {
+      return super.createTarget();
+    }
+    return new JdbcTarget(
+        getSchema(),
+        tableNameTemplate,
+        columnNames,
+        encloseTableName,
+        rollbackOnError,
+        useMultiRowInsert,
+        maxPrepStmtParameters,
+        changeLogFormat,
+        OperationType.LOAD_CODE,
+        unsupportedAction,
+        null, // COPY has no duplicate-key handling
+        getHikariConfigBean(),
+        customDataSqlStateCodes
+    );
+  }
+
 }